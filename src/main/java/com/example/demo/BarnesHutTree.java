@@ -2,64 +2,272 @@ package com.example.demo;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 public class BarnesHutTree extends SpatialPartitioningTree {
 
     private Node root;
-    private static final double THETA = 0.5; // Barnes-Hut opening angle parameter
+    static final double DEFAULT_THETA = 0.5; // Barnes-Hut opening angle parameter
+    static final double MAX_THETA = 1.5;
+    private double theta = DEFAULT_THETA;
+    private final SofteningKernel softening;
+    private final double softeningLength;
+    
+    // Body-node interactions evaluated so far (telemetry). Walks count locally and
+    // add once at the end, so concurrent calculateNetForce calls stay cheap.
+    private final LongAdder interactionCount = new LongAdder();
+    // Neumaier-compensated force sums (deterministic mode)
+    private boolean compensated;
+    // Short-range TreePM walk (null: full gravity), over nearest images in a periodic box
+    private ForceSplit split;
+    private PeriodicBox periodic;
+
+    // Root cell is grown by this fraction so outward drift does not immediately force a rebuild
+    private static final double ROOT_SLACK = 0.1;
+    // Rebuild once this fraction of bodies has been reinserted since the last build...
+    private static final double REBUILD_REINSERT_FRACTION = 0.25;
+    // ...or once the bodies fill less than this fraction of the root edge (tree too deep)
+    private static final double REBUILD_MIN_FILL = 0.5;
+
+    // Persistent state for refit(): the body set the tree was built from
+    private final Set<CelestialBody> members = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<CelestialBody> escaped = new ArrayList<>();
+    private int reinsertedSinceBuild;
 
     // Placeholder for an internal node or leaf in the tree
-    private static abstract class Node {
+    private abstract class Node {
         // Represents the bounding box of this node's region
         protected Vector3D center;
         protected double size;
+        // Tight bounds of the body centres below this node, and their largest radius (broad phase)
+        protected double minX, minY, minZ, maxX, maxY, maxZ;
+        protected double maxRadius;
+
+        abstract void accumulateForce(CelestialBody body, ForceSum sum);
+
+        // TreePM mode: pair forces scaled by the split's short-range factor
+        abstract void accumulateShortRange(CelestialBody body, ForceSum sum);
+
+        // Sum of m * potentialFactor over the bodies (or cell summaries) seen from the point
+        abstract double accumulatePotential(CelestialBody body);
+
+        abstract void collectOverlapping(CelestialBody body, List<CelestialBody> out);
+
+        abstract void collectWithin(Vector3D point, double radius, List<CelestialBody> out);
+
+        abstract void collectEssential(double[] box, List<CelestialBody> out);
+
+        // Recompute mass moments and bounds from the current body positions (children first)
+        abstract void summarize();
+
+        boolean cellContains(Vector3D p) {
+            double half = size / 2.0;
+            return Math.abs(p.x - center.x) <= half
+                && Math.abs(p.y - center.y) <= half
+                && Math.abs(p.z - center.z) <= half;
+        }
+
+        void resetBounds() {
+            minX = minY = minZ = Double.POSITIVE_INFINITY;
+            maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+            maxRadius = 0;
+        }
 
-        abstract Vector3D calculateForce(CelestialBody body);
+        /**
+         * True if a sphere around the body, grown by the largest radius below this node,
+         * can touch the node's bounds.
+         */
+        boolean mayOverlap(CelestialBody body) {
+            Vector3D p = body.position;
+            double reach = body.radius + maxRadius;
+            double dx = Math.max(0, Math.max(minX - p.x, p.x - maxX));
+            double dy = Math.max(0, Math.max(minY - p.y, p.y - maxY));
+            double dz = Math.max(0, Math.max(minZ - p.z, p.z - maxZ));
+            return dx * dx + dy * dy + dz * dz <= reach * reach;
+        }
+
+        boolean boundsWithin(Vector3D p, double radius) {
+            return boundsDistanceSquared(p) <= radius * radius;
+        }
+
+        /**
+         * True if the point is outside the bounds, so the body there is not below this
+         * node. Past theta = 2 / sqrt(3) the opening test alone can summarize the
+         * cell holding the body (up to half a diagonal from its centre), and the
+         * body would pull on itself.
+         */
+        boolean excludes(Vector3D p) {
+            return boundsDistanceSquared(p) > 0;
+        }
+
+        double boundsDistanceSquared(Vector3D p) {
+            double dx = Math.max(0, Math.max(minX - p.x, p.x - maxX));
+            double dy = Math.max(0, Math.max(minY - p.y, p.y - maxY));
+            double dz = Math.max(0, Math.max(minZ - p.z, p.z - maxZ));
+            return dx * dx + dy * dy + dz * dz;
+        }
     }
 
-    // Placeholder for a leaf node (contains a single body)
-    private static class LeafNode extends Node {
-        private CelestialBody body;
+    // Leaf node: normally a single body, several when they share a location
+    private class LeafNode extends Node {
+        private final List<CelestialBody> bodies;
+        private double totalMass;
 
-        LeafNode(CelestialBody body, Vector3D center, double size) {
-            this.body = body;
+        LeafNode(List<CelestialBody> bodies, Vector3D center, double size) {
+            this.bodies = new ArrayList<>(bodies);
             this.center = center;
             this.size = size;
+            summarize();
         }
 
         @Override
-        Vector3D calculateForce(CelestialBody targetBody) {
-            // If the target body is the same as this body, no force
-            if (this.body.equals(targetBody)) {
-                return Vector3D.ZERO;
+        void summarize() {
+            double mass = 0;
+            resetBounds();
+            for (CelestialBody body : bodies) {
+                mass += body.mass;
+                minX = Math.min(minX, body.position.x);
+                minY = Math.min(minY, body.position.y);
+                minZ = Math.min(minZ, body.position.z);
+                maxX = Math.max(maxX, body.position.x);
+                maxY = Math.max(maxY, body.position.y);
+                maxZ = Math.max(maxZ, body.position.z);
+                maxRadius = Math.max(maxRadius, body.radius);
             }
-            return CelestialBody.calculateGravity(targetBody, this.body);
+            this.totalMass = mass;
+        }
+
+        @Override
+        void accumulateForce(CelestialBody targetBody, ForceSum sum) {
+            for (CelestialBody body : bodies) {
+                // If the target body is the same as this body, no force
+                if (body.equals(targetBody)) {
+                    continue;
+                }
+                sum.interactions++;
+                sum.add(CelestialBody.calculateGravity(targetBody, body, softening, softeningLength));
+            }
+        }
+
+        @Override
+        void accumulateShortRange(CelestialBody targetBody, ForceSum sum) {
+            Vector3D p = targetBody.position;
+            for (CelestialBody body : bodies) {
+                if (body == targetBody) {
+                    continue;
+                }
+                double dx = image(body.position.x - p.x);
+                double dy = image(body.position.y - p.y);
+                double dz = image(body.position.z - p.z);
+                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                double shortRange = split.shortRangeFactor(distance);
+                if (shortRange > 0) {
+                    sum.interactions++;
+                    double factor = CelestialBody.G * targetBody.mass * body.mass * shortRange
+                        * softening.forceFactor(distance, softeningLength);
+                    sum.add(factor * dx, factor * dy, factor * dz);
+                }
+            }
+        }
+
+        @Override
+        double accumulatePotential(CelestialBody targetBody) {
+            double sum = 0;
+            for (CelestialBody body : bodies) {
+                if (body == targetBody) {
+                    continue;
+                }
+                double dx = body.position.x - targetBody.position.x;
+                double dy = body.position.y - targetBody.position.y;
+                double dz = body.position.z - targetBody.position.z;
+                sum += body.mass * softening.potentialFactor(Math.sqrt(dx * dx + dy * dy + dz * dz), softeningLength);
+            }
+            return sum;
+        }
+
+        @Override
+        void collectOverlapping(CelestialBody targetBody, List<CelestialBody> out) {
+            for (CelestialBody body : bodies) {
+                if (body != targetBody && touching(targetBody, body)) {
+                    out.add(body);
+                }
+            }
+        }
+
+        @Override
+        void collectWithin(Vector3D point, double radius, List<CelestialBody> out) {
+            for (CelestialBody body : bodies) {
+                double dx = body.position.x - point.x;
+                double dy = body.position.y - point.y;
+                double dz = body.position.z - point.z;
+                if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+                    out.add(body);
+                }
+            }
+        }
+
+        @Override
+        void collectEssential(double[] box, List<CelestialBody> out) {
+            out.addAll(bodies);
         }
     }
 
     // Placeholder for an internal node (contains child nodes)
-    private static class InternalNode extends Node {
-        private List<Node> children;
+    private class InternalNode extends Node {
+        // Indexed by octant; null where the octant is empty
+        private final Node[] children = new Node[8];
         private double totalMass;
         private Vector3D centerOfMass;
 
         InternalNode(Vector3D center, double size) {
             this.center = center;
             this.size = size;
-            this.children = new ArrayList<>();
             this.totalMass = 0;
             this.centerOfMass = Vector3D.ZERO;
         }
 
-        public void addChild(Node child) {
-            this.children.add(child);
+        @Override
+        void summarize() {
+            double mass = 0;
+            double cx = 0, cy = 0, cz = 0;
+            resetBounds();
+            for (Node child : children) {
+                if (child == null) continue;
+                if (child instanceof LeafNode) {
+                    LeafNode leafChild = (LeafNode) child;
+                    for (CelestialBody childBody : leafChild.bodies) {
+                        cx += childBody.position.x * childBody.mass;
+                        cy += childBody.position.y * childBody.mass;
+                        cz += childBody.position.z * childBody.mass;
+                    }
+                    mass += leafChild.totalMass;
+                } else {
+                    InternalNode internalChild = (InternalNode) child;
+                    cx += internalChild.centerOfMass.x * internalChild.totalMass;
+                    cy += internalChild.centerOfMass.y * internalChild.totalMass;
+                    cz += internalChild.centerOfMass.z * internalChild.totalMass;
+                    mass += internalChild.totalMass;
+                }
+                minX = Math.min(minX, child.minX);
+                minY = Math.min(minY, child.minY);
+                minZ = Math.min(minZ, child.minZ);
+                maxX = Math.max(maxX, child.maxX);
+                maxY = Math.max(maxY, child.maxY);
+                maxZ = Math.max(maxZ, child.maxZ);
+                maxRadius = Math.max(maxRadius, child.maxRadius);
+            }
+            this.totalMass = mass;
+            this.centerOfMass = mass > 0 ? Vector3D.obtain(cx / mass, cy / mass, cz / mass) : Vector3D.ZERO;
         }
 
         @Override
-        Vector3D calculateForce(CelestialBody targetBody) {
+        void accumulateForce(CelestialBody targetBody, ForceSum sum) {
             // Use subtract() instead of sub()
             double distance = this.center.subtract(targetBody.position).length();
-            if (this.size / distance < THETA) {
+            if (this.size / distance < theta && excludes(targetBody.position)) {
                 // Create temporary body with valid radius (1e-5 instead of 0)
                 CelestialBody equivalentBody = new CelestialBody(
                     "temp", 
@@ -72,22 +280,131 @@ public class BarnesHutTree extends SpatialPartitioningTree {
                 equivalentBody.setStatic(true);
                 
                 if (equivalentBody.equals(targetBody)) {
-                    return Vector3D.ZERO;
+                    return;
                 }
-                return CelestialBody.calculateGravity(targetBody, equivalentBody);
+                sum.interactions++;
+                sum.add(CelestialBody.calculateGravity(targetBody, equivalentBody, softening, softeningLength));
 
             } else {
-                // Recurse into children
-                Vector3D netForce = Vector3D.ZERO;
+                // Recurse into children in fixed octant order
                 for (Node child : children) {
-                    netForce = netForce.add(child.calculateForce(targetBody));
+                    if (child != null) {
+                        child.accumulateForce(targetBody, sum);
+                    }
+                }
+            }
+        }
+
+        @Override
+        void accumulateShortRange(CelestialBody targetBody, ForceSum sum) {
+            Vector3D p = targetBody.position;
+            // Nothing below contributes once even the nearest point of the bounds is past the cutoff
+            double cutoff = split.getCutoff();
+            double gap2 = periodic != null
+                ? periodic.boundsDistanceSquared(p, minX, minY, minZ, maxX, maxY, maxZ)
+                : boundsDistanceSquared(p);
+            if (gap2 >= cutoff * cutoff) {
+                return;
+            }
+            double cx = image(center.x - p.x);
+            double cy = image(center.y - p.y);
+            double cz = image(center.z - p.z);
+            if (this.size / Math.sqrt(cx * cx + cy * cy + cz * cz) < theta && gap2 > 0) {
+                double dx = image(centerOfMass.x - p.x);
+                double dy = image(centerOfMass.y - p.y);
+                double dz = image(centerOfMass.z - p.z);
+                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                double shortRange = split.shortRangeFactor(distance);
+                if (shortRange > 0) {
+                    sum.interactions++;
+                    double factor = CelestialBody.G * targetBody.mass * totalMass * shortRange
+                        * softening.forceFactor(distance, softeningLength);
+                    sum.add(factor * dx, factor * dy, factor * dz);
+                }
+                return;
+            }
+            for (Node child : children) {
+                if (child != null) {
+                    child.accumulateShortRange(targetBody, sum);
+                }
+            }
+        }
+
+        @Override
+        double accumulatePotential(CelestialBody targetBody) {
+            // Same opening test as accumulateForce, so energy and force see the same tree
+            double distance = this.center.subtract(targetBody.position).length();
+            if (this.size / distance < theta && excludes(targetBody.position)) {
+                double dx = centerOfMass.x - targetBody.position.x;
+                double dy = centerOfMass.y - targetBody.position.y;
+                double dz = centerOfMass.z - targetBody.position.z;
+                return totalMass * softening.potentialFactor(Math.sqrt(dx * dx + dy * dy + dz * dz), softeningLength);
+            }
+            double sum = 0;
+            for (Node child : children) {
+                if (child != null) {
+                    sum += child.accumulatePotential(targetBody);
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        void collectOverlapping(CelestialBody body, List<CelestialBody> out) {
+            for (Node child : children) {
+                if (child != null && child.mayOverlap(body)) {
+                    child.collectOverlapping(body, out);
+                }
+            }
+        }
+
+        @Override
+        void collectWithin(Vector3D point, double radius, List<CelestialBody> out) {
+            for (Node child : children) {
+                if (child != null && child.boundsWithin(point, radius)) {
+                    child.collectWithin(point, radius, out);
+                }
+            }
+        }
+
+        @Override
+        void collectEssential(double[] box, List<CelestialBody> out) {
+            // Nearest point of the box: no body inside it can see this cell under a wider angle
+            double dx = Math.max(0, Math.max(box[0] - center.x, center.x - box[3]));
+            double dy = Math.max(0, Math.max(box[1] - center.y, center.y - box[4]));
+            double dz = Math.max(0, Math.max(box[2] - center.z, center.z - box[5]));
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (distance > 0 && this.size / distance < theta) {
+                CelestialBody summary = new CelestialBody("cell", totalMass, 1e-5, null, centerOfMass, Vector3D.ZERO);
+                summary.setStatic(true);
+                out.add(summary);
+                return;
+            }
+            for (Node child : children) {
+                if (child != null) {
+                    child.collectEssential(box, out);
                 }
-                return netForce;
             }
         }
     }
 
     public BarnesHutTree(List<CelestialBody> bodies) {
+        this(bodies, SofteningKernel.NONE, 0);
+    }
+
+    public BarnesHutTree(List<CelestialBody> bodies, SofteningKernel softening, double softeningLength) {
+        // SAFETY: Negative or NaN lengths would turn softening into anti-softening
+        if (softening == null || !(softeningLength >= 0)) {
+            throw new IllegalArgumentException("Softening kernel required and length must be >= 0");
+        }
+        this.softening = softening;
+        this.softeningLength = softeningLength;
+        build(bodies);
+    }
+
+    private void build(List<CelestialBody> bodies) {
+        members.clear();
+        reinsertedSinceBuild = 0;
         if (bodies == null || bodies.isEmpty()) {
             this.root = null;
             return;
@@ -108,9 +425,10 @@ public class BarnesHutTree extends SpatialPartitioningTree {
             maxX = Math.max(maxX, body.position.x);
             maxY = Math.max(maxY, body.position.y);
             maxZ = Math.max(maxZ, body.position.z);
+            members.add(body);
         }
 
-        double maxSize = Math.max(Math.max(maxX - minX, maxY - minY), maxZ - minZ);
+        double maxSize = Math.max(Math.max(maxX - minX, maxY - minY), maxZ - minZ) * (1 + ROOT_SLACK);
         Vector3D center = Vector3D.obtain(
             (minX + maxX) / 2.0,
             (minY + maxY) / 2.0,
@@ -120,13 +438,170 @@ public class BarnesHutTree extends SpatialPartitioningTree {
         this.root = buildTree(bodies, center, maxSize);
     }
 
+    /**
+     * Update the tree for the bodies' new positions instead of rebuilding it.
+     *
+     * Bodies still inside their leaf cell stay put; the rest are detached and
+     * reinserted from the root, then mass moments and bounds are recomputed
+     * bottom-up. Falls back to a full rebuild when the body set changed, a body
+     * left the root cell, or the tree quality degraded (too many reinsertions
+     * since the last build, or bodies shrunk well inside the root cell).
+     *
+     * @return true if refitted in place, false if a full rebuild was done
+     */
+    public boolean refit(List<CelestialBody> bodies) {
+        interactionCount.reset();
+        if (root == null || !sameBodies(bodies)) {
+            build(bodies);
+            return false;
+        }
+        Vector3D rootCenter = root.center;
+        double rootSize = root.size;
+
+        escaped.clear();
+        root = detachEscaped(root);
+        for (CelestialBody body : escaped) {
+            if (root == null || !cellContainsRoot(rootCenter, rootSize, body.position)) {
+                build(bodies);
+                return false;
+            }
+            root = insert(root, body, rootCenter, rootSize);
+        }
+        reinsertedSinceBuild += escaped.size();
+        escaped.clear();
+        summarizeAll(root);
+
+        if (needsRebuild(bodies.size())) {
+            build(bodies);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean sameBodies(List<CelestialBody> bodies) {
+        if (bodies == null || bodies.size() != members.size()) {
+            return false;
+        }
+        for (CelestialBody body : bodies) {
+            if (!members.contains(body)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean cellContainsRoot(Vector3D center, double size, Vector3D p) {
+        double half = size / 2.0;
+        return Math.abs(p.x - center.x) <= half
+            && Math.abs(p.y - center.y) <= half
+            && Math.abs(p.z - center.z) <= half;
+    }
+
+    private boolean needsRebuild(int bodyCount) {
+        if (reinsertedSinceBuild > REBUILD_REINSERT_FRACTION * bodyCount) {
+            return true;
+        }
+        double extent = Math.max(Math.max(root.maxX - root.minX, root.maxY - root.minY), root.maxZ - root.minZ);
+        return bodyCount > 1 && extent < REBUILD_MIN_FILL * root.size;
+    }
+
+    /**
+     * Remove bodies that left their leaf cell (collected in escaped). Empty nodes are
+     * dropped and internal nodes left with a single leaf collapse into it, as a fresh
+     * build would produce. Returns the replacement for the node, possibly null.
+     */
+    private Node detachEscaped(Node node) {
+        if (node instanceof LeafNode) {
+            LeafNode leaf = (LeafNode) node;
+            for (int i = leaf.bodies.size() - 1; i >= 0; i--) {
+                CelestialBody body = leaf.bodies.get(i);
+                boolean leftCell = !leaf.cellContains(body.position);
+                // Shared leaves only hold coincident bodies; split them once they separate
+                boolean separated = i > 0 && leaf.size / 2.0 >= 1e-10
+                    && !samePosition(leaf.bodies.get(0), body);
+                if (leftCell || separated) {
+                    leaf.bodies.remove(i);
+                    escaped.add(body);
+                }
+            }
+            return leaf.bodies.isEmpty() ? null : leaf;
+        }
+        InternalNode internal = (InternalNode) node;
+        int remaining = 0;
+        Node last = null;
+        for (int i = 0; i < 8; i++) {
+            if (internal.children[i] != null) {
+                internal.children[i] = detachEscaped(internal.children[i]);
+                if (internal.children[i] != null) {
+                    remaining++;
+                    last = internal.children[i];
+                }
+            }
+        }
+        if (remaining == 0) {
+            return null;
+        }
+        if (remaining == 1 && last instanceof LeafNode) {
+            last.center = internal.center;
+            last.size = internal.size;
+            return last;
+        }
+        return internal;
+    }
+
+    /**
+     * Insert a body below node (whose cell is given), splitting leaves as needed.
+     * Aggregates are not updated here; summarizeAll runs afterwards.
+     */
+    private Node insert(Node node, CelestialBody body, Vector3D center, double size) {
+        if (node == null) {
+            return new LeafNode(Collections.singletonList(body), center, size);
+        }
+        if (node instanceof LeafNode) {
+            LeafNode leaf = (LeafNode) node;
+            // SECURITY: Same guard as buildTree against unbounded subdivision
+            if (size / 2.0 < 1e-10 || samePosition(leaf.bodies.get(0), body)) {
+                leaf.bodies.add(body);
+                return leaf;
+            }
+            InternalNode split = new InternalNode(center, size);
+            for (CelestialBody existing : leaf.bodies) {
+                insertIntoChild(split, existing);
+            }
+            insertIntoChild(split, body);
+            return split;
+        }
+        insertIntoChild((InternalNode) node, body);
+        return node;
+    }
+
+    private void insertIntoChild(InternalNode node, CelestialBody body) {
+        int octant = getOctantIndex(body.position, node.center);
+        double halfSize = node.size / 2.0;
+        node.children[octant] = insert(node.children[octant], body,
+            getOctantCenter(node.center, halfSize, octant), halfSize);
+    }
+
+    private void summarizeAll(Node node) {
+        if (node instanceof InternalNode) {
+            for (Node child : ((InternalNode) node).children) {
+                if (child != null) {
+                    summarizeAll(child);
+                }
+            }
+        }
+        if (node != null) {
+            node.summarize();
+        }
+    }
+
     private Node buildTree(List<CelestialBody> bodies, Vector3D center, double size) {
         if (bodies.isEmpty()) {
             return null;
         }
 
         if (bodies.size() == 1) {
-            return new LeafNode(bodies.get(0), center, size);
+            return new LeafNode(Collections.singletonList(bodies.get(0)), center, size);
         }
 
         InternalNode node = new InternalNode(center, size);
@@ -149,50 +624,16 @@ public class BarnesHutTree extends SpatialPartitioningTree {
             
             Vector3D octantCenter = getOctantCenter(center, halfSize, i);
             
-            // SECURITY: Prevent infinite recursion when bodies are at same/similar positions
-            // If subdivision becomes too small or we have multiple bodies in same location,
-            // create a single leaf node with the first body (simplified approximation)
+            // SECURITY: Prevent infinite recursion when bodies are at same/similar positions.
+            // Coincident bodies share one leaf and keep their identities, so forces and
+            // collision queries still see each real body.
             if (halfSize < 1e-10 || (octants[i].size() > 1 && bodiesAreAtSameLocation(octants[i]))) {
-                // Use first body as representative for this location
-                CelestialBody representative = octants[i].get(0);
-                double combinedMass = octants[i].stream().mapToDouble(b -> b.mass).sum();
-                
-                // Create a virtual body with combined mass at the same position
-                CelestialBody virtualBody = new CelestialBody(
-                    "virtual_" + i, combinedMass, representative.radius, 
-                    representative.color, representative.position, Vector3D.ZERO
-                ) {};
-                virtualBody.isStatic = true; // Mark as static since it's virtual
-                
-                LeafNode leafChild = new LeafNode(virtualBody, octantCenter, halfSize);
-                node.addChild(leafChild);
-                node.totalMass += virtualBody.mass;
-                node.centerOfMass = node.centerOfMass.add(
-                    virtualBody.position.scale(virtualBody.mass)
-                );
+                node.children[i] = new LeafNode(octants[i], octantCenter, halfSize);
             } else {
-                Node child = buildTree(octants[i], octantCenter, halfSize);
-                if (child != null) {
-                    node.addChild(child);
-                    if (child instanceof LeafNode) {
-                        CelestialBody childBody = ((LeafNode) child).body;
-                        node.totalMass += childBody.mass;
-                        node.centerOfMass = node.centerOfMass.add(
-                            childBody.position.scale(childBody.mass)
-                        );
-                    } else if (child instanceof InternalNode) {
-                        InternalNode internalChild = (InternalNode) child;
-                        node.totalMass += internalChild.totalMass;
-                        node.centerOfMass = node.centerOfMass.add(
-                            internalChild.centerOfMass.scale(internalChild.totalMass)
-                        );
-                    }
-                }
+                node.children[i] = buildTree(octants[i], octantCenter, halfSize);
             }
         }
-        if (node.totalMass > 0) {
-            node.centerOfMass = node.centerOfMass.scale(1.0 / node.totalMass);
-        }
+        node.summarize();
 
         return node;
     }
@@ -206,12 +647,18 @@ public class BarnesHutTree extends SpatialPartitioningTree {
     }
 
     private Vector3D getOctantCenter(Vector3D parentCenter, double halfSize, int octantIndex) {
-        double offsetX = ((octantIndex & 4) != 0) ? halfSize : -halfSize;
-        double offsetY = ((octantIndex & 2) != 0) ? halfSize : -halfSize;
-        double offsetZ = ((octantIndex & 1) != 0) ? halfSize : -halfSize;
+        // Child cubes have edge halfSize, so their centres sit a quarter of the parent edge away
+        double quarter = halfSize / 2.0;
+        double offsetX = ((octantIndex & 4) != 0) ? quarter : -quarter;
+        double offsetY = ((octantIndex & 2) != 0) ? quarter : -quarter;
+        double offsetZ = ((octantIndex & 1) != 0) ? quarter : -quarter;
         return parentCenter.add(Vector3D.obtain(offsetX, offsetY, offsetZ));
     }
     
+    private static boolean samePosition(CelestialBody a, CelestialBody b) {
+        return a.position.subtract(b.position).length() <= 1e-6; // Same tolerance as below
+    }
+
     /**
      * Check if multiple bodies are at the same or very similar location
      * SECURITY: Prevents infinite subdivision when bodies occupy same space
@@ -237,6 +684,166 @@ public class BarnesHutTree extends SpatialPartitioningTree {
         if (this.root == null) {
             return Vector3D.ZERO;
         }
-        return this.root.calculateForce(body);
+        ForceSum sum = new ForceSum(compensated);
+        if (split != null) {
+            this.root.accumulateShortRange(body, sum);
+        } else {
+            this.root.accumulateForce(body, sum);
+        }
+        interactionCount.add(sum.interactions);
+        return sum.total();
+    }
+
+    /**
+     * Gravitational potential energy of the body in the field of the tree,
+     * -G * m * sum(m_i * potentialFactor(r_i)), with distant cells replaced by
+     * their centre of mass as in calculateNetForce. Half the sum of this over
+     * all bodies is the system's potential energy. Safe to call concurrently.
+     */
+    public double calculatePotential(CelestialBody body) {
+        if (this.root == null) {
+            return 0;
+        }
+        return -CelestialBody.G * body.mass * this.root.accumulatePotential(body);
+    }
+
+    /**
+     * With compensation on, each force component is summed with Neumaier's
+     * algorithm: the error no longer grows with the number of terms, and the
+     * result is almost always the same whatever order they arrive in. Costs a
+     * few extra flops per interaction.
+     */
+    public void setCompensatedSummation(boolean compensated) {
+        this.compensated = compensated;
+    }
+
+    public boolean isCompensatedSummation() { return compensated; }
+
+    /**
+     * Opening angle: cells smaller than theta times their distance are summarized.
+     */
+    public void setOpeningAngle(double theta) {
+        this.theta = checkOpeningAngle(theta);
+    }
+
+    static double checkOpeningAngle(double theta) {
+        // SECURITY: Past MAX_THETA whole neighbouring cells collapse to one point mass
+        if (!(theta > 0 && theta <= MAX_THETA)) {
+            throw new IllegalArgumentException("Opening angle must be in (0, " + MAX_THETA + "]");
+        }
+        return theta;
+    }
+
+    public double getOpeningAngle() { return theta; }
+
+    /**
+     * With a split, calculateNetForce returns only the short-range part of
+     * the TreePM force (a ParticleMesh supplies the rest), and with a periodic
+     * box too it is summed over the nearest image of each body, which must lie
+     * inside the box. A null split restores full isolated gravity.
+     */
+    public void setShortRange(ForceSplit split, PeriodicBox periodic) {
+        // SAFETY: Nearest images alone are only the whole force below the cutoff
+        if (periodic != null && split == null) {
+            throw new IllegalArgumentException("A periodic box needs a force split");
+        }
+        this.split = split;
+        this.periodic = periodic;
+    }
+
+    public ForceSplit getForceSplit() { return split; }
+    public PeriodicBox getPeriodicBox() { return periodic; }
+
+    private double image(double d) {
+        return periodic != null ? periodic.minimumImage(d) : d;
+    }
+
+    // Running force total of one walk, plus its interaction count
+    private static final class ForceSum {
+        private final boolean compensated;
+        private double x, y, z;
+        private double cx, cy, cz; // Lost low-order bits (compensated mode)
+        long interactions;
+
+        ForceSum(boolean compensated) {
+            this.compensated = compensated;
+        }
+
+        void add(Vector3D force) {
+            add(force.x, force.y, force.z);
+        }
+
+        void add(double fx, double fy, double fz) {
+            if (!compensated) {
+                x += fx;
+                y += fy;
+                z += fz;
+                return;
+            }
+            double t = x + fx;
+            cx += Math.abs(x) >= Math.abs(fx) ? (x - t) + fx : (fx - t) + x;
+            x = t;
+            t = y + fy;
+            cy += Math.abs(y) >= Math.abs(fy) ? (y - t) + fy : (fy - t) + y;
+            y = t;
+            t = z + fz;
+            cz += Math.abs(z) >= Math.abs(fz) ? (z - t) + fz : (fz - t) + z;
+            z = t;
+        }
+
+        Vector3D total() {
+            return Vector3D.obtain(x + cx, y + cy, z + cz);
+        }
+    }
+
+    /**
+     * Broad phase: bodies whose spheres overlap the given body's sphere, found by
+     * descending only into nodes whose radius-grown bounds it can reach.
+     * Results are appended to out (the body itself is never included).
+     */
+    public void collectOverlapping(CelestialBody body, List<CelestialBody> out) {
+        if (this.root != null && this.root.mayOverlap(body)) {
+            this.root.collectOverlapping(body, out);
+        }
+    }
+
+    /**
+     * Bodies whose centres lie within radius of the point (the body at the point included).
+     */
+    public void collectWithin(Vector3D point, double radius, List<CelestialBody> out) {
+        if (this.root != null && this.root.boundsWithin(point, radius)) {
+            this.root.collectWithin(point, radius, out);
+        }
+    }
+
+    /**
+     * Locally essential tree for a remote domain with the given body bounds
+     * {minX, minY, minZ, maxX, maxY, maxZ}: every cell that passes the opening
+     * test for all points of the box becomes one static pseudo-body at its
+     * centre of mass; opened cells contribute their bodies as they are.
+     * Gravity from the result on any point in the box is accurate to the same
+     * opening angle as a walk of this tree.
+     */
+    public void collectEssential(double[] box, List<CelestialBody> out) {
+        if (this.root != null) {
+            this.root.collectEssential(box, out);
+        }
+    }
+
+    static boolean touching(CelestialBody a, CelestialBody b) {
+        double dx = a.position.x - b.position.x;
+        double dy = a.position.y - b.position.y;
+        double dz = a.position.z - b.position.z;
+        double reach = a.radius + b.radius;
+        return dx * dx + dy * dy + dz * dz < reach * reach;
+    }
+
+    /**
+     * Total body-node interactions evaluated by calculateNetForce on this tree
+     * since it was built or last refitted. calculateNetForce may be called from
+     * several threads at once as long as nothing modifies the tree meanwhile.
+     */
+    public long getInteractionCount() {
+        return interactionCount.sum();
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Two-body regularization for tight, isolated binaries.
+ *
+ * A pair whose orbit would get fewer than MIN_STEPS_PER_ORBIT steps is split
+ * into centre-of-mass and relative motion. The centre of mass is kicked by the
+ * external (tree minus mutual) forces and drifted; the relative orbit gets the
+ * tidal kick and is then advanced exactly by KeplerPropagator. Large steps in
+ * dense clusters then no longer pump energy into hard binaries.
+ *
+ * SAFETY: Not thread-safe. Use from the physics thread only.
+ */
+public class BinaryRegularizer {
+
+    // Orbits resolved by fewer steps than this are handed to the Kepler solver
+    static final int MIN_STEPS_PER_ORBIT = 32;
+    // A third body closer than this many apocentres makes the pair a triple; leave it alone
+    static final double ISOLATION = 3.0;
+
+    private final List<CelestialBody> neighbours = new ArrayList<>();
+    private final Set<CelestialBody> paired = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long regularizedSteps;
+
+    static final class Pair {
+        final CelestialBody a;
+        final CelestialBody b;
+        Vector3D forceA = Vector3D.ZERO;
+        Vector3D forceB = Vector3D.ZERO;
+
+        Pair(CelestialBody a, CelestialBody b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /**
+     * Find bound, isolated pairs too tight for a step of dt. Each body joins at most one pair.
+     *
+     * @param maxMass largest non-static mass, bounding the neighbour search radius
+     */
+    List<Pair> findPairs(BarnesHutTree tree, List<CelestialBody> bodies, double dt, double maxMass) {
+        paired.clear();
+        List<Pair> pairs = null;
+        double orbitTime = MIN_STEPS_PER_ORBIT * dt;
+        for (CelestialBody body : bodies) {
+            if (body == null || body.isStatic || paired.contains(body)) {
+                continue;
+            }
+            // Widest relevant orbit: period orbitTime around the heaviest possible partner
+            double mu = CelestialBody.G * (body.mass + maxMass);
+            double widest = StrictMath.cbrt(mu * orbitTime * orbitTime / (4 * Math.PI * Math.PI));
+            double searchRadius = 2 * widest * ISOLATION;
+
+            neighbours.clear();
+            tree.collectWithin(body.position, searchRadius, neighbours);
+            CelestialBody nearest = null;
+            double nearestDist2 = Double.POSITIVE_INFINITY;
+            double secondDist2 = Double.POSITIVE_INFINITY;
+            for (CelestialBody other : neighbours) {
+                if (other == body) {
+                    continue;
+                }
+                double d2 = distanceSquared(body, other);
+                if (d2 < nearestDist2) {
+                    secondDist2 = nearestDist2;
+                    nearestDist2 = d2;
+                    nearest = other;
+                } else if (d2 < secondDist2) {
+                    secondDist2 = d2;
+                }
+            }
+            if (nearest == null || nearest.isStatic || paired.contains(nearest)) {
+                continue;
+            }
+            double apocentre = tightApocentre(body, nearest, orbitTime);
+            if (apocentre > 0 && secondDist2 > square(ISOLATION * apocentre)) {
+                if (pairs == null) {
+                    pairs = new ArrayList<>();
+                }
+                pairs.add(new Pair(body, nearest));
+                paired.add(body);
+                paired.add(nearest);
+            }
+        }
+        neighbours.clear();
+        return pairs == null ? Collections.emptyList() : pairs;
+    }
+
+    boolean isPaired(CelestialBody body) {
+        return paired.contains(body);
+    }
+
+    /**
+     * Apocentre distance if the pair is bound with period below orbitTime and never
+     * touches (contact orbits are left to the collision system), otherwise -1.
+     */
+    private static double tightApocentre(CelestialBody a, CelestialBody b, double orbitTime) {
+        double mu = CelestialBody.G * (a.mass + b.mass);
+        double rx = b.position.x - a.position.x;
+        double ry = b.position.y - a.position.y;
+        double rz = b.position.z - a.position.z;
+        double vx = b.velocity.x - a.velocity.x;
+        double vy = b.velocity.y - a.velocity.y;
+        double vz = b.velocity.z - a.velocity.z;
+        double r = Math.sqrt(rx * rx + ry * ry + rz * rz);
+        double energy = 0.5 * (vx * vx + vy * vy + vz * vz) - mu / r;
+        if (r == 0 || energy >= 0) {
+            return -1;
+        }
+        double semiMajor = -mu / (2 * energy);
+        double period = 2 * Math.PI * Math.sqrt(semiMajor * semiMajor * semiMajor / mu);
+        if (period >= orbitTime) {
+            return -1;
+        }
+        double hx = ry * vz - rz * vy;
+        double hy = rz * vx - rx * vz;
+        double hz = rx * vy - ry * vx;
+        double h2 = hx * hx + hy * hy + hz * hz;
+        double eccentricity = Math.sqrt(Math.max(0, 1 + 2 * energy * h2 / (mu * mu)));
+        if (semiMajor * (1 - eccentricity) <= a.radius + b.radius) {
+            return -1;
+        }
+        return semiMajor * (1 + eccentricity);
+    }
+
+    /**
+     * Advance one pair by dt given the full tree forces on each member
+     * (which include their softened mutual attraction).
+     */
+    void advance(Pair pair, double dt, SofteningKernel softening, double softeningLength) {
+        CelestialBody a = pair.a;
+        CelestialBody b = pair.b;
+        double ma = a.mass;
+        double mb = b.mass;
+        double total = ma + mb;
+
+        // External accelerations: subtract the mutual force the tree already included
+        Vector3D mutual = CelestialBody.calculateGravity(a, b, softening, softeningLength);
+        double axA = (pair.forceA.x - mutual.x) / ma, ayA = (pair.forceA.y - mutual.y) / ma, azA = (pair.forceA.z - mutual.z) / ma;
+        double axB = (pair.forceB.x + mutual.x) / mb, ayB = (pair.forceB.y + mutual.y) / mb, azB = (pair.forceB.z + mutual.z) / mb;
+
+        // Centre of mass: kick by the mean external acceleration, then drift
+        double wa = ma / total;
+        double wb = mb / total;
+        double cvx = a.velocity.x * wa + b.velocity.x * wb + (axA * wa + axB * wb) * dt;
+        double cvy = a.velocity.y * wa + b.velocity.y * wb + (ayA * wa + ayB * wb) * dt;
+        double cvz = a.velocity.z * wa + b.velocity.z * wb + (azA * wa + azB * wb) * dt;
+        double cx = a.position.x * wa + b.position.x * wb + cvx * dt;
+        double cy = a.position.y * wa + b.position.y * wb + cvy * dt;
+        double cz = a.position.z * wa + b.position.z * wb + cvz * dt;
+
+        // Relative orbit: tidal kick, then exact Kepler drift
+        double[] relative = {
+            b.position.x - a.position.x,
+            b.position.y - a.position.y,
+            b.position.z - a.position.z,
+            b.velocity.x - a.velocity.x + (axB - axA) * dt,
+            b.velocity.y - a.velocity.y + (ayB - ayA) * dt,
+            b.velocity.z - a.velocity.z + (azB - azA) * dt
+        };
+        if (!KeplerPropagator.propagate(relative, CelestialBody.G * total, dt)) {
+            // SAFETY: Fall back to the ordinary integrator rather than corrupt the state
+            a.applyForce(pair.forceA, dt);
+            a.updatePosition(dt);
+            b.applyForce(pair.forceB, dt);
+            b.updatePosition(dt);
+            return;
+        }
+
+        a.position = Vector3D.obtain(cx - wb * relative[0], cy - wb * relative[1], cz - wb * relative[2]);
+        b.position = Vector3D.obtain(cx + wa * relative[0], cy + wa * relative[1], cz + wa * relative[2]);
+        a.velocity = Vector3D.obtain(cvx - wb * relative[3], cvy - wb * relative[4], cvz - wb * relative[5]);
+        b.velocity = Vector3D.obtain(cvx + wa * relative[3], cvy + wa * relative[4], cvz + wa * relative[5]);
+        regularizedSteps++;
+    }
+
+    /**
+     * Pair-steps advanced by the Kepler solver so far.
+     */
+    public long getRegularizedSteps() {
+        return regularizedSteps;
+    }
+
+    private static double distanceSquared(CelestialBody a, CelestialBody b) {
+        double dx = a.position.x - b.position.x;
+        double dy = a.position.y - b.position.y;
+        double dz = a.position.z - b.position.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+}
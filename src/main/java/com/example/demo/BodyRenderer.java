@@ -2,5 +2,5 @@ package com.example.demo;
 
 public interface BodyRenderer {
     void setupGL();
-    void draw(CelestialBody body);
+    void draw(BodyView view);
 }
\ No newline at end of file
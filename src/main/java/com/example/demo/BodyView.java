@@ -0,0 +1,62 @@
+package com.example.demo;
+
+/**
+ * Lazily computed display state for one physical body.
+ *
+ * The render position and radius are derived from the body's canonical SI state
+ * the first time they are read in a frame and cached until the next frame, so
+ * bodies that are never drawn cost nothing and nothing is copied.
+ */
+public class BodyView {
+
+    private final CelestialBody body;
+    private final SceneView scene;
+
+    private long cachedFrame = -1;
+    private Vector3D displayPosition;
+    private Vector3D renderPosition;
+    private double renderRadius;
+
+    BodyView(CelestialBody body, SceneView scene) {
+        this.body = body;
+        this.scene = scene;
+    }
+
+    public CelestialBody getBody() {
+        return body;
+    }
+
+    /**
+     * Absolute display-space position (before camera re-basing).
+     */
+    public Vector3D getDisplayPosition() {
+        refresh();
+        return displayPosition;
+    }
+
+    /**
+     * Camera-relative, depth-compressed position to hand to the renderer.
+     */
+    public Vector3D getRenderPosition() {
+        refresh();
+        return renderPosition;
+    }
+
+    public double getRenderRadius() {
+        refresh();
+        return renderRadius;
+    }
+
+    private void refresh() {
+        long frame = scene.getFrame();
+        if (cachedFrame == frame) {
+            return;
+        }
+        ScaleMapping mapping = scene.getScaleMapping();
+        FloatingOrigin origin = scene.getOrigin();
+        displayPosition = mapping.toDisplay(body.getPosition());
+        renderPosition = origin.fromDisplay(displayPosition);
+        renderRadius = mapping.displayRadius(body) * origin.radiusScale(displayPosition);
+        cachedFrame = frame;
+    }
+}
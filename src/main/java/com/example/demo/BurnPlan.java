@@ -0,0 +1,61 @@
+package com.example.demo;
+
+/**
+ * Result of TrajectoryPlanner: one impulsive departure burn, and the
+ * encounter it leads to. Times are seconds after the ephemeris epoch.
+ *
+ * The arrival delta-v is the speed relative to the target at closest approach,
+ * i.e. what a second (capture) burn would have to cancel for a rendezvous.
+ */
+public final class BurnPlan {
+
+    private final String targetId;
+    private final double departureTime;
+    private final Vector3D deltaV;
+    private final double arrivalTime;
+    private final double missDistance;
+    private final double arrivalDeltaV;
+    private final boolean reached;
+    private final long evaluated;
+    private final long aborted;
+
+    BurnPlan(String targetId, double departureTime, Vector3D deltaV, double arrivalTime, double missDistance,
+             double arrivalDeltaV, boolean reached, long evaluated, long aborted) {
+        this.targetId = targetId;
+        this.departureTime = departureTime;
+        this.deltaV = deltaV;
+        this.arrivalTime = arrivalTime;
+        this.missDistance = missDistance;
+        this.arrivalDeltaV = arrivalDeltaV;
+        this.reached = reached;
+        this.evaluated = evaluated;
+        this.aborted = aborted;
+    }
+
+    public String getTargetId() { return targetId; }
+    public double getDepartureTime() { return departureTime; }
+    public Vector3D getDeltaV() { return deltaV; }
+    public double getArrivalTime() { return arrivalTime; }
+    public double getMissDistance() { return missDistance; }
+    public double getArrivalDeltaV() { return arrivalDeltaV; }
+    public double getTotalDeltaV() { return deltaV.length() + arrivalDeltaV; }
+
+    /**
+     * True if the closest approach is within the planner's arrival radius.
+     */
+    public boolean isReached() { return reached; }
+
+    /**
+     * Candidates propagated, including those aborted early.
+     */
+    public long getEvaluated() { return evaluated; }
+    public long getAborted() { return aborted; }
+
+    @Override
+    public String toString() {
+        return String.format("%s: depart +%.1f d with dv %.1f m/s, closest %.3e m at +%.1f d, "
+                + "arrival dv %.1f m/s, total %.1f m/s%s (%d candidates, %d aborted early)",
+            targetId, departureTime / 86400, deltaV.length(), missDistance, arrivalTime / 86400,
+            arrivalDeltaV, getTotalDeltaV(), reached ? "" : " [target not reached]", evaluated, aborted);
+    }
+}
@@ -12,6 +12,11 @@ public class Camera {
     private double yaw;   // Left/right rotation
     private double pitch; // Up/down rotation
     
+    static final double DEFAULT_NEAR_PLANE = 1.0;    // 1 unit close
+    static final double DEFAULT_FAR_PLANE = 2000.0;  // 2000 units (covers grid and solar system)
+    private double nearPlane = DEFAULT_NEAR_PLANE;
+    private double farPlane = DEFAULT_FAR_PLANE;
+    
     // SECURITY: Input validation prevents malformed camera states
     public Camera(Vector3D position, Vector3D target, Vector3D up, double zoom) {
         if (position == null || target == null || up == null) {
@@ -41,36 +46,63 @@ public class Camera {
     }
     
     public void setupProjection(int width, int height) {
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glLoadIdentity();
+        GL11.glMultMatrixd(getProjectionMatrix(width, height));
+    }
+    
+    /**
+     * Load the rotation-only view: scene geometry arrives camera-relative from FloatingOrigin.
+     */
+    public void setupView() {
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glLoadIdentity();
+        GL11.glMultMatrixd(getCameraRelativeViewMatrix());
+    }
+    
+    /**
+     * Column-major perspective matrix, identical to what glFrustum would build.
+     * Shared by the OpenGL path and the software rasterizer.
+     */
+    public double[] getProjectionMatrix(int width, int height) {
         // SECURITY: Bounds checking prevents division by zero
         if (width <= 0 || height <= 0) {
             throw new IllegalArgumentException("Viewport dimensions must be positive");
         }
         
-        GL11.glMatrixMode(GL11.GL_PROJECTION);
-        GL11.glLoadIdentity();
-        
         // Set perspective projection
         double aspectRatio = (double) width / height;
         double fov = 45.0 / zoom; // Field of view in degrees (inverted zoom logic)
-        double near = 1.0;        // 1 unit close
-        double far = 2000.0;      // 2000 units (covers grid and solar system)
+        double near = nearPlane;
+        double far = farPlane;
         
         // Convert to radians and calculate perspective
         double fovRad = Math.toRadians(fov);
         double f = Math.cos(fovRad / 2.0) / Math.sin(fovRad / 2.0);
         
-        // Manual perspective matrix for better control
-        GL11.glFrustum(
-            -near * aspectRatio / f, near * aspectRatio / f,
-            -near / f, near / f,
-            near, far
-        );
+        return new double[] {
+            f / aspectRatio, 0, 0, 0,
+            0, f, 0, 0,
+            0, 0, -(far + near) / (far - near), -1,
+            0, 0, -2.0 * far * near / (far - near), 0
+        };
     }
     
-    public void setupView() {
-        GL11.glMatrixMode(GL11.GL_MODELVIEW);
-        GL11.glLoadIdentity();
-        
+    /**
+     * View matrix for geometry already expressed relative to the camera position.
+     */
+    public double[] getCameraRelativeViewMatrix() {
+        double[] matrix = getViewMatrix();
+        matrix[12] = 0;
+        matrix[13] = 0;
+        matrix[14] = 0;
+        return matrix;
+    }
+    
+    /**
+     * Column-major view matrix built from the free-look basis.
+     */
+    public double[] getViewMatrix() {
         // Update forward vector from yaw and pitch (free-look camera)
         updateForwardVector();
         
@@ -78,17 +110,56 @@ public class Camera {
         Vector3D right = forward.cross(up).normalize();
         Vector3D actualUp = right.cross(forward).normalize();
         
-        // Create view matrix manually for better control
-        double[] matrix = {
+        return new double[] {
             right.x, actualUp.x, -forward.x, 0,
             right.y, actualUp.y, -forward.y, 0,
             right.z, actualUp.z, -forward.z, 0,
             -right.dot(position), -actualUp.dot(position), forward.dot(position), 1
         };
-        
-        GL11.glMultMatrixd(matrix);
     }
     
+    /**
+     * Display-space direction (unit length) of the ray from the camera through a
+     * cursor position, in window pixels from the top left: the inverse of the
+     * projection and view rotation. Depth compression in FloatingOrigin keeps
+     * directions, so this ray meets bodies where they are drawn.
+     */
+    public Vector3D unproject(double cursorX, double cursorY, int width, int height) {
+        double[] projection = getProjectionMatrix(width, height);
+        double ndcX = 2 * cursorX / width - 1;
+        double ndcY = 1 - 2 * cursorY / height;
+        // Camera-space direction at depth -1, then into display space through the view basis
+        double viewX = ndcX / projection[0];
+        double viewY = ndcY / projection[5];
+        double[] view = getViewMatrix();
+        return Vector3D.obtain(
+            view[0] * viewX + view[1] * viewY - view[2],
+            view[4] * viewX + view[5] * viewY - view[6],
+            view[8] * viewX + view[9] * viewY - view[10]).normalize();
+    }
+
+    /**
+     * Angle (radians) one pixel subtends near the centre of a viewport of the given height.
+     */
+    public double pixelAngle(int width, int height) {
+        return 2 / (getProjectionMatrix(width, height)[5] * height);
+    }
+
+    /**
+     * Turn to face a display-space point (within the pitch limits).
+     */
+    public void lookAt(Vector3D target) {
+        Vector3D direction = target.subtract(position);
+        if (direction.length() == 0) {
+            return;
+        }
+        direction = direction.normalize();
+        this.yaw = Math.atan2(direction.x, direction.z);
+        if (this.yaw < 0) this.yaw += Math.PI * 2;
+        this.pitch = Math.max(-Math.PI/2 + 0.1, Math.min(Math.PI/2 - 0.1, Math.asin(-direction.y)));
+        updateForwardVector();
+    }
+
     /**
      * Update the forward vector based on yaw and pitch angles
      * SECURITY: Clamps pitch to prevent gimbal lock
@@ -163,7 +234,22 @@ public class Camera {
         }
     }
     
+    /**
+     * Clip planes in render units. FloatingOrigin compresses depth to fit the far plane.
+     */
+    public void setClipPlanes(double near, double far) {
+        // SECURITY: Depth buffer precision collapses beyond this ratio
+        if (!(near > 0) || !(far > near) || far / near > SimulationSettings.MAX_DEPTH_RATIO) {
+            throw new IllegalArgumentException("Clip planes need 0 < near < far <= near * "
+                + SimulationSettings.MAX_DEPTH_RATIO);
+        }
+        this.nearPlane = near;
+        this.farPlane = far;
+    }
+    
     // Getters
+    public double getNearPlane() { return nearPlane; }
+    public double getFarPlane() { return farPlane; }
     public Vector3D getPosition() { return position; }
     public Vector3D getForward() { return forward; }
     public double getZoom() { return zoom; }
@@ -3,13 +3,14 @@ package com.example.demo;
 public class CelestialBody {
 
     static final double G = 6.674e-11;
-    static final double MAX_DISTANCE = 1e16; // Optimization threshold
 
     protected final String id;
-    protected final double mass;
-    protected final double radius;
+    protected double mass;   // Changes only through collisions (accretion)
+    protected double radius;
     protected final float[] color;
     protected boolean isStatic;
+    // Feels gravity but exerts none: kept out of the force tree (see NBodyIntegrator)
+    protected boolean testParticle;
     protected Vector3D position;
     protected Vector3D velocity;
 
@@ -42,18 +43,37 @@ public class CelestialBody {
     }
 
     public static Vector3D calculateGravity(CelestialBody a, CelestialBody b) {
+        return calculateGravity(a, b, SofteningKernel.NONE, 0);
+    }
+
+    /**
+     * Force on a from b with the given softening. Unlike the old hard cutoffs
+     * (zero below 1e-5 m and beyond 1e16 m), the force is continuous everywhere
+     * and only exact coincidence yields zero.
+     */
+    public static Vector3D calculateGravity(CelestialBody a, CelestialBody b, SofteningKernel kernel, double epsilon) {
         if (a.isStatic && b.isStatic) return Vector3D.ZERO;
         
-        // Use subtract() instead of sub()
-        Vector3D delta = b.position.subtract(a.position);
-        
-        double dist = delta.length();
-        // Avoid division by zero and very large distances
-        if (dist > MAX_DISTANCE || dist < 1e-5) {
+        double dx = b.position.x - a.position.x;
+        double dy = b.position.y - a.position.y;
+        double dz = b.position.z - a.position.z;
+        double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        double factor = G * a.mass * b.mass * kernel.forceFactor(dist, epsilon);
+        if (factor == 0) {
             return Vector3D.ZERO;
         }
-        double force = (G * a.mass * b.mass) / (dist * dist);
-        return delta.normalize().scale(force);
+        return Vector3D.obtain(dx * factor, dy * factor, dz * factor);
+    }
+
+    /**
+     * Independent copy with the same properties and state. References to other
+     * bodies (e.g. a planet's parent) are left for the caller to remap.
+     */
+    public CelestialBody copy() {
+        CelestialBody copy = new CelestialBody(id, mass, radius, color.clone(), position, velocity);
+        copy.isStatic = isStatic;
+        copy.testParticle = testParticle;
+        return copy;
     }
 
     // Getters (add more as needed)
@@ -77,6 +97,10 @@ public class CelestialBody {
         return isStatic;
     }
 
+    public boolean isTestParticle() {
+        return testParticle;
+    }
+
     public Vector3D getPosition() {
         return position;
     }
@@ -85,10 +109,28 @@ public class CelestialBody {
         return velocity;
     }
 
+    /**
+     * Replace mass and radius after an accretion event. Used by CollisionSystem only.
+     */
+    void setMassAndRadius(double mass, double radius) {
+        validateCelestialBody(mass, radius);
+        this.mass = mass;
+        this.radius = radius;
+    }
+
     public void setStatic(boolean aStatic) {
         isStatic = aStatic;
     }
 
+    /**
+     * Test particles are attracted by the other bodies but attract nothing
+     * themselves, so any number of them costs only one tree walk each.
+     * Only suitable for bodies whose mass is negligible next to their neighbours'.
+     */
+    public void setTestParticle(boolean testParticle) {
+        this.testParticle = testParticle;
+    }
+
     public void setPosition(Vector3D position) {
         this.position = position;
     }
@@ -0,0 +1,316 @@
+package com.example.demo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Ephemeris stored as per-segment Chebyshev polynomials, in the style of the
+ * JPL DE files: each body's x, y and z over every segment of segmentLength
+ * seconds is a degree-n Chebyshev series. Evaluation is O(degree) regardless
+ * of time, and velocities come from the derivative of the same series.
+ *
+ * The fit integrates the bodies once with the N-body integrator, landing
+ * exactly on the Chebyshev nodes of every segment. Fits can be written to a
+ * compact binary cache and reloaded by later runs; the cache records a
+ * fingerprint of the initial conditions and fit parameters, so a cache made
+ * for a different scenario is refitted instead of silently reused.
+ *
+ * Immutable after construction, so any number of threads may read it.
+ */
+public class ChebyshevEphemeris implements Ephemeris {
+
+    private static final int FILE_MAGIC = 0x4E424345; // "NBCE"
+    private static final int FILE_VERSION = 1;
+    // SECURITY: Bound cache contents so a corrupt file cannot force a huge allocation
+    private static final int MAX_DEGREE = 32;
+    private static final long MAX_COEFFICIENTS = 50_000_000L;
+
+    private final String[] ids;
+    private final double[] masses;
+    private final double[] radii;
+    private final double segmentLength;
+    private final int segmentCount;
+    private final int degree;
+    private final long fingerprint;
+    // [((segment * bodies + body) * 3 + axis) * (degree + 1) + j]
+    private final double[] coefficients;
+
+    private ChebyshevEphemeris(String[] ids, double[] masses, double[] radii, double segmentLength,
+                               int segmentCount, int degree, long fingerprint, double[] coefficients) {
+        this.ids = ids;
+        this.masses = masses;
+        this.radii = radii;
+        this.segmentLength = segmentLength;
+        this.segmentCount = segmentCount;
+        this.degree = degree;
+        this.fingerprint = fingerprint;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Integrate copies of the given bodies (at most SampledEphemeris.MAX_BODIES)
+     * for span seconds and fit every segment. The source bodies are not modified.
+     */
+    public static ChebyshevEphemeris fit(Collection<CelestialBody> bodies, double span, double segmentLength,
+                                         int degree, double integrationStep) {
+        validate(bodies.size(), span, segmentLength, degree, integrationStep);
+        PhysicsWorld world = new PhysicsWorld(PhysicsWorld.copyBodies(bodies), null);
+        List<CelestialBody> fitted = new ArrayList<>(world.getBodies());
+        int count = fitted.size();
+        int segmentCount = (int) Math.ceil(span / segmentLength);
+        int nodes = degree + 1;
+
+        String[] ids = new String[count];
+        double[] masses = new double[count];
+        double[] radii = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = fitted.get(i).getId();
+            masses[i] = fitted.get(i).getMass();
+            radii[i] = fitted.get(i).getRadius();
+        }
+        long fingerprint = fingerprint(bodies, span, segmentLength, degree, integrationStep);
+
+        // Chebyshev nodes of the first kind on [-1, 1], in ascending order
+        double[] nodeX = new double[nodes];
+        for (int k = 0; k < nodes; k++) {
+            nodeX[k] = -StrictMath.cos(Math.PI * (k + 0.5) / nodes);
+        }
+        double[] coefficients = new double[segmentCount * count * 3 * nodes];
+        double[] values = new double[count * 3 * nodes];
+        double time = 0;
+        for (int segment = 0; segment < segmentCount; segment++) {
+            double start = segment * segmentLength;
+            for (int k = 0; k < nodes; k++) {
+                double nodeTime = start + (nodeX[k] + 1) * 0.5 * segmentLength;
+                time = advance(world, time, nodeTime, integrationStep);
+                for (int i = 0; i < count; i++) {
+                    Vector3D p = fitted.get(i).getPosition();
+                    values[(i * 3) * nodes + k] = p.x;
+                    values[(i * 3 + 1) * nodes + k] = p.y;
+                    values[(i * 3 + 2) * nodes + k] = p.z;
+                }
+            }
+            // c_j = 2/N sum_k f(x_k) T_j(x_k), with c_0 halved
+            for (int series = 0; series < count * 3; series++) {
+                int base = (segment * count * 3 + series) * nodes;
+                for (int j = 0; j < nodes; j++) {
+                    double sum = 0;
+                    for (int k = 0; k < nodes; k++) {
+                        sum += values[series * nodes + k] * StrictMath.cos(j * StrictMath.acos(nodeX[k]));
+                    }
+                    coefficients[base + j] = sum * 2.0 / nodes * (j == 0 ? 0.5 : 1.0);
+                }
+            }
+        }
+        return new ChebyshevEphemeris(ids, masses, radii, segmentLength, segmentCount, degree, fingerprint,
+            coefficients);
+    }
+
+    // Step the world from time to target in equal steps no longer than maxStep
+    private static double advance(PhysicsWorld world, double time, double target, double maxStep) {
+        double remaining = target - time;
+        if (remaining <= 0) {
+            return time;
+        }
+        int steps = (int) Math.ceil(remaining / maxStep);
+        for (int s = 0; s < steps; s++) {
+            world.step(remaining / steps);
+        }
+        return target;
+    }
+
+    /**
+     * Read the cache if it matches these bodies and parameters; otherwise fit
+     * and (re)write it. Unreadable caches are reported and replaced.
+     */
+    public static ChebyshevEphemeris loadOrFit(Path cache, Collection<CelestialBody> bodies, double span,
+                                               double segmentLength, int degree, double integrationStep) {
+        long expected = fingerprint(bodies, span, segmentLength, degree, integrationStep);
+        if (Files.isRegularFile(cache)) {
+            try {
+                ChebyshevEphemeris cached = read(cache);
+                if (cached.fingerprint == expected) {
+                    System.out.println("Loaded ephemeris cache " + cache + " (" + cached.getBodyCount() + " bodies)");
+                    return cached;
+                }
+                System.out.println("Ephemeris cache " + cache + " is for a different scenario; refitting");
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable ephemeris cache " + cache + ": " + e.getMessage());
+            }
+        }
+        long start = System.nanoTime();
+        ChebyshevEphemeris fitted = fit(bodies, span, segmentLength, degree, integrationStep);
+        System.out.printf("Fitted ephemeris for %d bodies over %.1f days in %.1fs%n",
+            fitted.getBodyCount(), fitted.getEndTime() / 86400, (System.nanoTime() - start) / 1e9);
+        try {
+            fitted.write(cache);
+        } catch (IOException e) {
+            System.err.println("Could not write ephemeris cache " + cache + ": " + e.getMessage());
+        }
+        return fitted;
+    }
+
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // Write to a temporary file first so readers never see a half-written cache
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeUTF(ids[i]);
+                out.writeDouble(masses[i]);
+                out.writeDouble(radii[i]);
+            }
+            out.writeDouble(segmentLength);
+            out.writeInt(segmentCount);
+            out.writeInt(degree);
+            for (double c : coefficients) {
+                out.writeDouble(c);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static ChebyshevEphemeris read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not an ephemeris cache (or an unsupported version)");
+            }
+            long fingerprint = in.readLong();
+            int count = in.readInt();
+            if (count < 1 || count > SampledEphemeris.MAX_BODIES) {
+                throw new IOException("Invalid body count " + count);
+            }
+            String[] ids = new String[count];
+            double[] masses = new double[count];
+            double[] radii = new double[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readUTF();
+                masses[i] = in.readDouble();
+                radii[i] = in.readDouble();
+            }
+            double segmentLength = in.readDouble();
+            int segmentCount = in.readInt();
+            int degree = in.readInt();
+            if (!(segmentLength > 0) || segmentCount < 1 || degree < 1 || degree > MAX_DEGREE
+                    || (long) segmentCount * count * 3 * (degree + 1) > MAX_COEFFICIENTS) {
+                throw new IOException("Invalid segment layout");
+            }
+            double[] coefficients = new double[segmentCount * count * 3 * (degree + 1)];
+            for (int i = 0; i < coefficients.length; i++) {
+                coefficients[i] = in.readDouble();
+            }
+            return new ChebyshevEphemeris(ids, masses, radii, segmentLength, segmentCount, degree, fingerprint,
+                coefficients);
+        }
+    }
+
+    private static void validate(int bodies, double span, double segmentLength, int degree, double step) {
+        // SECURITY: Input validation on fit size
+        if (bodies < 1 || bodies > SampledEphemeris.MAX_BODIES) {
+            throw new IllegalArgumentException("Ephemeris needs 1.." + SampledEphemeris.MAX_BODIES + " bodies");
+        }
+        if (!(span > 0) || !(segmentLength > 0) || !(step > 0) || Double.isInfinite(span)
+                || degree < 1 || degree > MAX_DEGREE) {
+            throw new IllegalArgumentException("Span, segment length and step must be positive; degree in 1.."
+                + MAX_DEGREE);
+        }
+        if (Math.ceil(span / segmentLength) * bodies * 3 * (degree + 1) > MAX_COEFFICIENTS) {
+            throw new IllegalArgumentException("Ephemeris too large; use longer segments or a shorter span");
+        }
+    }
+
+    // FNV-1a over the initial conditions and fit parameters
+    private static long fingerprint(Collection<CelestialBody> bodies, double span, double segmentLength,
+                                    int degree, double integrationStep) {
+        long hash = 0xcbf29ce484222325L;
+        for (CelestialBody body : bodies) {
+            hash = StateHash.mix(hash, body.getId().hashCode());
+            for (double value : new double[]{body.getMass(), body.getRadius(),
+                    body.getPosition().x, body.getPosition().y, body.getPosition().z,
+                    body.getVelocity().x, body.getVelocity().y, body.getVelocity().z}) {
+                hash = StateHash.mix(hash, Double.doubleToLongBits(value));
+            }
+        }
+        hash = StateHash.mix(hash, Double.doubleToLongBits(span));
+        hash = StateHash.mix(hash, Double.doubleToLongBits(segmentLength));
+        hash = StateHash.mix(hash, degree);
+        return StateHash.mix(hash, Double.doubleToLongBits(integrationStep));
+    }
+
+    @Override
+    public int getBodyCount() { return ids.length; }
+
+    @Override
+    public String getId(int body) { return ids[body]; }
+
+    @Override
+    public double getMass(int body) { return masses[body]; }
+
+    @Override
+    public double getRadius(int body) { return radii[body]; }
+
+    @Override
+    public double getStartTime() { return 0; }
+
+    @Override
+    public double getEndTime() { return segmentCount * segmentLength; }
+
+    public int getDegree() { return degree; }
+    public double getSegmentLength() { return segmentLength; }
+
+    @Override
+    public void position(int body, double time, double[] out, int offset) {
+        evaluate(body, time, out, offset, false);
+    }
+
+    @Override
+    public void state(int body, double time, double[] out, int offset) {
+        evaluate(body, time, out, offset, true);
+    }
+
+    private void evaluate(int body, double time, double[] out, int offset, boolean withVelocity) {
+        // SAFETY: Clamp to the fitted span instead of extrapolating
+        double clamped = Math.max(0, Math.min(getEndTime(), time));
+        int segment = Math.min(segmentCount - 1, (int) (clamped / segmentLength));
+        double tau = 2 * (clamped - segment * segmentLength) / segmentLength - 1;
+        int nodes = degree + 1;
+        for (int axis = 0; axis < 3; axis++) {
+            int base = ((segment * ids.length + body) * 3 + axis) * nodes;
+            // T_j by recurrence; T_j' = j U_{j-1}
+            double tPrev = 1, t = tau;
+            double uPrev = 1, u = 2 * tau;
+            double value = coefficients[base] + coefficients[base + 1] * tau;
+            double slope = coefficients[base + 1];
+            for (int j = 2; j < nodes; j++) {
+                double tNext = 2 * tau * t - tPrev;
+                tPrev = t;
+                t = tNext;
+                value += coefficients[base + j] * t;
+                slope += coefficients[base + j] * j * u;
+                double uNext = 2 * tau * u - uPrev;
+                uPrev = u;
+                u = uNext;
+            }
+            out[offset + axis] = value;
+            if (withVelocity) {
+                out[offset + 3 + axis] = slope * 2 / segmentLength;
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.demo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fully connected TCP mesh between the ranks of a distributed run.
+ *
+ * Rank r listens on basePort + r, dials every lower rank and accepts every
+ * higher one, so each pair shares exactly one socket. All communication is
+ * bulk-synchronous: every rank calls exchange() with one message per peer and
+ * gets one message back from each.
+ *
+ * SAFETY: Not thread-safe. One transport per rank, driven by one thread.
+ */
+public class ClusterTransport implements AutoCloseable {
+
+    private static final int HANDSHAKE_MAGIC = 0x4E424459; // "NBDY"
+    // SECURITY: Bound message size so a corrupt or hostile peer cannot force a huge allocation
+    private static final int MAX_MESSAGE_BYTES = 256 << 20;
+    private static final int MAX_RANKS = 256;
+    private static final long RETRY_MILLIS = 100;
+
+    private final int rank;
+    private final int ranks;
+    private final Socket[] sockets;
+    private final DataInputStream[] inputs;
+    private final DataOutputStream[] outputs;
+    // Sends run here while the calling thread receives, so large exchanges cannot deadlock on full socket buffers
+    private final ExecutorService senders;
+    private long bytesSent;
+
+    private ClusterTransport(int rank, int ranks) {
+        this.rank = rank;
+        this.ranks = ranks;
+        this.sockets = new Socket[ranks];
+        this.inputs = new DataInputStream[ranks];
+        this.outputs = new DataOutputStream[ranks];
+        this.senders = Executors.newFixedThreadPool(Math.max(1, ranks - 1), task -> {
+            Thread thread = new Thread(task, "cluster-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Join the mesh, waiting up to timeoutMillis for the other ranks to start.
+     */
+    public static ClusterTransport connect(int rank, int ranks, String host, int basePort, long timeoutMillis)
+            throws IOException {
+        // SECURITY: Input validation on rank layout and port range
+        if (ranks < 1 || ranks > MAX_RANKS || rank < 0 || rank >= ranks) {
+            throw new IllegalArgumentException("Rank must be in 0..ranks-1 with ranks in 1.." + MAX_RANKS);
+        }
+        if (basePort < 1024 || basePort + ranks - 1 > 65535) {
+            throw new IllegalArgumentException("Ports must lie in 1024..65535");
+        }
+        ClusterTransport transport = new ClusterTransport(rank, ranks);
+        InetAddress address = InetAddress.getByName(host);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(address, basePort + rank));
+
+            for (int peer = 0; peer < rank; peer++) {
+                Socket socket = dial(address, basePort + peer, deadline);
+                transport.attach(peer, socket);
+                transport.outputs[peer].writeInt(HANDSHAKE_MAGIC);
+                transport.outputs[peer].writeInt(rank);
+                transport.outputs[peer].writeInt(ranks);
+                transport.outputs[peer].flush();
+            }
+            for (int accepted = rank + 1; accepted < ranks; accepted++) {
+                server.setSoTimeout((int) Math.max(1, deadline - System.currentTimeMillis()));
+                Socket socket = server.accept();
+                // SECURITY: A silent connection must not hang the handshake
+                socket.setSoTimeout((int) Math.max(1, deadline - System.currentTimeMillis()));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int magic = in.readInt();
+                int peer = in.readInt();
+                int peerRanks = in.readInt();
+                // SECURITY: Reject strangers and mismatched launches instead of mixing runs
+                if (magic != HANDSHAKE_MAGIC || peerRanks != ranks || peer <= rank || peer >= ranks
+                        || transport.sockets[peer] != null) {
+                    socket.close();
+                    throw new IOException("Rejected connection claiming rank " + peer + " of " + peerRanks);
+                }
+                socket.setSoTimeout(0);
+                transport.sockets[peer] = socket;
+                transport.inputs[peer] = in;
+                transport.outputs[peer] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                socket.setTcpNoDelay(true);
+            }
+        } catch (SocketTimeoutException e) {
+            transport.close();
+            throw new IOException("Timed out waiting for ranks to connect", e);
+        } catch (IOException | RuntimeException e) {
+            transport.close();
+            throw e;
+        }
+        return transport;
+    }
+
+    private static Socket dial(InetAddress address, int port, long deadline) throws IOException {
+        while (true) {
+            try {
+                return new Socket(address, port);
+            } catch (ConnectException e) {
+                // Peer not listening yet
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Timed out connecting to port " + port, e);
+                }
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting", ie);
+                }
+            }
+        }
+    }
+
+    private void attach(int peer, Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        sockets[peer] = socket;
+        inputs[peer] = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        outputs[peer] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+    }
+
+    /**
+     * Send outgoing[peer] to every other rank and return what each sent here
+     * (the entry for this rank is passed through unchanged). Blocks until all
+     * ranks have made the matching call.
+     */
+    public byte[][] exchange(byte[][] outgoing) throws IOException {
+        if (outgoing.length != ranks) {
+            throw new IllegalArgumentException("Need one message per rank");
+        }
+        List<Future<?>> sends = new ArrayList<>(ranks);
+        for (int peer = 0; peer < ranks; peer++) {
+            if (peer == rank) continue;
+            byte[] message = outgoing[peer] != null ? outgoing[peer] : new byte[0];
+            DataOutputStream out = outputs[peer];
+            bytesSent += message.length + 4;
+            sends.add(senders.submit(() -> {
+                out.writeInt(message.length);
+                out.write(message);
+                out.flush();
+                return null;
+            }));
+        }
+
+        byte[][] incoming = new byte[ranks][];
+        incoming[rank] = outgoing[rank];
+        for (int peer = 0; peer < ranks; peer++) {
+            if (peer == rank) continue;
+            int length = inputs[peer].readInt();
+            if (length < 0 || length > MAX_MESSAGE_BYTES) {
+                throw new IOException("Invalid message length " + length + " from rank " + peer);
+            }
+            incoming[peer] = new byte[length];
+            inputs[peer].readFully(incoming[peer]);
+        }
+
+        for (Future<?> send : sends) {
+            try {
+                send.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Send failed", e.getCause());
+            }
+        }
+        return incoming;
+    }
+
+    /**
+     * Send the same message to every rank.
+     */
+    public byte[][] broadcastExchange(byte[] message) throws IOException {
+        byte[][] outgoing = new byte[ranks][];
+        Arrays.fill(outgoing, message);
+        return exchange(outgoing);
+    }
+
+    public int getRank() { return rank; }
+    public int getRanks() { return ranks; }
+
+    /**
+     * Payload bytes sent to other ranks so far, including length prefixes.
+     */
+    public long getBytesSent() { return bytesSent; }
+
+    @Override
+    public void close() {
+        senders.shutdownNow();
+        for (Socket socket : sockets) {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Already broken; nothing left to release
+                }
+            }
+        }
+    }
+}
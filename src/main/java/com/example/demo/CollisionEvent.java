@@ -0,0 +1,33 @@
+package com.example.demo;
+
+/**
+ * One resolved collision, reported to the CollisionSystem listener on the physics
+ * thread during the step in which it happened.
+ */
+public final class CollisionEvent {
+
+    private final String survivorId;
+    private final String otherId;
+    private final CollisionResponse response;
+    private final double impactSpeed;
+
+    CollisionEvent(String survivorId, String otherId,
+                   CollisionResponse response, double impactSpeed) {
+        this.survivorId = survivorId;
+        this.otherId = otherId;
+        this.response = response;
+        this.impactSpeed = impactSpeed;
+    }
+
+    public String getSurvivorId() { return survivorId; }
+    /** The body that was absorbed or deleted, or the second body of a bounce. */
+    public String getOtherId() { return otherId; }
+    public CollisionResponse getResponse() { return response; }
+    /** Relative speed of the pair at contact (m/s). */
+    public double getImpactSpeed() { return impactSpeed; }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s <- %s (%.1f m/s)", response, survivorId, otherId, impactSpeed);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo;
+
+/**
+ * What happens when two body spheres overlap.
+ */
+public enum CollisionResponse {
+    /** Perfectly inelastic: the lighter body is absorbed, conserving mass, momentum and volume. */
+    MERGE,
+    /** Impulse along the contact normal with a coefficient of restitution; both bodies survive. */
+    BOUNCE,
+    /** The lighter body is removed without transferring anything (a sink). */
+    DELETE
+}
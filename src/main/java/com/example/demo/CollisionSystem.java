@@ -0,0 +1,202 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Detects and resolves body-body contacts once per physics step.
+ *
+ * Broad phase reuses the BarnesHutTree built for the force walk: every node
+ * carries the bounds of its bodies and their largest radius, so each query
+ * only descends into nodes it can touch (O(log n) per body for sparse systems).
+ * Narrow phase is an exact sphere-sphere test, repeated right before resolving
+ * so pairs already separated or absorbed earlier in the same pass are skipped.
+ *
+ * SAFETY: Not thread-safe. Use from the physics thread only.
+ */
+public class CollisionSystem {
+
+    private CollisionResponse response;
+    private double restitution;
+    private Consumer<CollisionEvent> listener;
+    private long collisionCount;
+
+    // Scratch state reused between steps to keep the no-collision path allocation free
+    private final List<CelestialBody> candidates = new ArrayList<>();
+    private final Set<CelestialBody> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public CollisionSystem(CollisionResponse response, double restitution) {
+        setResponse(response);
+        setRestitution(restitution);
+    }
+
+    /**
+     * Build from command-line flags: --collisions=merge|bounce|delete|off (default merge)
+     * and --restitution=E for bounces. Returns null when collisions are off.
+     */
+    public static CollisionSystem fromArgs(String[] args) {
+        CollisionResponse response = CollisionResponse.MERGE;
+        double restitution = 0.5;
+        for (String arg : args) {
+            if (arg.startsWith("--collisions=")) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if ("off".equalsIgnoreCase(value)) {
+                    return null;
+                }
+                response = CollisionResponse.valueOf(value.toUpperCase());
+            } else if (arg.startsWith("--restitution=")) {
+                restitution = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return new CollisionSystem(response, restitution);
+    }
+
+    /**
+     * Resolve all overlaps among the bodies in the tree (built from this list).
+     * Absorbed or deleted bodies are removed from the list.
+     *
+     * @return number of collisions resolved; callers should rebuild the tree when non-zero
+     */
+    public int resolve(BarnesHutTree tree, List<CelestialBody> bodies) {
+        int resolved = 0;
+        for (CelestialBody body : bodies) {
+            if (body == null || removed.contains(body)) {
+                continue;
+            }
+            candidates.clear();
+            tree.collectOverlapping(body, candidates);
+            for (CelestialBody other : candidates) {
+                if (removed.contains(body)) {
+                    break;
+                }
+                if (removed.contains(other) || (body.isStatic && other.isStatic)
+                        || !BarnesHutTree.touching(body, other)) {
+                    continue;
+                }
+                if (resolvePair(body, other)) {
+                    resolved++;
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            bodies.removeIf(removed::contains);
+            removed.clear();
+        }
+        candidates.clear();
+        collisionCount += resolved;
+        return resolved;
+    }
+
+    private boolean resolvePair(CelestialBody a, CelestialBody b) {
+        // Pinned bodies always survive, otherwise the heavier one does
+        CelestialBody survivor = a.isStatic ? a : b.isStatic ? b : (a.mass >= b.mass ? a : b);
+        CelestialBody other = survivor == a ? b : a;
+        double impactSpeed = other.velocity.subtract(survivor.velocity).length();
+
+        switch (response) {
+            case MERGE:
+                merge(survivor, other);
+                break;
+            case DELETE:
+                removed.add(other);
+                break;
+            case BOUNCE:
+                if (!bounce(a, b)) {
+                    return false; // Already separating; only the overlap was corrected
+                }
+                break;
+        }
+        if (listener != null) {
+            listener.accept(new CollisionEvent(survivor.getId(), other.getId(), response, impactSpeed));
+        }
+        return true;
+    }
+
+    /**
+     * Perfectly inelastic merge conserving mass, momentum, centre of mass and volume.
+     * A static survivor stays pinned and only gains mass.
+     */
+    private void merge(CelestialBody survivor, CelestialBody other) {
+        double total = survivor.mass + other.mass;
+        if (!survivor.isStatic) {
+            double ws = survivor.mass / total;
+            double wo = other.mass / total;
+            survivor.velocity = Vector3D.obtain(
+                survivor.velocity.x * ws + other.velocity.x * wo,
+                survivor.velocity.y * ws + other.velocity.y * wo,
+                survivor.velocity.z * ws + other.velocity.z * wo);
+            survivor.position = Vector3D.obtain(
+                survivor.position.x * ws + other.position.x * wo,
+                survivor.position.y * ws + other.position.y * wo,
+                survivor.position.z * ws + other.position.z * wo);
+        }
+        double rs = survivor.radius;
+        double ro = other.radius;
+        survivor.setMassAndRadius(total, StrictMath.cbrt(rs * rs * rs + ro * ro * ro));
+        removed.add(other);
+    }
+
+    /**
+     * Impulse along the contact normal, then push the pair apart so they no longer overlap.
+     * Static bodies act as infinite mass.
+     *
+     * @return true if the bodies were approaching (a real impact)
+     */
+    private boolean bounce(CelestialBody a, CelestialBody b) {
+        double ia = a.isStatic ? 0 : 1.0 / a.mass;
+        double ib = b.isStatic ? 0 : 1.0 / b.mass;
+        double inverseSum = ia + ib;
+
+        Vector3D delta = b.position.subtract(a.position);
+        double distance = delta.length();
+        // SAFETY: Exactly coincident centres have no normal; pick an arbitrary axis
+        Vector3D normal = distance > 0 ? delta.scale(1.0 / distance) : Vector3D.obtain(1, 0, 0);
+
+        double approach = b.velocity.subtract(a.velocity).dot(normal);
+        boolean impact = approach < 0;
+        if (impact) {
+            double impulse = -(1 + restitution) * approach / inverseSum;
+            a.velocity = a.velocity.subtract(normal.scale(impulse * ia));
+            b.velocity = b.velocity.add(normal.scale(impulse * ib));
+        }
+
+        double overlap = a.radius + b.radius - distance;
+        if (overlap > 0) {
+            a.position = a.position.subtract(normal.scale(overlap * ia / inverseSum));
+            b.position = b.position.add(normal.scale(overlap * ib / inverseSum));
+        }
+        return impact;
+    }
+
+    public CollisionResponse getResponse() { return response; }
+
+    public void setResponse(CollisionResponse response) {
+        if (response == null) {
+            throw new IllegalArgumentException("Collision response cannot be null");
+        }
+        this.response = response;
+    }
+
+    public double getRestitution() { return restitution; }
+
+    public void setRestitution(double restitution) {
+        // SECURITY: Restitution above 1 would inject energy on every contact
+        if (!(restitution >= 0 && restitution <= 1)) {
+            throw new IllegalArgumentException("Restitution must be in [0, 1]");
+        }
+        this.restitution = restitution;
+    }
+
+    /**
+     * Receive every resolved collision. Called synchronously on the physics thread.
+     */
+    public void setListener(Consumer<CollisionEvent> listener) {
+        this.listener = listener;
+    }
+
+    public long getCollisionCount() { return collisionCount; }
+}
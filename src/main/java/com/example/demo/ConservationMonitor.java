@@ -0,0 +1,398 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Watches the conserved quantities of the integration: total energy (kinetic
+ * plus tree potential), linear momentum and angular momentum.
+ *
+ * Every K steps the physics thread copies the massive bodies' state into a
+ * flat buffer (O(n), no tree work) and hands it to a worker thread, which
+ * reduces the totals in parallel chunks. The potential comes from a
+ * Barnes-Hut tree of the copy, or from direct pair sums for small systems.
+ * If the worker is still busy with the previous sample, the new one is
+ * skipped rather than queued, so monitoring never holds up a step.
+ *
+ * Drifts are measured against the first sample (re-taken whenever the body
+ * count changes, e.g. after a collision, or after a step-size reduction):
+ * energy as |E - E0| / |E0|, momentum as |P - P0| / sum(m |v0|), and angular
+ * momentum as |L - L0| / sum(m |r0| |v0|). Crossing a threshold prints an
+ * alert; with the reduce action it also asks the simulation to halve its step.
+ *
+ * Momentum is not conserved with static bodies in the system and is then
+ * reported as NaN; angular momentum is taken about the static body if there is
+ * exactly one. Bodies driven by an ephemeris make none of the totals exact.
+ *
+ * SAFETY: afterStep and takeStepReduction are for the physics thread; the
+ * sample getters may be read from any thread.
+ */
+public class ConservationMonitor implements AutoCloseable {
+
+    public enum Action { ALERT, REDUCE }
+
+    /**
+     * One evaluation of the totals and their drifts since the baseline.
+     */
+    public static final class Sample {
+        private final long step;
+        private final double time;
+        private final int bodies;
+        private final double kineticEnergy;
+        private final double potentialEnergy;
+        private final Vector3D momentum;
+        private final Vector3D angularMomentum;
+        private final double energyDrift;
+        private final double momentumDrift;
+        private final double angularMomentumDrift;
+        private final long computeNanos;
+
+        Sample(long step, double time, int bodies, double kineticEnergy, double potentialEnergy,
+               Vector3D momentum, Vector3D angularMomentum, double energyDrift, double momentumDrift,
+               double angularMomentumDrift, long computeNanos) {
+            this.step = step;
+            this.time = time;
+            this.bodies = bodies;
+            this.kineticEnergy = kineticEnergy;
+            this.potentialEnergy = potentialEnergy;
+            this.momentum = momentum;
+            this.angularMomentum = angularMomentum;
+            this.energyDrift = energyDrift;
+            this.momentumDrift = momentumDrift;
+            this.angularMomentumDrift = angularMomentumDrift;
+            this.computeNanos = computeNanos;
+        }
+
+        public long getStep() { return step; }
+        public double getTime() { return time; }
+        public int getBodies() { return bodies; }
+        public double getKineticEnergy() { return kineticEnergy; }
+        public double getPotentialEnergy() { return potentialEnergy; }
+        public double getTotalEnergy() { return kineticEnergy + potentialEnergy; }
+        public Vector3D getMomentum() { return momentum; }
+        public Vector3D getAngularMomentum() { return angularMomentum; }
+        public double getEnergyDrift() { return energyDrift; }
+        public double getMomentumDrift() { return momentumDrift; }
+        public double getAngularMomentumDrift() { return angularMomentumDrift; }
+        public double getComputeMillis() { return computeNanos / 1e6; }
+
+        @Override
+        public String toString() {
+            return String.format("step %d: E=%.6e dE=%.2e dP=%.2e dL=%.2e (%d bodies, %.1f ms)",
+                step, getTotalEnergy(), energyDrift, momentumDrift, angularMomentumDrift, bodies, getComputeMillis());
+        }
+    }
+
+    // Doubles per body in the state buffer: mass, position, velocity, static flag
+    private static final int STRIDE = 8;
+    // SECURITY: Bound the copy buffer (64 bytes per body)
+    static final int MAX_BODIES = 4_000_000;
+    // Reduction chunk; partial sums are combined in chunk order so results do not depend on scheduling
+    private static final int CHUNK = 4096;
+    // Up to this many bodies the potential is summed pair by pair: a tree's monopole error jumps
+    // whenever a cell opens or closes, which in a few-body system dwarfs the real drift
+    static final int DIRECT_POTENTIAL_LIMIT = 4096;
+
+    private final SimulationMetrics metrics;
+    private final int interval;
+    private final double energyThreshold;
+    private final double momentumThreshold;
+    private final double angularMomentumThreshold;
+    private final Action action;
+    private final ExecutorService worker;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final AtomicBoolean reductionRequested = new AtomicBoolean();
+    private volatile boolean rebaseline = true;
+
+    // Handed to the worker only while busy is false, so it is reused
+    private double[] state = new double[0];
+
+    // Worker-thread state
+    private int baselineBodies = -1;
+    private double baselineEnergy;
+    private double baselineEnergyScale;
+    private Vector3D baselineMomentum;
+    private double baselineMomentumScale;
+    private Vector3D baselineAngularMomentum;
+    private double baselineAngularMomentumScale;
+    private boolean energyAlerted;
+    private boolean momentumAlerted;
+    private boolean angularMomentumAlerted;
+
+    private volatile Sample latest;
+
+    public ConservationMonitor(SimulationMetrics metrics, int interval, double energyThreshold,
+                               double momentumThreshold, double angularMomentumThreshold, Action action) {
+        // SECURITY: Input validation on interval and thresholds
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Conservation interval must be > 0 steps");
+        }
+        if (!(energyThreshold > 0) || !(momentumThreshold > 0) || !(angularMomentumThreshold > 0)) {
+            throw new IllegalArgumentException("Drift thresholds must be > 0");
+        }
+        this.metrics = metrics;
+        this.interval = interval;
+        this.energyThreshold = energyThreshold;
+        this.momentumThreshold = momentumThreshold;
+        this.angularMomentumThreshold = angularMomentumThreshold;
+        this.action = action != null ? action : Action.ALERT;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conservation-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Build a monitor from --conservation=K [--energy-threshold=X]
+     * [--momentum-threshold=X] [--angular-momentum-threshold=X]
+     * [--conservation-action=alert|reduce], or return null when no interval was given.
+     */
+    public static ConservationMonitor fromArgs(SimulationMetrics metrics, String[] args) {
+        int interval = 0;
+        double energyThreshold = 1e-4;
+        double momentumThreshold = 1e-6;
+        double angularMomentumThreshold = 1e-6;
+        Action action = Action.ALERT;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--conservation=")) {
+                interval = Integer.parseInt(value);
+            } else if (arg.startsWith("--energy-threshold=")) {
+                energyThreshold = Double.parseDouble(value);
+            } else if (arg.startsWith("--momentum-threshold=")) {
+                momentumThreshold = Double.parseDouble(value);
+            } else if (arg.startsWith("--angular-momentum-threshold=")) {
+                angularMomentumThreshold = Double.parseDouble(value);
+            } else if (arg.startsWith("--conservation-action=")) {
+                action = Action.valueOf(value.toUpperCase());
+            }
+        }
+        return interval > 0
+            ? new ConservationMonitor(metrics, interval, energyThreshold, momentumThreshold, angularMomentumThreshold, action)
+            : null;
+    }
+
+    /**
+     * Called after every step; samples on every K-th one. Test particles are
+     * left out since they carry no mass.
+     */
+    public void afterStep(long step, double time, List<CelestialBody> bodies,
+                          SofteningKernel softening, double softeningLength) {
+        if (step % interval != 0 || !busy.compareAndSet(false, true)) {
+            return;
+        }
+        int count = 0;
+        for (CelestialBody body : bodies) {
+            if (!body.testParticle) {
+                count++;
+            }
+        }
+        if (count > MAX_BODIES) {
+            busy.set(false);
+            return;
+        }
+        if (state.length < count * STRIDE) {
+            state = new double[count * STRIDE];
+        }
+        int base = 0;
+        for (CelestialBody body : bodies) {
+            if (body.testParticle) {
+                continue;
+            }
+            state[base] = body.mass;
+            state[base + 1] = body.position.x;
+            state[base + 2] = body.position.y;
+            state[base + 3] = body.position.z;
+            state[base + 4] = body.velocity.x;
+            state[base + 5] = body.velocity.y;
+            state[base + 6] = body.velocity.z;
+            state[base + 7] = body.isStatic ? 1 : 0;
+            base += STRIDE;
+        }
+        double[] copy = state;
+        int n = count;
+        worker.execute(() -> {
+            try {
+                evaluate(step, time, copy, n, softening, softeningLength);
+            } catch (RuntimeException e) {
+                System.err.println("Conservation check failed: " + e.getMessage());
+            } finally {
+                busy.set(false);
+            }
+        });
+    }
+
+    /**
+     * True once if a drift crossed its threshold under the reduce action since
+     * the last call. The caller shrinks its step; the next sample re-baselines.
+     */
+    public boolean takeStepReduction() {
+        if (reductionRequested.getAndSet(false)) {
+            rebaseline = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void evaluate(long step, double time, double[] state, int n,
+                          SofteningKernel softening, double softeningLength) {
+        long start = System.nanoTime();
+        List<CelestialBody> proxies = new ArrayList<>(n);
+        CelestialBody pivot = null;
+        int statics = 0;
+        for (int i = 0; i < n; i++) {
+            int base = i * STRIDE;
+            if (!(state[base] > 0)) {
+                continue; // Proxies need a positive mass; a massless body adds nothing anyway
+            }
+            CelestialBody proxy = new CelestialBody("c" + i, state[base], 1e-5, null,
+                Vector3D.obtain(state[base + 1], state[base + 2], state[base + 3]),
+                Vector3D.obtain(state[base + 4], state[base + 5], state[base + 6]));
+            if (state[base + 7] != 0) {
+                proxy.setStatic(true);
+                pivot = proxy;
+                statics++;
+            }
+            proxies.add(proxy);
+        }
+        BarnesHutTree tree = proxies.size() > DIRECT_POTENTIAL_LIMIT
+            ? new BarnesHutTree(proxies, softening, softeningLength) : null;
+        Vector3D origin = statics == 1 ? pivot.position : Vector3D.ZERO;
+
+        // Per chunk: kinetic, potential, P (3), L (3), sum m|v|, sum m|r||v|
+        int chunks = (proxies.size() + CHUNK - 1) / CHUNK;
+        double[][] partials = new double[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+            partials[chunk] = reduce(proxies, chunk * CHUNK, Math.min(proxies.size(), (chunk + 1) * CHUNK),
+                tree, softening, softeningLength, origin));
+        double[] totals = new double[10];
+        for (double[] partial : partials) {
+            for (int k = 0; k < totals.length; k++) {
+                totals[k] += partial[k];
+            }
+        }
+        double kinetic = totals[0];
+        double potential = 0.5 * totals[1]; // Each pair was counted from both ends
+        Vector3D momentum = Vector3D.obtain(totals[2], totals[3], totals[4]);
+        Vector3D angularMomentum = Vector3D.obtain(totals[5], totals[6], totals[7]);
+
+        if (rebaseline || proxies.size() != baselineBodies) {
+            rebaseline = false;
+            baselineBodies = proxies.size();
+            baselineEnergy = kinetic + potential;
+            baselineEnergyScale = baselineEnergy != 0 ? Math.abs(baselineEnergy) : kinetic - potential;
+            baselineMomentum = momentum;
+            baselineMomentumScale = totals[8];
+            baselineAngularMomentum = angularMomentum;
+            baselineAngularMomentumScale = totals[9];
+        }
+        double energyDrift = relative(Math.abs(kinetic + potential - baselineEnergy), baselineEnergyScale);
+        double momentumDrift = statics > 0 ? Double.NaN
+            : relative(momentum.subtract(baselineMomentum).length(), baselineMomentumScale);
+        double angularMomentumDrift = statics > 1 ? Double.NaN
+            : relative(angularMomentum.subtract(baselineAngularMomentum).length(), baselineAngularMomentumScale);
+
+        Sample sample = new Sample(step, time, proxies.size(), kinetic, potential, momentum, angularMomentum,
+            energyDrift, momentumDrift, angularMomentumDrift, System.nanoTime() - start);
+        latest = sample;
+        if (metrics != null) {
+            metrics.recordConservation(energyDrift, momentumDrift, angularMomentumDrift);
+        }
+
+        energyAlerted = check("Energy", energyDrift, energyThreshold, energyAlerted, sample);
+        momentumAlerted = check("Momentum", momentumDrift, momentumThreshold, momentumAlerted, sample);
+        angularMomentumAlerted = check("Angular momentum", angularMomentumDrift, angularMomentumThreshold,
+            angularMomentumAlerted, sample);
+        boolean exceeded = energyAlerted || momentumAlerted || angularMomentumAlerted;
+        if (exceeded && action == Action.REDUCE) {
+            reductionRequested.set(true);
+            // A fresh baseline is taken once the reduction is applied; until then stay quiet
+            energyAlerted = momentumAlerted = angularMomentumAlerted = false;
+        }
+    }
+
+    private static double[] reduce(List<CelestialBody> bodies, int from, int to, BarnesHutTree tree,
+                                   SofteningKernel softening, double softeningLength, Vector3D origin) {
+        double[] sums = new double[10];
+        for (int i = from; i < to; i++) {
+            CelestialBody body = bodies.get(i);
+            double m = body.mass;
+            Vector3D v = body.velocity;
+            double rx = body.position.x - origin.x;
+            double ry = body.position.y - origin.y;
+            double rz = body.position.z - origin.z;
+            double speed = v.length();
+            sums[0] += 0.5 * m * speed * speed;
+            sums[1] += tree != null ? tree.calculatePotential(body)
+                : directPotential(bodies, body, softening, softeningLength);
+            sums[2] += m * v.x;
+            sums[3] += m * v.y;
+            sums[4] += m * v.z;
+            sums[5] += m * (ry * v.z - rz * v.y);
+            sums[6] += m * (rz * v.x - rx * v.z);
+            sums[7] += m * (rx * v.y - ry * v.x);
+            sums[8] += m * speed;
+            sums[9] += m * Math.sqrt(rx * rx + ry * ry + rz * rz) * speed;
+        }
+        return sums;
+    }
+
+    private static double directPotential(List<CelestialBody> bodies, CelestialBody body,
+                                          SofteningKernel softening, double softeningLength) {
+        double sum = 0;
+        for (CelestialBody other : bodies) {
+            if (other == body) {
+                continue;
+            }
+            double dx = other.position.x - body.position.x;
+            double dy = other.position.y - body.position.y;
+            double dz = other.position.z - body.position.z;
+            sum += other.mass * softening.potentialFactor(Math.sqrt(dx * dx + dy * dy + dz * dz), softeningLength);
+        }
+        return -CelestialBody.G * body.mass * sum;
+    }
+
+    private static double relative(double difference, double scale) {
+        return scale > 0 ? difference / scale : 0;
+    }
+
+    // Print on the sample that first exceeds the threshold; returns whether it is exceeded now
+    private boolean check(String quantity, double drift, double threshold, boolean alerted, Sample sample) {
+        boolean exceeded = drift > threshold; // NaN (not measured) never alerts
+        if (exceeded && !alerted) {
+            System.err.printf("Conservation alert: %s drift %.3e exceeds %.1e at %s%n",
+                quantity, drift, threshold, sample);
+            if (metrics != null) {
+                metrics.recordConservationAlert();
+            }
+        }
+        return exceeded;
+    }
+
+    /**
+     * The most recent completed sample, or null before the first one.
+     */
+    public Sample getLatest() { return latest; }
+
+    public int getInterval() { return interval; }
+    public Action getAction() { return action; }
+
+    /**
+     * Stop the worker, waiting briefly for a sample in progress.
+     */
+    @Override
+    public void close() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -7,8 +7,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-// import java.util.ArrayList;
-// import java.util.List;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DataLoader {
 
@@ -60,6 +60,10 @@ public class DataLoader {
                         default:
                             System.err.println("Unknown celestial body type: " + type);
                     }
+                    // Optional override; spacecraft default to test particles, everything else not
+                    if (node.has("testParticle") && bodies.containsKey(id)) {
+                        bodies.get(id).setTestParticle(node.get("testParticle").asBoolean());
+                    }
                 }
 
                 // Pass 2: Resolve parent references for Planets
@@ -84,4 +88,47 @@ public class DataLoader {
 
         return bodies;
     }
-}
\ No newline at end of file
+
+    /**
+     * Particle rings declared on the bodies in the same file, e.g.
+     * "rings": [{"innerRadius": 7.4e7, "outerRadius": 1.37e8, "thickness": 1e4,
+     * "tilt": 26.7, "particles": 50000, "color": [0.8, 0.75, 0.6], "seed": 7}]
+     * (metres and degrees). A positive particleCount overrides every ring's count.
+     */
+    public static List<ParticleRing> loadRingsFromJson(String path, Map<String, CelestialBody> bodies,
+                                                       int particleCount) {
+        List<ParticleRing> rings = new ArrayList<>();
+        ObjectMapper objectMapper = new ObjectMapper();
+        try {
+            JsonNode rootNode = objectMapper.readTree(new File(path));
+            if (!rootNode.isArray()) {
+                return rings;
+            }
+            for (JsonNode node : rootNode) {
+                if (!node.has("rings")) {
+                    continue;
+                }
+                CelestialBody parent = bodies.get(node.get("id").asText());
+                for (JsonNode ring : node.get("rings")) {
+                    float[] color = ring.has("color")
+                        ? objectMapper.readValue(ring.get("color").traverse(), float[].class) : null;
+                    try {
+                        rings.add(ParticleRing.generate(parent,
+                            particleCount > 0 ? particleCount : ring.get("particles").asInt(),
+                            ring.get("innerRadius").asDouble(),
+                            ring.get("outerRadius").asDouble(),
+                            ring.has("thickness") ? ring.get("thickness").asDouble() : 0,
+                            Math.toRadians(ring.has("tilt") ? ring.get("tilt").asDouble() : 0),
+                            color,
+                            ring.has("seed") ? ring.get("seed").asLong() : 1));
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Skipping ring of " + node.get("id").asText() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read rings: " + e.getMessage());
+        }
+        return rings;
+    }
+}
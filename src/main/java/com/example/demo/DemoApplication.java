@@ -4,6 +4,7 @@ import org.lwjgl.glfw.*;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.system.MemoryUtil;
+import org.springframework.context.ConfigurableApplicationContext;
 
 public class DemoApplication {
 
@@ -16,6 +17,20 @@ public class DemoApplication {
     private boolean[] keys = new boolean[512];
     private double mouseX, mouseY;
     private boolean mousePressed = false;
+    private double pressX, pressY;
+    // A press and release closer than this (pixels) is a click, not a drag
+    private static final double CLICK_SLOP = 4;
+    
+    private final String[] args;
+    private MetricsOverlay overlay;
+    private MetricsExporter exporter;
+    private ConfigurableApplicationContext telemetryServer;
+    private double lastTitleUpdate;
+    private boolean orreryView;
+
+    public DemoApplication(String[] args) {
+        this.args = args;
+    }
 
     public void run() {
         init();
@@ -55,8 +70,17 @@ public class DemoApplication {
         GLFW.glfwShowWindow(window);
         
         // Initialize simulation
-        simulation = new SimulationManager();
-        simulation.loadSolarSystem();
+        SimulationSettings settings = SimulationSettings.load(args);
+        settings.applyToProcess();
+        simulation = new SimulationManager(settings);
+        simulation.configure(args);
+        
+        // Telemetry: HUD is toggled with H, export only when --metrics-out is given
+        overlay = new MetricsOverlay(simulation.getMetrics());
+        exporter = MetricsExporter.fromArgs(simulation.getMetrics(), args, simulation.getSettings().getMetricsInterval());
+        if (TelemetryServer.isRequested(args)) {
+            telemetryServer = TelemetryServer.start(simulation, args);
+        }
         
         // Initialize timing
         lastTime = GLFW.glfwGetTime();
@@ -67,9 +91,12 @@ public class DemoApplication {
         System.out.println("R          - Reset time scale");
         System.out.println("+/-        - Increase/Decrease time scale");
         System.out.println("Mouse Drag - Free-look camera rotation");
+        System.out.println("Click      - Follow a body (click empty space to release)");
         System.out.println("Scroll     - Zoom in/out");
         System.out.println("WASD       - Move forward/back/left/right");
         System.out.println("Q/E        - Move down/up");
+        System.out.println("H          - Toggle metrics overlay");
+        System.out.println("M          - Toggle linear/orrery scale mapping");
         System.out.println("======================================\n");
     }
     
@@ -92,6 +119,12 @@ public class DemoApplication {
         GLFW.glfwSetMouseButtonCallback(window, (window, button, action, mods) -> {
             if (button == GLFW.GLFW_MOUSE_BUTTON_LEFT) {
                 mousePressed = (action == GLFW.GLFW_PRESS);
+                if (mousePressed) {
+                    pressX = mouseX;
+                    pressY = mouseY;
+                } else if (Math.hypot(mouseX - pressX, mouseY - pressY) < CLICK_SLOP) {
+                    pick();
+                }
             }
         });
         
@@ -120,6 +153,17 @@ public class DemoApplication {
         });
     }
     
+    // Follow the clicked body, or release the camera when the click hits nothing
+    private void pick() {
+        int[] width = new int[1];
+        int[] height = new int[1];
+        GLFW.glfwGetWindowSize(window, width, height); // Cursor positions are in window, not framebuffer, pixels
+        CelestialBody body = simulation.pickBody(mouseX, mouseY, width[0], height[0]);
+        if (body != null || simulation.getFollowed() != null) {
+            simulation.follow(body);
+        }
+    }
+    
     private void handleKeyPress(int key) {
         switch (key) {
             case GLFW.GLFW_KEY_ESCAPE:
@@ -139,6 +183,14 @@ public class DemoApplication {
             case GLFW.GLFW_KEY_KP_SUBTRACT:
                 simulation.adjustTimeScale(0.5);
                 break;
+            case GLFW.GLFW_KEY_H:
+                overlay.toggle();
+                break;
+            case GLFW.GLFW_KEY_M:
+                orreryView = !orreryView;
+                simulation.setScaleMapping(orreryView ? new LogDistanceScaleMapping() : new LinearScaleMapping());
+                System.out.println("Scale mapping: " + (orreryView ? "orrery (log distance)" : "linear"));
+                break;
         }
     }
     
@@ -191,6 +243,7 @@ public class DemoApplication {
             double currentTime = GLFW.glfwGetTime();
             double deltaTime = currentTime - lastTime;
             lastTime = currentTime;
+            simulation.getMetrics().recordFrame((long) (deltaTime * 1e9));
             
             // Handle continuous input
             handleContinuousInput();
@@ -208,6 +261,13 @@ public class DemoApplication {
             
             // Render the simulation
             simulation.render(width[0], height[0]);
+            overlay.draw(width[0], height[0]);
+            
+            // Readings in the title bar, refreshed once per second to keep formatting off the frame path
+            if (overlay.isVisible() && currentTime - lastTitleUpdate > 1.0) {
+                GLFW.glfwSetWindowTitle(window, overlay.describe(simulation.getBodyCount()));
+                lastTitleUpdate = currentTime;
+            }
             
             // Swap buffers and poll events
             GLFW.glfwSwapBuffers(window);
@@ -217,6 +277,12 @@ public class DemoApplication {
     
     private void cleanup() {
         // SECURITY: Proper resource cleanup
+        if (exporter != null) {
+            exporter.close();
+        }
+        if (telemetryServer != null) {
+            telemetryServer.close();
+        }
         GLFW.glfwDestroyWindow(window);
         GLFW.glfwTerminate();
         
@@ -224,9 +290,31 @@ public class DemoApplication {
     }
 
     public static void main(String[] args) {
+        for (String arg : args) {
+            if ("--headless".equals(arg)) {
+                HeadlessApplication.main(args);
+                return;
+            }
+            if (arg.startsWith("--ensemble=")) {
+                EnsembleApplication.main(args);
+                return;
+            }
+            if (arg.startsWith("--golden-steps=")) {
+                GoldenHashApplication.main(args);
+                return;
+            }
+            if ("--distributed".equals(arg)) {
+                DistributedApplication.main(args);
+                return;
+            }
+            if (arg.startsWith("--offheap-bodies=") || arg.startsWith("--offheap-file=")) {
+                OffHeapApplication.main(args);
+                return;
+            }
+        }
         System.out.println("Starting Solar System Simulation...");
         try {
-            new DemoApplication().run();
+            new DemoApplication(args).run();
         } catch (Exception e) {
             System.err.println("Simulation failed: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,184 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A long-addressed byte array made of direct (off-heap) or file-mapped
+ * ByteBuffers of up to 1 GiB each, since a single buffer is limited to 2 GiB.
+ * Callers use power-of-two record sizes, so no record straddles two chunks.
+ * Values are little-endian in every mode, so saved files are portable.
+ *
+ * Direct buffers count against -XX:MaxDirectMemorySize (by default the -Xmx
+ * value). Scratch memory is mapped from an anonymous temporary file instead,
+ * so it is limited only by disk space and the page cache pages it in and out.
+ *
+ * SAFETY: Absolute get/put only, so concurrent access to disjoint records is
+ * safe; the chunk table itself must not be resized while others read it.
+ */
+final class DirectChunks {
+
+    static final int CHUNK_SHIFT = 30;
+    static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+    private static final long OFFSET_MASK = CHUNK_BYTES - 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private ByteBuffer[] chunks;
+    private long capacity;
+    private final boolean mapped;
+    private final FileChannel scratch; // Growable file backing, else null
+
+    private DirectChunks(ByteBuffer[] chunks, long capacity, boolean mapped, FileChannel scratch) {
+        this.chunks = chunks;
+        this.capacity = capacity;
+        this.mapped = mapped;
+        this.scratch = scratch;
+    }
+
+    static DirectChunks allocate(long bytes) {
+        DirectChunks memory = new DirectChunks(new ByteBuffer[0], 0, false, null);
+        memory.grow(bytes);
+        return memory;
+    }
+
+    /**
+     * Growable memory mapped from a new temporary file in the directory. The file
+     * is unlinked as soon as it is open where the platform allows, else on close().
+     */
+    static DirectChunks scratch(Path directory, long bytes) throws IOException {
+        Path file = Files.createTempFile(directory, "nbody-", ".tmp");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.DELETE_ON_CLOSE);
+        DirectChunks memory = new DirectChunks(new ByteBuffer[0], 0, true, channel);
+        memory.grow(bytes);
+        return memory;
+    }
+
+    /**
+     * Map bytes of the file starting at offset; the file must already be long enough.
+     */
+    static DirectChunks map(FileChannel channel, long offset, long bytes) throws IOException {
+        int count = (int) ((bytes + CHUNK_BYTES - 1) >>> CHUNK_SHIFT);
+        ByteBuffer[] chunks = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            long length = Math.min(CHUNK_BYTES, bytes - start);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset + start, length).order(ORDER);
+        }
+        return new DirectChunks(chunks, bytes, true, null);
+    }
+
+    /**
+     * Grow a direct or scratch allocation to at least the given size (existing contents kept).
+     */
+    void grow(long bytes) {
+        if (mapped && scratch == null) {
+            throw new IllegalStateException("Mapped memory cannot grow");
+        }
+        if (bytes <= capacity) {
+            return;
+        }
+        int count = (int) ((bytes + CHUNK_BYTES - 1) >>> CHUNK_SHIFT);
+        ByteBuffer[] grown = Arrays.copyOf(chunks, count);
+        try {
+            if (scratch != null) {
+                // Extend without writing the body: the file system hands out zero pages lazily
+                scratch.write(ByteBuffer.wrap(new byte[1]), bytes - 1);
+            }
+            for (int i = 0; i < count; i++) {
+                long start = (long) i << CHUNK_SHIFT;
+                long length = Math.min(CHUNK_BYTES, bytes - start);
+                if (i < chunks.length && chunks[i].capacity() == length) {
+                    continue; // Full chunk, kept as is
+                }
+                if (scratch != null) {
+                    // Same file pages as any old mapping of this chunk, so nothing to copy
+                    grown[i] = scratch.map(FileChannel.MapMode.READ_WRITE, start, length).order(ORDER);
+                } else {
+                    grown[i] = grownDirect(i < chunks.length ? chunks[i] : null, length);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow scratch file", e);
+        }
+        chunks = grown;
+        capacity = bytes;
+    }
+
+    private static ByteBuffer grownDirect(ByteBuffer previous, long length) {
+        ByteBuffer chunk = ByteBuffer.allocateDirect((int) length).order(ORDER);
+        if (previous != null) {
+            ByteBuffer old = previous.duplicate();
+            old.clear();
+            chunk.put(old);
+            chunk.clear();
+        }
+        return chunk;
+    }
+
+    long capacity() { return capacity; }
+
+    double getDouble(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getDouble((int) (offset & OFFSET_MASK));
+    }
+
+    void putDouble(long offset, double value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putDouble((int) (offset & OFFSET_MASK), value);
+    }
+
+    long getLong(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & OFFSET_MASK));
+    }
+
+    void putLong(long offset, long value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) (offset & OFFSET_MASK), value);
+    }
+
+    int getInt(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getInt((int) (offset & OFFSET_MASK));
+    }
+
+    void putInt(long offset, int value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putInt((int) (offset & OFFSET_MASK), value);
+    }
+
+    float getFloat(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getFloat((int) (offset & OFFSET_MASK));
+    }
+
+    void putFloat(long offset, float value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putFloat((int) (offset & OFFSET_MASK), value);
+    }
+
+    /**
+     * Write mapped chunks back to the file (no-op for direct and scratch memory).
+     */
+    void force() {
+        if (mapped && scratch == null) {
+            for (ByteBuffer chunk : chunks) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+
+    /**
+     * Release a scratch file (its mappings stay valid until collected); no-op otherwise.
+     */
+    void close() {
+        if (scratch != null) {
+            try {
+                scratch.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close scratch file", e);
+            }
+        }
+    }
+}
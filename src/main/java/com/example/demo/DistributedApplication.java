@@ -0,0 +1,221 @@
+package com.example.demo;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Command-line driver for a domain-decomposed run across several JVMs.
+ *
+ * Usage: --distributed [--ranks=N] [--rank=R] [--host=H] [--port=P]
+ *        [--steps=S] [--dt=SECONDS] [--rebalance-interval=K] [--imbalance=X]
+ *        [--report-interval=K] [--distributed-out=FILE]
+ *        plus the scenario and softening flags accepted by SimulationManager.configure
+ *
+ * Without --rank this process becomes rank 0 and launches ranks 1..N-1 as child
+ * JVMs on this machine with the same class path (or executable jar) and
+ * arguments. With --rank, it joins a mesh whose other ranks are started
+ * separately (e.g. on other hosts with --host set to an address every rank can
+ * bind and reach).
+ *
+ * Every rank loads the scenario itself, so it must be deterministic (JSON or a
+ * seeded generator such as --galaxy-merger=N --seed=S).
+ */
+public class DistributedApplication {
+
+    private static final long CONNECT_TIMEOUT_MILLIS = 60_000;
+    private static final long CHILD_EXIT_TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) {
+        int ranks = 2;
+        int rank = -1;
+        String host = "127.0.0.1"; // SECURITY: Loopback only unless explicitly asked
+        int port = 47000;
+        long steps = 100;
+        double dt = 86400;
+        int rebalanceInterval = 10;
+        double imbalance = 1.1;
+        int reportInterval = 10;
+        String outFile = null;
+
+        List<Process> children = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--ranks=")) {
+                    ranks = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--rank=")) {
+                    rank = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--host=")) {
+                    host = value(arg);
+                } else if (arg.startsWith("--port=")) {
+                    port = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--steps=")) {
+                    steps = Long.parseLong(value(arg));
+                } else if (arg.startsWith("--dt=")) {
+                    dt = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--rebalance-interval=")) {
+                    rebalanceInterval = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--imbalance=")) {
+                    imbalance = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--report-interval=")) {
+                    reportInterval = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--distributed-out=")) {
+                    outFile = value(arg);
+                }
+            }
+            // SECURITY: Input validation on run length and step size
+            if (steps < 0 || !(dt > 0) || Double.isInfinite(dt) || reportInterval < 1) {
+                throw new IllegalArgumentException("Steps must be >= 0, dt > 0 and report interval >= 1");
+            }
+
+            if (rank < 0) {
+                rank = 0;
+                for (int child = 1; child < ranks; child++) {
+                    children.add(launchRank(child, args));
+                }
+            }
+
+            SimulationSettings settings = SimulationSettings.load(args);
+            settings.applyToProcess();
+            SimulationManager scenario = new SimulationManager(settings);
+            scenario.configure(args);
+            try (ClusterTransport transport = ClusterTransport.connect(rank, ranks, host, port, CONNECT_TIMEOUT_MILLIS)) {
+                DistributedSimulation simulation = new DistributedSimulation(transport, scenario.getIntegrator());
+                simulation.setRebalanceInterval(rebalanceInterval);
+                simulation.setImbalanceThreshold(imbalance);
+                simulation.distribute(scenario.getBodies().values());
+                if (rank == 0) {
+                    System.out.printf("Distributed run: %d bodies on %d ranks, %d steps of %.3g s%n",
+                        scenario.getBodyCount(), ranks, steps, dt);
+                }
+
+                long start = System.nanoTime();
+                for (long step = 1; step <= steps; step++) {
+                    simulation.step(dt);
+                    if (rank == 0 && (step % reportInterval == 0 || step == steps)) {
+                        report(simulation);
+                    }
+                }
+                double wall = (System.nanoTime() - start) / 1e9;
+
+                List<CelestialBody> all = simulation.gather();
+                System.out.printf("Rank %d: compute %.2fs, communication %.2fs, %d ghosts, %d bodies migrated, %.1f MB sent%n",
+                    rank, simulation.getComputeSeconds(), simulation.getCommunicationSeconds(),
+                    simulation.getGhostCount(), simulation.getMigratedBodies(), transport.getBytesSent() / 1e6);
+                if (rank == 0) {
+                    System.out.printf("Finished %d steps in %.1fs (%.1f steps/s, %d rebalances)%n",
+                        steps, wall, steps / Math.max(wall, 1e-9), simulation.getRebalanceCount());
+                    printTotals(all);
+                    if (outFile != null) {
+                        writeState(all, outFile);
+                    }
+                }
+            }
+            waitForChildren(children);
+        } catch (Exception e) {
+            System.err.println("Distributed run failed on rank " + rank + ": " + e.getMessage());
+            e.printStackTrace();
+            for (Process child : children) {
+                child.destroyForcibly();
+            }
+            System.exit(1);
+        }
+    }
+
+    private static Process launchRank(int rank, String[] args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        String bootJar = bootJar();
+        if (bootJar != null) {
+            // Classes sit under BOOT-INF in the Spring Boot jar; only its launcher can load them
+            command.add("-jar");
+            command.add(bootJar);
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(DemoApplication.class.getName());
+        }
+        for (String arg : args) {
+            command.add(arg);
+        }
+        command.add("--rank=" + rank);
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    // The Spring Boot executable jar this JVM was started from (java -jar), or null
+    private static String bootJar() throws IOException {
+        String classPath = System.getProperty("java.class.path");
+        if (classPath.contains(File.pathSeparator) || !classPath.endsWith(".jar")) {
+            return null;
+        }
+        try (JarFile jar = new JarFile(classPath)) {
+            Manifest manifest = jar.getManifest();
+            boolean executable = manifest != null && manifest.getMainAttributes().getValue("Start-Class") != null;
+            return executable ? classPath : null;
+        }
+    }
+
+    private static void waitForChildren(List<Process> children) throws InterruptedException {
+        for (Process child : children) {
+            if (!child.waitFor(CHILD_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Rank process did not exit; terminating it");
+                child.destroyForcibly();
+            } else if (child.exitValue() != 0) {
+                System.err.println("Rank process exited with status " + child.exitValue());
+            }
+        }
+    }
+
+    private static void report(DistributedSimulation simulation) {
+        int[] bodies = simulation.getRankBodies();
+        double[] millis = simulation.getRankStepMillis();
+        StringBuilder line = new StringBuilder();
+        line.append(String.format("Step %d: imbalance %.2f |", simulation.getStepCount(), simulation.imbalance()));
+        for (int r = 0; r < bodies.length; r++) {
+            line.append(String.format(" r%d %d bodies %.1fms", r, bodies[r], millis[r]));
+        }
+        System.out.println(line);
+    }
+
+    private static void printTotals(List<CelestialBody> bodies) {
+        double mass = 0, px = 0, py = 0, pz = 0, kinetic = 0;
+        for (CelestialBody body : bodies) {
+            Vector3D v = body.getVelocity();
+            mass += body.getMass();
+            px += body.getMass() * v.x;
+            py += body.getMass() * v.y;
+            pz += body.getMass() * v.z;
+            kinetic += 0.5 * body.getMass() * (v.x * v.x + v.y * v.y + v.z * v.z);
+        }
+        System.out.printf("Totals: %d bodies, mass %.6e kg, momentum (%.6e, %.6e, %.6e) kg m/s, kinetic %.6e J%n",
+            bodies.size(), mass, px, py, pz, kinetic);
+    }
+
+    // One line per body, sorted by id so runs with different rank counts can be diffed
+    private static void writeState(List<CelestialBody> bodies, String file) throws IOException {
+        List<CelestialBody> sorted = new ArrayList<>(bodies);
+        sorted.sort((a, b) -> a.getId().compareTo(b.getId()));
+        File target = new File(file);
+        try (BufferedWriter out = Files.newBufferedWriter(target.toPath())) {
+            out.write("id,x,y,z,vx,vy,vz\n");
+            for (CelestialBody body : sorted) {
+                Vector3D p = body.getPosition();
+                Vector3D v = body.getVelocity();
+                out.write(String.format("%s,%.17g,%.17g,%.17g,%.17g,%.17g,%.17g%n",
+                    body.getId(), p.x, p.y, p.z, v.x, v.y, v.z));
+            }
+        }
+        System.out.println("Wrote final state to " + target.getAbsolutePath());
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,491 @@
+package com.example.demo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One rank of a domain-decomposed N-body run.
+ *
+ * Each rank owns the bodies in its Morton-curve range (see DomainDecomposition)
+ * and integrates only those. Per step, ranks exchange their body bounds, then
+ * send every other rank the locally essential tree of their bodies for that
+ * rank's bounds (BarnesHutTree.collectEssential). The received cells and
+ * bodies are added as static ghosts, so the normal NBodyIntegrator computes
+ * the same Barnes-Hut forces as a single process would, up to the opening angle.
+ *
+ * Load balancing: every rebalanceInterval steps, if the slowest rank's smoothed
+ * compute time exceeds the mean by imbalanceThreshold, each body is weighted
+ * by its rank's time per body, the curve is re-cut on the summed weights and
+ * bodies migrate to their new owners.
+ *
+ * Collisions and binary regularization are per-process features and are
+ * disabled here: both would need pairs that straddle ranks.
+ *
+ * SAFETY: Not thread-safe. Every rank must call step() the same number of times.
+ */
+public class DistributedSimulation {
+
+    // Weight of the newest step in the smoothed per-rank compute time
+    private static final double TIME_SMOOTHING = 0.3;
+    // SECURITY: Bound decoded counts so a corrupt message cannot force a huge allocation
+    private static final int MAX_BODIES_PER_MESSAGE = 10_000_000;
+
+    private static final byte TYPE_BODY = 0;
+    private static final byte TYPE_STAR = 1;
+    private static final byte TYPE_PLANET = 2;
+    private static final byte TYPE_SPACECRAFT = 3;
+
+    private final ClusterTransport transport;
+    private final int rank;
+    private final int ranks;
+    private final NBodyIntegrator integrator;
+    private final DomainDecomposition domain;
+    private List<CelestialBody> local = new ArrayList<>();
+
+    private int rebalanceInterval = 10;
+    private double imbalanceThreshold = 1.1;
+
+    private long stepCount;
+    private double smoothedComputeNanos;
+    // Latest state of all ranks, from the status exchange at the start of the step
+    private final int[] rankBodies;
+    private final double[] rankComputeNanos;
+    private int ghostCount;
+    private long computeNanos;
+    private long communicationNanos;
+    private int rebalances;
+    private long migratedBodies;
+
+    public DistributedSimulation(ClusterTransport transport, NBodyIntegrator integrator) {
+        this.transport = transport;
+        this.rank = transport.getRank();
+        this.ranks = transport.getRanks();
+        this.integrator = integrator;
+        this.domain = new DomainDecomposition(ranks);
+        this.rankBodies = new int[ranks];
+        this.rankComputeNanos = new double[ranks];
+        // Ghost sets change every step, so there is nothing to refit
+        integrator.setRefitEnabled(false);
+        integrator.setCollisionSystem(null);
+        integrator.setRegularizer(null);
+    }
+
+    /**
+     * Keep this rank's share of a scenario that every rank generated identically,
+     * splitting the curve by body count. Needs no communication.
+     */
+    public void distribute(Collection<CelestialBody> scenario) {
+        domain.setBounds(bounds(scenario));
+        double[] counts = new double[DomainDecomposition.BINS];
+        for (CelestialBody body : scenario) {
+            counts[domain.bin(body)]++;
+        }
+        domain.balance(counts);
+        local = new ArrayList<>();
+        for (CelestialBody body : scenario) {
+            if (domain.owner(body) == rank) {
+                local.add(body);
+            }
+        }
+        relinkParents(local);
+    }
+
+    public void step(double deltaTime) throws IOException {
+        // Bounds and load of every rank
+        long commStart = System.nanoTime();
+        byte[][] status = transport.broadcastExchange(encodeStatus());
+        double[][] boxes = new double[ranks][];
+        double[] global = emptyBounds();
+        for (int r = 0; r < ranks; r++) {
+            DataInputStream in = reader(status[r]);
+            boxes[r] = new double[6];
+            for (int k = 0; k < 6; k++) {
+                boxes[r][k] = in.readDouble();
+            }
+            rankBodies[r] = in.readInt();
+            rankComputeNanos[r] = in.readDouble();
+            if (rankBodies[r] > 0) {
+                include(global, boxes[r]);
+            }
+        }
+        long computeStart = System.nanoTime();
+
+        // Locally essential trees: what each other rank needs to see of ours (test particles attract nothing)
+        List<CelestialBody> sources = new ArrayList<>(local.size());
+        for (CelestialBody body : local) {
+            if (!body.isTestParticle()) {
+                sources.add(body);
+            }
+        }
+        BarnesHutTree localTree = new BarnesHutTree(sources, integrator.getSoftening(), integrator.getSofteningLength());
+        localTree.setOpeningAngle(integrator.getOpeningAngle());
+        byte[][] outgoing = new byte[ranks][];
+        List<CelestialBody> essential = new ArrayList<>();
+        for (int peer = 0; peer < ranks; peer++) {
+            if (peer == rank || rankBodies[peer] == 0) continue;
+            essential.clear();
+            localTree.collectEssential(boxes[peer], essential);
+            outgoing[peer] = encodeGhosts(essential);
+        }
+        long letNanos = System.nanoTime() - computeStart;
+
+        long exchangeStart = System.nanoTime();
+        byte[][] incoming = transport.exchange(outgoing);
+        List<CelestialBody> all = new ArrayList<>(local);
+        for (int peer = 0; peer < ranks; peer++) {
+            if (peer != rank && incoming[peer].length > 0) {
+                decodeGhosts(incoming[peer], all);
+            }
+        }
+        ghostCount = all.size() - local.size();
+        long integrateStart = System.nanoTime();
+
+        integrator.step(all, deltaTime);
+
+        long stepNanos = letNanos + (System.nanoTime() - integrateStart);
+        computeNanos += stepNanos;
+        communicationNanos += (computeStart - commStart) + (integrateStart - exchangeStart);
+        smoothedComputeNanos = smoothedComputeNanos == 0 ? stepNanos
+            : smoothedComputeNanos + TIME_SMOOTHING * (stepNanos - smoothedComputeNanos);
+        stepCount++;
+
+        // Every rank sees the same status, so every rank takes the same decision
+        if (ranks > 1 && stepCount % rebalanceInterval == 0 && imbalance() > imbalanceThreshold) {
+            long rebalanceStart = System.nanoTime();
+            rebalance(global);
+            communicationNanos += System.nanoTime() - rebalanceStart;
+        }
+    }
+
+    /**
+     * Slowest rank's smoothed compute time over the mean, from the latest status exchange.
+     */
+    public double imbalance() {
+        double max = 0;
+        double sum = 0;
+        for (double nanos : rankComputeNanos) {
+            max = Math.max(max, nanos);
+            sum += nanos;
+        }
+        return sum > 0 ? max * ranks / sum : 1.0;
+    }
+
+    private void rebalance(double[] global) throws IOException {
+        domain.setBounds(global);
+        // Each body costs its rank's time per body
+        double weight = local.isEmpty() ? 0 : Math.max(smoothedComputeNanos, 1) / local.size();
+        Map<Integer, Double> histogram = new HashMap<>();
+        for (CelestialBody body : local) {
+            histogram.merge(domain.bin(body), weight, Double::sum);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(histogram.size());
+        for (Map.Entry<Integer, Double> entry : histogram.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+        out.flush();
+
+        double[] weights = new double[DomainDecomposition.BINS];
+        for (byte[] message : transport.broadcastExchange(bytes.toByteArray())) {
+            DataInputStream in = reader(message);
+            int entries = in.readInt();
+            checkCount(entries);
+            for (int i = 0; i < entries; i++) {
+                int bin = in.readInt();
+                double w = in.readDouble();
+                // SECURITY: Reject out-of-range bins and non-finite weights from peers
+                if (bin < 0 || bin >= weights.length || !(w >= 0) || Double.isInfinite(w)) {
+                    throw new IOException("Invalid histogram entry from peer");
+                }
+                weights[bin] += w;
+            }
+        }
+        domain.balance(weights);
+
+        // Migrate bodies to their new owners
+        List<List<CelestialBody>> leaving = new ArrayList<>(ranks);
+        for (int r = 0; r < ranks; r++) {
+            leaving.add(new ArrayList<>());
+        }
+        List<CelestialBody> staying = new ArrayList<>(local.size());
+        for (CelestialBody body : local) {
+            int owner = domain.owner(body);
+            (owner == rank ? staying : leaving.get(owner)).add(body);
+        }
+        byte[][] outgoing = new byte[ranks][];
+        for (int r = 0; r < ranks; r++) {
+            if (r != rank) {
+                outgoing[r] = encodeBodies(leaving.get(r));
+                migratedBodies += leaving.get(r).size();
+            }
+        }
+        byte[][] incoming = transport.exchange(outgoing);
+        for (int r = 0; r < ranks; r++) {
+            if (r != rank) {
+                decodeBodies(incoming[r], staying);
+            }
+        }
+        local = staying;
+        relinkParents(local);
+        rebalances++;
+    }
+
+    /**
+     * Collect every rank's bodies on rank 0 (which gets them all back; other ranks get an empty list).
+     */
+    public List<CelestialBody> gather() throws IOException {
+        byte[][] outgoing = new byte[ranks][];
+        if (rank != 0) {
+            outgoing[0] = encodeBodies(local);
+        }
+        byte[][] incoming = transport.exchange(outgoing);
+        List<CelestialBody> all = new ArrayList<>();
+        if (rank == 0) {
+            all.addAll(local);
+            for (int r = 1; r < ranks; r++) {
+                decodeBodies(incoming[r], all);
+            }
+        }
+        return all;
+    }
+
+    private byte[] encodeStatus() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (double bound : bounds(local)) {
+            out.writeDouble(bound);
+        }
+        out.writeInt(local.size());
+        out.writeDouble(smoothedComputeNanos);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // Ghosts only carry what gravity needs: mass and position
+    private static byte[] encodeGhosts(List<CelestialBody> ghosts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + ghosts.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(ghosts.size());
+        for (CelestialBody ghost : ghosts) {
+            out.writeDouble(ghost.mass);
+            out.writeDouble(ghost.position.x);
+            out.writeDouble(ghost.position.y);
+            out.writeDouble(ghost.position.z);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void decodeGhosts(byte[] message, List<CelestialBody> out) throws IOException {
+        DataInputStream in = reader(message);
+        int count = in.readInt();
+        checkCount(count);
+        for (int i = 0; i < count; i++) {
+            double mass = in.readDouble();
+            Vector3D position = Vector3D.obtain(in.readDouble(), in.readDouble(), in.readDouble());
+            CelestialBody ghost = new CelestialBody("ghost", mass, 1e-5, null, position, Vector3D.ZERO);
+            ghost.setStatic(true);
+            out.add(ghost);
+        }
+    }
+
+    private static byte[] encodeBodies(List<CelestialBody> bodies) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + bodies.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(bodies.size());
+        for (CelestialBody body : bodies) {
+            if (body instanceof Star) {
+                out.writeByte(TYPE_STAR);
+            } else if (body instanceof Planet) {
+                out.writeByte(TYPE_PLANET);
+            } else if (body instanceof Spacecraft) {
+                out.writeByte(TYPE_SPACECRAFT);
+            } else {
+                out.writeByte(TYPE_BODY);
+            }
+            out.writeUTF(body.id);
+            out.writeDouble(body.mass);
+            out.writeDouble(body.radius);
+            for (float channel : body.color) {
+                out.writeFloat(channel);
+            }
+            out.writeBoolean(body.isStatic);
+            out.writeBoolean(body.testParticle);
+            writeVector(out, body.position);
+            writeVector(out, body.velocity);
+            if (body instanceof Star) {
+                out.writeDouble(((Star) body).getLuminosity());
+            } else if (body instanceof Planet) {
+                Planet planet = (Planet) body;
+                out.writeBoolean(planet.getParentId() != null);
+                if (planet.getParentId() != null) {
+                    out.writeUTF(planet.getParentId());
+                }
+                out.writeBoolean(planet.isGasGiant());
+            } else if (body instanceof Spacecraft) {
+                out.writeDouble(((Spacecraft) body).getThrustPower());
+                out.writeDouble(((Spacecraft) body).getFuel());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void decodeBodies(byte[] message, List<CelestialBody> out) throws IOException {
+        DataInputStream in = reader(message);
+        int count = in.readInt();
+        checkCount(count);
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            String id = in.readUTF();
+            double mass = in.readDouble();
+            double radius = in.readDouble();
+            float[] color = {in.readFloat(), in.readFloat(), in.readFloat()};
+            boolean isStatic = in.readBoolean();
+            boolean testParticle = in.readBoolean();
+            Vector3D position = readVector(in);
+            Vector3D velocity = readVector(in);
+            // SECURITY: Constructors validate mass and radius; reject anything else non-finite here
+            if (!Double.isFinite(position.x + position.y + position.z + velocity.x + velocity.y + velocity.z)) {
+                throw new IOException("Non-finite state for body " + id);
+            }
+            CelestialBody body;
+            switch (type) {
+                case TYPE_STAR:
+                    body = new Star(id, mass, radius, color, isStatic, position, velocity, in.readDouble());
+                    break;
+                case TYPE_PLANET:
+                    String parentId = in.readBoolean() ? in.readUTF() : null;
+                    body = new Planet(id, mass, radius, color, isStatic, position, velocity, parentId, in.readBoolean());
+                    break;
+                case TYPE_SPACECRAFT:
+                    body = new Spacecraft(id, mass, radius, color, isStatic, position, velocity,
+                        in.readDouble(), in.readDouble());
+                    break;
+                case TYPE_BODY:
+                    body = new CelestialBody(id, mass, radius, color, position, velocity);
+                    body.setStatic(isStatic);
+                    break;
+                default:
+                    throw new IOException("Unknown body type " + type);
+            }
+            body.setTestParticle(testParticle);
+            out.add(body);
+        }
+    }
+
+    // Parent links are references, so they only survive within a rank
+    private static void relinkParents(List<CelestialBody> bodies) {
+        Map<String, CelestialBody> byId = new HashMap<>();
+        for (CelestialBody body : bodies) {
+            byId.put(body.id, body);
+        }
+        for (CelestialBody body : bodies) {
+            if (body instanceof Planet) {
+                Planet planet = (Planet) body;
+                planet.setParentBody(planet.getParentId() != null ? byId.get(planet.getParentId()) : null);
+            }
+        }
+    }
+
+    private static void writeVector(DataOutputStream out, Vector3D v) throws IOException {
+        out.writeDouble(v.x);
+        out.writeDouble(v.y);
+        out.writeDouble(v.z);
+    }
+
+    private static Vector3D readVector(DataInputStream in) throws IOException {
+        return Vector3D.obtain(in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    private static void checkCount(int count) throws IOException {
+        if (count < 0 || count > MAX_BODIES_PER_MESSAGE) {
+            throw new IOException("Invalid element count " + count + " from peer");
+        }
+    }
+
+    private static DataInputStream reader(byte[] message) {
+        return new DataInputStream(new ByteArrayInputStream(message));
+    }
+
+    private static double[] emptyBounds() {
+        return new double[]{
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+    }
+
+    private static void include(double[] box, double[] other) {
+        for (int k = 0; k < 3; k++) {
+            box[k] = Math.min(box[k], other[k]);
+            box[k + 3] = Math.max(box[k + 3], other[k + 3]);
+        }
+    }
+
+    private static double[] bounds(Collection<CelestialBody> bodies) {
+        double[] box = emptyBounds();
+        for (CelestialBody body : bodies) {
+            Vector3D p = body.position;
+            box[0] = Math.min(box[0], p.x);
+            box[1] = Math.min(box[1], p.y);
+            box[2] = Math.min(box[2], p.z);
+            box[3] = Math.max(box[3], p.x);
+            box[4] = Math.max(box[4], p.y);
+            box[5] = Math.max(box[5], p.z);
+        }
+        return box;
+    }
+
+    public void setRebalanceInterval(int steps) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("Rebalance interval must be at least one step");
+        }
+        this.rebalanceInterval = steps;
+    }
+
+    /**
+     * Rebalance once the slowest rank is this many times slower than the mean (>= 1).
+     */
+    public void setImbalanceThreshold(double threshold) {
+        if (!(threshold >= 1.0)) {
+            throw new IllegalArgumentException("Imbalance threshold must be >= 1");
+        }
+        this.imbalanceThreshold = threshold;
+    }
+
+    public List<CelestialBody> getLocalBodies() { return local; }
+    public int getRank() { return rank; }
+    public int getRanks() { return ranks; }
+    public long getStepCount() { return stepCount; }
+    public int getGhostCount() { return ghostCount; }
+    public int getRebalanceCount() { return rebalances; }
+    public long getMigratedBodies() { return migratedBodies; }
+    public double getComputeSeconds() { return computeNanos / 1e9; }
+    public double getCommunicationSeconds() { return communicationNanos / 1e9; }
+
+    /**
+     * Body counts of all ranks at the start of the last step.
+     */
+    public int[] getRankBodies() { return rankBodies.clone(); }
+
+    /**
+     * Smoothed per-step compute time of all ranks at the start of the last step, in milliseconds.
+     */
+    public double[] getRankStepMillis() {
+        double[] millis = new double[ranks];
+        for (int r = 0; r < ranks; r++) {
+            millis[r] = rankComputeNanos[r] / 1e6;
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo;
+
+/**
+ * Splits space into one contiguous Morton-curve range per rank.
+ *
+ * The curve is cut at histogram-bin granularity (HISTOGRAM_BITS of the key,
+ * i.e. octree level 6) so that the weighted work in each range is as even as
+ * the bins allow. Every rank holds an identical decomposition: it is derived
+ * only from the exchanged global bounds and the summed histogram.
+ */
+final class DomainDecomposition {
+
+    static final int HISTOGRAM_BITS = 18;
+    static final int BINS = 1 << HISTOGRAM_BITS;
+
+    private final int ranks;
+    // Cube the keys are computed in
+    private double minX, minY, minZ, size;
+    // Rank r owns bins firstBin[r] .. firstBin[r + 1] - 1
+    private final int[] firstBin;
+
+    DomainDecomposition(int ranks) {
+        this.ranks = ranks;
+        this.firstBin = new int[ranks + 1];
+        for (int r = 0; r <= ranks; r++) {
+            firstBin[r] = (int) ((long) BINS * r / ranks);
+        }
+    }
+
+    /**
+     * Fit the key cube to the global body bounds {minX, minY, minZ, maxX, maxY, maxZ}.
+     */
+    void setBounds(double[] box) {
+        double extent = Math.max(Math.max(box[3] - box[0], box[4] - box[1]), box[5] - box[2]);
+        // Slightly larger than the bodies so the maximum coordinate stays inside the last cell
+        double padded = extent > 0 ? extent * (1 + 1e-9) : 1.0;
+        this.minX = box[0];
+        this.minY = box[1];
+        this.minZ = box[2];
+        this.size = padded;
+    }
+
+    int bin(CelestialBody body) {
+        Vector3D p = body.position;
+        long key = MortonKey.of(p.x, p.y, p.z, minX, minY, minZ, size);
+        return (int) (key >>> (MortonKey.KEY_BITS - HISTOGRAM_BITS));
+    }
+
+    int owner(CelestialBody body) {
+        return ownerOfBin(bin(body));
+    }
+
+    int ownerOfBin(int bin) {
+        // Last rank whose range starts at or before the bin (ranks with empty ranges are skipped)
+        int low = 0;
+        int high = ranks - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstBin[mid] <= bin) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Cut the curve so each rank receives an equal share of the summed bin weights.
+     */
+    void balance(double[] binWeights) {
+        double total = 0;
+        for (double w : binWeights) {
+            total += w;
+        }
+        firstBin[0] = 0;
+        firstBin[ranks] = BINS;
+        if (total <= 0) {
+            return;
+        }
+        double prefix = 0;
+        int bin = 0;
+        for (int r = 1; r < ranks; r++) {
+            double target = total * r / ranks;
+            // Put the boundary before the bin that would take this rank past its share
+            while (bin < BINS && prefix + binWeights[bin] * 0.5 < target) {
+                prefix += binWeights[bin];
+                bin++;
+            }
+            firstBin[r] = Math.max(bin, firstBin[r - 1]);
+        }
+    }
+
+    int[] getFirstBins() {
+        return firstBin.clone();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Command-line Monte-Carlo sweep over perturbed copies of the configured scenario.
+ *
+ * Usage: --ensemble=N [--ensemble-days=D] [--ensemble-dt=S1,S2,...]
+ *        [--ensemble-sigma=REL] [--ensemble-seed=S] [--ensemble-threads=T]
+ *        plus the scenario and physics flags accepted by SimulationManager.configure
+ *
+ * Reports, per time step and overall, the final distance of every non-static body
+ * from the heaviest body and the relative energy drift.
+ */
+public class EnsembleApplication {
+
+    // O(n^2) energy tracking is only enabled for systems up to this size
+    private static final int ENERGY_TRACKING_LIMIT = 2000;
+
+    public static void main(String[] args) {
+        int members = 100;
+        double days = 365;
+        double[] timeSteps = {3600, 21600, 86400};
+        double sigma = 1e-6;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--ensemble=")) {
+                    members = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--ensemble-days=")) {
+                    days = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--ensemble-dt=")) {
+                    timeSteps = Arrays.stream(value(arg).split(",")).mapToDouble(Double::parseDouble).toArray();
+                } else if (arg.startsWith("--ensemble-sigma=")) {
+                    sigma = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--ensemble-seed=")) {
+                    seed = Long.parseLong(value(arg));
+                } else if (arg.startsWith("--ensemble-threads=")) {
+                    threads = Integer.parseInt(value(arg));
+                }
+            }
+
+            // Reuse the normal scenario loading; only the bodies are kept
+            SimulationSettings settings = SimulationSettings.load(args);
+            settings.applyToProcess();
+            SimulationManager template = new SimulationManager(settings);
+            template.configure(args);
+            EnsembleSpec spec = new EnsembleSpec(template.getBodies().values(), members, days * 86400.0);
+            spec.setTimeSteps(timeSteps);
+            spec.setPerturbation(sigma, sigma);
+            spec.setSeed(seed);
+            boolean trackEnergy = template.getBodyCount() <= ENERGY_TRACKING_LIMIT;
+            spec.setSetup(world -> {
+                world.getIntegrator().setOpeningAngle(settings.getTheta());
+                world.getIntegrator().applyArgs(args);
+                world.getIntegrator().setCollisionSystem(CollisionSystem.fromArgs(args));
+                world.setEnergyTracking(trackEnergy);
+            });
+            addDefaultObservables(spec, template);
+
+            System.out.printf("Running ensemble: %d members x %.0f days, dt=%s, sigma=%.1e on %d threads%n",
+                members, days, Arrays.toString(timeSteps), sigma, threads);
+            EnsembleResult result;
+            try (EnsembleRunner runner = new EnsembleRunner(threads)) {
+                result = runner.run(spec);
+            }
+            printResult(result, timeSteps);
+        } catch (Exception e) {
+            System.err.println("Ensemble failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void addDefaultObservables(EnsembleSpec spec, SimulationManager template) {
+        CelestialBody heaviest = null;
+        for (CelestialBody body : template.getBodies().values()) {
+            if (heaviest == null || body.getMass() > heaviest.getMass()) {
+                heaviest = body;
+            }
+        }
+        String centralId = heaviest.getId();
+        for (CelestialBody body : template.getBodies().values()) {
+            // SAFETY: Large generated scenarios would produce thousands of columns
+            if (body.isStatic() || body == heaviest || template.getBodyCount() > 50) {
+                continue;
+            }
+            String id = body.getId();
+            spec.addObservable(id + "_distance_m", world -> {
+                CelestialBody central = world.find(centralId);
+                CelestialBody tracked = world.find(id);
+                // Absorbed in a collision: excluded from the statistics
+                return central == null || tracked == null ? Double.NaN
+                    : tracked.getPosition().subtract(central.getPosition()).length();
+            });
+        }
+        spec.addObservable("energy_drift", PhysicsWorld::getRelativeEnergyDrift);
+        spec.addObservable("bodies", world -> world.getBodies().size());
+    }
+
+    private static void printResult(EnsembleResult result, double[] timeSteps) {
+        System.out.printf("Ensemble finished: %d completed, %d failed in %.1fs (%.0f member steps/s)%n",
+            result.getCompleted(), result.getFailed(), result.getWallSeconds(), result.getStepsPerSecond());
+        if (timeSteps.length > 1) {
+            for (double dt : timeSteps) {
+                System.out.printf("-- dt = %.0f s%n", dt);
+                printStatistics(result.getStatistics(dt));
+            }
+            System.out.println("-- all members");
+        }
+        printStatistics(result.getStatistics());
+    }
+
+    private static void printStatistics(Map<String, RunningStatistics> statistics) {
+        statistics.forEach((name, stats) -> System.out.printf("  %-24s %s%n", name, stats));
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated outcome of an ensemble: per-observable statistics over all members
+ * and per time step, plus throughput. Holds no per-member data.
+ */
+public class EnsembleResult {
+
+    private final Map<String, RunningStatistics> overall = new LinkedHashMap<>();
+    private final Map<Double, Map<String, RunningStatistics>> byTimeStep = new LinkedHashMap<>();
+    private int completed;
+    private int failed;
+    private long memberSteps;
+    private double wallSeconds;
+
+    void record(double timeStep, String[] names, double[] values, long steps) {
+        Map<String, RunningStatistics> forStep = byTimeStep.computeIfAbsent(timeStep, dt -> new LinkedHashMap<>());
+        for (int i = 0; i < names.length; i++) {
+            overall.computeIfAbsent(names[i], name -> new RunningStatistics()).add(values[i]);
+            forStep.computeIfAbsent(names[i], name -> new RunningStatistics()).add(values[i]);
+        }
+        completed++;
+        memberSteps += steps;
+    }
+
+    void recordFailure() {
+        failed++;
+    }
+
+    void finish(double wallSeconds) {
+        this.wallSeconds = wallSeconds;
+    }
+
+    public Map<String, RunningStatistics> getStatistics() {
+        return Collections.unmodifiableMap(overall);
+    }
+
+    public Map<String, RunningStatistics> getStatistics(double timeStep) {
+        return Collections.unmodifiableMap(byTimeStep.getOrDefault(timeStep, Collections.emptyMap()));
+    }
+
+    public int getCompleted() { return completed; }
+    public int getFailed() { return failed; }
+    public double getWallSeconds() { return wallSeconds; }
+
+    /**
+     * Physics steps per second summed over all members (the cores-per-job figure of merit).
+     */
+    public double getStepsPerSecond() {
+        return wallSeconds > 0 ? memberSteps / wallSeconds : 0;
+    }
+}
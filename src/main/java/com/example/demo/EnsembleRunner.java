@@ -0,0 +1,119 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs many independent PhysicsWorld instances on a shared fixed thread pool.
+ *
+ * Each member is built, stepped and measured inside its task, so only about
+ * as many worlds as there are threads are alive at once. Only the observable
+ * values leave the task, and they are folded into streaming statistics on the
+ * calling thread. Memory stays flat however many members the ensemble has.
+ */
+public class EnsembleRunner implements AutoCloseable {
+
+    // Members queued ahead of the workers; keeps the pool busy without buffering all tasks
+    private static final int IN_FLIGHT_PER_THREAD = 2;
+
+    private final int threads;
+    private final ExecutorService pool;
+
+    public EnsembleRunner(int threads) {
+        // SECURITY: Bound worker count
+        if (threads <= 0 || threads > 1024) {
+            throw new IllegalArgumentException("Threads must be in 1..1024");
+        }
+        this.threads = threads;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ensemble-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run every member of the spec and block until all have finished.
+     * A member that throws is counted as failed and does not stop the others.
+     */
+    public EnsembleResult run(EnsembleSpec spec) throws InterruptedException {
+        Map<String, ToDoubleFunction<PhysicsWorld>> observables = spec.getObservables();
+        String[] names = observables.keySet().toArray(new String[0]);
+        List<ToDoubleFunction<PhysicsWorld>> functions = new ArrayList<>(observables.values());
+
+        CompletionService<MemberOutcome> completion = new ExecutorCompletionService<>(pool);
+        EnsembleResult result = new EnsembleResult();
+        long start = System.nanoTime();
+        int members = spec.getMembers();
+        int submitted = 0;
+        int finished = 0;
+        int nextReport = Math.max(1, members / 10);
+
+        while (finished < members) {
+            while (submitted < members && submitted - finished < threads * IN_FLIGHT_PER_THREAD) {
+                int index = submitted++;
+                completion.submit(() -> runMember(spec, index, functions));
+            }
+            try {
+                MemberOutcome outcome = completion.take().get();
+                result.record(outcome.timeStep, names, outcome.values, outcome.steps);
+            } catch (ExecutionException e) {
+                result.recordFailure();
+                if (result.getFailed() == 1) {
+                    System.err.println("Ensemble member failed: " + e.getCause());
+                }
+            }
+            finished++;
+            if (finished % nextReport == 0) {
+                System.out.printf("Ensemble: %d/%d members done%n", finished, members);
+            }
+        }
+        result.finish((System.nanoTime() - start) / 1e9);
+        return result;
+    }
+
+    private static MemberOutcome runMember(EnsembleSpec spec, int index, List<ToDoubleFunction<PhysicsWorld>> functions) {
+        double timeStep = spec.timeStepFor(index);
+        PhysicsWorld world = spec.createMember(index);
+        world.advance(spec.getDuration(), timeStep);
+        double[] values = new double[functions.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = functions.get(i).applyAsDouble(world);
+        }
+        return new MemberOutcome(timeStep, values, world.getStepCount());
+    }
+
+    private static final class MemberOutcome {
+        final double timeStep;
+        final double[] values;
+        final long steps;
+
+        MemberOutcome(double timeStep, double[] values, long steps) {
+            this.timeStep = timeStep;
+            this.values = values;
+            this.steps = steps;
+        }
+    }
+
+    public int getThreads() { return threads; }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Description of a Monte-Carlo ensemble: a template body set, how each member is
+ * perturbed and stepped, and which scalar observables to aggregate at the end.
+ *
+ * Member i uses time step timeSteps[i % timeSteps.length] and a random stream
+ * seeded from (seed, i), so results do not depend on thread scheduling.
+ */
+public class EnsembleSpec {
+
+    // SECURITY: Bound ensemble size so a typo cannot queue millions of members
+    static final int MAX_MEMBERS = 1_000_000;
+
+    private final List<CelestialBody> template;
+    private final int members;
+    private final double duration;
+    private double[] timeSteps = {3600};
+    private double positionSigma;
+    private double velocitySigma;
+    private long seed = 1;
+    private Consumer<PhysicsWorld> setup = world -> { };
+    private final Map<String, ToDoubleFunction<PhysicsWorld>> observables = new LinkedHashMap<>();
+
+    /**
+     * @param template bodies every member starts from (copied now; later changes are not seen)
+     * @param members  number of independent runs
+     * @param duration simulated seconds per member
+     */
+    public EnsembleSpec(Collection<CelestialBody> template, int members, double duration) {
+        if (template == null || template.isEmpty()) {
+            throw new IllegalArgumentException("Template must contain bodies");
+        }
+        if (members <= 0 || members > MAX_MEMBERS) {
+            throw new IllegalArgumentException("Members must be in 1.." + MAX_MEMBERS);
+        }
+        if (!(duration >= 0) || Double.isInfinite(duration)) {
+            throw new IllegalArgumentException("Duration must be finite and >= 0");
+        }
+        this.template = Collections.unmodifiableList(PhysicsWorld.copyBodies(template));
+        this.members = members;
+        this.duration = duration;
+    }
+
+    /**
+     * Build member i: copy the template, apply its perturbation and the setup hook.
+     */
+    PhysicsWorld createMember(int index) {
+        List<CelestialBody> bodies = PhysicsWorld.copyBodies(template);
+        // Golden-ratio stride decorrelates neighbouring member seeds
+        Random random = new Random(seed + index * 0x9E3779B97F4A7C15L);
+        if (positionSigma > 0 || velocitySigma > 0) {
+            for (CelestialBody body : bodies) {
+                if (!body.isStatic()) {
+                    body.setPosition(perturb(body.getPosition(), positionSigma, random));
+                    body.setVelocity(perturb(body.getVelocity(), velocitySigma, random));
+                }
+            }
+        }
+        PhysicsWorld world = new PhysicsWorld(bodies, null);
+        setup.accept(world);
+        return world;
+    }
+
+    // Gaussian noise per component, scaled by the vector's own magnitude
+    private static Vector3D perturb(Vector3D v, double sigma, Random random) {
+        if (sigma <= 0) {
+            return v;
+        }
+        double scale = sigma * v.length();
+        return Vector3D.obtain(
+            v.x + random.nextGaussian() * scale,
+            v.y + random.nextGaussian() * scale,
+            v.z + random.nextGaussian() * scale);
+    }
+
+    double timeStepFor(int index) {
+        return timeSteps[index % timeSteps.length];
+    }
+
+    public void setTimeSteps(double... timeSteps) {
+        if (timeSteps == null || timeSteps.length == 0) {
+            throw new IllegalArgumentException("At least one time step required");
+        }
+        for (double dt : timeSteps) {
+            if (!(dt > 0) || Double.isInfinite(dt)) {
+                throw new IllegalArgumentException("Time steps must be positive and finite");
+            }
+        }
+        this.timeSteps = timeSteps.clone();
+    }
+
+    /**
+     * Relative Gaussian perturbation of non-static bodies' positions and velocities
+     * (e.g. 1e-6 moves Earth by ~150 km).
+     */
+    public void setPerturbation(double positionSigma, double velocitySigma) {
+        if (!(positionSigma >= 0) || !(velocitySigma >= 0)) {
+            throw new IllegalArgumentException("Perturbation sigmas must be >= 0");
+        }
+        this.positionSigma = positionSigma;
+        this.velocitySigma = velocitySigma;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Hook run on each freshly built member (softening, collisions, energy tracking...).
+     * Called concurrently from worker threads; must not share mutable state.
+     */
+    public void setSetup(Consumer<PhysicsWorld> setup) {
+        this.setup = setup != null ? setup : world -> { };
+    }
+
+    /**
+     * Scalar measured on each member after its run; aggregated across members.
+     */
+    public void addObservable(String name, ToDoubleFunction<PhysicsWorld> observable) {
+        observables.put(name, observable);
+    }
+
+    Map<String, ToDoubleFunction<PhysicsWorld>> getObservables() { return observables; }
+    public int getMembers() { return members; }
+    public double getDuration() { return duration; }
+    public double[] getTimeSteps() { return timeSteps.clone(); }
+}
@@ -0,0 +1,45 @@
+package com.example.demo;
+
+/**
+ * Read-only positions and velocities of a fixed set of massive bodies over a
+ * time span. Times are seconds after the ephemeris epoch.
+ *
+ * Implementations must be safe for concurrent readers: planners query one
+ * ephemeris from many threads.
+ */
+public interface Ephemeris {
+
+    int getBodyCount();
+
+    String getId(int body);
+
+    double getMass(int body);
+
+    double getRadius(int body);
+
+    double getStartTime();
+
+    double getEndTime();
+
+    /**
+     * Index of the body with the given id, or -1.
+     */
+    default int indexOf(String id) {
+        for (int body = 0; body < getBodyCount(); body++) {
+            if (getId(body).equals(id)) {
+                return body;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Write x, y, z of the body at the given time into out[offset..offset + 2].
+     */
+    void position(int body, double time, double[] out, int offset);
+
+    /**
+     * Write x, y, z, vx, vy, vz of the body at the given time into out[offset..offset + 5].
+     */
+    void state(int body, double time, double[] out, int offset);
+}
@@ -0,0 +1,106 @@
+package com.example.demo;
+
+import java.util.stream.IntStream;
+
+/**
+ * In-place complex FFT on an n x n x n grid (n a power of two), stored as
+ * separate real and imaginary arrays indexed (x * n + y) * n + z.
+ *
+ * Iterative radix-2 transforms along each axis in turn; the lines of each
+ * pass are independent and spread over the common fork-join pool, one plane
+ * per task. The inverse is scaled by 1 / n^3, so a round trip is the identity.
+ */
+final class FFT3D {
+
+    // SECURITY: Bound the grid (1024^3 complex doubles is already 16 GB)
+    static final int MAX_SIZE = 1024;
+
+    private final int n;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+
+    FFT3D(int n) {
+        if (n < 2 || n > MAX_SIZE || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two in 2.." + MAX_SIZE);
+        }
+        this.n = n;
+        cos = new double[n / 2];
+        sin = new double[n / 2];
+        for (int k = 0; k < n / 2; k++) {
+            cos[k] = StrictMath.cos(2 * Math.PI * k / n);
+            sin[k] = StrictMath.sin(2 * Math.PI * k / n);
+        }
+        reversed = new int[n];
+        int bits = Integer.numberOfTrailingZeros(n);
+        for (int i = 0; i < n; i++) {
+            reversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    int size() { return n; }
+
+    void forward(double[] re, double[] im) {
+        transform(re, im, false);
+    }
+
+    void inverse(double[] re, double[] im) {
+        transform(re, im, true);
+        double scale = 1.0 / ((double) n * n * n);
+        IntStream.range(0, n).parallel().forEach(x -> {
+            for (int i = x * n * n, end = i + n * n; i < end; i++) {
+                re[i] *= scale;
+                im[i] *= scale;
+            }
+        });
+    }
+
+    private void transform(double[] re, double[] im, boolean inverse) {
+        int plane = n * n;
+        // Along z (contiguous), then y (stride n), then x (stride n^2)
+        IntStream.range(0, n).parallel().forEach(x -> lines(re, im, x * plane, n, 1, inverse));
+        IntStream.range(0, n).parallel().forEach(x -> lines(re, im, x * plane, 1, n, inverse));
+        IntStream.range(0, n).parallel().forEach(y -> lines(re, im, y * n, 1, plane, inverse));
+    }
+
+    // The n lines starting at base + j * lineStep (j < n), each with element stride
+    private void lines(double[] re, double[] im, int base, int lineStep, int stride, boolean inverse) {
+        double[] lineRe = new double[n];
+        double[] lineIm = new double[n];
+        for (int j = 0; j < n; j++) {
+            int start = base + j * lineStep;
+            for (int i = 0; i < n; i++) {
+                int r = reversed[i];
+                lineRe[r] = re[start + i * stride];
+                lineIm[r] = im[start + i * stride];
+            }
+            butterflies(lineRe, lineIm, inverse);
+            for (int i = 0; i < n; i++) {
+                re[start + i * stride] = lineRe[i];
+                im[start + i * stride] = lineIm[i];
+            }
+        }
+    }
+
+    // Decimation in time on bit-reversed input
+    private void butterflies(double[] re, double[] im, boolean inverse) {
+        double sign = inverse ? 1 : -1;
+        for (int half = 1; half < n; half <<= 1) {
+            int step = n / (2 * half);
+            for (int start = 0; start < n; start += 2 * half) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sign * sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = wr * re[b] - wi * im[b];
+                    double ti = wr * im[b] + wi * re[b];
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
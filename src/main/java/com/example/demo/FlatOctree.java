@@ -0,0 +1,567 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Barnes-Hut octree over an OffHeapBodyStore, itself stored off-heap.
+ *
+ * Building partitions the store's records in place, octant by octant, so every
+ * node covers a contiguous index range and needs no body list: a node is one
+ * 64-byte record (mass, centre of mass, edge length, body range, child range)
+ * and the children of a node are adjacent. Subtrees over large ranges are
+ * built in parallel on the common fork-join pool. Walks use an explicit
+ * index stack instead of recursion and allocate nothing.
+ *
+ * With setMixedPrecision(true), build() also writes a 32-byte float copy of
+ * every node for mixedAccelerationOn(): mass as a fraction of the total,
+ * centre of mass as a float offset from the cell's own geometric centre, and
+ * the child's octant. The walk carries each cell's geometric centre relative
+ * to the body and its edge in double, deriving a child's centre from the
+ * octant path, so no float value is combined down the tree: each offset is at
+ * most a cell across and rounds to 1e-7 of that, while accepted cells are at
+ * least an edge / theta away. Leaf bodies are still summed in double from
+ * the store. This halves the node bytes streamed per walk.
+ *
+ * SAFETY: build() must not run concurrently with anything else on the store or
+ * tree; accelerationOn() may be called from many threads once it returns.
+ */
+public class FlatOctree {
+
+    private double theta = BarnesHutTree.DEFAULT_THETA;
+    // Bodies per leaf; leaves are summed directly
+    static final int LEAF_SIZE = 8;
+    // SECURITY: Bound subdivision of coincident bodies (cells shrink by 2^48)
+    static final int MAX_DEPTH = 48;
+    // Deep enough for MAX_DEPTH levels of up to 8 pending children each
+    static final int STACK_SIZE = MAX_DEPTH * 8 + 8;
+    // Doubles per stack entry of the mixed-precision walk (cell centre offset and edge)
+    static final int STATE_SIZE = 4 * STACK_SIZE;
+    private static final int PARALLEL_RANGE = 65_536;
+
+    // Node record layout
+    private static final int NODE_BYTES = 64;
+    private static final int MASS = 0;
+    private static final int COM_X = 8;
+    private static final int COM_Y = 16;
+    private static final int COM_Z = 24;
+    private static final int SIZE = 32;
+    private static final int START = 40;
+    private static final int COUNT = 44;
+    private static final int FIRST_CHILD = 48;
+    private static final int CHILD_COUNT = 52;
+
+    // Mixed-precision node record layout
+    private static final int COMPACT_BYTES = 32;
+    private static final int REL_MASS = 0;   // float, fraction of the total mass
+    private static final int REL_X = 4;      // float, centre of mass minus the cell's geometric centre
+    private static final int REL_Y = 8;
+    private static final int REL_Z = 12;
+    private static final int OCTANT = 16;    // Position within the parent, as in Build
+    private static final int LINK = 20;      // First child, or -(start + 1) for a leaf
+    private static final int LINK_COUNT = 24; // Children, or bodies for a leaf
+    private static final int BODY_START = 28; // First body; siblings' ranges are adjacent in octant order
+
+    private final SofteningKernel softening;
+    private final double softeningLength;
+    private DirectChunks nodes = DirectChunks.allocate(1024L * NODE_BYTES);
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private final AtomicBoolean exhausted = new AtomicBoolean();
+    private OffHeapBodyStore store;
+    private boolean mixedPrecision;
+    private DirectChunks compact; // Null unless mixed precision is on
+    private Path scratchDirectory; // Node pools are mapped files here, else direct memory
+    private double totalMass, rootSize, rootCentreX, rootCentreY, rootCentreZ;
+
+    public FlatOctree(SofteningKernel softening, double softeningLength) {
+        // SAFETY: Negative or NaN lengths would turn softening into anti-softening
+        if (softening == null || !(softeningLength >= 0)) {
+            throw new IllegalArgumentException("Softening kernel required and length must be >= 0");
+        }
+        this.softening = softening;
+        this.softeningLength = softeningLength;
+    }
+
+    /**
+     * Rebuild over the store's current positions. Reorders the store's records.
+     */
+    public void build(OffHeapBodyStore store) {
+        this.store = store;
+        int n = store.size();
+        // Typical trees need well under one node per two bodies; grown below if not
+        long wanted = Math.max(1024L, n / 2L) * NODE_BYTES;
+        if (nodes.capacity() < wanted) {
+            nodes.grow(wanted);
+        }
+        if (mixedPrecision) {
+            long compactBytes = nodes.capacity() / NODE_BYTES * COMPACT_BYTES;
+            if (compact == null) {
+                compact = allocatePool(compactBytes);
+            } else {
+                compact.grow(compactBytes);
+            }
+        }
+        double[] bounds = bounds(store);
+        double size = Math.max(Math.max(bounds[3] - bounds[0], bounds[4] - bounds[1]), bounds[5] - bounds[2]);
+        size = size > 0 ? size * (1 + 1e-9) : 1;
+        nodeCount.set(1);
+        exhausted.set(false);
+        totalMass = bounds[6];
+        rootSize = size;
+        rootCentreX = (bounds[0] + bounds[3]) / 2;
+        rootCentreY = (bounds[1] + bounds[4]) / 2;
+        rootCentreZ = (bounds[2] + bounds[5]) / 2;
+        ForkJoinPool.commonPool().invoke(new Build(0, 0, n, rootCentreX, rootCentreY, rootCentreZ, size, 0));
+        if (mixedPrecision) {
+            writeCompact(0, rootCentreX, rootCentreY, rootCentreZ, 0);
+        }
+        if (exhausted.get()) {
+            // Over-full leaves were left where the pool ran out; still exact, just slower. Next build fits.
+            nodes.grow(nodes.capacity() * 2);
+        }
+    }
+
+    // {minX, minY, minZ, maxX, maxY, maxZ, total mass} over all bodies, reduced in parallel
+    private static double[] bounds(OffHeapBodyStore store) {
+        int n = store.size();
+        int batches = (n + PARALLEL_RANGE - 1) / PARALLEL_RANGE;
+        double[][] partial = new double[batches][];
+        IntStream.range(0, batches).parallel().forEach(batch -> {
+            double[] b = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, 0};
+            for (int i = batch * PARALLEL_RANGE, end = Math.min(n, (batch + 1) * PARALLEL_RANGE); i < end; i++) {
+                b[6] += store.mass(i);
+                for (int axis = 0; axis < 3; axis++) {
+                    double p = store.position(i, axis);
+                    b[axis] = Math.min(b[axis], p);
+                    b[axis + 3] = Math.max(b[axis + 3], p);
+                }
+            }
+            partial[batch] = b;
+        });
+        double[] bounds = partial[0];
+        for (int batch = 1; batch < batches; batch++) {
+            double[] b = partial[batch];
+            bounds[6] += b[6];
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[axis] = Math.min(bounds[axis], b[axis]);
+                bounds[axis + 3] = Math.max(bounds[axis + 3], b[axis + 3]);
+            }
+        }
+        return bounds;
+    }
+
+    private final class Build extends RecursiveAction {
+        private final int node;
+        private final int lo;
+        private final int hi;
+        private final double cx, cy, cz, size;
+        private final int depth;
+
+        Build(int node, int lo, int hi, double cx, double cy, double cz, double size, int depth) {
+            this.node = node;
+            this.lo = lo;
+            this.hi = hi;
+            this.cx = cx;
+            this.cy = cy;
+            this.cz = cz;
+            this.size = size;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= LEAF_SIZE || depth >= MAX_DEPTH) {
+                writeLeaf(node, lo, hi, size, cx, cy, cz);
+                return;
+            }
+            // Octant k = (x > cx) << 2 | (y > cy) << 1 | (z > cz) occupies [bound[k], bound[k + 1])
+            int[] bound = new int[9];
+            bound[0] = lo;
+            bound[8] = hi;
+            bound[4] = partition(lo, hi, 0, cx);
+            for (int xHalf = 0; xHalf < 8; xHalf += 4) {
+                bound[xHalf + 2] = partition(bound[xHalf], bound[xHalf + 4], 1, cy);
+                for (int yHalf = xHalf; yHalf < xHalf + 4; yHalf += 2) {
+                    bound[yHalf + 1] = partition(bound[yHalf], bound[yHalf + 2], 2, cz);
+                }
+            }
+            int children = 0;
+            for (int k = 0; k < 8; k++) {
+                if (bound[k + 1] > bound[k]) {
+                    children++;
+                }
+            }
+            int first = allocate(children);
+            if (first < 0) {
+                writeLeaf(node, lo, hi, size, cx, cy, cz);
+                return;
+            }
+            List<Build> forks = new ArrayList<>();
+            double quarter = size / 4;
+            int child = first;
+            for (int k = 0; k < 8; k++) {
+                if (bound[k + 1] == bound[k]) {
+                    continue;
+                }
+                Build task = new Build(child++, bound[k], bound[k + 1],
+                    cx + ((k & 4) != 0 ? quarter : -quarter),
+                    cy + ((k & 2) != 0 ? quarter : -quarter),
+                    cz + ((k & 1) != 0 ? quarter : -quarter), size / 2, depth + 1);
+                if (bound[k + 1] - bound[k] >= PARALLEL_RANGE) {
+                    forks.add(task);
+                } else {
+                    task.compute();
+                }
+            }
+            invokeAll(forks);
+            summarize(node, lo, hi, size, first, children);
+            if (mixedPrecision) {
+                // Children are final by now; the root is written by build()
+                child = first;
+                for (int k = 0; k < 8; k++) {
+                    if (bound[k + 1] > bound[k]) {
+                        writeCompact(child++, cx + ((k & 4) != 0 ? quarter : -quarter),
+                            cy + ((k & 2) != 0 ? quarter : -quarter), cz + ((k & 1) != 0 ? quarter : -quarter), k);
+                    }
+                }
+            }
+        }
+    }
+
+    // Hoare partition of [lo, hi) on one axis: returns the first index above split
+    private int partition(int lo, int hi, int axis, double split) {
+        int i = lo;
+        int j = hi - 1;
+        while (i <= j) {
+            // SAFETY: Written so NaN coordinates go low instead of stalling both scans
+            while (i <= j && !(store.position(i, axis) > split)) {
+                i++;
+            }
+            while (i <= j && store.position(j, axis) > split) {
+                j--;
+            }
+            if (i < j) {
+                store.swap(i, j);
+                i++;
+                j--;
+            }
+        }
+        return i;
+    }
+
+    private DirectChunks allocatePool(long bytes) {
+        if (scratchDirectory == null) {
+            return DirectChunks.allocate(bytes);
+        }
+        try {
+            return DirectChunks.scratch(scratchDirectory, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create node file in " + scratchDirectory, e);
+        }
+    }
+
+    // First of count adjacent node slots, or -1 once the pool is exhausted
+    private int allocate(int count) {
+        int first = nodeCount.getAndAdd(count);
+        if ((long) (first + count) * NODE_BYTES > nodes.capacity()) {
+            exhausted.set(true);
+            return -1;
+        }
+        return first;
+    }
+
+    /**
+     * Also keep float node records for mixedAccelerationOn(); takes effect at the next build().
+     */
+    public void setMixedPrecision(boolean mixedPrecision) {
+        this.mixedPrecision = mixedPrecision;
+        if (!mixedPrecision && compact != null) {
+            compact.close();
+            compact = null;
+        }
+    }
+
+    /**
+     * Keep the node pools in temporary files in this directory (null for direct
+     * memory), e.g. beside a file-backed store too large for direct memory.
+     */
+    public void setScratchDirectory(Path directory) {
+        this.scratchDirectory = directory;
+        DirectChunks previous = nodes;
+        nodes = allocatePool(previous.capacity());
+        previous.close();
+        if (compact != null) {
+            compact.close();
+            compact = null; // Reallocated by the next build
+        }
+    }
+
+    public boolean isMixedPrecision() { return mixedPrecision; }
+
+    /**
+     * Opening angle, as in BarnesHutTree.setOpeningAngle.
+     */
+    public void setOpeningAngle(double theta) {
+        this.theta = BarnesHutTree.checkOpeningAngle(theta);
+    }
+
+    public double getOpeningAngle() { return theta; }
+
+    private void writeLeaf(int node, int lo, int hi, double size, double cx, double cy, double cz) {
+        double mass = 0, mx = 0, my = 0, mz = 0;
+        for (int i = lo; i < hi; i++) {
+            double m = store.mass(i);
+            mass += m;
+            mx += m * store.x(i);
+            my += m * store.y(i);
+            mz += m * store.z(i);
+        }
+        writeNode(node, mass, mass > 0 ? mx / mass : cx, mass > 0 ? my / mass : cy, mass > 0 ? mz / mass : cz,
+            size, lo, hi - lo, -1, 0);
+    }
+
+    private void summarize(int node, int lo, int hi, double size, int first, int children) {
+        double mass = 0, mx = 0, my = 0, mz = 0;
+        for (int c = first; c < first + children; c++) {
+            long base = (long) c * NODE_BYTES;
+            double m = nodes.getDouble(base + MASS);
+            mass += m;
+            mx += m * nodes.getDouble(base + COM_X);
+            my += m * nodes.getDouble(base + COM_Y);
+            mz += m * nodes.getDouble(base + COM_Z);
+        }
+        long firstBase = (long) first * NODE_BYTES;
+        double x = mass > 0 ? mx / mass : nodes.getDouble(firstBase + COM_X);
+        double y = mass > 0 ? my / mass : nodes.getDouble(firstBase + COM_Y);
+        double z = mass > 0 ? mz / mass : nodes.getDouble(firstBase + COM_Z);
+        writeNode(node, mass, x, y, z, size, lo, hi - lo, first, children);
+    }
+
+    // Float copy of a finished node: mass relative to the total, centre of mass to its own cell centre
+    private void writeCompact(int node, double cellX, double cellY, double cellZ, int octant) {
+        long base = (long) node * NODE_BYTES;
+        long out = (long) node * COMPACT_BYTES;
+        double mass = nodes.getDouble(base + MASS);
+        int firstChild = nodes.getInt(base + FIRST_CHILD);
+        compact.putFloat(out + REL_MASS, totalMass > 0 ? (float) (mass / totalMass) : 0f);
+        compact.putFloat(out + REL_X, (float) (nodes.getDouble(base + COM_X) - cellX));
+        compact.putFloat(out + REL_Y, (float) (nodes.getDouble(base + COM_Y) - cellY));
+        compact.putFloat(out + REL_Z, (float) (nodes.getDouble(base + COM_Z) - cellZ));
+        compact.putInt(out + OCTANT, octant);
+        compact.putInt(out + BODY_START, nodes.getInt(base + START));
+        if (firstChild >= 0) {
+            compact.putInt(out + LINK, firstChild);
+            compact.putInt(out + LINK_COUNT, nodes.getInt(base + CHILD_COUNT));
+        } else {
+            compact.putInt(out + LINK, -nodes.getInt(base + START) - 1);
+            compact.putInt(out + LINK_COUNT, nodes.getInt(base + COUNT));
+        }
+    }
+
+    private void writeNode(int node, double mass, double x, double y, double z, double size,
+                           int start, int count, int firstChild, int childCount) {
+        long base = (long) node * NODE_BYTES;
+        nodes.putDouble(base + MASS, mass);
+        nodes.putDouble(base + COM_X, x);
+        nodes.putDouble(base + COM_Y, y);
+        nodes.putDouble(base + COM_Z, z);
+        nodes.putDouble(base + SIZE, size);
+        nodes.putInt(base + START, start);
+        nodes.putInt(base + COUNT, count);
+        nodes.putInt(base + FIRST_CHILD, firstChild);
+        nodes.putInt(base + CHILD_COUNT, childCount);
+    }
+
+    /**
+     * Gravitational acceleration on body i, written to out (m/s^2). The stack
+     * must hold STACK_SIZE entries; pass one per thread. Returns the number of
+     * body-node interactions.
+     */
+    public int accelerationOn(int i, double[] out, int[] stack) {
+        double px = store.x(i);
+        double py = store.y(i);
+        double pz = store.z(i);
+        double ax = 0, ay = 0, az = 0;
+        int interactions = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            long base = (long) stack[--top] * NODE_BYTES;
+            double dx = nodes.getDouble(base + COM_X) - px;
+            double dy = nodes.getDouble(base + COM_Y) - py;
+            double dz = nodes.getDouble(base + COM_Z) - pz;
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            int start = nodes.getInt(base + START);
+            int count = nodes.getInt(base + COUNT);
+            // Far enough: the whole cell acts as its centre of mass. Past theta = 1 / sqrt(3) the
+            // test can pass for the cell holding i (its centre of mass is within an edge * sqrt(3)),
+            // so that cell is always opened, or i would pull on itself.
+            boolean holdsI = i >= start && i - start < count;
+            if (!holdsI && nodes.getDouble(base + SIZE) < theta * distance) {
+                double factor = nodes.getDouble(base + MASS) * softening.forceFactor(distance, softeningLength);
+                ax += factor * dx;
+                ay += factor * dy;
+                az += factor * dz;
+                interactions++;
+                continue;
+            }
+            int firstChild = nodes.getInt(base + FIRST_CHILD);
+            if (firstChild >= 0) {
+                int children = nodes.getInt(base + CHILD_COUNT);
+                for (int c = 0; c < children; c++) {
+                    stack[top++] = firstChild + c;
+                }
+                continue;
+            }
+            for (int j = start; j < start + count; j++) {
+                if (j == i) {
+                    continue;
+                }
+                double bx = store.x(j) - px;
+                double by = store.y(j) - py;
+                double bz = store.z(j) - pz;
+                double factor = store.mass(j) * softening.forceFactor(Math.sqrt(bx * bx + by * by + bz * bz), softeningLength);
+                ax += factor * bx;
+                ay += factor * by;
+                az += factor * bz;
+                interactions++;
+            }
+        }
+        out[0] = CelestialBody.G * ax;
+        out[1] = CelestialBody.G * ay;
+        out[2] = CelestialBody.G * az;
+        return interactions;
+    }
+
+    /**
+     * Same as accelerationOn(), walking the float node records (mixed precision
+     * must be on before build()). The state array must hold STATE_SIZE
+     * entries; pass one per thread alongside the stack.
+     */
+    public int mixedAccelerationOn(int i, double[] out, int[] stack, double[] state) {
+        if (compact == null) {
+            throw new IllegalStateException("Mixed precision was not enabled for this build");
+        }
+        double px = store.x(i);
+        double py = store.y(i);
+        double pz = store.z(i);
+        double ax = 0, ay = 0, az = 0;
+        int interactions = 0;
+        // Each stack entry carries its cell's geometric centre relative to the body, and its edge.
+        // The cell holding i is stacked as ~node: it is never accepted (see accelerationOn).
+        stack[0] = ~0;
+        state[0] = rootCentreX - px;
+        state[1] = rootCentreY - py;
+        state[2] = rootCentreZ - pz;
+        state[3] = rootSize;
+        int top = 1;
+        while (top > 0) {
+            int node = stack[--top];
+            boolean holdsI = node < 0;
+            long base = (long) (holdsI ? ~node : node) * COMPACT_BYTES;
+            int s = top * 4;
+            double cellX = state[s];
+            double cellY = state[s + 1];
+            double cellZ = state[s + 2];
+            double size = state[s + 3];
+            double dx = cellX + compact.getFloat(base + REL_X);
+            double dy = cellY + compact.getFloat(base + REL_Y);
+            double dz = cellZ + compact.getFloat(base + REL_Z);
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (!holdsI && size < theta * distance) {
+                double factor = totalMass * compact.getFloat(base + REL_MASS) * softening.forceFactor(distance, softeningLength);
+                ax += factor * dx;
+                ay += factor * dy;
+                az += factor * dz;
+                interactions++;
+                continue;
+            }
+            int link = compact.getInt(base + LINK);
+            int count = compact.getInt(base + LINK_COUNT);
+            if (link >= 0) {
+                // Child centres are the parent's plus or minus a quarter edge, kept in double
+                // Of the children of the cell holding i, the last starting at or before i holds it
+                double quarter = size / 4;
+                int holder = -1;
+                for (int c = link; c < link + count; c++) {
+                    long child = (long) c * COMPACT_BYTES;
+                    int octant = compact.getInt(child + OCTANT);
+                    if (holdsI && compact.getInt(child + BODY_START) <= i) {
+                        holder = top;
+                    }
+                    int t = top * 4;
+                    state[t] = cellX + ((octant & 4) != 0 ? quarter : -quarter);
+                    state[t + 1] = cellY + ((octant & 2) != 0 ? quarter : -quarter);
+                    state[t + 2] = cellZ + ((octant & 1) != 0 ? quarter : -quarter);
+                    state[t + 3] = size / 2;
+                    stack[top++] = c;
+                }
+                if (holder >= 0) {
+                    stack[holder] = ~stack[holder];
+                }
+                continue;
+            }
+            // Near field: positions and sums in double, as in accelerationOn()
+            int start = -link - 1;
+            for (int j = start; j < start + count; j++) {
+                if (j == i) {
+                    continue;
+                }
+                double bx = store.x(j) - px;
+                double by = store.y(j) - py;
+                double bz = store.z(j) - pz;
+                double factor = store.mass(j) * softening.forceFactor(Math.sqrt(bx * bx + by * by + bz * bz), softeningLength);
+                ax += factor * bx;
+                ay += factor * by;
+                az += factor * bz;
+                interactions++;
+            }
+        }
+        out[0] = CelestialBody.G * ax;
+        out[1] = CelestialBody.G * ay;
+        out[2] = CelestialBody.G * az;
+        return interactions;
+    }
+
+    /**
+     * {mean, max} relative difference between the mixed-precision and double
+     * walks over samples bodies spread evenly through the store.
+     */
+    public double[] mixedPrecisionError(int samples) {
+        int n = store.size();
+        int count = Math.max(1, Math.min(samples, n));
+        double[] errors = new double[count];
+        IntStream.range(0, count).parallel().forEach(k -> {
+            int i = (int) ((long) k * n / count);
+            double[] exact = new double[3];
+            double[] mixed = new double[3];
+            accelerationOn(i, exact, new int[STACK_SIZE]);
+            mixedAccelerationOn(i, mixed, new int[STACK_SIZE], new double[STATE_SIZE]);
+            double ex = mixed[0] - exact[0], ey = mixed[1] - exact[1], ez = mixed[2] - exact[2];
+            double norm = Math.sqrt(exact[0] * exact[0] + exact[1] * exact[1] + exact[2] * exact[2]);
+            errors[k] = norm > 0 ? Math.sqrt(ex * ex + ey * ey + ez * ez) / norm : 0;
+        });
+        double sum = 0, max = 0;
+        for (double e : errors) {
+            sum += e;
+            max = Math.max(max, e);
+        }
+        return new double[] {sum / count, max};
+    }
+
+    public int getNodeCount() { return Math.min(nodeCount.get(), (int) (nodes.capacity() / NODE_BYTES)); }
+
+    /**
+     * Native bytes reserved for nodes (both layouts in mixed precision).
+     */
+    public long getByteSize() { return nodes.capacity() + (compact != null ? compact.capacity() : 0); }
+}
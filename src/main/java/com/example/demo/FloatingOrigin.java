@@ -0,0 +1,76 @@
+package com.example.demo;
+
+/**
+ * Per-frame camera-relative render transform for astronomical scales.
+ *
+ * Physics stays in SI metres (ecliptic frame, Z up); a ScaleMapping turns that
+ * into absolute display units. Each frame this re-bases display positions on the
+ * camera, so OpenGL only ever sees small numbers near the viewer regardless of
+ * how far the scene extends.
+ *
+ * Depth strategy: distances beyond LINEAR_RANGE are compressed logarithmically
+ * along the view ray, and radii are scaled by the same factor. Directions and
+ * angular sizes are preserved, so the image is unchanged while every body fits
+ * between Camera's near and far planes (fixed-function GL has no log depth buffer).
+ */
+public class FloatingOrigin {
+
+    // Camera-relative distances (display units) rendered without compression
+    static final double LINEAR_RANGE = 400;
+    // Controls how quickly far distances are squeezed toward the far plane
+    static final double LOG_SCALE = 200;
+
+    private final Vector3D cameraDisplayPosition;
+    private final double maxDepth;
+
+    public FloatingOrigin(Vector3D cameraDisplayPosition, double maxDepth) {
+        this.cameraDisplayPosition = cameraDisplayPosition;
+        // SAFETY: Keep compressed geometry inside the far plane
+        this.maxDepth = maxDepth * 0.95;
+    }
+
+    public static FloatingOrigin forCamera(Camera camera) {
+        return new FloatingOrigin(camera.getPosition(), camera.getFarPlane());
+    }
+
+    /**
+     * Camera-relative, depth-compressed render position of a display-space point.
+     */
+    public Vector3D fromDisplay(Vector3D display) {
+        return fromDisplay(display.x, display.y, display.z);
+    }
+    
+    /**
+     * Camera-relative, depth-compressed render position of a point given in display units
+     * (also used directly for scene furniture like the reference grid).
+     */
+    public Vector3D fromDisplay(double x, double y, double z) {
+        double dx = x - cameraDisplayPosition.x;
+        double dy = y - cameraDisplayPosition.y;
+        double dz = z - cameraDisplayPosition.z;
+        double factor = compressionFactor(Math.sqrt(dx * dx + dy * dy + dz * dz));
+        return Vector3D.obtain(dx * factor, dy * factor, dz * factor);
+    }
+
+    /**
+     * Scale applied to a display-unit radius at the given display position, matching fromDisplay.
+     */
+    public double radiusScale(Vector3D display) {
+        double dx = display.x - cameraDisplayPosition.x;
+        double dy = display.y - cameraDisplayPosition.y;
+        double dz = display.z - cameraDisplayPosition.z;
+        return compressionFactor(Math.sqrt(dx * dx + dy * dy + dz * dz));
+    }
+
+    /**
+     * Ratio of compressed to true distance. Identity inside LINEAR_RANGE, then
+     * logarithmic with a continuous first derivative at the boundary.
+     */
+    double compressionFactor(double distance) {
+        if (distance <= LINEAR_RANGE) {
+            return 1.0;
+        }
+        double compressed = LINEAR_RANGE + LOG_SCALE * Math.log1p((distance - LINEAR_RANGE) / LOG_SCALE);
+        return Math.min(compressed, maxDepth) / distance;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo;
+
+/**
+ * The TreePM division of the pair force at scale r_s (as in GADGET-2). The
+ * long-range part, exp(-k^2 r_s^2) in k-space or erf(r / 2r_s) / r in the
+ * potential, is smooth and solved on a ParticleMesh; the short-range
+ * remainder is the pair force times
+ *
+ *     S(r) = erfc(r / 2r_s) + r / (r_s sqrt(pi)) exp(-r^2 / 4r_s^2),
+ *
+ * summed by the tree walk out to 4.5 r_s, where S has fallen below 1e-3.
+ * S is tabulated once per split and interpolated linearly (error about 1e-6),
+ * which keeps the short-range walk free of exp() calls.
+ */
+public final class ForceSplit {
+
+    // Split scale in mesh cells, and the short-range cutoff in split scales
+    static final double SPLIT_CELLS = 1.25;
+    static final double CUTOFF_SPLITS = 4.5;
+    private static final int TABLE_SIZE = 1024;
+
+    private final double splitScale;
+    private final double cutoff;
+    private final double[] table = new double[TABLE_SIZE + 2];
+    private final double tableScale;
+
+    public ForceSplit(double splitScale) {
+        if (!(splitScale > 0) || Double.isInfinite(splitScale)) {
+            throw new IllegalArgumentException("Split scale must be finite and > 0");
+        }
+        this.splitScale = splitScale;
+        this.cutoff = CUTOFF_SPLITS * splitScale;
+        this.tableScale = TABLE_SIZE / cutoff;
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = exactShortRangeFactor(i / tableScale);
+        }
+        table[TABLE_SIZE + 1] = table[TABLE_SIZE];
+    }
+
+    /**
+     * The split used with a mesh of the given cell size.
+     */
+    public static ForceSplit forCell(double cell) {
+        return new ForceSplit(SPLIT_CELLS * cell);
+    }
+
+    public double getSplitScale() { return splitScale; }
+    public double getCutoff() { return cutoff; }
+
+    /**
+     * Fraction S(r) of the pair force left to the short-range walk (0 beyond the cutoff).
+     */
+    public double shortRangeFactor(double r) {
+        if (!(r < cutoff)) {
+            return 0;
+        }
+        double x = r * tableScale;
+        int i = (int) x;
+        double f = x - i;
+        return table[i] + f * (table[i + 1] - table[i]);
+    }
+
+    double exactShortRangeFactor(double r) {
+        double u = r / (2 * splitScale);
+        return erfc(u) + 2 * u / Math.sqrt(Math.PI) * StrictMath.exp(-u * u);
+    }
+
+    // Complementary error function, fractional error below 1.2e-7 (Numerical Recipes erfcc)
+    static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double value = t * StrictMath.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196
+            + t * (0.09678418 + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398
+            + t * (1.48851587 + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? value : 2 - value;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous frame sink for offscreen rendering.
+ *
+ * Frames are copied into a fixed set of recycled buffers and encoded on a small
+ * bounded worker pool. When every buffer is in flight the frame is dropped and
+ * counted instead of blocking the caller, so encoding never stalls the simulation.
+ *
+ * SAFETY: submit() must be called from a single producer thread.
+ */
+public class FrameWriter implements AutoCloseable {
+
+    public enum Format {
+        PNG("png"),
+        PPM("ppm"); // Raw binary RGB, no compression cost
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final Path outputDir;
+    private final Format format;
+    private final int width;
+    private final int height;
+    private final ThreadPoolExecutor workers;
+    private final ArrayBlockingQueue<int[]> freeBuffers;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public FrameWriter(Path outputDir, Format format, int width, int height, int threads, int maxPending) throws IOException {
+        // SECURITY: Bounds checking on pool sizes prevents unbounded memory usage
+        int safeThreads = Math.max(1, Math.min(16, threads));
+        int safePending = Math.max(1, Math.min(256, maxPending));
+
+        this.outputDir = Files.createDirectories(outputDir);
+        this.format = format;
+        this.width = width;
+        this.height = height;
+
+        // One buffer per queued or encoding frame; nothing else is ever allocated per frame
+        this.freeBuffers = new ArrayBlockingQueue<>(safeThreads + safePending);
+        for (int i = 0; i < safeThreads + safePending; i++) {
+            freeBuffers.offer(new int[width * height]);
+        }
+
+        this.workers = new ThreadPoolExecutor(safeThreads, safeThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(safePending), runnable -> {
+                Thread thread = new Thread(runnable, "frame-writer");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue a frame for encoding. Returns false if the frame was dropped.
+     */
+    public boolean submit(long frameIndex, int[] argb) {
+        if (argb.length != width * height) {
+            throw new IllegalArgumentException("Frame size does not match writer dimensions");
+        }
+        int[] buffer = freeBuffers.poll();
+        if (buffer == null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        System.arraycopy(argb, 0, buffer, 0, argb.length);
+
+        try {
+            workers.execute(() -> {
+                try {
+                    write(frameIndex, buffer);
+                    written.incrementAndGet();
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    System.err.println("Failed to write frame " + frameIndex + ": " + e.getMessage());
+                } finally {
+                    freeBuffers.offer(buffer);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            freeBuffers.offer(buffer);
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void write(long frameIndex, int[] argb) throws IOException {
+        Path file = outputDir.resolve(String.format("frame_%06d.%s", frameIndex, format.extension));
+        if (format == Format.PNG) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(0, 0, width, height, argb, 0, width);
+            if (!ImageIO.write(image, "png", file.toFile())) {
+                throw new IOException("No PNG encoder available");
+            }
+        } else {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+                out.write(("P6\n" + width + " " + height + "\n255\n").getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+                byte[] row = new byte[width * 3];
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        int pixel = argb[y * width + x];
+                        row[x * 3] = (byte) (pixel >> 16);
+                        row[x * 3 + 1] = (byte) (pixel >> 8);
+                        row[x * 3 + 2] = (byte) pixel;
+                    }
+                    out.write(row);
+                }
+            }
+        }
+    }
+
+    public long getWrittenCount() { return written.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public long getFailedCount() { return failed.get(); }
+
+    /**
+     * Wait for queued frames to finish encoding.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.MINUTES)) {
+                System.err.println("Frame writer timed out; some frames may be missing");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
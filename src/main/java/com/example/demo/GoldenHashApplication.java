@@ -0,0 +1,73 @@
+package com.example.demo;
+
+/**
+ * Golden-hash regression check: runs the configured scenario in deterministic
+ * mode for a fixed number of steps and prints the StateHash of the result.
+ *
+ * Usage: --golden-steps=N [--golden-dt=S] [--golden-every=K] [--expect-hash=HEX]
+ *        plus the scenario and physics flags accepted by SimulationManager.configure
+ *
+ * Record the hash once, then rerun with --expect-hash after a change that should
+ * not alter results (e.g. a performance optimization); any difference in any bit
+ * of any body's state changes the hash. Exits with status 1 on a mismatch.
+ */
+public class GoldenHashApplication {
+
+    public static void main(String[] args) {
+        int steps = 1000;
+        double dt = 3600;
+        int every = 0;
+        String expected = null;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--golden-steps=")) {
+                    steps = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--golden-dt=")) {
+                    dt = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--golden-every=")) {
+                    every = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--expect-hash=")) {
+                    expected = value(arg).toLowerCase();
+                }
+            }
+            // SECURITY: Input validation on run length
+            if (steps < 0) {
+                throw new IllegalArgumentException("--golden-steps must be >= 0");
+            }
+
+            SimulationSettings settings = SimulationSettings.load(args);
+            settings.applyToProcess();
+            SimulationManager simulation = new SimulationManager(settings);
+            simulation.configure(args);
+            simulation.setDeterministic(true);
+            System.out.printf("step %d: %s (%d bodies)%n", 0, StateHash.of(simulation.getBodies().values()),
+                simulation.getBodyCount());
+            long start = System.nanoTime();
+            for (int step = 1; step <= steps; step++) {
+                simulation.stepOnce(dt);
+                if (every > 0 && step % every == 0 && step < steps) {
+                    System.out.printf("step %d: %s%n", step, StateHash.of(simulation.getBodies().values()));
+                }
+            }
+            String hash = StateHash.of(simulation.getBodies().values());
+            System.out.printf("step %d: %s (%d bodies, %.1fs)%n", steps, hash, simulation.getBodyCount(),
+                (System.nanoTime() - start) / 1e9);
+
+            if (expected != null) {
+                if (!expected.equals(hash)) {
+                    System.err.println("Golden hash mismatch: expected " + expected + ", got " + hash);
+                    System.exit(1);
+                }
+                System.out.println("Golden hash matches");
+            }
+        } catch (Exception e) {
+            System.err.println("Golden hash run failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
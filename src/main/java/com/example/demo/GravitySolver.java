@@ -0,0 +1,13 @@
+package com.example.demo;
+
+/**
+ * How NBodyIntegrator computes gravity between massive bodies.
+ */
+public enum GravitySolver {
+    /** Barnes-Hut walk of the full force. */
+    TREE,
+    /** ParticleMesh alone: cheapest for smooth, near-uniform distributions, blind below a couple of cells. */
+    PM,
+    /** TreePMSolver: mesh for the long range, tree walk cut off a few cells out for the short range. */
+    TREEPM
+}
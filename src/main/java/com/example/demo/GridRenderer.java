@@ -9,11 +9,15 @@ import org.lwjgl.opengl.GL11;
  */
 public class GridRenderer {
     
+    private static final int LINE_SEGMENTS = 16; // SECURITY: Fixed subdivision bounds geometry
+    static final int MIN_GRID_SIZE = 10;
+    static final int MAX_GRID_SIZE = 100;
+    
     private final int gridSize;
     private final double gridSpacing;
     
     public GridRenderer(int gridSize, double gridSpacing) {
-        this.gridSize = Math.max(10, Math.min(100, gridSize)); // SECURITY: Bounds checking
+        this.gridSize = Math.max(MIN_GRID_SIZE, Math.min(MAX_GRID_SIZE, gridSize)); // SECURITY: Bounds checking
         this.gridSpacing = Math.max(1.0, gridSpacing);
     }
     
@@ -24,7 +28,11 @@ public class GridRenderer {
         GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
     }
     
-    public void draw() {
+    /**
+     * Draw the grid through the frame's floating-origin transform. Lines are
+     * subdivided so they follow the depth compression smoothly.
+     */
+    public void draw(FloatingOrigin origin) {
         GL11.glPushMatrix();
         
         // Set grid color (subtle gray)
@@ -33,18 +41,12 @@ public class GridRenderer {
         
         GL11.glBegin(GL11.GL_LINES);
         
-        // Draw lines parallel to X-axis (running in Z direction)
-        for (int i = -gridSize; i <= gridSize; i++) {
-            double x = i * gridSpacing;
-            GL11.glVertex3d(x, 0, -gridSize * gridSpacing);
-            GL11.glVertex3d(x, 0, gridSize * gridSpacing);
-        }
-        
-        // Draw lines parallel to Z-axis (running in X direction)
+        double extent = gridSize * gridSpacing;
         for (int i = -gridSize; i <= gridSize; i++) {
-            double z = i * gridSpacing;
-            GL11.glVertex3d(-gridSize * gridSpacing, 0, z);
-            GL11.glVertex3d(gridSize * gridSpacing, 0, z);
+            double offset = i * gridSpacing;
+            // Line parallel to Z-axis, then line parallel to X-axis
+            drawLine(origin, offset, -extent, offset, extent);
+            drawLine(origin, -extent, offset, extent, offset);
         }
         
         GL11.glEnd();
@@ -55,13 +57,11 @@ public class GridRenderer {
         
         // X-axis in red
         GL11.glColor4f(1.0f, 0.2f, 0.2f, 0.8f);
-        GL11.glVertex3d(-gridSize * gridSpacing, 0, 0);
-        GL11.glVertex3d(gridSize * gridSpacing, 0, 0);
+        drawLine(origin, -extent, 0, extent, 0);
         
         // Z-axis in blue
         GL11.glColor4f(0.2f, 0.2f, 1.0f, 0.8f);
-        GL11.glVertex3d(0, 0, -gridSize * gridSpacing);
-        GL11.glVertex3d(0, 0, gridSize * gridSpacing);
+        drawLine(origin, 0, -extent, 0, extent);
         
         GL11.glEnd();
         
@@ -74,4 +74,15 @@ public class GridRenderer {
         // Re-enable lighting for other objects
         GL11.glEnable(GL11.GL_LIGHTING);
     }
-}
+    
+    private void drawLine(FloatingOrigin origin, double x0, double z0, double x1, double z1) {
+        Vector3D previous = origin.fromDisplay(x0, 0, z0);
+        for (int s = 1; s <= LINE_SEGMENTS; s++) {
+            double t = (double) s / LINE_SEGMENTS;
+            Vector3D next = origin.fromDisplay(x0 + (x1 - x0) * t, 0, z0 + (z1 - z0) * t);
+            GL11.glVertex3d(previous.x, previous.y, previous.z);
+            GL11.glVertex3d(next.x, next.y, next.z);
+            previous = next;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.example.demo;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offscreen batch renderer: steps the simulation and writes an image sequence
+ * without creating a window or OpenGL context.
+ *
+ * Usage: --headless [--frames=N] [--width=W] [--height=H] [--fps=F]
+ *        [--out=DIR] [--format=png|ppm] [--writers=T] [--queue=Q]
+ *        [--metrics-out=FILE] [--metrics-format=csv|json] [--metrics-interval=MS]
+ *        [--telemetry] [--accretion-disk=N] [--seed=S]
+ *        [--collisions=merge|bounce|delete|off] [--restitution=E]
+ */
+public class HeadlessApplication {
+
+    private final int frames;
+    private final int width;
+    private final int height;
+    private final double fps;
+    private final Path outputDir;
+    private final FrameWriter.Format format;
+    private final int writerThreads;
+    private final int maxPending;
+    private final String[] args;
+
+    public HeadlessApplication(int frames, int width, int height, double fps, Path outputDir,
+                               FrameWriter.Format format, int writerThreads, int maxPending, String[] args) {
+        // SECURITY: Input validation on batch parameters
+        if (frames <= 0 || fps <= 0) {
+            throw new IllegalArgumentException("Frame count and fps must be positive");
+        }
+        this.frames = frames;
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+        this.outputDir = outputDir;
+        this.format = format;
+        this.writerThreads = writerThreads;
+        this.maxPending = maxPending;
+        this.args = args;
+    }
+
+    public void run() throws Exception {
+        SimulationSettings settings = SimulationSettings.load(args);
+        settings.applyToProcess();
+        SimulationManager simulation = new SimulationManager(settings);
+        simulation.configure(args);
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(width, height);
+        double frameTime = 1.0 / fps;
+
+        MetricsExporter exporter = MetricsExporter.fromArgs(simulation.getMetrics(), args,
+            simulation.getSettings().getMetricsInterval());
+        ConfigurableApplicationContext telemetryServer =
+            TelemetryServer.isRequested(args) ? TelemetryServer.start(simulation, args) : null;
+        long start = System.nanoTime();
+        try {
+            FrameWriter writer = new FrameWriter(outputDir, format, width, height, writerThreads, maxPending);
+            try (writer) {
+                long frameStart = System.nanoTime();
+                for (int frame = 0; frame < frames; frame++) {
+                    simulation.update(frameTime);
+                    simulation.renderOffscreen(rasterizer);
+                    writer.submit(frame, rasterizer.getPixels());
+                    
+                    long now = System.nanoTime();
+                    simulation.getMetrics().recordFrame(now - frameStart);
+                    frameStart = now;
+
+                    if ((frame + 1) % 100 == 0) {
+                        System.out.printf("Rendered %d/%d frames%n", frame + 1, frames);
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Wrote %d frames to %s in %.1fs (%d dropped, %d failed)%n",
+                writer.getWrittenCount(), outputDir.toAbsolutePath(), seconds,
+                writer.getDroppedCount(), writer.getFailedCount());
+            if (writer.getFailedCount() > 0) {
+                throw new IOException(writer.getFailedCount() + " frames could not be written");
+            }
+        } finally {
+            if (exporter != null) {
+                exporter.close();
+            }
+            if (telemetryServer != null) {
+                telemetryServer.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        // No display on compute nodes; keep AWT (used for PNG encoding) off the X server
+        System.setProperty("java.awt.headless", "true");
+
+        int frames = 300;
+        int width = 1200;
+        int height = 800;
+        double fps = 30;
+        Path outputDir = Paths.get("frames");
+        FrameWriter.Format format = FrameWriter.Format.PNG;
+        int writerThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int maxPending = 16;
+
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--frames=")) {
+                    frames = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--width=")) {
+                    width = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--height=")) {
+                    height = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--fps=")) {
+                    fps = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--out=")) {
+                    outputDir = Paths.get(value(arg));
+                } else if (arg.startsWith("--format=")) {
+                    format = FrameWriter.Format.valueOf(value(arg).toUpperCase());
+                } else if (arg.startsWith("--writers=")) {
+                    writerThreads = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--queue=")) {
+                    maxPending = Integer.parseInt(value(arg));
+                }
+            }
+
+            System.out.println("Starting headless render: " + frames + " frames at " + width + "x" + height);
+            new HeadlessApplication(frames, width, height, fps, outputDir, format, writerThreads, maxPending, args).run();
+        } catch (Exception e) {
+            System.err.println("Headless render failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo;
+
+/**
+ * Exact two-body propagation with universal variables (Stumpff functions),
+ * valid for elliptic, parabolic and hyperbolic relative orbits.
+ *
+ * Used to advance tightly bound pairs over a whole step in one go, where a
+ * fixed-step integrator would need many steps per orbit to stay stable.
+ */
+final class KeplerPropagator {
+
+    private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 1e-12;
+
+    private KeplerPropagator() {
+    }
+
+    /**
+     * Advance a relative state in place.
+     *
+     * @param state x, y, z, vx, vy, vz of the separation vector and relative velocity
+     * @param mu    G * (m1 + m2)
+     * @param dt    time to advance (seconds, may be negative)
+     * @return false if the universal Kepler equation did not converge (state untouched)
+     */
+    static boolean propagate(double[] state, double mu, double dt) {
+        double rx = state[0], ry = state[1], rz = state[2];
+        double vx = state[3], vy = state[4], vz = state[5];
+        double r0 = Math.sqrt(rx * rx + ry * ry + rz * rz);
+        if (r0 == 0 || mu <= 0) {
+            return false;
+        }
+        double v2 = vx * vx + vy * vy + vz * vz;
+        double sqrtMu = Math.sqrt(mu);
+        double vr0 = (rx * vx + ry * vy + rz * vz) / r0;
+        double alpha = 2.0 / r0 - v2 / mu; // Reciprocal semi-major axis
+
+        // Whole orbits change nothing; keeps the anomaly small for long steps
+        if (alpha > 0) {
+            double period = 2 * Math.PI / (sqrtMu * alpha * Math.sqrt(alpha));
+            dt = Math.IEEEremainder(dt, period);
+        }
+
+        double chi = alpha > 0 ? sqrtMu * alpha * dt : sqrtMu * dt / r0;
+        double c = 0.5, s = 1.0 / 6.0;
+        boolean converged = false;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double z = alpha * chi * chi;
+            c = stumpffC(z);
+            s = stumpffS(z);
+            double f = r0 * vr0 / sqrtMu * chi * chi * c
+                + (1 - alpha * r0) * chi * chi * chi * s
+                + r0 * chi - sqrtMu * dt;
+            double df = r0 * vr0 / sqrtMu * chi * (1 - alpha * chi * chi * s)
+                + (1 - alpha * r0) * chi * chi * c + r0;
+            double delta = f / df;
+            chi -= delta;
+            if (Math.abs(delta) <= TOLERANCE * Math.max(1.0, Math.abs(chi))) {
+                converged = true;
+                break;
+            }
+        }
+        if (!converged || !Double.isFinite(chi)) {
+            return false;
+        }
+        double z = alpha * chi * chi;
+        c = stumpffC(z);
+        s = stumpffS(z);
+
+        // Lagrange coefficients
+        double f = 1 - chi * chi / r0 * c;
+        double g = dt - chi * chi * chi / sqrtMu * s;
+        double nx = f * rx + g * vx;
+        double ny = f * ry + g * vy;
+        double nz = f * rz + g * vz;
+        double r = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        double fDot = sqrtMu / (r * r0) * (alpha * chi * chi * chi * s - chi);
+        double gDot = 1 - chi * chi / r * c;
+
+        state[0] = nx;
+        state[1] = ny;
+        state[2] = nz;
+        state[3] = fDot * rx + gDot * vx;
+        state[4] = fDot * ry + gDot * vy;
+        state[5] = fDot * rz + gDot * vz;
+        return true;
+    }
+
+    static double stumpffC(double z) {
+        if (Math.abs(z) < 1e-6) {
+            return 0.5 - z / 24.0 + z * z / 720.0;
+        }
+        if (z > 0) {
+            return (1 - StrictMath.cos(Math.sqrt(z))) / z;
+        }
+        return (StrictMath.cosh(Math.sqrt(-z)) - 1) / -z;
+    }
+
+    static double stumpffS(double z) {
+        if (Math.abs(z) < 1e-6) {
+            return 1.0 / 6.0 - z / 120.0 + z * z / 5040.0;
+        }
+        if (z > 0) {
+            double sz = Math.sqrt(z);
+            return (sz - StrictMath.sin(sz)) / (sz * sz * sz);
+        }
+        double sz = Math.sqrt(-z);
+        return (StrictMath.sinh(sz) - sz) / (sz * sz * sz);
+    }
+}
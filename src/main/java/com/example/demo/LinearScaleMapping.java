@@ -0,0 +1,43 @@
+package com.example.demo;
+
+/**
+ * True-proportion distances at a fixed number of metres per display unit.
+ * Radii are exaggerated, since real radii are sub-pixel at solar-system scale.
+ */
+public class LinearScaleMapping implements ScaleMapping {
+
+    // 1 display unit = 1 million km; Earth's orbit sits ~150 units from the Sun
+    public static final double DEFAULT_METRES_PER_UNIT = 1e9;
+
+    private static final double STAR_RADIUS = 25;        // Sun size for visibility
+    private static final double RADIUS_SCALE = 5e-7;     // Display units per metre of radius
+    private static final double MIN_RADIUS = 1.5;        // Minimum 1.5 units
+    private static final double MAX_RADIUS = 12;         // Keep planets (and merged bodies) below the Sun's size
+
+    private final double metresPerUnit;
+
+    public LinearScaleMapping() {
+        this(DEFAULT_METRES_PER_UNIT);
+    }
+
+    public LinearScaleMapping(double metresPerUnit) {
+        if (metresPerUnit <= 0) {
+            throw new IllegalArgumentException("Metres per unit must be positive");
+        }
+        this.metresPerUnit = metresPerUnit;
+    }
+
+    @Override
+    public Vector3D toDisplay(Vector3D world) {
+        // Ecliptic (Z up) to display axes (Y up, grid on XZ)
+        return Vector3D.obtain(world.x / metresPerUnit, world.z / metresPerUnit, -world.y / metresPerUnit);
+    }
+
+    @Override
+    public double displayRadius(CelestialBody body) {
+        if (body instanceof Star) {
+            return STAR_RADIUS;
+        }
+        return Math.min(Math.max(body.getRadius() * RADIUS_SCALE, MIN_RADIUS), MAX_RADIUS);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo;
+
+/**
+ * Orrery-style mapping: distance from the origin is compressed logarithmically so
+ * inner and outer planets are both visible on the grid, as with the old fixed lineup,
+ * but bodies still move along their real orbits.
+ */
+public class LogDistanceScaleMapping implements ScaleMapping {
+
+    private final double referenceDistance; // Metres mapped to the first grid unit
+    private final double unitsPerDecade;     // Display units per factor of 10 in distance
+    private final LinearScaleMapping radii = new LinearScaleMapping();
+
+    public LogDistanceScaleMapping() {
+        // Mercury (~5.8e10 m) lands near 90 units and Saturn (~1.4e12 m) near 400
+        this(5e10, 270);
+    }
+
+    public LogDistanceScaleMapping(double referenceDistance, double unitsPerDecade) {
+        if (referenceDistance <= 0 || unitsPerDecade <= 0) {
+            throw new IllegalArgumentException("Log mapping parameters must be positive");
+        }
+        this.referenceDistance = referenceDistance;
+        this.unitsPerDecade = unitsPerDecade;
+    }
+
+    @Override
+    public Vector3D toDisplay(Vector3D world) {
+        double distance = world.length();
+        if (distance == 0) {
+            return Vector3D.ZERO;
+        }
+        double mapped = unitsPerDecade * Math.log10(1 + distance / referenceDistance);
+        double factor = mapped / distance;
+        return Vector3D.obtain(world.x * factor, world.z * factor, -world.y * factor);
+    }
+
+    @Override
+    public double displayRadius(CelestialBody body) {
+        return radii.displayRadius(body);
+    }
+}
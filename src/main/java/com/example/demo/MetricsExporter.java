@@ -0,0 +1,127 @@
+package com.example.demo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically appends metric snapshots to a CSV file or a JSON-lines file.
+ *
+ * Runs on its own daemon thread so formatting and file IO stay off the
+ * physics and render threads.
+ */
+public class MetricsExporter implements AutoCloseable {
+
+    public enum Format { CSV, JSON }
+
+    static final long MIN_INTERVAL = 100; // Milliseconds
+
+    private final SimulationMetrics metrics;
+    private final Path file;
+    private final Format format;
+    private final ScheduledExecutorService scheduler;
+    private boolean headerWritten;
+
+    public MetricsExporter(SimulationMetrics metrics, Path file, Format format, long intervalMillis) {
+        // SECURITY: Lower bound on the interval prevents a busy export loop
+        long safeInterval = Math.max(MIN_INTERVAL, intervalMillis);
+
+        this.metrics = metrics;
+        this.file = file;
+        this.format = format;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::export, safeInterval, safeInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Build an exporter from --metrics-out=FILE [--metrics-format=csv|json] [--metrics-interval=MS],
+     * or return null when no output file was requested.
+     */
+    public static MetricsExporter fromArgs(SimulationMetrics metrics, String[] args) {
+        return fromArgs(metrics, args, 5000);
+    }
+
+    /**
+     * As above, with the interval used when --metrics-interval is not given.
+     */
+    public static MetricsExporter fromArgs(SimulationMetrics metrics, String[] args, long defaultInterval) {
+        Path file = null;
+        Format format = Format.CSV;
+        long intervalMillis = defaultInterval;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--metrics-out=")) {
+                file = java.nio.file.Paths.get(value);
+            } else if (arg.startsWith("--metrics-format=")) {
+                format = Format.valueOf(value.toUpperCase());
+            } else if (arg.startsWith("--metrics-interval=")) {
+                intervalMillis = Long.parseLong(value);
+            }
+        }
+        return file == null ? null : new MetricsExporter(metrics, file, format, intervalMillis);
+    }
+
+    private synchronized void export() {
+        Map<String, Double> readings = metrics.snapshot();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND)) {
+            if (format == Format.CSV) {
+                if (!headerWritten && Files.size(file) == 0) {
+                    writer.write(String.join(",", readings.keySet()));
+                    writer.newLine();
+                }
+                StringBuilder line = new StringBuilder();
+                for (double value : readings.values()) {
+                    if (line.length() > 0) line.append(',');
+                    line.append(formatValue(value));
+                }
+                writer.write(line.toString());
+            } else {
+                StringBuilder line = new StringBuilder("{");
+                for (Map.Entry<String, Double> entry : readings.entrySet()) {
+                    if (line.length() > 1) line.append(',');
+                    line.append('"').append(entry.getKey()).append("\":").append(formatValue(entry.getValue()));
+                }
+                writer.write(line.append('}').toString());
+            }
+            writer.newLine();
+            headerWritten = true;
+        } catch (IOException e) {
+            // Keep exporting on the next tick; a full disk should not kill the simulation
+            System.err.println("Failed to export metrics: " + e.getMessage());
+        }
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+            ? Long.toString((long) value)
+            : String.format(java.util.Locale.ROOT, "%.4f", value);
+    }
+
+    /**
+     * Stop exporting and flush one final snapshot.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        export();
+    }
+}
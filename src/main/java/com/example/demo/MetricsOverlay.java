@@ -0,0 +1,102 @@
+package com.example.demo;
+
+import org.lwjgl.opengl.GL11;
+
+/**
+ * On-screen bar HUD for frame and physics timings.
+ *
+ * Bars are scaled against a 60 FPS frame budget: green while under budget,
+ * red once a reading exceeds it. Exact numbers go to the window title, which
+ * avoids needing a font renderer.
+ */
+public class MetricsOverlay {
+
+    private static final double FRAME_BUDGET_MS = 1000.0 / 60.0;
+    private static final int BAR_WIDTH = 200;
+    private static final int BAR_HEIGHT = 8;
+    private static final int MARGIN = 10;
+
+    private final SimulationMetrics metrics;
+    private boolean visible;
+
+    public MetricsOverlay(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void toggle() {
+        visible = !visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public String describe(int bodyCount) {
+        return String.format("Solar System Simulation | %.0f FPS | tree %.2f ms | force %.2f ms | %d bodies",
+            metrics.getFramesPerSecond(), metrics.getLastTreeBuildMillis(),
+            metrics.getLastForceWalkMillis(), bodyCount);
+    }
+
+    public void draw(int width, int height) {
+        if (!visible || width <= 0 || height <= 0) {
+            return;
+        }
+
+        // Switch to a pixel-space orthographic projection for the overlay
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+        GL11.glOrtho(0, width, height, 0, -1, 1);
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+
+        GL11.glDisable(GL11.GL_LIGHTING);
+        GL11.glDisable(GL11.GL_DEPTH_TEST);
+        GL11.glDisable(GL11.GL_CULL_FACE);
+        GL11.glEnable(GL11.GL_BLEND);
+        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+
+        double fps = metrics.getFramesPerSecond();
+        double frameMs = fps > 0 ? 1000.0 / fps : 0;
+        drawBar(0, frameMs);
+        drawBar(1, metrics.getLastTreeBuildMillis());
+        drawBar(2, metrics.getLastForceWalkMillis());
+
+        GL11.glDisable(GL11.GL_BLEND);
+        GL11.glEnable(GL11.GL_CULL_FACE);
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        GL11.glEnable(GL11.GL_LIGHTING);
+        GL11.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+
+        GL11.glPopMatrix();
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPopMatrix();
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+    }
+
+    private void drawBar(int row, double millis) {
+        double fraction = Math.max(0, Math.min(1.0, millis / FRAME_BUDGET_MS));
+        int top = MARGIN + row * (BAR_HEIGHT + 4);
+
+        // Background track
+        GL11.glColor4f(0.2f, 0.2f, 0.2f, 0.6f);
+        fillRect(MARGIN, top, BAR_WIDTH, BAR_HEIGHT);
+
+        if (millis > FRAME_BUDGET_MS) {
+            GL11.glColor4f(1.0f, 0.2f, 0.2f, 0.9f);
+        } else {
+            GL11.glColor4f(0.2f, 1.0f, 0.3f, 0.9f);
+        }
+        fillRect(MARGIN, top, BAR_WIDTH * fraction, BAR_HEIGHT);
+    }
+
+    private void fillRect(double x, double y, double w, double h) {
+        GL11.glBegin(GL11.GL_QUADS);
+        GL11.glVertex2d(x, y);
+        GL11.glVertex2d(x, y + h);
+        GL11.glVertex2d(x + w, y + h);
+        GL11.glVertex2d(x + w, y);
+        GL11.glEnd();
+    }
+}
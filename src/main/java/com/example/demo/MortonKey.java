@@ -0,0 +1,48 @@
+package com.example.demo;
+
+/**
+ * Morton (Z-order) keys: 21 bits per axis interleaved into a non-negative long.
+ *
+ * Sorting bodies by key walks the octree depth-first, so any contiguous key
+ * range is a spatially compact set of cells. DomainDecomposition cuts the
+ * simulation into per-rank slabs along this curve.
+ */
+final class MortonKey {
+
+    static final int BITS_PER_AXIS = 21;
+    static final int KEY_BITS = 3 * BITS_PER_AXIS;
+    private static final long AXIS_MAX = (1L << BITS_PER_AXIS) - 1;
+
+    private MortonKey() {
+    }
+
+    /**
+     * Key of a position inside the cube with the given minimum corner and edge length.
+     * Positions outside the cube are clamped onto its surface.
+     */
+    static long of(double x, double y, double z, double minX, double minY, double minZ, double size) {
+        double scale = size > 0 ? (AXIS_MAX + 1) / size : 0;
+        return interleave(quantize((x - minX) * scale))
+            | interleave(quantize((y - minY) * scale)) << 1
+            | interleave(quantize((z - minZ) * scale)) << 2;
+    }
+
+    private static long quantize(double cell) {
+        // SAFETY: NaN and out-of-range coordinates map to the cube edges
+        if (!(cell > 0)) {
+            return 0;
+        }
+        return Math.min(AXIS_MAX, (long) cell);
+    }
+
+    // Spread the low 21 bits so two zero bits separate each one
+    private static long interleave(long v) {
+        v &= AXIS_MAX;
+        v = (v | v << 32) & 0x1F00000000FFFFL;
+        v = (v | v << 16) & 0x1F0000FF0000FFL;
+        v = (v | v << 8) & 0x100F00F00F00F00FL;
+        v = (v | v << 4) & 0x10C30C30C30C30C3L;
+        v = (v | v << 2) & 0x1249249249249249L;
+        return v;
+    }
+}
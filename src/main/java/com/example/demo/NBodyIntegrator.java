@@ -0,0 +1,500 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * One physics step over a body list: tree refit (or build), collisions,
+ * Barnes-Hut forces, then a symplectic Euler kick-drift.
+ *
+ * With an Ephemeris set, the bodies it covers are driven: they still attract
+ * everything else through the tree, but their own motion is read from the
+ * ephemeris instead of integrated.
+ *
+ * With a SatelliteSubcycler, moons are advanced relative to their planet in
+ * sub-cycled nested frames; only each planet system's barycentre takes the
+ * plain step.
+ *
+ * Test particles (CelestialBody.isTestParticle) are left out of the tree, so
+ * they feel the massive bodies without pulling on anything. Each one only
+ * reads the finished tree, so large numbers of them are advanced in parallel
+ * batches on the common fork-join pool.
+ *
+ * Gravity comes from the tree walk by default, or from a ParticleMesh alone
+ * (GravitySolver.PM), or from both split at a few mesh cells (TREEPM, see
+ * TreePMSolver). The tree is refitted either way, as collisions and
+ * regularization search it. With a PeriodicBox the mesh solves the box (PM or
+ * TreePM only), the tree sums nearest images, and every body is wrapped back
+ * into the box after the drift. Collisions, regularization and sub-cycling
+ * still use plain separations, so they only act away from the box faces.
+ *
+ * With a TimestepController, the forces of every step are reported to it so it
+ * can estimate the next safe step size.
+ *
+ * All forces are evaluated at the start-of-step positions before any body moves,
+ * so the result does not depend on list order. Softening and binary
+ * regularization are optional and configured per integrator.
+ *
+ * SAFETY: Not thread-safe. Use from the physics thread only.
+ */
+public class NBodyIntegrator {
+
+    private final SimulationMetrics metrics;
+    private SofteningKernel softening = SofteningKernel.NONE;
+    private double softeningLength;
+    private CollisionSystem collisions;
+    private BinaryRegularizer regularizer;
+    private SatelliteSubcycler subcycler;
+    private TimestepController timestep;
+    private GravitySolver solver = GravitySolver.TREE;
+    private PeriodicBox periodic;
+    private int meshSize = 64;
+    // Created on first use for PM and TreePM; null again whenever its settings change
+    private ParticleMesh mesh;
+    // This step's force source: the tree, the mesh or both
+    private SpatialPartitioningTree gravity;
+    // Persistent across steps and refitted in place; null forces a fresh build
+    private BarnesHutTree tree;
+    private boolean refitEnabled = true;
+    private double openingAngle = BarnesHutTree.DEFAULT_THETA;
+    private boolean deterministic;
+    // Driven bodies and the ephemeris clock (seconds after its epoch)
+    private Ephemeris ephemeris;
+    private double ephemerisTime;
+    private final Map<CelestialBody, Integer> driven = new IdentityHashMap<>();
+    private final double[] drivenState = new double[6];
+    // Below this many test particles the fork-join overhead outweighs the walk
+    private static final int PARALLEL_TEST_PARTICLES = 4096;
+    private static final int TEST_PARTICLE_BATCH = 1024;
+    // This step's split of the body list; only massive bodies enter the tree
+    private final List<CelestialBody> massive = new ArrayList<>();
+    private final List<CelestialBody> testParticles = new ArrayList<>();
+
+    public NBodyIntegrator(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Apply --softening=none|plummer|spline, --softening-length=METRES, --regularize,
+     * --hierarchical (sub-cycle moons around their planets), --deterministic
+     * (compensated force sums), --no-refit (rebuild the tree every step),
+     * --gravity=tree|pm|treepm, --pm-mesh=N (isolated meshes; a periodic
+     * box brings its own) and --theta=ANGLE (opening angle).
+     */
+    public void applyArgs(String[] args) {
+        SofteningKernel kernel = softening;
+        double length = softeningLength;
+        for (String arg : args) {
+            if (arg.startsWith("--softening=")) {
+                kernel = SofteningKernel.valueOf(arg.substring(arg.indexOf('=') + 1).toUpperCase());
+            } else if (arg.startsWith("--softening-length=")) {
+                length = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+            } else if ("--regularize".equals(arg)) {
+                setRegularizer(new BinaryRegularizer());
+            } else if ("--hierarchical".equals(arg)) {
+                setSatelliteSubcycler(new SatelliteSubcycler());
+            } else if ("--deterministic".equals(arg)) {
+                setDeterministic(true);
+            } else if ("--no-refit".equals(arg)) {
+                setRefitEnabled(false);
+            } else if (arg.startsWith("--gravity=")) {
+                setGravitySolver(GravitySolver.valueOf(arg.substring(arg.indexOf('=') + 1).toUpperCase()));
+            } else if (arg.startsWith("--pm-mesh=")) {
+                setMeshSize(Integer.parseInt(arg.substring(arg.indexOf('=') + 1)));
+            } else if (arg.startsWith("--theta=")) {
+                setOpeningAngle(Double.parseDouble(arg.substring(arg.indexOf('=') + 1)));
+            }
+        }
+        setSoftening(kernel, length);
+    }
+
+    public void step(List<CelestialBody> bodies, double deltaTime) {
+        // SAFETY: Null check for input list to prevent NullPointerException
+        if (bodies == null) {
+            return;
+        }
+        long buildStart = System.nanoTime();
+        splitTestParticles(bodies);
+        boolean rebuilt = true;
+        if (tree != null && refitEnabled) {
+            rebuilt = !tree.refit(massive);
+        } else {
+            tree = newTree();
+        }
+        int collided = 0;
+        if (collisions != null) {
+            // Test particles are queried against the tree too, so they still hit massive bodies
+            collided = collisions.resolve(tree, bodies);
+            if (collided > 0) {
+                // Masses and positions changed; only collision steps pay for a second build
+                splitTestParticles(bodies);
+                tree = newTree();
+                rebuilt = true;
+            }
+        }
+        gravity = tree;
+        if (solver != GravitySolver.TREE) {
+            if (mesh == null) {
+                mesh = newMesh();
+            }
+            mesh.solve(massive);
+            gravity = solver == GravitySolver.TREEPM ? new TreePMSolver(tree, mesh) : mesh;
+        }
+        long walkStart = System.nanoTime();
+
+        if (ephemeris != null && !ephemerisCovers(ephemerisTime + deltaTime)) {
+            System.out.printf("Ephemeris ends at %.1f days; integrating its bodies from here on%n",
+                ephemeris.getEndTime() / 86400);
+            setEphemeris(null, 0);
+        }
+        if (ephemeris != null) {
+            indexDriven(bodies);
+        }
+
+        List<SatelliteSubcycler.Group> groups = subcycler != null
+            ? subcycler.findGroups(massive)
+            : Collections.emptyList();
+        Map<CelestialBody, SatelliteSubcycler.Group> groupOf = groups.isEmpty() ? null : indexGroups(groups);
+
+        List<BinaryRegularizer.Pair> pairs = regularizer != null
+            ? regularizer.findPairs(tree, massive, deltaTime, maxDynamicMass(massive))
+            : Collections.emptyList();
+        if ((!driven.isEmpty() || groupOf != null) && !pairs.isEmpty()) {
+            // Driven bodies follow the ephemeris and moons their nested frame, not the two-body solution
+            pairs = new ArrayList<>(pairs);
+            pairs.removeIf(pair -> driven.containsKey(pair.a) || driven.containsKey(pair.b)
+                || (groupOf != null && (groupOf.containsKey(pair.a) || groupOf.containsKey(pair.b))));
+        }
+        Map<CelestialBody, BinaryRegularizer.Pair> pairOf = pairs.isEmpty() ? null : indexPairs(pairs);
+
+        // Kick: every force from the same start-of-step positions
+        Vector3D[] forces = new Vector3D[massive.size()];
+        for (int i = 0; i < forces.length; i++) {
+            CelestialBody body = massive.get(i);
+            if (body == null || body.isStatic) {
+                continue; // SAFETY: Skip null body to prevent NullPointerException
+            }
+            if (!driven.isEmpty() && driven.containsKey(body)) {
+                continue; // Moved from the ephemeris below
+            }
+            Vector3D netForce = netForce(body); // O(log n)
+            SatelliteSubcycler.Group group = groupOf != null ? groupOf.get(body) : null;
+            if (group != null) {
+                group.forces[group.indexOf(body)] = netForce; // Advanced with its group below
+                continue;
+            }
+            BinaryRegularizer.Pair pair = pairOf != null ? pairOf.get(body) : null;
+            if (pair == null) {
+                forces[i] = netForce;
+            } else if (pair.a == body) {
+                pair.forceA = netForce;
+            } else {
+                pair.forceB = netForce;
+            }
+        }
+        if (timestep != null) {
+            timestep.observe(massive, forces, deltaTime);
+        }
+        // Test particles are not in the tree, so they may kick and drift before the massive bodies move
+        advanceTestParticles(deltaTime);
+        for (BinaryRegularizer.Pair pair : pairs) {
+            regularizer.advance(pair, deltaTime, softening, softeningLength);
+        }
+        // Drift
+        for (int i = 0; i < forces.length; i++) {
+            if (forces[i] != null) {
+                CelestialBody body = massive.get(i);
+                body.applyForce(forces[i], deltaTime); // O(1)
+                body.updatePosition(deltaTime);        // O(1)
+            }
+        }
+        for (SatelliteSubcycler.Group group : groups) {
+            subcycler.advance(group, deltaTime, softening, softeningLength);
+        }
+        if (periodic != null) {
+            wrapIntoBox(bodies);
+        }
+        if (ephemeris != null) {
+            ephemerisTime += deltaTime;
+            for (Map.Entry<CelestialBody, Integer> entry : driven.entrySet()) {
+                ephemeris.state(entry.getValue(), ephemerisTime, drivenState, 0);
+                CelestialBody body = entry.getKey();
+                body.position = Vector3D.obtain(drivenState[0], drivenState[1], drivenState[2]);
+                body.velocity = Vector3D.obtain(drivenState[3], drivenState[4], drivenState[5]);
+            }
+        }
+
+        if (metrics != null) {
+            metrics.recordTreeBuild(walkStart - buildStart, rebuilt);
+            metrics.recordForceWalk(System.nanoTime() - walkStart, tree.getInteractionCount(), bodies.size());
+            metrics.recordCollisions(collided);
+            metrics.recordRegularizedPairs(pairs.size());
+        }
+    }
+
+    private BarnesHutTree newTree() {
+        BarnesHutTree built = new BarnesHutTree(massive, softening, softeningLength);
+        built.setCompensatedSummation(deterministic);
+        built.setOpeningAngle(openingAngle);
+        return built;
+    }
+
+    private ParticleMesh newMesh() {
+        ParticleMesh built = new ParticleMesh(periodic != null ? periodic.getMeshSize() : meshSize);
+        built.setPeriodicBox(periodic);
+        built.setLongRangeOnly(solver == GravitySolver.TREEPM);
+        return built;
+    }
+
+    private Vector3D netForce(CelestialBody body) {
+        return gravity.calculateNetForce(body);
+    }
+
+    private void wrapIntoBox(List<CelestialBody> bodies) {
+        for (CelestialBody body : bodies) {
+            if (body != null && !body.isStatic) {
+                body.position = periodic.wrap(body.position);
+            }
+        }
+    }
+
+    private void splitTestParticles(List<CelestialBody> bodies) {
+        massive.clear();
+        testParticles.clear();
+        for (CelestialBody body : bodies) {
+            if (body == null) {
+                continue; // SAFETY: Skip null body to prevent NullPointerException
+            }
+            (body.testParticle ? testParticles : massive).add(body);
+        }
+    }
+
+    private void advanceTestParticles(double deltaTime) {
+        int count = testParticles.size();
+        if (count < PARALLEL_TEST_PARTICLES) {
+            advanceTestParticles(0, count, deltaTime);
+            return;
+        }
+        // Disjoint batches: each particle writes only its own state, the tree is read-only here
+        int batches = (count + TEST_PARTICLE_BATCH - 1) / TEST_PARTICLE_BATCH;
+        IntStream.range(0, batches).parallel().forEach(batch -> advanceTestParticles(
+            batch * TEST_PARTICLE_BATCH, Math.min(count, (batch + 1) * TEST_PARTICLE_BATCH), deltaTime));
+    }
+
+    private void advanceTestParticles(int from, int to, double deltaTime) {
+        for (int i = from; i < to; i++) {
+            CelestialBody body = testParticles.get(i);
+            if (body.isStatic || (!driven.isEmpty() && driven.containsKey(body))) {
+                continue;
+            }
+            body.applyForce(netForce(body), deltaTime);
+            body.updatePosition(deltaTime);
+        }
+    }
+
+    private boolean ephemerisCovers(double time) {
+        return time <= ephemeris.getEndTime();
+    }
+
+    // Match bodies to ephemeris entries by id; bodies that disappeared (collisions) drop out
+    private void indexDriven(List<CelestialBody> bodies) {
+        if (driven.isEmpty()) {
+            Map<String, Integer> byId = new HashMap<>();
+            for (int i = 0; i < ephemeris.getBodyCount(); i++) {
+                byId.put(ephemeris.getId(i), i);
+            }
+            for (CelestialBody body : bodies) {
+                Integer index = body != null ? byId.get(body.getId()) : null;
+                if (index != null && !body.isStatic) {
+                    driven.put(body, index);
+                }
+            }
+        } else {
+            Set<CelestialBody> present = Collections.newSetFromMap(new IdentityHashMap<>());
+            present.addAll(bodies);
+            driven.keySet().retainAll(present);
+        }
+    }
+
+    private static double maxDynamicMass(List<CelestialBody> bodies) {
+        double max = 0;
+        for (CelestialBody body : bodies) {
+            if (body != null && !body.isStatic) {
+                max = Math.max(max, body.mass);
+            }
+        }
+        return max;
+    }
+
+    // Groups with a driven member are left to the ephemeris and the plain step
+    private Map<CelestialBody, SatelliteSubcycler.Group> indexGroups(List<SatelliteSubcycler.Group> groups) {
+        if (!driven.isEmpty()) {
+            groups.removeIf(group -> group.members.stream().anyMatch(driven::containsKey));
+        }
+        Map<CelestialBody, SatelliteSubcycler.Group> index = new IdentityHashMap<>();
+        for (SatelliteSubcycler.Group group : groups) {
+            for (CelestialBody member : group.members) {
+                index.put(member, group);
+            }
+        }
+        return index.isEmpty() ? null : index;
+    }
+
+    private static Map<CelestialBody, BinaryRegularizer.Pair> indexPairs(List<BinaryRegularizer.Pair> pairs) {
+        Map<CelestialBody, BinaryRegularizer.Pair> index = new IdentityHashMap<>();
+        for (BinaryRegularizer.Pair pair : pairs) {
+            index.put(pair.a, pair);
+            index.put(pair.b, pair);
+        }
+        return index;
+    }
+
+    public void setSoftening(SofteningKernel kernel, double length) {
+        // SAFETY: Negative or NaN lengths would turn softening into anti-softening
+        if (kernel == null || !(length >= 0) || Double.isInfinite(length)) {
+            throw new IllegalArgumentException("Softening kernel required and length must be finite and >= 0");
+        }
+        if (kernel != SofteningKernel.NONE && length == 0) {
+            throw new IllegalArgumentException(kernel + " softening needs --softening-length > 0");
+        }
+        this.softening = kernel;
+        this.softeningLength = length;
+        this.tree = null; // Kernel is baked into the tree
+    }
+
+    /**
+     * When disabled, a new tree is built every step (the pre-refit behaviour).
+     */
+    public void setRefitEnabled(boolean refitEnabled) {
+        this.refitEnabled = refitEnabled;
+        if (!refitEnabled) {
+            this.tree = null;
+        }
+    }
+
+    public boolean isRefitEnabled() { return refitEnabled; }
+
+    /**
+     * Barnes-Hut opening angle for the force walk (see BarnesHutTree.setOpeningAngle).
+     */
+    public void setOpeningAngle(double theta) {
+        this.openingAngle = BarnesHutTree.checkOpeningAngle(theta);
+        if (tree != null) {
+            tree.setOpeningAngle(theta);
+        }
+    }
+
+    public double getOpeningAngle() { return openingAngle; }
+
+    /**
+     * Sum tree forces with compensation. Results are reproducible bit for bit
+     * whenever the body list arrives in the same order (SimulationManager sorts
+     * it by id in deterministic mode); test particles stay parallel, as each
+     * one's update is independent of the others.
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+        if (tree != null) {
+            tree.setCompensatedSummation(deterministic);
+        }
+    }
+
+    public boolean isDeterministic() { return deterministic; }
+
+    public SofteningKernel getSoftening() { return softening; }
+    public double getSofteningLength() { return softeningLength; }
+
+    /**
+     * Set how overlapping bodies are resolved; null disables collision handling.
+     */
+    public void setCollisionSystem(CollisionSystem collisions) {
+        this.collisions = collisions;
+    }
+
+    public CollisionSystem getCollisionSystem() { return collisions; }
+
+    /**
+     * Enable two-body regularization of tight binaries; null disables it.
+     */
+    public void setRegularizer(BinaryRegularizer regularizer) {
+        this.regularizer = regularizer;
+    }
+
+    public BinaryRegularizer getRegularizer() { return regularizer; }
+
+    /**
+     * Enable nested-frame integration of moons around their planets; null disables it.
+     */
+    public void setSatelliteSubcycler(SatelliteSubcycler subcycler) {
+        this.subcycler = subcycler;
+    }
+
+    public SatelliteSubcycler getSatelliteSubcycler() { return subcycler; }
+
+    /**
+     * Report each step's forces to the controller (null to stop).
+     */
+    public void setTimestepController(TimestepController timestep) {
+        this.timestep = timestep;
+    }
+
+    public TimestepController getTimestepController() { return timestep; }
+
+    /**
+     * Choose how gravity is computed (periodic boxes need PM or TREEPM).
+     */
+    public void setGravitySolver(GravitySolver solver) {
+        if (solver == null || (periodic != null && solver == GravitySolver.TREE)) {
+            throw new IllegalArgumentException("Gravity solver required; periodic boxes need pm or treepm");
+        }
+        this.solver = solver;
+        this.mesh = null;
+        this.tree = null; // Drops any short-range split
+    }
+
+    public GravitySolver getGravitySolver() { return solver; }
+
+    /**
+     * Mesh cells per side for PM and TreePM in isolated systems.
+     */
+    public void setMeshSize(int meshSize) {
+        ParticleMesh.checkMeshSize(meshSize);
+        this.meshSize = meshSize;
+        this.mesh = null;
+    }
+
+    public int getMeshSize() { return meshSize; }
+
+    /**
+     * Run in a periodic box (TreePM unless PM was chosen); null returns to an isolated system.
+     */
+    public void setPeriodicBox(PeriodicBox periodic) {
+        this.periodic = periodic;
+        if (periodic != null && solver == GravitySolver.TREE) {
+            solver = GravitySolver.TREEPM;
+        }
+        this.mesh = null;
+        this.tree = null;
+    }
+
+    public PeriodicBox getPeriodicBox() { return periodic; }
+
+    /**
+     * Drive the bodies covered by the ephemeris from it, starting at the given
+     * ephemeris time; null returns them to normal integration. Driving stops
+     * by itself when the run passes the end of the ephemeris.
+     */
+    public void setEphemeris(Ephemeris ephemeris, double time) {
+        this.ephemeris = ephemeris;
+        this.ephemerisTime = time;
+        this.driven.clear();
+    }
+
+    public Ephemeris getEphemeris() { return ephemeris; }
+}
@@ -0,0 +1,173 @@
+package com.example.demo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Physics-only driver for very large collisionless runs with bodies stored
+ * off-heap (OffHeapBodyStore, FlatOctree, OffHeapIntegrator).
+ *
+ * Usage: --offheap-bodies=N [--offheap-file=PATH] [--steps=S] [--dt=SECONDS]
+ *        [--seed=S] [--softening-length=M] [--checkpoint-every=K] [--report-interval=K]
+ *        [--mixed-precision] [--precision-check=K]
+ *   or:  --offheap-file=PATH (without --offheap-bodies) to resume from a saved store
+ *
+ * New runs start from an equilibrium Plummer sphere with the galaxy-merger
+ * mass and scale radius. With --offheap-file the bodies live in a mapped file
+ * that doubles as the checkpoint, flushed every K steps and at the end, and
+ * the tree nodes in an unlinked temporary file beside it.
+ * --precision-check=K compares the mixed-precision and double walks on K
+ * sampled bodies at every report.
+ */
+public class OffHeapApplication {
+
+    public static void main(String[] args) {
+        int bodies = 0;
+        Path file = null;
+        long steps = 10;
+        double dt = 1e12;
+        long seed = 42;
+        double softeningLength = 0.05 * SimulationManager.GALAXY_SCALE_RADIUS;
+        int checkpointEvery = 0;
+        int reportInterval = 1;
+        boolean mixedPrecision = false;
+        int precisionCheck = 0;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--offheap-bodies=")) {
+                    bodies = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--offheap-file=")) {
+                    file = Paths.get(value(arg));
+                } else if (arg.startsWith("--steps=")) {
+                    steps = Long.parseLong(value(arg));
+                } else if (arg.startsWith("--dt=")) {
+                    dt = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(value(arg));
+                } else if (arg.startsWith("--softening-length=")) {
+                    softeningLength = Double.parseDouble(value(arg));
+                } else if (arg.startsWith("--checkpoint-every=")) {
+                    checkpointEvery = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--report-interval=")) {
+                    reportInterval = Integer.parseInt(value(arg));
+                } else if (arg.equals("--mixed-precision")) {
+                    mixedPrecision = true;
+                } else if (arg.startsWith("--precision-check=")) {
+                    precisionCheck = Integer.parseInt(value(arg));
+                }
+            }
+            // SECURITY: Input validation on run length and step size
+            if (steps < 0 || !(dt > 0) || Double.isInfinite(dt) || reportInterval < 1 || checkpointEvery < 0
+                    || precisionCheck < 0) {
+                throw new IllegalArgumentException("Steps must be >= 0, dt > 0, report interval >= 1, "
+                    + "checkpoint and precision-check counts >= 0");
+            }
+
+            long setupStart = System.nanoTime();
+            OffHeapBodyStore store;
+            if (bodies == 0 && file != null && Files.exists(file)) {
+                store = OffHeapBodyStore.open(file);
+                System.out.printf("Resumed %d bodies from %s at step %d (t=%.3g s)%n",
+                    store.size(), file, store.getStep(), store.getTime());
+            } else {
+                store = file != null ? OffHeapBodyStore.create(file, bodies) : OffHeapBodyStore.allocate(bodies);
+                plummerSphere(store, seed);
+                System.out.printf("Generated %d bodies in %.1fs%n", bodies, (System.nanoTime() - setupStart) / 1e9);
+            }
+
+            SimulationSettings settings = SimulationSettings.load(args);
+            settings.applyToProcess();
+            SimulationMetrics metrics = new SimulationMetrics();
+            OffHeapIntegrator integrator = new OffHeapIntegrator(SofteningKernel.PLUMMER, softeningLength, metrics);
+            integrator.setOpeningAngle(settings.getTheta());
+            integrator.setMixedPrecision(mixedPrecision);
+            if (file != null) {
+                // Nodes need about half a body record per body; keep them out of direct memory too
+                integrator.getTree().setScratchDirectory(file.toAbsolutePath().getParent());
+            }
+            if (precisionCheck > 0) {
+                // The check needs the float records even when the run itself uses double
+                integrator.getTree().setMixedPrecision(true);
+            }
+            long start = System.nanoTime();
+            for (long step = 1; step <= steps; step++) {
+                integrator.step(store, dt);
+                if (step % reportInterval == 0 || step == steps) {
+                    report(store, integrator, metrics);
+                    if (precisionCheck > 0) {
+                        double[] error = integrator.getTree().mixedPrecisionError(precisionCheck);
+                        System.out.printf("  mixed vs double acceleration: mean rel err %.2e, max %.2e%n",
+                            error[0], error[1]);
+                    }
+                }
+                if (checkpointEvery > 0 && step % checkpointEvery == 0) {
+                    store.checkpoint();
+                }
+            }
+            store.checkpoint();
+            double wall = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Finished %d steps of %d bodies in %.1fs (%.2f s/step)%n",
+                steps, store.size(), wall, wall / Math.max(1, steps));
+        } catch (OutOfMemoryError e) {
+            // Direct buffers are capped by -XX:MaxDirectMemorySize, which defaults to -Xmx
+            System.err.println("Off-heap run out of memory (" + e.getMessage() + "): use --offheap-file "
+                + "or raise -XX:MaxDirectMemorySize");
+            System.exit(1);
+        } catch (Exception e) {
+            System.err.println("Off-heap run failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void report(OffHeapBodyStore store, OffHeapIntegrator integrator, SimulationMetrics metrics) {
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("step %d: tree %.0f ms, walk %.0f ms, %.0f interactions/body, %d nodes, "
+                + "heap %.0f MB, off-heap %.0f MB%n",
+            store.getStep(), metrics.getLastTreeBuildMillis(), metrics.getLastForceWalkMillis(),
+            integrator.getLastInteractionCount() / (double) store.size(), integrator.getTree().getNodeCount(),
+            (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0,
+            (store.getByteSize() + integrator.getTree().getByteSize()) / 1048576.0);
+    }
+
+    // Same sampling as SimulationManager.loadGalaxyMerger, for one sphere at rest
+    private static void plummerSphere(OffHeapBodyStore store, long seed) {
+        final double a = SimulationManager.GALAXY_SCALE_RADIUS;
+        int count = store.size();
+        double mass = SimulationManager.GALAXY_MASS / count;
+        double escapeScale = Math.sqrt(2 * CelestialBody.G * SimulationManager.GALAXY_MASS / a);
+        Random random = new Random(seed);
+        double[] direction = new double[3];
+        for (int i = 0; i < count; i++) {
+            double r;
+            do {
+                r = a / Math.sqrt(StrictMath.pow(random.nextDouble(), -2.0 / 3.0) - 1);
+            } while (!(r < 20 * a)); // SAFETY: Drop the far tail (and the u = 0 singularity)
+            double q;
+            do {
+                q = random.nextDouble();
+            } while (0.1 * random.nextDouble() >= q * q * StrictMath.pow(1 - q * q, 3.5));
+            double speed = q * escapeScale * StrictMath.pow(1 + r * r / (a * a), -0.25);
+
+            isotropic(random, direction);
+            double x = direction[0] * r, y = direction[1] * r, z = direction[2] * r;
+            isotropic(random, direction);
+            store.set(i, i, mass, x, y, z, direction[0] * speed, direction[1] * speed, direction[2] * speed);
+        }
+    }
+
+    private static void isotropic(Random random, double[] out) {
+        double z = 2 * random.nextDouble() - 1;
+        double phi = 2 * Math.PI * random.nextDouble();
+        double planar = Math.sqrt(1 - z * z);
+        out[0] = planar * StrictMath.cos(phi);
+        out[1] = planar * StrictMath.sin(phi);
+        out[2] = z;
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
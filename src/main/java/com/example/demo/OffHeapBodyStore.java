@@ -0,0 +1,200 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Body state outside the Java heap: one 64-byte record per body (id, mass,
+ * position, velocity) in direct ByteBuffers, or in a memory-mapped file.
+ *
+ * Heap use does not grow with the body count, so the garbage collector never
+ * scans or copies it; 100M bodies take 6.4 GB of native memory (or page
+ * cache). A file-backed store is also its own checkpoint: the header records
+ * the body count, step and simulated time, and open() maps a saved file back
+ * without reading it through the heap. Java 17's foreign-memory API is still
+ * incubating, so this uses NIO buffers in 1 GiB chunks (see DirectChunks).
+ *
+ * SAFETY: Accessors are unsynchronized; concurrent writers must touch
+ * disjoint bodies (FlatOctree and OffHeapIntegrator partition by index).
+ */
+public final class OffHeapBodyStore {
+
+    static final int RECORD_BYTES = 64;
+    // SECURITY: Bound the store (32 GB of records)
+    public static final int MAX_BODIES = 500_000_000;
+
+    // File layout: 64-byte header, then the records
+    private static final int HEADER_BYTES = 64;
+    private static final long MAGIC = 0x4E424F4459303031L; // "NBODY001"
+    private static final int ID = 0;
+    private static final int MASS = 8;
+    private static final int X = 16;
+    private static final int Y = 24;
+    private static final int Z = 32;
+    private static final int VX = 40;
+    private static final int VY = 48;
+    private static final int VZ = 56;
+
+    private final DirectChunks records;
+    private final int count;
+    private final ByteBuffer header; // Null for direct memory
+    private long step;
+    private double time;
+
+    private OffHeapBodyStore(DirectChunks records, int count, ByteBuffer header) {
+        this.records = records;
+        this.count = count;
+        this.header = header;
+    }
+
+    /**
+     * A zeroed store in direct memory.
+     */
+    public static OffHeapBodyStore allocate(int count) {
+        checkCount(count);
+        return new OffHeapBodyStore(DirectChunks.allocate((long) count * RECORD_BYTES), count, null);
+    }
+
+    /**
+     * A zeroed store backed by a new (or truncated) file, for runs larger than memory.
+     */
+    public static OffHeapBodyStore create(Path file, int count) throws IOException {
+        checkCount(count);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long bytes = (long) count * RECORD_BYTES;
+            // Extend without writing the body: the file system hands out zero pages lazily
+            channel.write(ByteBuffer.wrap(new byte[1]), HEADER_BYTES + bytes - 1);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).order(DirectChunks.ORDER);
+            header.putLong(0, MAGIC);
+            header.putLong(8, count);
+            OffHeapBodyStore store = new OffHeapBodyStore(DirectChunks.map(channel, HEADER_BYTES, bytes), count, header);
+            store.writeHeader();
+            return store;
+        }
+    }
+
+    /**
+     * Map a store saved by create() (the mapping outlives the channel).
+     */
+    public static OffHeapBodyStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a body store: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).order(DirectChunks.ORDER);
+            long count = header.getLong(8);
+            // SECURITY: Validate the header before mapping anything it describes
+            if (header.getLong(0) != MAGIC || count <= 0 || count > MAX_BODIES
+                    || channel.size() < HEADER_BYTES + count * RECORD_BYTES) {
+                throw new IOException("Corrupt or truncated body store: " + file);
+            }
+            OffHeapBodyStore store = new OffHeapBodyStore(
+                DirectChunks.map(channel, HEADER_BYTES, count * RECORD_BYTES), (int) count, header);
+            store.step = header.getLong(16);
+            store.time = header.getDouble(24);
+            return store;
+        }
+    }
+
+    private static void checkCount(int count) {
+        if (count <= 0 || count > MAX_BODIES) {
+            throw new IllegalArgumentException("Body count must be in 1.." + MAX_BODIES);
+        }
+    }
+
+    public int size() { return count; }
+    public boolean isFileBacked() { return header != null; }
+    public long getStep() { return step; }
+    public double getTime() { return time; }
+
+    public void setClock(long step, double time) {
+        this.step = step;
+        this.time = time;
+    }
+
+    /**
+     * Flush a file-backed store, header included, so the file is a consistent
+     * checkpoint. Call between steps. No-op in direct memory.
+     */
+    public void checkpoint() {
+        if (header != null) {
+            records.force();
+            writeHeader();
+            ((MappedByteBuffer) header).force();
+        }
+    }
+
+    private void writeHeader() {
+        header.putLong(16, step);
+        header.putDouble(24, time);
+    }
+
+    public void set(int i, long id, double mass, double x, double y, double z, double vx, double vy, double vz) {
+        long base = offset(i);
+        records.putLong(base + ID, id);
+        records.putDouble(base + MASS, mass);
+        records.putDouble(base + X, x);
+        records.putDouble(base + Y, y);
+        records.putDouble(base + Z, z);
+        records.putDouble(base + VX, vx);
+        records.putDouble(base + VY, vy);
+        records.putDouble(base + VZ, vz);
+    }
+
+    public long id(int i) { return records.getLong(offset(i) + ID); }
+    public double mass(int i) { return records.getDouble(offset(i) + MASS); }
+    public double x(int i) { return records.getDouble(offset(i) + X); }
+    public double y(int i) { return records.getDouble(offset(i) + Y); }
+    public double z(int i) { return records.getDouble(offset(i) + Z); }
+    public double vx(int i) { return records.getDouble(offset(i) + VX); }
+    public double vy(int i) { return records.getDouble(offset(i) + VY); }
+    public double vz(int i) { return records.getDouble(offset(i) + VZ); }
+
+    /**
+     * Coordinate along axis 0, 1 or 2.
+     */
+    double position(int i, int axis) {
+        return records.getDouble(offset(i) + X + 8 * axis);
+    }
+
+    void addVelocity(int i, double dvx, double dvy, double dvz) {
+        long base = offset(i);
+        records.putDouble(base + VX, records.getDouble(base + VX) + dvx);
+        records.putDouble(base + VY, records.getDouble(base + VY) + dvy);
+        records.putDouble(base + VZ, records.getDouble(base + VZ) + dvz);
+    }
+
+    void drift(int i, double deltaTime) {
+        long base = offset(i);
+        records.putDouble(base + X, records.getDouble(base + X) + records.getDouble(base + VX) * deltaTime);
+        records.putDouble(base + Y, records.getDouble(base + Y) + records.getDouble(base + VY) * deltaTime);
+        records.putDouble(base + Z, records.getDouble(base + Z) + records.getDouble(base + VZ) * deltaTime);
+    }
+
+    /**
+     * Exchange two records (the tree builder reorders bodies in place).
+     */
+    void swap(int i, int j) {
+        long a = offset(i);
+        long b = offset(j);
+        for (int field = 0; field < RECORD_BYTES; field += 8) {
+            long t = records.getLong(a + field);
+            records.putLong(a + field, records.getLong(b + field));
+            records.putLong(b + field, t);
+        }
+    }
+
+    private static long offset(int i) {
+        return (long) i * RECORD_BYTES;
+    }
+
+    /**
+     * Native bytes held (records only).
+     */
+    public long getByteSize() { return (long) count * RECORD_BYTES; }
+}
@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Collisionless kick-drift step over an OffHeapBodyStore with a FlatOctree:
+ * the same symplectic Euler scheme as NBodyIntegrator, but without any
+ * per-body objects. The kick only writes velocities, which the tree walk never
+ * reads, so every body is kicked in place, in parallel batches, from the
+ * start-of-step positions; a second parallel pass drifts the positions.
+ *
+ * There are no collisions, test particles, regularization or ephemerides in
+ * this mode; it is meant for very large self-gravitating systems. With
+ * setMixedPrecision(true) the far field comes from the tree's float node
+ * records (see FlatOctree).
+ *
+ * SAFETY: Not thread-safe. Use from one driving thread only.
+ */
+public class OffHeapIntegrator {
+
+    private static final int BATCH = 4096;
+
+    private final FlatOctree tree;
+    private final SimulationMetrics metrics;
+    private long lastInteractions;
+    private boolean mixedPrecision;
+
+    public OffHeapIntegrator(SofteningKernel softening, double softeningLength, SimulationMetrics metrics) {
+        this.tree = new FlatOctree(softening, softeningLength);
+        this.metrics = metrics;
+    }
+
+    public void step(OffHeapBodyStore store, double deltaTime) {
+        // SECURITY: Reject steps that would corrupt the whole store at once
+        if (!(deltaTime > 0) || Double.isInfinite(deltaTime)) {
+            throw new IllegalArgumentException("Step must be finite and > 0");
+        }
+        long buildStart = System.nanoTime();
+        tree.build(store);
+        long walkStart = System.nanoTime();
+
+        int n = store.size();
+        int batches = (n + BATCH - 1) / BATCH;
+        LongAdder interactions = new LongAdder();
+        boolean mixed = mixedPrecision;
+        IntStream.range(0, batches).parallel().forEach(batch -> {
+            double[] acceleration = new double[3];
+            int[] stack = new int[FlatOctree.STACK_SIZE];
+            double[] state = mixed ? new double[FlatOctree.STATE_SIZE] : null;
+            long count = 0;
+            for (int i = batch * BATCH, end = Math.min(n, (batch + 1) * BATCH); i < end; i++) {
+                count += mixed ? tree.mixedAccelerationOn(i, acceleration, stack, state)
+                    : tree.accelerationOn(i, acceleration, stack);
+                store.addVelocity(i, acceleration[0] * deltaTime, acceleration[1] * deltaTime,
+                    acceleration[2] * deltaTime);
+            }
+            interactions.add(count);
+        });
+        IntStream.range(0, batches).parallel().forEach(batch -> {
+            for (int i = batch * BATCH, end = Math.min(n, (batch + 1) * BATCH); i < end; i++) {
+                store.drift(i, deltaTime);
+            }
+        });
+        store.setClock(store.getStep() + 1, store.getTime() + deltaTime);
+
+        lastInteractions = interactions.sum();
+        if (metrics != null) {
+            metrics.recordTreeBuild(walkStart - buildStart);
+            metrics.recordForceWalk(System.nanoTime() - walkStart, lastInteractions, n);
+        }
+    }
+
+    public void setMixedPrecision(boolean mixedPrecision) {
+        this.mixedPrecision = mixedPrecision;
+        if (mixedPrecision) {
+            tree.setMixedPrecision(true);
+        }
+    }
+
+    public boolean isMixedPrecision() { return mixedPrecision; }
+
+    public void setOpeningAngle(double theta) {
+        tree.setOpeningAngle(theta);
+    }
+
+    public FlatOctree getTree() { return tree; }
+    public long getLastInteractionCount() { return lastInteractions; }
+}
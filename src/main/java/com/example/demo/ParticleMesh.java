@@ -0,0 +1,416 @@
+package com.example.demo;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Particle-mesh gravity on an n^3 mesh: cloud-in-cell mass assignment, an FFT
+ * Poisson solve, a fourth-order finite-difference gradient, and cloud-in-cell
+ * interpolation back to the bodies. Cost is O(N + n^3 log n) whatever the
+ * clustering, which beats a tree walk for smooth, near-uniform distributions
+ * but resolves nothing below a couple of cells.
+ *
+ * Isolated systems (the default) use a mesh fitted to the bodies' bounds each
+ * solve, zero-padded to (2n)^3 so the FFT convolution with the free-space
+ * Green's function has no periodic images (Hockney and Eastwood). With a
+ * PeriodicBox the mesh is the box and the Green's function is -4 pi G / k^2,
+ * with the k = 0 mode dropped as usual. With setLongRangeOnly(true) only the
+ * long-range part of a ForceSplit at 1.25 cells is solved, for TreePM.
+ *
+ * Every stage runs on the common fork-join pool; deposits go slab by slab,
+ * even then odd x-slabs, so no two tasks write the same plane.
+ *
+ * SAFETY: solve() must not overlap anything else; calculateNetForce() and
+ * accelerationAt() may be called from many threads once it returns.
+ */
+public class ParticleMesh extends SpatialPartitioningTree {
+
+    // Isolated meshes keep the bodies this many cells inside the faces, so gradients never read the padding
+    private static final int MARGIN = 3;
+
+    private final int n;
+    private PeriodicBox periodic;
+    private boolean longRangeOnly;
+    private int gridSize;
+    private FFT3D fft;
+    private double[] re;
+    private double[] im;
+    private double[] kernel; // Isolated: transform of the unit-cell Green's function (real), built lazily
+    private final double[] ax;
+    private final double[] ay;
+    private final double[] az;
+    // Geometry of the last solve: grid point i sits at origin + i * cell
+    private double cell;
+    private double originX, originY, originZ;
+    private ForceSplit split;
+    // Monopole for points outside an isolated mesh
+    private double totalMass, comX, comY, comZ;
+
+    public ParticleMesh(int meshSize) {
+        checkMeshSize(meshSize);
+        this.n = meshSize;
+        int cells = meshSize * meshSize * meshSize;
+        ax = new double[cells];
+        ay = new double[cells];
+        az = new double[cells];
+        allocateGrid();
+    }
+
+    public int getMeshSize() { return n; }
+
+    // SECURITY: Bound the mesh (isolated ones are padded to twice the size)
+    static void checkMeshSize(int meshSize) {
+        if (meshSize < PeriodicBox.MIN_MESH || meshSize > FFT3D.MAX_SIZE / 2 || Integer.bitCount(meshSize) != 1) {
+            throw new IllegalArgumentException("Mesh size must be a power of two in "
+                + PeriodicBox.MIN_MESH + ".." + FFT3D.MAX_SIZE / 2);
+        }
+    }
+
+    /**
+     * Solve in the given periodic box (its mesh size must match), or null for an isolated system.
+     */
+    public void setPeriodicBox(PeriodicBox periodic) {
+        if (periodic != null && periodic.getMeshSize() != n) {
+            throw new IllegalArgumentException("Box mesh " + periodic.getMeshSize() + " does not match " + n);
+        }
+        this.periodic = periodic;
+        allocateGrid();
+    }
+
+    public PeriodicBox getPeriodicBox() { return periodic; }
+
+    /**
+     * Solve only the long-range part of the TreePM split (see getForceSplit).
+     */
+    public void setLongRangeOnly(boolean longRangeOnly) {
+        this.longRangeOnly = longRangeOnly;
+        this.kernel = null;
+    }
+
+    public boolean isLongRangeOnly() { return longRangeOnly; }
+
+    /**
+     * The split the last solve used, for the matching short-range walk; null
+     * unless long-range only. Isolated meshes follow the bodies, so it changes
+     * with every solve.
+     */
+    public ForceSplit getForceSplit() { return split; }
+
+    private void allocateGrid() {
+        int size = periodic != null ? n : 2 * n;
+        if (size == gridSize) {
+            return;
+        }
+        gridSize = size;
+        fft = new FFT3D(size);
+        re = new double[size * size * size];
+        im = new double[size * size * size];
+        kernel = null;
+    }
+
+    /**
+     * Rebuild the mesh accelerations for the bodies' current positions.
+     */
+    public void solve(List<CelestialBody> bodies) {
+        fitMesh(bodies);
+        split = longRangeOnly ? ForceSplit.forCell(cell) : null;
+        deposit(bodies);
+        fft.forward(re, im);
+        if (periodic != null) {
+            applyPeriodicGreen();
+        } else {
+            applyIsolatedGreen();
+        }
+        fft.inverse(re, im);
+        gradient();
+    }
+
+    private void fitMesh(List<CelestialBody> bodies) {
+        double mass = 0, mx = 0, my = 0, mz = 0;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (CelestialBody body : bodies) {
+            Vector3D p = body.position;
+            if (!finite(p)) {
+                continue;
+            }
+            mass += body.mass;
+            mx += body.mass * p.x;
+            my += body.mass * p.y;
+            mz += body.mass * p.z;
+            minX = Math.min(minX, p.x);
+            minY = Math.min(minY, p.y);
+            minZ = Math.min(minZ, p.z);
+            maxX = Math.max(maxX, p.x);
+            maxY = Math.max(maxY, p.y);
+            maxZ = Math.max(maxZ, p.z);
+        }
+        totalMass = mass;
+        comX = mass > 0 ? mx / mass : 0;
+        comY = mass > 0 ? my / mass : 0;
+        comZ = mass > 0 ? mz / mass : 0;
+        if (periodic != null) {
+            cell = periodic.getSize() / n;
+            originX = originY = originZ = -periodic.getSize() / 2;
+            return;
+        }
+        if (minX > maxX) {
+            minX = minY = minZ = 0; // No finite body: any mesh will do
+        }
+        double extent = Math.max(Math.max(maxX - minX, maxY - minY), maxZ - minZ);
+        // Bodies span cells MARGIN .. n - 1 - MARGIN
+        cell = (extent > 0 ? extent * (1 + 1e-9) : 1) / (n - 1 - 2 * MARGIN);
+        originX = minX - MARGIN * cell;
+        originY = minY - MARGIN * cell;
+        originZ = minZ - MARGIN * cell;
+    }
+
+    private static boolean finite(Vector3D p) {
+        return Double.isFinite(p.x) && Double.isFinite(p.y) && Double.isFinite(p.z);
+    }
+
+    // Mass density by cloud-in-cell
+    private void deposit(List<CelestialBody> bodies) {
+        int g = gridSize;
+        IntStream.range(0, g).parallel().forEach(x -> {
+            int from = x * g * g;
+            Arrays.fill(re, from, from + g * g, 0);
+            Arrays.fill(im, from, from + g * g, 0);
+        });
+        int count = bodies.size();
+        int[] slab = new int[count];
+        int[] starts = new int[n + 1];
+        for (int i = 0; i < count; i++) {
+            Vector3D p = bodies.get(i).position;
+            // SAFETY: Non-finite positions would land on an arbitrary plane; leave them out
+            slab[i] = finite(p) ? Math.floorMod((int) Math.floor((p.x - originX) / cell), n) : -1;
+            if (slab[i] >= 0) {
+                starts[slab[i] + 1]++;
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            starts[s + 1] += starts[s];
+        }
+        int[] order = new int[starts[n]];
+        int[] next = starts.clone();
+        for (int i = 0; i < count; i++) {
+            if (slab[i] >= 0) {
+                order[next[slab[i]]++] = i;
+            }
+        }
+        double density = 1.0 / (cell * cell * cell);
+        // Slab s writes planes s and s + 1: even slabs never collide with each other, nor odd ones
+        for (int parity = 0; parity < 2; parity++) {
+            final int first = parity;
+            IntStream.range(0, n / 2).parallel().forEach(h -> {
+                int s = 2 * h + first;
+                for (int k = starts[s]; k < starts[s + 1]; k++) {
+                    CelestialBody body = bodies.get(order[k]);
+                    spread(body.position, body.mass * density);
+                }
+            });
+        }
+    }
+
+    private void spread(Vector3D p, double value) {
+        int g = gridSize;
+        double sx = (p.x - originX) / cell;
+        double sy = (p.y - originY) / cell;
+        double sz = (p.z - originZ) / cell;
+        int ix = (int) Math.floor(sx), iy = (int) Math.floor(sy), iz = (int) Math.floor(sz);
+        double fx = sx - ix, fy = sy - iy, fz = sz - iz;
+        for (int a = 0; a < 2; a++) {
+            int x = Math.floorMod(ix + a, n) * g * g;
+            double wx = a == 0 ? 1 - fx : fx;
+            for (int b = 0; b < 2; b++) {
+                int y = Math.floorMod(iy + b, n) * g;
+                double wy = b == 0 ? 1 - fy : fy;
+                for (int c = 0; c < 2; c++) {
+                    double wz = c == 0 ? 1 - fz : fz;
+                    re[x + y + Math.floorMod(iz + c, n)] += value * wx * wy * wz;
+                }
+            }
+        }
+    }
+
+    // Squared CIC window per grid frequency, divided out twice (assignment and interpolation)
+    private double[] windows() {
+        int g = gridSize;
+        double[] window = new double[g];
+        for (int i = 0; i < g; i++) {
+            int signed = i <= g / 2 ? i : i - g;
+            double half = Math.PI * signed / g;
+            double sinc = signed == 0 ? 1 : StrictMath.sin(half) / half;
+            window[i] = sinc * sinc;
+        }
+        return window;
+    }
+
+    // Density to potential in k-space: -4 pi G / k^2, times exp(-k^2 r_s^2) over the window when split
+    private void applyPeriodicGreen() {
+        double[] k = new double[n];
+        for (int i = 0; i < n; i++) {
+            k[i] = 2 * Math.PI * (i <= n / 2 ? i : i - n) / periodic.getSize();
+        }
+        double[] window = windows();
+        double split2 = split != null ? split.getSplitScale() * split.getSplitScale() : 0;
+        IntStream.range(0, n).parallel().forEach(x -> {
+            for (int y = 0; y < n; y++) {
+                for (int z = 0; z < n; z++) {
+                    int index = (x * n + y) * n + z;
+                    double k2 = k[x] * k[x] + k[y] * k[y] + k[z] * k[z];
+                    if (k2 == 0) {
+                        re[index] = 0;
+                        im[index] = 0;
+                        continue;
+                    }
+                    double factor = -4 * Math.PI * CelestialBody.G / k2;
+                    if (split != null) {
+                        double w = window[x] * window[y] * window[z];
+                        factor *= StrictMath.exp(-k2 * split2) / (w * w);
+                    }
+                    re[index] *= factor;
+                    im[index] *= factor;
+                }
+            }
+        });
+    }
+
+    // Convolution with the free-space Green's function; it scales as 1 / cell, so one transform serves every solve
+    private void applyIsolatedGreen() {
+        if (kernel == null) {
+            kernel = unitKernel();
+        }
+        int g = gridSize;
+        double[] window = longRangeOnly ? windows() : null;
+        // Mass per cell is density * cell^3, the Green's function is the unit one over cell
+        double scale = cell * cell;
+        IntStream.range(0, g).parallel().forEach(x -> {
+            for (int y = 0; y < g; y++) {
+                for (int z = 0; z < g; z++) {
+                    int index = (x * g + y) * g + z;
+                    double factor = scale * kernel[index];
+                    if (window != null) {
+                        double w = window[x] * window[y] * window[z];
+                        factor /= w * w;
+                    }
+                    re[index] *= factor;
+                    im[index] *= factor;
+                }
+            }
+        });
+    }
+
+    // Potential per unit mass at r cells for a one-metre cell: -G erf(r / 2r_s) / r when split, else Plummer-softened over one cell
+    private double[] unitKernel() {
+        int g = gridSize;
+        double[] kernelRe = new double[g * g * g];
+        double[] kernelIm = new double[g * g * g];
+        double splitCells = ForceSplit.SPLIT_CELLS;
+        IntStream.range(0, g).parallel().forEach(x -> {
+            int dx = x < n ? x : x - g;
+            for (int y = 0; y < g; y++) {
+                int dy = y < n ? y : y - g;
+                for (int z = 0; z < g; z++) {
+                    int dz = z < n ? z : z - g;
+                    double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                    double value;
+                    if (!longRangeOnly) {
+                        value = -CelestialBody.G / Math.sqrt(r * r + 1);
+                    } else if (r == 0) {
+                        value = -CelestialBody.G / (splitCells * Math.sqrt(Math.PI));
+                    } else {
+                        value = -CelestialBody.G * (1 - ForceSplit.erfc(r / (2 * splitCells))) / r;
+                    }
+                    kernelRe[(x * g + y) * g + z] = value;
+                }
+            }
+        });
+        // Real and even, so its transform is real
+        fft.forward(kernelRe, kernelIm);
+        return kernelRe;
+    }
+
+    // a = -grad(potential), four-point central differences (periodic wrap in a box)
+    private void gradient() {
+        double scale = -1.0 / (12 * cell);
+        IntStream.range(0, n).parallel().forEach(x -> {
+            for (int y = 0; y < n; y++) {
+                for (int z = 0; z < n; z++) {
+                    int index = (x * n + y) * n + z;
+                    ax[index] = scale * difference(at(x + 1, y, z), at(x - 1, y, z), at(x + 2, y, z), at(x - 2, y, z));
+                    ay[index] = scale * difference(at(x, y + 1, z), at(x, y - 1, z), at(x, y + 2, z), at(x, y - 2, z));
+                    az[index] = scale * difference(at(x, y, z + 1), at(x, y, z - 1), at(x, y, z + 2), at(x, y, z - 2));
+                }
+            }
+        });
+    }
+
+    private double at(int x, int y, int z) {
+        int g = gridSize;
+        return re[(Math.floorMod(x, g) * g + Math.floorMod(y, g)) * g + Math.floorMod(z, g)];
+    }
+
+    private static double difference(double plus1, double minus1, double plus2, double minus2) {
+        return 8 * (plus1 - minus1) - (plus2 - minus2);
+    }
+
+    @Override
+    public Vector3D calculateNetForce(CelestialBody body) {
+        return accelerationAt(body.position).scale(body.mass);
+    }
+
+    /**
+     * Acceleration at a point (m/s^2), interpolated from the mesh. Outside an
+     * isolated mesh the bodies act as a point mass at their centre of mass.
+     */
+    public Vector3D accelerationAt(Vector3D p) {
+        if (!finite(p)) {
+            return Vector3D.ZERO;
+        }
+        double sx = (p.x - originX) / cell;
+        double sy = (p.y - originY) / cell;
+        double sz = (p.z - originZ) / cell;
+        // Isolated gradients are only free of padding artefacts from cell 2 to n - 3
+        if (periodic == null && !(inside(sx) && inside(sy) && inside(sz))) {
+            return monopole(p);
+        }
+        int ix = (int) Math.floor(sx), iy = (int) Math.floor(sy), iz = (int) Math.floor(sz);
+        double fx = sx - ix, fy = sy - iy, fz = sz - iz;
+        double gx = 0, gy = 0, gz = 0;
+        for (int a = 0; a < 2; a++) {
+            int x = Math.floorMod(ix + a, n) * n * n;
+            double wx = a == 0 ? 1 - fx : fx;
+            for (int b = 0; b < 2; b++) {
+                int y = Math.floorMod(iy + b, n) * n;
+                double wy = b == 0 ? 1 - fy : fy;
+                for (int c = 0; c < 2; c++) {
+                    double w = wx * wy * (c == 0 ? 1 - fz : fz);
+                    int index = x + y + Math.floorMod(iz + c, n);
+                    gx += w * ax[index];
+                    gy += w * ay[index];
+                    gz += w * az[index];
+                }
+            }
+        }
+        return Vector3D.obtain(gx, gy, gz);
+    }
+
+    private boolean inside(double s) {
+        return s >= 2 && s < n - 3;
+    }
+
+    private Vector3D monopole(Vector3D p) {
+        double dx = comX - p.x, dy = comY - p.y, dz = comZ - p.z;
+        double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (r == 0 || totalMass == 0) {
+            return Vector3D.ZERO;
+        }
+        double factor = CelestialBody.G * totalMass / (r * r * r);
+        if (split != null) {
+            factor *= 1 - split.shortRangeFactor(r);
+        }
+        return Vector3D.obtain(factor * dx, factor * dy, factor * dz);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * A planetary ring or asteroid belt: massless particles on circular orbits
+ * around one parent body, kept in flat float arrays instead of CelestialBody
+ * objects (32 bytes per particle).
+ *
+ * Particles feel only the parent's point mass, so each orbit is advanced
+ * exactly by its mean motion; there is no tree walk, no self-gravity and no
+ * collision handling. Positions are relative to the parent, which lets the
+ * ring follow it for free and keeps single precision adequate.
+ *
+ * SAFETY: Not thread-safe. Step and draw from the physics/render thread only.
+ */
+public class ParticleRing {
+
+    // SECURITY: Bound pool size (8 floats per particle)
+    static final int MAX_PARTICLES = 4_000_000;
+    // Rings whose outer edge lies within this many parent radii are drawn around
+    // the parent's exaggerated sphere; anything wider is a belt on the true scale
+    static final double RING_RADII = 20;
+    private static final int PARALLEL_PARTICLES = 65_536;
+    private static final int BATCH = 16_384;
+    private static final double TWO_PI = 2 * Math.PI;
+
+    private final CelestialBody parent;
+    private final int count;
+    private final double innerRadius;
+    private final double outerRadius;
+    private final double cosTilt;
+    private final double sinTilt;
+    private final float[] color;
+
+    private final float[] orbitRadius;
+    private final float[] meanMotion;
+    private final float[] phase;
+    // Vertical oscillation z = heightSin * sin(phase) + heightCos * cos(phase)
+    private final float[] heightSin;
+    private final float[] heightCos;
+    // x, y, z per particle relative to the parent (metres, ecliptic axes); ready to draw
+    private final float[] offsets;
+
+    private ParticleRing(CelestialBody parent, int count, double innerRadius, double outerRadius,
+                         double tilt, float[] color) {
+        this.parent = parent;
+        this.count = count;
+        this.innerRadius = innerRadius;
+        this.outerRadius = outerRadius;
+        this.cosTilt = Math.cos(tilt);
+        this.sinTilt = Math.sin(tilt);
+        this.color = color;
+        this.orbitRadius = new float[count];
+        this.meanMotion = new float[count];
+        this.phase = new float[count];
+        this.heightSin = new float[count];
+        this.heightCos = new float[count];
+        this.offsets = new float[count * 3];
+    }
+
+    /**
+     * Scatter particles uniformly in area between the inner and outer radius
+     * (metres from the parent's centre), with Gaussian vertical excursions of
+     * the given thickness, in a plane tilted about the ecliptic X axis.
+     */
+    public static ParticleRing generate(CelestialBody parent, int particles, double innerRadius, double outerRadius,
+                                        double thickness, double tilt, float[] color, long seed) {
+        if (parent == null) {
+            throw new IllegalArgumentException("Ring needs a parent body");
+        }
+        // SECURITY: Input validation on pool size and geometry
+        if (particles <= 0 || particles > MAX_PARTICLES) {
+            throw new IllegalArgumentException("Ring particle count must be in 1.." + MAX_PARTICLES);
+        }
+        if (!(innerRadius > 0) || !(outerRadius >= innerRadius) || Double.isInfinite(outerRadius)
+                || !(thickness >= 0) || !Double.isFinite(tilt)) {
+            throw new IllegalArgumentException("Ring radii must satisfy 0 < inner <= outer and thickness >= 0");
+        }
+        float[] safeColor = color != null && color.length == 3 ? color : new float[]{0.8f, 0.75f, 0.65f};
+        ParticleRing ring = new ParticleRing(parent, particles, innerRadius, outerRadius, tilt, safeColor);
+        double mu = CelestialBody.G * parent.getMass();
+        Random random = new Random(seed);
+        for (int i = 0; i < particles; i++) {
+            double r = Math.sqrt(innerRadius * innerRadius
+                + random.nextDouble() * (outerRadius * outerRadius - innerRadius * innerRadius));
+            double height = random.nextGaussian() * thickness;
+            double heightPhase = random.nextDouble() * TWO_PI;
+            ring.orbitRadius[i] = (float) r;
+            ring.meanMotion[i] = (float) Math.sqrt(mu / (r * r * r));
+            ring.phase[i] = (float) (random.nextDouble() * TWO_PI);
+            ring.heightSin[i] = (float) (height * Math.cos(heightPhase));
+            ring.heightCos[i] = (float) (height * Math.sin(heightPhase));
+        }
+        ring.updateOffsets(0, particles, 0);
+        return ring;
+    }
+
+    /**
+     * Advance every particle along its orbit. Large rings are split into
+     * batches on the common fork-join pool.
+     */
+    public void advance(double deltaTime) {
+        if (count < PARALLEL_PARTICLES) {
+            updateOffsets(0, count, deltaTime);
+            return;
+        }
+        int batches = (count + BATCH - 1) / BATCH;
+        IntStream.range(0, batches).parallel().forEach(batch ->
+            updateOffsets(batch * BATCH, Math.min(count, (batch + 1) * BATCH), deltaTime));
+    }
+
+    private void updateOffsets(int from, int to, double deltaTime) {
+        for (int i = from; i < to; i++) {
+            double angle = phase[i] + meanMotion[i] * deltaTime;
+            // Keep the stored angle small so float precision does not decay with time
+            angle -= TWO_PI * Math.floor(angle / TWO_PI);
+            phase[i] = (float) angle;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double x = orbitRadius[i] * cos;
+            double y = orbitRadius[i] * sin;
+            double z = heightSin[i] * sin + heightCos[i] * cos;
+            int base = i * 3;
+            offsets[base] = (float) x;
+            offsets[base + 1] = (float) (y * cosTilt - z * sinTilt);
+            offsets[base + 2] = (float) (y * sinTilt + z * cosTilt);
+        }
+    }
+
+    /**
+     * True for a ring hugging its parent (drawn scaled with the parent's
+     * display radius), false for a belt (drawn on the distance scale).
+     */
+    public boolean isRing() {
+        return outerRadius <= RING_RADII * parent.getRadius();
+    }
+
+    public CelestialBody getParent() { return parent; }
+    public int getCount() { return count; }
+    public double getInnerRadius() { return innerRadius; }
+    public double getOuterRadius() { return outerRadius; }
+    public float[] getColor() { return color; }
+
+    /**
+     * Live parent-relative positions, x, y, z per particle. Do not modify.
+     */
+    float[] getOffsets() { return offsets; }
+}
@@ -0,0 +1,92 @@
+package com.example.demo;
+
+/**
+ * A cubic periodic volume of edge L centred on the origin, and the mesh that
+ * solves its gravity.
+ *
+ * By default gravity in the box is TreePM (see ForceSplit): the long-range
+ * part is solved on a ParticleMesh with the box's true periodicity, and the
+ * short-range part is summed by the Barnes-Hut walk over the nearest image of
+ * each body. Together they give the Ewald sum over all periodic images at
+ * tree-plus-FFT cost.
+ */
+public class PeriodicBox {
+
+    // SECURITY: Smallest mesh that keeps the short-range cutoff inside half the box
+    static final int MIN_MESH = 16;
+
+    private final double size;
+    private final int meshSize;
+    private final ForceSplit split;
+
+    public PeriodicBox(double size, int meshSize) {
+        if (!(size > 0) || Double.isInfinite(size)) {
+            throw new IllegalArgumentException("Box size must be finite and > 0");
+        }
+        if (meshSize < MIN_MESH || meshSize > FFT3D.MAX_SIZE || Integer.bitCount(meshSize) != 1) {
+            throw new IllegalArgumentException("Mesh size must be a power of two in " + MIN_MESH + ".." + FFT3D.MAX_SIZE);
+        }
+        this.size = size;
+        this.meshSize = meshSize;
+        this.split = ForceSplit.forCell(size / meshSize);
+    }
+
+    /**
+     * Box from --box-size=METRES (default given) and --pm-mesh=N (default 64).
+     */
+    public static PeriodicBox fromArgs(String[] args, double defaultSize) {
+        double size = defaultSize;
+        int mesh = 64;
+        for (String arg : args) {
+            if (arg.startsWith("--box-size=")) {
+                size = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--pm-mesh=")) {
+                mesh = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return new PeriodicBox(size, mesh);
+    }
+
+    public double getSize() { return size; }
+    public int getMeshSize() { return meshSize; }
+
+    /**
+     * The TreePM split for this box's mesh.
+     */
+    public ForceSplit getForceSplit() { return split; }
+
+    /**
+     * Coordinate mapped back into [-L/2, L/2).
+     */
+    public double wrap(double x) {
+        return x - size * Math.floor(x / size + 0.5);
+    }
+
+    public Vector3D wrap(Vector3D p) {
+        double x = wrap(p.x), y = wrap(p.y), z = wrap(p.z);
+        return x == p.x && y == p.y && z == p.z ? p : Vector3D.obtain(x, y, z);
+    }
+
+    /**
+     * Separation along one axis to the nearest periodic image, in [-L/2, L/2].
+     */
+    public double minimumImage(double d) {
+        return d - size * Math.rint(d / size);
+    }
+
+    /**
+     * Squared distance from p to the nearest image of the box [min, max]
+     * (each side shorter than L).
+     */
+    double boundsDistanceSquared(Vector3D p, double minX, double minY, double minZ,
+                                 double maxX, double maxY, double maxZ) {
+        double dx = gap(p.x, minX, maxX);
+        double dy = gap(p.y, minY, maxY);
+        double dz = gap(p.z, minZ, maxZ);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private double gap(double p, double min, double max) {
+        return Math.max(0, Math.abs(minimumImage(p - (min + max) / 2)) - (max - min) / 2);
+    }
+}
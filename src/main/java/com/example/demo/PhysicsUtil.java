@@ -9,23 +9,23 @@ public class PhysicsUtil {
     }
 
     public static void updateAllBodies(List<CelestialBody> bodies, double deltaTime) {
-        // SAFETY: Null check for input list to prevent NullPointerException
-        if (bodies == null) {
-            return;
-        }
-        // SAFETY: Remove null elements from the list to prevent downstream NPEs
-        // (Alternatively, skip nulls in the loop below for efficiency with large lists)
-        SpatialPartitioningTree tree = new BarnesHutTree(bodies);
-        for (CelestialBody body : bodies) {
-            if (body == null) {
-                continue; // SAFETY: Skip null body to prevent NullPointerException
-            }
-            if (body.isStatic) {
-                continue;
-            }
-            Vector3D netForce = tree.calculateNetForce(body); // O(log n)
-            body.applyForce(netForce, deltaTime);             // O(1)
-            body.updatePosition(deltaTime);                   // O(1)
-        }
+        updateAllBodies(bodies, deltaTime, null);
     }
-}
\ No newline at end of file
+
+    public static void updateAllBodies(List<CelestialBody> bodies, double deltaTime, SimulationMetrics metrics) {
+        updateAllBodies(bodies, deltaTime, metrics, null);
+    }
+
+    /**
+     * Step all bodies, recording tree build and force walk timings when metrics is non-null.
+     * When collisions is non-null, overlaps are resolved first using the same tree, and
+     * bodies absorbed or deleted by a collision are removed from the list.
+     * Uses unsoftened gravity; configure an NBodyIntegrator for softening or regularization.
+     */
+    public static void updateAllBodies(List<CelestialBody> bodies, double deltaTime, SimulationMetrics metrics,
+                                       CollisionSystem collisions) {
+        NBodyIntegrator integrator = new NBodyIntegrator(metrics);
+        integrator.setCollisionSystem(collisions);
+        integrator.step(bodies, deltaTime);
+    }
+}
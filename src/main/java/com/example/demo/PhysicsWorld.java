@@ -0,0 +1,129 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Physics-only simulation state: bodies, integrator and clock, with no window,
+ * camera or renderer. Cheap enough to run hundreds side by side (see EnsembleRunner).
+ *
+ * SAFETY: Not thread-safe. Each world must be stepped by one thread at a time;
+ * separate worlds share nothing and can run concurrently.
+ */
+public class PhysicsWorld {
+
+    private final List<CelestialBody> bodies;
+    private final NBodyIntegrator integrator;
+    private long stepCount;
+    private double simulatedTime;
+    private boolean energyTracking;
+    private double initialEnergy = Double.NaN;
+
+    /**
+     * Take ownership of the given bodies (they are stepped in place).
+     */
+    public PhysicsWorld(List<CelestialBody> bodies, SimulationMetrics metrics) {
+        this.bodies = new ArrayList<>(bodies);
+        this.integrator = new NBodyIntegrator(metrics);
+    }
+
+    /**
+     * Deep copy of a body set, with planets' parent references remapped onto the copies.
+     */
+    public static List<CelestialBody> copyBodies(Collection<CelestialBody> template) {
+        List<CelestialBody> copies = new ArrayList<>(template.size());
+        Map<String, CelestialBody> byId = new HashMap<>();
+        for (CelestialBody body : template) {
+            CelestialBody copy = body.copy();
+            copies.add(copy);
+            byId.put(copy.getId(), copy);
+        }
+        for (CelestialBody copy : copies) {
+            if (copy instanceof Planet) {
+                Planet planet = (Planet) copy;
+                planet.setParentBody(byId.get(planet.getParentId()));
+            }
+        }
+        return copies;
+    }
+
+    public void step(double deltaTime) {
+        if (energyTracking && Double.isNaN(initialEnergy)) {
+            initialEnergy = totalEnergy();
+        }
+        integrator.step(bodies, deltaTime);
+        stepCount++;
+        simulatedTime += deltaTime;
+    }
+
+    /**
+     * Advance by duration in steps of deltaTime; the last step is shortened to land exactly.
+     */
+    public void advance(double duration, double deltaTime) {
+        // SECURITY: Reject inputs that would never terminate
+        if (!(deltaTime > 0) || !(duration >= 0) || Double.isInfinite(duration)) {
+            throw new IllegalArgumentException("Duration must be finite and >= 0, step > 0");
+        }
+        double end = simulatedTime + duration;
+        while (simulatedTime < end) {
+            step(Math.min(deltaTime, end - simulatedTime));
+        }
+    }
+
+    /**
+     * Kinetic plus pairwise potential energy (unsoftened). Exact O(n^2); meant for
+     * small systems and diagnostics.
+     */
+    public double totalEnergy() {
+        double energy = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            CelestialBody a = bodies.get(i);
+            Vector3D v = a.getVelocity();
+            energy += 0.5 * a.getMass() * v.dot(v);
+            for (int j = i + 1; j < bodies.size(); j++) {
+                CelestialBody b = bodies.get(j);
+                double dx = a.position.x - b.position.x;
+                double dy = a.position.y - b.position.y;
+                double dz = a.position.z - b.position.z;
+                energy -= CelestialBody.G * a.mass * b.mass / Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+        }
+        return energy;
+    }
+
+    /**
+     * Record the total energy before the first step so getRelativeEnergyDrift() can report
+     * it later. Off by default because totalEnergy() is O(n^2).
+     */
+    public void setEnergyTracking(boolean energyTracking) {
+        this.energyTracking = energyTracking;
+    }
+
+    /**
+     * (E - E0) / |E0| since the first step, or NaN when tracking was off.
+     */
+    public double getRelativeEnergyDrift() {
+        if (Double.isNaN(initialEnergy)) {
+            return Double.NaN;
+        }
+        return (totalEnergy() - initialEnergy) / Math.abs(initialEnergy);
+    }
+
+    public CelestialBody find(String id) {
+        for (CelestialBody body : bodies) {
+            if (body.getId().equals(id)) {
+                return body;
+            }
+        }
+        return null;
+    }
+
+    public List<CelestialBody> getBodies() { return Collections.unmodifiableList(bodies); }
+    public NBodyIntegrator getIntegrator() { return integrator; }
+    public long getStepCount() { return stepCount; }
+    public double getSimulatedTime() { return simulatedTime; }
+}
@@ -15,6 +15,14 @@ public class Planet extends CelestialBody {
         this.isGasGiant = isGasGiant;
     }
 
+    @Override
+    public Planet copy() {
+        Planet copy = new Planet(id, mass, radius, color.clone(), isStatic, position, velocity, parentId, isGasGiant);
+        copy.parentBody = parentBody;
+        copy.testParticle = testParticle;
+        return copy;
+    }
+
     public String getParentId() {
         return parentId;
     }
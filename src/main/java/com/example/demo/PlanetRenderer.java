@@ -17,22 +17,23 @@ public class PlanetRenderer implements BodyRenderer {
     }
 
     @Override
-    public void draw(CelestialBody body) {
+    public void draw(BodyView view) {
+        CelestialBody body = view.getBody();
         if (!(body instanceof Planet)) {
             System.err.println("PlanetRenderer received a non-Planet body.");
             return;
         }
         
         Planet planet = (Planet) body;
-        Vector3D pos = planet.getPosition();
+        Vector3D pos = view.getRenderPosition();
         float[] color = planet.getColor();
-        double radius = planet.getRadius();
+        double radius = view.getRenderRadius();
         
         // SECURITY: Bounds checking on color and radius values
         float r = Math.max(0.0f, Math.min(1.0f, color[0]));
         float g = Math.max(0.0f, Math.min(1.0f, color[1]));
         float b = Math.max(0.0f, Math.min(1.0f, color[2]));
-        double safeRadius = Math.max(100, radius); // Minimum radius for visibility
+        double safeRadius = Math.max(0.1, radius);
         
         // Save current matrix
         GL11.glPushMatrix();
@@ -57,16 +58,11 @@ public class PlanetRenderer implements BodyRenderer {
         // Draw sphere
         drawSphere(safeRadius, 12, 12);
         
-        // Draw rings for gas giants (simplified)
-        if (planet.isGasGiant() && planet.getId().equals("saturn")) {
-            drawRings(safeRadius, r, g, b);
-        }
-        
         // Restore matrix
         GL11.glPopMatrix();
         
         // Draw outline for visibility at any distance
-        drawOutline(planet.getPosition(), planet.getRadius());
+        drawOutline(pos, radius);
     }
     
     private void drawSphere(double radius, int slices, int stacks) {
@@ -119,31 +115,6 @@ public class PlanetRenderer implements BodyRenderer {
         GL11.glEnd();
     }
     
-    private void drawRings(double planetRadius, float r, float g, float b) {
-        // SECURITY: Simple ring system with bounds checking
-        double innerRadius = planetRadius * 1.5;
-        double outerRadius = planetRadius * 2.5;
-        int segments = 32;
-        
-        // Semi-transparent rings
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glColor4f(r * 0.7f, g * 0.7f, b * 0.7f, 0.3f);
-        
-        GL11.glBegin(GL11.GL_TRIANGLE_STRIP);
-        for (int i = 0; i <= segments; i++) {
-            double angle = 2.0 * Math.PI * i / segments;
-            double x = Math.cos(angle);
-            double z = Math.sin(angle);
-            
-            GL11.glNormal3d(0, 1, 0);
-            GL11.glVertex3d(innerRadius * x, 0, innerRadius * z);
-            GL11.glVertex3d(outerRadius * x, 0, outerRadius * z);
-        }
-        GL11.glEnd();
-        
-        GL11.glDisable(GL11.GL_BLEND);
-    }
-    
     /**
      * Draw a wireframe outline around the celestial body for visibility
      * SECURITY: Bounds checking on sphere parameters  
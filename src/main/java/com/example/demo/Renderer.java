@@ -7,17 +7,30 @@ import java.util.LinkedHashMap;
 
 public class Renderer {
     
+    // Grid spans 20x20 with 50 unit spacing (covers solar system)
+    static final int DEFAULT_GRID_SIZE = 20;
+    static final double DEFAULT_GRID_SPACING = 50;
+    
     private final GridRenderer gridRenderer;
+    private final RingRenderer ringRenderer;
+    private final double[] ringPlacement = new double[4];
     
     public Renderer() {
-        // Grid spans 20x20 with 50 unit spacing (covers solar system)
-        this.gridRenderer = new GridRenderer(20, 50);
+        this(DEFAULT_GRID_SIZE, DEFAULT_GRID_SPACING);
+    }
+
+    public Renderer(int gridSize, double gridSpacing) {
+        this.gridRenderer = new GridRenderer(gridSize, gridSpacing);
+        this.ringRenderer = new RingRenderer();
     }
 
-    public void render(List<CelestialBody> bodies) {
+    /**
+     * Render the frame's body views; positions are camera-relative (see FloatingOrigin).
+     */
+    public void render(List<BodyView> views, FloatingOrigin origin) {
         // Draw grid first (background)
         gridRenderer.setupGL();
-        gridRenderer.draw();
+        gridRenderer.draw(origin);
         
         // Use strategy pattern for rendering celestial bodies
         Map<Class<?>, BodyRenderer> renderers = Map.of(
@@ -27,9 +40,9 @@ public class Renderer {
         );
 
         // Batch by render type to minimize state changes
-        bodies.stream()
+        views.stream()
             .collect(Collectors.groupingBy(
-                body -> body.getClass(),
+                view -> view.getBody().getClass(),
                 LinkedHashMap::new,
                 Collectors.toList()
             ))
@@ -37,10 +50,26 @@ public class Renderer {
                 // Check if a renderer exists for this type before attempting to use it
                 if (renderers.containsKey(type)) {
                     renderers.get(type).setupGL();
-                    group.forEach(body ->
-                        renderers.get(type).draw(body)
+                    group.forEach(view ->
+                        renderers.get(type).draw(view)
                     );
                 }
             });
     }
+
+    /**
+     * Draw particle rings after the bodies, one batched point draw per ring.
+     */
+    public void renderRings(SceneView scene, List<ParticleRing> rings) {
+        if (rings.isEmpty()) {
+            return;
+        }
+        ringRenderer.setupGL();
+        for (ParticleRing ring : rings) {
+            if (scene.ringPlacement(ring, ringPlacement)) {
+                ringRenderer.draw(ring, ringPlacement);
+            }
+        }
+        ringRenderer.finishGL();
+    }
 }
\ No newline at end of file
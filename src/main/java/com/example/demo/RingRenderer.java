@@ -0,0 +1,65 @@
+package com.example.demo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Draws a ParticleRing as one batch of GL_POINTS from a client-side vertex
+ * array. The ring's placement (SceneView.ringPlacement) goes into the
+ * modelview matrix, so particle positions are uploaded exactly as stepped.
+ */
+public class RingRenderer {
+
+    // Direct buffer shared by all rings; grown on demand, never shrunk
+    private FloatBuffer vertices = allocate(1024);
+
+    public void setupGL() {
+        // Points are self-lit dust; no shading or materials
+        GL11.glDisable(GL11.GL_LIGHTING);
+        GL11.glEnable(GL11.GL_BLEND);
+        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        GL11.glPointSize(1.5f);
+    }
+
+    public void draw(ParticleRing ring, double[] placement) {
+        int floats = ring.getCount() * 3;
+        if (vertices.capacity() < floats) {
+            vertices = allocate(floats);
+        }
+        vertices.clear();
+        vertices.put(ring.getOffsets(), 0, floats);
+        vertices.flip();
+
+        // SECURITY: Bounds checking on color values
+        float[] color = ring.getColor();
+        float r = Math.max(0.0f, Math.min(1.0f, color[0]));
+        float g = Math.max(0.0f, Math.min(1.0f, color[1]));
+        float b = Math.max(0.0f, Math.min(1.0f, color[2]));
+
+        GL11.glPushMatrix();
+        GL11.glTranslated(placement[0], placement[1], placement[2]);
+        GL11.glScaled(placement[3], placement[3], placement[3]);
+        GL11.glRotated(-90, 1, 0, 0); // Ecliptic (Z up) to display axes (Y up)
+        GL11.glColor4f(r, g, b, 0.7f);
+
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glVertexPointer(3, GL11.GL_FLOAT, 0, vertices);
+        GL11.glDrawArrays(GL11.GL_POINTS, 0, ring.getCount());
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+
+        GL11.glPopMatrix();
+    }
+
+    public void finishGL() {
+        GL11.glPointSize(1.0f);
+        GL11.glDisable(GL11.GL_BLEND);
+        GL11.glEnable(GL11.GL_LIGHTING);
+    }
+
+    private static FloatBuffer allocate(int floats) {
+        return ByteBuffer.allocateDirect(floats * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo;
+
+/**
+ * Streaming mean, variance, min and max (Welford), mergeable across threads
+ * (Chan et al. pairwise update). Constant memory regardless of sample count.
+ *
+ * SAFETY: Not thread-safe; give each thread its own instance and merge.
+ */
+public final class RunningStatistics {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        // SAFETY: One diverged member must not poison the whole aggregate
+        if (!Double.isFinite(value)) {
+            return;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(RunningStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() { return count; }
+    public double getMean() { return count > 0 ? mean : Double.NaN; }
+    public double getVariance() { return count > 1 ? m2 / (count - 1) : 0; }
+    public double getStandardDeviation() { return Math.sqrt(getVariance()); }
+    public double getMin() { return count > 0 ? min : Double.NaN; }
+    public double getMax() { return count > 0 ? max : Double.NaN; }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.6g sd=%.3g min=%.6g max=%.6g",
+            count, getMean(), getStandardDeviation(), getMin(), getMax());
+    }
+}
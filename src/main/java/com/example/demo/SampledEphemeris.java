@@ -0,0 +1,165 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ephemeris recorded by running the N-body integrator once ahead of time.
+ *
+ * Positions and velocities are stored at fixed sample times and interpolated
+ * with cubic Hermite splines, which match both at every sample; with samples
+ * a few hours apart the interpolation error is far below the integrator's own.
+ * Immutable after construction, so any number of threads may read it.
+ */
+public class SampledEphemeris implements Ephemeris {
+
+    // SECURITY: Bound recorded size (bodies x samples x 6 doubles)
+    private static final long MAX_VALUES = 50_000_000L;
+    static final int MAX_BODIES = 64;
+
+    private final String[] ids;
+    private final double[] masses;
+    private final double[] radii;
+    private final double sampleInterval;
+    private final int sampleCount;
+    // x, y, z, vx, vy, vz per body per sample: [(sample * bodies + body) * 6 + component]
+    private final double[] samples;
+
+    private SampledEphemeris(String[] ids, double[] masses, double[] radii, double sampleInterval,
+                             int sampleCount, double[] samples) {
+        this.ids = ids;
+        this.masses = masses;
+        this.radii = radii;
+        this.sampleInterval = sampleInterval;
+        this.sampleCount = sampleCount;
+        this.samples = samples;
+    }
+
+    /**
+     * Integrate copies of the given bodies for span seconds and record the
+     * heaviest MAX_BODIES of them (spacecraft and test particles excluded) every sampleInterval.
+     * The source bodies are not modified.
+     */
+    public static SampledEphemeris record(Collection<CelestialBody> bodies, double span,
+                                          double sampleInterval, double integrationStep) {
+        // SECURITY: Input validation on span and step sizes
+        if (!(span > 0) || !(sampleInterval > 0) || !(integrationStep > 0) || Double.isInfinite(span)) {
+            throw new IllegalArgumentException("Span, sample interval and step must be positive and finite");
+        }
+        List<CelestialBody> massive = new ArrayList<>();
+        for (CelestialBody body : bodies) {
+            if (!(body instanceof Spacecraft) && !body.isTestParticle()) {
+                massive.add(body);
+            }
+        }
+        PhysicsWorld world = new PhysicsWorld(PhysicsWorld.copyBodies(massive), null);
+        List<CelestialBody> recorded = new ArrayList<>(world.getBodies());
+        recorded.sort(Comparator.comparingDouble(CelestialBody::getMass).reversed());
+        if (recorded.size() > MAX_BODIES) {
+            recorded = new ArrayList<>(recorded.subList(0, MAX_BODIES));
+        }
+
+        int count = recorded.size();
+        int sampleCount = (int) Math.ceil(span / sampleInterval) + 1;
+        if ((long) sampleCount * count * 6 > MAX_VALUES) {
+            throw new IllegalArgumentException("Ephemeris too large; use a longer sample interval or shorter span");
+        }
+        String[] ids = new String[count];
+        double[] masses = new double[count];
+        double[] radii = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = recorded.get(i).getId();
+            masses[i] = recorded.get(i).getMass();
+            radii[i] = recorded.get(i).getRadius();
+        }
+
+        double[] samples = new double[sampleCount * count * 6];
+        // Integrator steps never straddle a sample
+        int substeps = (int) Math.ceil(sampleInterval / integrationStep);
+        for (int s = 0; s < sampleCount; s++) {
+            if (s > 0) {
+                for (int k = 0; k < substeps; k++) {
+                    world.step(sampleInterval / substeps);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                CelestialBody body = recorded.get(i);
+                int base = (s * count + i) * 6;
+                samples[base] = body.getPosition().x;
+                samples[base + 1] = body.getPosition().y;
+                samples[base + 2] = body.getPosition().z;
+                samples[base + 3] = body.getVelocity().x;
+                samples[base + 4] = body.getVelocity().y;
+                samples[base + 5] = body.getVelocity().z;
+            }
+        }
+        return new SampledEphemeris(ids, masses, radii, sampleInterval, sampleCount, samples);
+    }
+
+    @Override
+    public int getBodyCount() { return ids.length; }
+
+    @Override
+    public String getId(int body) { return ids[body]; }
+
+    @Override
+    public double getMass(int body) { return masses[body]; }
+
+    @Override
+    public double getRadius(int body) { return radii[body]; }
+
+    @Override
+    public double getStartTime() { return 0; }
+
+    @Override
+    public double getEndTime() { return (sampleCount - 1) * sampleInterval; }
+
+    public double getSampleInterval() { return sampleInterval; }
+
+    @Override
+    public void position(int body, double time, double[] out, int offset) {
+        interpolate(body, time, out, offset, false);
+    }
+
+    @Override
+    public void state(int body, double time, double[] out, int offset) {
+        interpolate(body, time, out, offset, true);
+    }
+
+    private void interpolate(int body, double time, double[] out, int offset, boolean withVelocity) {
+        // SAFETY: Clamp to the recorded span instead of extrapolating
+        double clamped = Math.max(0, Math.min(getEndTime(), time));
+        int segment = Math.min(sampleCount - 2, (int) (clamped / sampleInterval));
+        if (segment < 0) {
+            // Single sample: the body is frozen
+            System.arraycopy(samples, body * 6, out, offset, withVelocity ? 6 : 3);
+            return;
+        }
+        double h = sampleInterval;
+        double s = (clamped - segment * h) / h;
+        double s2 = s * s;
+        double s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = s3 - 2 * s2 + s;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = s3 - s2;
+        int a = (segment * ids.length + body) * 6;
+        int b = a + ids.length * 6;
+        for (int k = 0; k < 3; k++) {
+            out[offset + k] = h00 * samples[a + k] + h10 * h * samples[a + 3 + k]
+                + h01 * samples[b + k] + h11 * h * samples[b + 3 + k];
+        }
+        if (withVelocity) {
+            double d00 = 6 * s2 - 6 * s;
+            double d10 = 3 * s2 - 4 * s + 1;
+            double d01 = -6 * s2 + 6 * s;
+            double d11 = 3 * s2 - 2 * s;
+            for (int k = 0; k < 3; k++) {
+                out[offset + 3 + k] = (d00 * samples[a + k] + d01 * samples[b + k]) / h
+                    + d10 * samples[a + 3 + k] + d11 * samples[b + 3 + k];
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nested-frame integration of moons and satellites.
+ *
+ * A planet and every Planet whose parent chain leads to it form a group. At
+ * the top level only the group's barycentre moves, kicked by the mass-weighted
+ * external (tree minus intra-group) forces like any other body. The members
+ * are then advanced relative to that barycentre with a leapfrog sub-cycle short
+ * enough for the tightest orbit, under their mutual gravity plus the external
+ * tide frozen at the start of the step. Relative coordinates stay small, so a
+ * moon keeps full double precision and the main step no longer has to resolve it.
+ *
+ * SAFETY: Not thread-safe. Use from the physics thread only.
+ */
+public class SatelliteSubcycler {
+
+    // Leapfrog steps per orbital period of the tightest satellite
+    static final int STEPS_PER_ORBIT = 128;
+    // SAFETY: Caps the work per step for a satellite grazing its primary
+    static final int MAX_SUBSTEPS = 4096;
+    // SAFETY: Deeper parent chains are treated as malformed (or cyclic) and left alone
+    private static final int MAX_DEPTH = 8;
+
+    private final Set<CelestialBody> present = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long substeps;
+
+    static final class Group {
+        // Primary first, then its satellites
+        final List<CelestialBody> members = new ArrayList<>();
+        // Tree forces at the start of the step, index-aligned with members
+        Vector3D[] forces;
+
+        int indexOf(CelestialBody body) {
+            for (int i = 0; i < members.size(); i++) {
+                if (members.get(i) == body) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Group every dynamic planet orbiting another planet with its primary.
+     * Static bodies and test particles never join a group.
+     */
+    List<Group> findGroups(List<CelestialBody> bodies) {
+        present.clear();
+        for (CelestialBody body : bodies) {
+            if (body != null && !body.isStatic && !body.testParticle) {
+                present.add(body);
+            }
+        }
+        Map<CelestialBody, Group> byPrimary = new IdentityHashMap<>();
+        List<Group> groups = new ArrayList<>();
+        for (CelestialBody body : bodies) {
+            if (!(body instanceof Planet) || !present.contains(body)) {
+                continue;
+            }
+            CelestialBody primary = primaryOf((Planet) body);
+            if (primary == null || !present.contains(primary)) {
+                continue;
+            }
+            Group group = byPrimary.get(primary);
+            if (group == null) {
+                group = new Group();
+                group.members.add(primary);
+                byPrimary.put(primary, group);
+                groups.add(group);
+            }
+            group.members.add(body);
+        }
+        for (Group group : groups) {
+            group.forces = new Vector3D[group.members.size()];
+        }
+        present.clear();
+        return groups;
+    }
+
+    // Topmost planet in the body's parent chain, or null if the body orbits a star directly
+    private static CelestialBody primaryOf(Planet body) {
+        CelestialBody primary = body.getParentBody();
+        if (!(primary instanceof Planet) || primary == body) {
+            return null;
+        }
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            CelestialBody next = ((Planet) primary).getParentBody();
+            if (!(next instanceof Planet)) {
+                return primary;
+            }
+            if (next == body) {
+                return null; // Cycle
+            }
+            primary = next;
+        }
+        return null;
+    }
+
+    /**
+     * Advance one group by dt. Its forces must hold the tree forces on its
+     * members, evaluated at the start-of-step positions.
+     */
+    void advance(Group group, double dt, SofteningKernel softening, double softeningLength) {
+        List<CelestialBody> members = group.members;
+        int n = members.size();
+        double[] mass = new double[n];
+        double[] pos = new double[n * 3];
+        double[] vel = new double[n * 3];
+        double total = 0;
+        double[] centre = new double[6];
+        for (int j = 0; j < n; j++) {
+            CelestialBody body = members.get(j);
+            mass[j] = body.mass;
+            total += body.mass;
+            pos[j * 3] = body.position.x;
+            pos[j * 3 + 1] = body.position.y;
+            pos[j * 3 + 2] = body.position.z;
+            vel[j * 3] = body.velocity.x;
+            vel[j * 3 + 1] = body.velocity.y;
+            vel[j * 3 + 2] = body.velocity.z;
+            for (int k = 0; k < 3; k++) {
+                centre[k] += body.mass * pos[j * 3 + k];
+                centre[3 + k] += body.mass * vel[j * 3 + k];
+            }
+        }
+        for (int k = 0; k < 6; k++) {
+            centre[k] /= total;
+        }
+        // Switch to barycentric coordinates
+        for (int j = 0; j < n; j++) {
+            for (int k = 0; k < 3; k++) {
+                pos[j * 3 + k] -= centre[k];
+                vel[j * 3 + k] -= centre[3 + k];
+            }
+        }
+
+        // External acceleration: the tree force minus the group's own pull (which the
+        // tree evaluated from the same positions), then split into mean and tide
+        double[] tide = new double[n * 3];
+        mutualAccelerations(mass, pos, softening, softeningLength, tide);
+        double[] mean = new double[3];
+        for (int j = 0; j < n; j++) {
+            Vector3D force = group.forces[j] != null ? group.forces[j] : Vector3D.ZERO;
+            tide[j * 3] = force.x / mass[j] - tide[j * 3];
+            tide[j * 3 + 1] = force.y / mass[j] - tide[j * 3 + 1];
+            tide[j * 3 + 2] = force.z / mass[j] - tide[j * 3 + 2];
+            for (int k = 0; k < 3; k++) {
+                mean[k] += mass[j] * tide[j * 3 + k] / total;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            for (int k = 0; k < 3; k++) {
+                tide[j * 3 + k] -= mean[k];
+            }
+        }
+
+        // Top level: the barycentre gets the same kick-drift as a single body
+        for (int k = 0; k < 3; k++) {
+            centre[3 + k] += mean[k] * dt;
+            centre[k] += centre[3 + k] * dt;
+        }
+
+        // Sub-cycle the internal motion with kick-drift-kick leapfrog
+        int steps = substepsFor(mass, pos, dt);
+        double h = dt / steps;
+        double[] acc = new double[n * 3];
+        internalAccelerations(mass, pos, tide, softening, softeningLength, acc);
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < n * 3; i++) {
+                vel[i] += 0.5 * h * acc[i];
+                pos[i] += h * vel[i];
+            }
+            internalAccelerations(mass, pos, tide, softening, softeningLength, acc);
+            for (int i = 0; i < n * 3; i++) {
+                vel[i] += 0.5 * h * acc[i];
+            }
+        }
+        substeps += steps;
+
+        for (int j = 0; j < n; j++) {
+            CelestialBody body = members.get(j);
+            body.position = Vector3D.obtain(centre[0] + pos[j * 3], centre[1] + pos[j * 3 + 1], centre[2] + pos[j * 3 + 2]);
+            body.velocity = Vector3D.obtain(centre[3] + vel[j * 3], centre[4] + vel[j * 3 + 1], centre[5] + vel[j * 3 + 2]);
+        }
+    }
+
+    // Enough steps per orbit for the tightest member around the primary
+    private static int substepsFor(double[] mass, double[] pos, double dt) {
+        double shortest = Double.POSITIVE_INFINITY;
+        for (int j = 1; j < mass.length; j++) {
+            double dx = pos[j * 3] - pos[0];
+            double dy = pos[j * 3 + 1] - pos[1];
+            double dz = pos[j * 3 + 2] - pos[2];
+            double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            double period = 2 * Math.PI * Math.sqrt(r * r * r / (CelestialBody.G * (mass[0] + mass[j])));
+            shortest = Math.min(shortest, period);
+        }
+        double steps = Math.ceil(dt * STEPS_PER_ORBIT / shortest);
+        return (int) Math.max(1, Math.min(MAX_SUBSTEPS, steps));
+    }
+
+    private static void internalAccelerations(double[] mass, double[] pos, double[] tide,
+                                              SofteningKernel softening, double softeningLength, double[] acc) {
+        mutualAccelerations(mass, pos, softening, softeningLength, acc);
+        for (int i = 0; i < acc.length; i++) {
+            acc[i] += tide[i];
+        }
+    }
+
+    private static void mutualAccelerations(double[] mass, double[] pos, SofteningKernel softening,
+                                            double softeningLength, double[] acc) {
+        Arrays.fill(acc, 0);
+        int n = mass.length;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                double dx = pos[b * 3] - pos[a * 3];
+                double dy = pos[b * 3 + 1] - pos[a * 3 + 1];
+                double dz = pos[b * 3 + 2] - pos[a * 3 + 2];
+                double factor = CelestialBody.G * softening.forceFactor(Math.sqrt(dx * dx + dy * dy + dz * dz), softeningLength);
+                acc[a * 3] += mass[b] * factor * dx;
+                acc[a * 3 + 1] += mass[b] * factor * dy;
+                acc[a * 3 + 2] += mass[b] * factor * dz;
+                acc[b * 3] -= mass[a] * factor * dx;
+                acc[b * 3 + 1] -= mass[a] * factor * dy;
+                acc[b * 3 + 2] -= mass[a] * factor * dz;
+            }
+        }
+    }
+
+    /**
+     * Total leapfrog sub-steps taken so far (telemetry).
+     */
+    public long getSubsteps() { return substeps; }
+}
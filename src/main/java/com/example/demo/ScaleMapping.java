@@ -0,0 +1,20 @@
+package com.example.demo;
+
+/**
+ * Maps canonical physical state (SI metres) into absolute display units.
+ *
+ * Implementations must be pure functions of the body's current state so views
+ * can be computed lazily and cached per frame.
+ */
+public interface ScaleMapping {
+
+    /**
+     * Display-space position (Y up) of a physical position.
+     */
+    Vector3D toDisplay(Vector3D world);
+
+    /**
+     * Display-space radius, including any exaggeration needed for visibility.
+     */
+    double displayRadius(CelestialBody body);
+}
@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * View layer between the physical bodies and the renderers.
+ *
+ * Holds one long-lived BodyView per body and the per-frame inputs (scale mapping,
+ * floating origin) they are derived from. Starting a frame only bumps a counter;
+ * each view recomputes itself on first access.
+ *
+ * SAFETY: Used from the render thread only.
+ */
+public class SceneView {
+
+    private final Map<CelestialBody, BodyView> views = new IdentityHashMap<>();
+    private final List<BodyView> ordered = new ArrayList<>();
+    private ScaleMapping scaleMapping;
+    private FloatingOrigin origin;
+    private long frame;
+
+    public SceneView(ScaleMapping scaleMapping) {
+        setScaleMapping(scaleMapping);
+    }
+
+    /**
+     * Start a new frame for the given camera and body set. Views are created for
+     * new bodies and dropped for bodies that no longer exist.
+     */
+    public List<BodyView> beginFrame(Camera camera, Collection<CelestialBody> bodies) {
+        frame++;
+        origin = FloatingOrigin.forCamera(camera);
+
+        if (bodies.size() != ordered.size() || !allViewed(bodies)) {
+            Map<CelestialBody, BodyView> retained = new IdentityHashMap<>();
+            ordered.clear();
+            for (CelestialBody body : bodies) {
+                BodyView view = views.get(body);
+                if (view == null) {
+                    view = new BodyView(body, this);
+                }
+                retained.put(body, view);
+                ordered.add(view);
+            }
+            views.clear();
+            views.putAll(retained);
+        }
+        return Collections.unmodifiableList(ordered);
+    }
+
+    /**
+     * This frame's placement of a particle ring: out = {x, y, z, scale} takes
+     * parent-relative metres, after the ecliptic-to-display axis swap, into
+     * camera-relative render space. Rings are scaled with the parent's
+     * exaggerated radius; belts use the mapping's distance scale at the parent.
+     *
+     * @return false if the parent is not part of the current frame
+     */
+    boolean ringPlacement(ParticleRing ring, double[] out) {
+        CelestialBody parent = ring.getParent();
+        BodyView view = views.get(parent);
+        if (view == null) {
+            return false;
+        }
+        Vector3D center = view.getRenderPosition();
+        double scale;
+        if (ring.isRing()) {
+            scale = view.getRenderRadius() / parent.getRadius();
+        } else {
+            Vector3D display = view.getDisplayPosition();
+            Vector3D edge = scaleMapping.toDisplay(parent.getPosition().add(
+                Vector3D.obtain(ring.getOuterRadius(), 0, 0)));
+            scale = edge.subtract(display).length() / ring.getOuterRadius() * origin.radiusScale(display);
+        }
+        out[0] = center.x;
+        out[1] = center.y;
+        out[2] = center.z;
+        out[3] = scale;
+        return true;
+    }
+
+    private boolean allViewed(Collection<CelestialBody> bodies) {
+        for (CelestialBody body : bodies) {
+            if (!views.containsKey(body)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void setScaleMapping(ScaleMapping scaleMapping) {
+        if (scaleMapping == null) {
+            throw new IllegalArgumentException("Scale mapping cannot be null");
+        }
+        this.scaleMapping = scaleMapping;
+        frame++; // Invalidate cached views
+    }
+
+    public ScaleMapping getScaleMapping() { return scaleMapping; }
+    public FloatingOrigin getOrigin() { return origin; }
+    long getFrame() { return frame; }
+}
@@ -1,118 +1,290 @@
 package com.example.demo;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 public class SimulationManager {
     private final Map<String, CelestialBody> bodies;
     private final Renderer renderer;
     private final Camera camera;
+    private final SceneView sceneView;
+    private final SimulationMetrics metrics;
+    private final NBodyIntegrator integrator;
+    private final SimulationSettings settings;
     private double timeScale;
     private boolean paused;
+    private long stepCount;
+    private double simulatedTime;
+    
+    // Remote control requests, applied on the physics thread at the start of update()
+    private final Queue<Runnable> pendingControls = new ConcurrentLinkedQueue<>();
+    private boolean telemetryEnabled;
+    private volatile TelemetrySnapshot telemetrySnapshot;
+    // Query index over the bodies when enabled, refreshed only after queries have read it
+    private boolean spatialIndexEnabled;
+    private boolean spatialIndexStale;
+    private volatile boolean spatialIndexWanted; // A query has read the index since the last refresh
+    private volatile SpatialIndex spatialIndex;
+    private SpatialIndex spareSpatialIndex; // The previously published refit, reused by the next one
+    private int spatialIndexVersion;
+    private long spatialIndexNextRefresh; // System.nanoTime() before which refreshes are held back
+    private int bodySetVersion; // Bumped whenever bodies are replaced or removed
+    // Display-space index for mouse picking (physics thread only): built by the first pick,
+    // then refitted in place each frame so later clicks only cast the ray
+    private SpatialIndex pickIndex;
+    private int pickIndexVersion;
+    private final SpatialQuery pickQuery = new SpatialQuery();
+    // Body the camera travels with (see updateCameraTarget), and its display position last frame
+    private CelestialBody followed;
+    private Vector3D followedDisplay;
+    // Planned departure burn waiting to be executed (see executePlan)
+    private Spacecraft plannedCraft;
+    private BurnPlan pendingBurn;
+    private double pendingBurnTime;
+    // Cached ephemeris of the major bodies, when --ephemeris is given
+    private Ephemeris ephemeris;
+    // Ring and belt particles, stepped and drawn alongside their parents
+    private final List<ParticleRing> rings = new ArrayList<>();
+    private boolean ringsEnabled = true;
+    private int ringParticles; // > 0 overrides the per-ring counts from the data file
+    // Deterministic mode: bodies are stepped in id order (see StateHash), cached between steps
+    private boolean deterministic;
+    private List<CelestialBody> orderedBodies;
+    // Off-thread energy/momentum drift checks, when --conservation is given
+    private ConservationMonitor conservation;
+    // Adaptive sub-stepping of each frame's interval, when --adaptive is given
+    private TimestepController timestep;
     
     // SECURITY: Simulation bounds prevent runaway calculations
-    private static final double MAX_TIME_SCALE = 1e6;  // Max 1 million times speed
-    private static final double MIN_TIME_SCALE = 0.1;  // Min 0.1 times speed
+    // SECURITY: Cap generated scenarios so a typo cannot exhaust the heap
+    private static final int MAX_GENERATED_BODIES = 200_000;
+    // Test particles cost one tree walk each and no tree nodes, so many more fit
+    private static final int MAX_GENERATED_TEST_PARTICLES = 2_000_000;
+    // Individual collision events are logged only for small systems; large runs use the metric
+    private static final int COLLISION_LOG_LIMIT = 100;
+    // Clicks within this many pixels of a body hit it, however small it is drawn
+    private static final double PICK_TOLERANCE_PIXELS = 4;
+    // Wait this multiple of a spatial index refresh's own cost before the next one
+    private static final long SPATIAL_INDEX_THROTTLE = 10;
+    // Galaxy merger model: two Plummer spheres of 5e10 solar masses with a 3 kpc scale radius
+    static final double GALAXY_MASS = 1e41;
+    static final double GALAXY_SCALE_RADIUS = 9.26e19;
+    // Periodic box default: one galaxy mass spread over a cube 40 scale radii (120 kpc) across
+    static final double PERIODIC_BOX_SIZE = 40 * GALAXY_SCALE_RADIUS;
+    // Chebyshev ephemeris layout: 8-day segments of degree 12 (Mercury gets 11 per orbit)
+    private static final double EPHEMERIS_SEGMENT = 8 * 86400.0;
+    private static final int EPHEMERIS_DEGREE = 12;
     
     public SimulationManager() {
+        this(new SimulationSettings());
+    }
+
+    /**
+     * Manager wired from launch settings (see SimulationSettings.load). The
+     * process-wide vector pool size is left to SimulationSettings.applyToProcess.
+     */
+    public SimulationManager(SimulationSettings settings) {
+        this.settings = settings;
         this.bodies = new HashMap<>();
-        this.renderer = new Renderer();
+        this.renderer = new Renderer(settings.getGridSize(), settings.getGridSpacing());
         this.camera = Camera.createDefault();
+        camera.setClipPlanes(settings.getNearPlane(), settings.getFarPlane());
+        this.sceneView = new SceneView(new LinearScaleMapping());
+        this.metrics = new SimulationMetrics();
+        this.integrator = new NBodyIntegrator(metrics);
+        integrator.setOpeningAngle(settings.getTheta());
+        setCollisionSystem(new CollisionSystem(CollisionResponse.MERGE, 0.5));
         this.timeScale = 86400.0; // Start at 1 day per second
         this.paused = false;
     }
     
+    /**
+     * Apply command-line options and load the selected scenario:
+     * --collisions=merge|bounce|delete|off, --restitution=E,
+     * --softening=none|plummer|spline, --softening-length=M, --regularize,
+     * --accretion-disk=N [--test-particles], --galaxy-merger=N or
+     * --periodic-box=N [--box-size=M] [--pm-mesh=64] [--seed=S]
+     * (otherwise the solar system, with --no-rings or --ring-particles=N),
+     * --deterministic (bit-reproducible stepping), --conservation=K and
+     * ConservationMonitor's threshold options, --adaptive and
+     * TimestepController's sub-step options,
+     * --ephemeris=CACHE_FILE [--ephemeris-days=D] (drive the stars and planets
+     * from a Chebyshev ephemeris), --plan-target=ID [--plan-craft=ID] plus
+     * TrajectoryPlanner's --plan-* options.
+     */
+    public void configure(String[] args) {
+        setCollisionSystem(CollisionSystem.fromArgs(args));
+        int diskParticles = 0;
+        int galaxyParticles = 0;
+        int boxParticles = 0;
+        boolean testParticles = false;
+        long seed = 42;
+        for (String arg : args) {
+            if (arg.startsWith("--accretion-disk=")) {
+                diskParticles = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--galaxy-merger=")) {
+                galaxyParticles = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--periodic-box=")) {
+                boxParticles = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+            } else if ("--test-particles".equals(arg)) {
+                testParticles = true;
+            } else if ("--deterministic".equals(arg)) {
+                deterministic = true;
+            } else if ("--no-rings".equals(arg)) {
+                ringsEnabled = false;
+            } else if (arg.startsWith("--ring-particles=")) {
+                ringParticles = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        if (diskParticles > 0) {
+            loadAccretionDisk(diskParticles, seed, testParticles);
+        } else if (galaxyParticles > 0) {
+            loadGalaxyMerger(galaxyParticles, seed);
+            // Collisionless stellar dynamics: soften below ~1/20 of the Plummer radius unless overridden
+            integrator.setSoftening(SofteningKernel.PLUMMER, 0.05 * GALAXY_SCALE_RADIUS);
+        } else if (boxParticles > 0) {
+            PeriodicBox box = PeriodicBox.fromArgs(args, PERIODIC_BOX_SIZE);
+            loadPeriodicBox(boxParticles, seed, box);
+            integrator.setPeriodicBox(box);
+            // Soften at 1/20 of the mean interparticle spacing unless overridden
+            integrator.setSoftening(SofteningKernel.PLUMMER, 0.05 * box.getSize() / StrictMath.cbrt(boxParticles));
+        } else {
+            loadSolarSystem();
+        }
+        integrator.applyArgs(args);
+        Path ephemerisCache = null;
+        double ephemerisDays = 365;
+        for (String arg : args) {
+            if (arg.startsWith("--ephemeris=")) {
+                ephemerisCache = Paths.get(arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--ephemeris-days=")) {
+                ephemerisDays = Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        if (ephemerisCache != null) {
+            loadEphemeris(ephemerisCache, ephemerisDays * 86400);
+        }
+        setConservationMonitor(ConservationMonitor.fromArgs(metrics, args));
+        setTimestepController(TimestepController.fromArgs(args));
+        for (String arg : args) {
+            if (arg.startsWith("--plan-target=")) {
+                planMission(arg.substring(arg.indexOf('=') + 1), args);
+            }
+        }
+    }
+
+    /**
+     * Fit (or load from the cache file) a Chebyshev ephemeris of the stars and
+     * planets over the given span, and let the integrator drive them from it.
+     * Only the remaining bodies are integrated until the ephemeris runs out.
+     */
+    public void loadEphemeris(Path cache, double span) {
+        List<CelestialBody> major = new ArrayList<>();
+        for (CelestialBody body : bodies.values()) {
+            if ((body instanceof Star || body instanceof Planet) && !body.isTestParticle()) {
+                major.add(body);
+            }
+        }
+        if (major.isEmpty() || major.size() > SampledEphemeris.MAX_BODIES) {
+            System.err.println("Ephemeris skipped: needs 1.." + SampledEphemeris.MAX_BODIES
+                + " stars and planets, scenario has " + major.size());
+            return;
+        }
+        try {
+            ephemeris = ChebyshevEphemeris.loadOrFit(cache, major, span, EPHEMERIS_SEGMENT, EPHEMERIS_DEGREE, 3600.0);
+            // Fitted from the current state, so ephemeris time 0 is now
+            integrator.setEphemeris(ephemeris, 0);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ephemeris skipped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Plan a transfer for a spacecraft (--plan-craft, else the first one) to the
+     * target against a freshly recorded ephemeris, then schedule its burn.
+     */
+    private void planMission(String targetId, String[] args) {
+        String craftId = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--plan-craft=")) {
+                craftId = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("--plan-threads=")) {
+                threads = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        Spacecraft craft = null;
+        for (CelestialBody body : bodies.values()) {
+            if (body instanceof Spacecraft && (craftId == null || body.getId().equals(craftId))) {
+                craft = (Spacecraft) body;
+                break;
+            }
+        }
+        if (craft == null) {
+            System.err.println("Mission planning skipped: no spacecraft" + (craftId != null ? " " + craftId : ""));
+            return;
+        }
+
+        long start = System.nanoTime();
+        try (TrajectoryPlanner planner = new TrajectoryPlanner(threads)) {
+            planner.applyArgs(args);
+            // Ephemeris covers the whole search: every departure plus the longest flight
+            double span = planner.getDepartureWindow() + planner.getFlightTime();
+            Ephemeris planning = ephemeris != null ? ephemeris
+                : SampledEphemeris.record(bodies.values(), span, 6 * 3600.0, 3600.0);
+            BurnPlan plan = planner.plan(planning, craft, targetId);
+            System.out.printf("Planned in %.1fs: %s%n", (System.nanoTime() - start) / 1e9, plan);
+            if (plan.getDeltaV().length() > craft.getAvailableDeltaV()) {
+                System.err.printf("Warning: %s has only %.1f m/s of fuel; the burn will be cut short%n",
+                    craft.getId(), craft.getAvailableDeltaV());
+            }
+            executePlan(craft, plan);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Mission planning failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fire the plan's departure burn through Spacecraft.applyThrust once the
+     * simulated clock reaches it (plan times count from now). The coast before
+     * departure is not corrected, so a late departure from close to a planet
+     * can drift from the plan; re-plan nearer the time in that case.
+     */
+    public void executePlan(Spacecraft craft, BurnPlan plan) {
+        this.plannedCraft = craft;
+        this.pendingBurn = plan;
+        this.pendingBurnTime = simulatedTime + plan.getDepartureTime();
+    }
+    
     public void loadSolarSystem() {
         try {
             // SECURITY: Use absolute path validation
             String resourcePath = "solar_system.json";
-            Map<String, CelestialBody> loadedBodies = DataLoader.loadFromJson(
-                getClass().getClassLoader().getResource(resourcePath).getPath()
-            );
+            String path = getClass().getClassLoader().getResource(resourcePath).getPath();
+            Map<String, CelestialBody> loadedBodies = DataLoader.loadFromJson(path);
             
-            // Scale astronomical distances to fit within grid plane (±400 units)
+            // Physics runs on the real SI data; SceneView derives display state per frame
             bodies.clear();
-            
-            // Grid positioning for planets
-            double[] gridDistances = {0, 60, 100, 150, 200, 300, 400}; 
-            String[] planetIds = {"sun", "mercury", "venus", "earth", "mars", "jupiter", "saturn"};
-            
-            // Scale each body's position and size to fit grid
-            for (Map.Entry<String, CelestialBody> entry : loadedBodies.entrySet()) {
-                CelestialBody body = entry.getValue();
-                
-                // Find matching distance for this body
-                double scaledDistance = 0;
-                for (int i = 0; i < planetIds.length; i++) {
-                    if (body.getId().equals(planetIds[i])) {
-                        scaledDistance = gridDistances[i];
-                        break;
-                    }
-                }
-                
-                // Create position on grid plane (Y=0)
-                Vector3D scaledPos;
-                if (scaledDistance == 0) {
-                    scaledPos = Vector3D.ZERO; // Sun at center
-                } else {
-                    scaledPos = Vector3D.obtain(scaledDistance, 0, 0); // Line up on X-axis
-                }
-                
-                // Scale radius for visibility while keeping proportions
-                double scaledRadius;
-                if (body instanceof Star) {
-                    scaledRadius = 25; // Sun size for visibility
-                } else {
-                    // Scale planet radii relative to original proportions
-                    scaledRadius = Math.max(body.getRadius() * 5e-7, 1.5); // Minimum 1.5 units
-                }
-                
-                // Create new scaled body
-                CelestialBody scaledBody;
-                if (body instanceof Star) {
-                    Star star = (Star) body;
-                    scaledBody = new Star(star.getId(), star.getMass(), scaledRadius,
-                        star.getColor(), star.isStatic(), scaledPos, Vector3D.ZERO, star.getLuminosity());
-                } else if (body instanceof Planet) {
-                    Planet planet = (Planet) body;
-                    scaledBody = new Planet(planet.getId(), planet.getMass(), scaledRadius,
-                        planet.getColor(), planet.isStatic(), scaledPos, Vector3D.ZERO,
-                        planet.getParentId(), planet.isGasGiant());
-                } else if (body instanceof Spacecraft) {
-                    Spacecraft craft = (Spacecraft) body;
-                    scaledBody = new Spacecraft(craft.getId(), craft.getMass(), scaledRadius,
-                        craft.getColor(), craft.isStatic(), scaledPos, Vector3D.ZERO,
-                        craft.getThrustPower(), craft.getFuel());
-                } else {
-                    scaledBody = body;
-                }
-                
-                bodies.put(entry.getKey(), scaledBody);
+            bodySetVersion++;
+            orderedBodies = null;
+            bodies.putAll(loadedBodies);
+            rings.clear();
+            if (ringsEnabled) {
+                rings.addAll(DataLoader.loadRingsFromJson(path, bodies, ringParticles));
             }
             
-            // Set up parent relationships
-            for (CelestialBody body : bodies.values()) {
-                if (body instanceof Planet) {
-                    Planet planet = (Planet) body;
-                    CelestialBody parent = bodies.get(planet.getParentId());
-                    if (parent != null) {
-                        planet.setParentBody(parent);
-                    }
-                }
-            }
-            
-            System.out.println("Loaded " + bodies.size() + " celestial bodies (scaled for grid plane)");
+            System.out.println("Loaded " + bodies.size() + " celestial bodies (SI units) and " + rings.size() + " particle rings");
             bodies.forEach((id, body) -> 
                 System.out.println("  - " + id + " at (" + body.getPosition().x + ", " + body.getPosition().y + ", " + body.getPosition().z + ") radius: " + body.getRadius())
             );
             
-            // Debug: Verify scaling worked
-            CelestialBody earth = bodies.get("earth");
-            if (earth != null) {
-                System.out.println("DEBUG: Earth position after scaling: " + earth.getPosition().x + ", " + earth.getPosition().y + ", " + earth.getPosition().z);
-                System.out.println("DEBUG: Earth radius after scaling: " + earth.getRadius());
-            }
-            
         } catch (Exception e) {
             System.err.println("Failed to load solar system data: " + e.getMessage());
             e.printStackTrace();
@@ -122,85 +294,483 @@ public class SimulationManager {
     }
     
     private void createMinimalSystem() {
-        // SECURITY: Validated minimal system with proper positioning for visibility
+        // SECURITY: Validated minimal system with real masses, radii and circular orbits
         bodies.clear();
+        bodySetVersion++;
+        orderedBodies = null;
         
-        // Sun at center - large and bright (2x larger as requested)
-        Star sun = new Star("sun", 1.989e30, 100, 
+        Star sun = new Star("sun", 1.989e30, 6.96e8, 
             new float[]{1.0f, 0.9f, 0.2f}, true,  // Bright yellow
             Vector3D.ZERO, Vector3D.ZERO, 3.828e26);
         bodies.put("sun", sun);
         
-        // Mercury - closest to sun (3.5% of Sun's diameter)
-        Planet mercury = new Planet("mercury", 3.301e23, 3.5,
-            new float[]{0.7f, 0.7f, 0.7f}, false,  // Gray
-            Vector3D.obtain(120, 0, 0), Vector3D.ZERO,
-            "sun", false);
-        mercury.setParentBody(sun);
-        bodies.put("mercury", mercury);
-        
-        // Venus - second planet (8.7% of Sun's diameter)
-        Planet venus = new Planet("venus", 4.867e24, 8.7,
-            new float[]{1.0f, 0.8f, 0.4f}, false,  // Yellow-orange
-            Vector3D.obtain(180, 0, 0), Vector3D.ZERO,
-            "sun", false);
-        venus.setParentBody(sun);
-        bodies.put("venus", venus);
-        
-        // Earth - third planet (9.2% of Sun's diameter)
-        Planet earth = new Planet("earth", 5.972e24, 9.2,
-            new float[]{0.2f, 0.6f, 1.0f}, false,  // Blue
-            Vector3D.obtain(250, 0, 0), Vector3D.ZERO,
-            "sun", false);
-        earth.setParentBody(sun);
-        bodies.put("earth", earth);
-        
-        // Mars - fourth planet (4.9% of Sun's diameter)
-        Planet mars = new Planet("mars", 6.39e23, 4.9,
-            new float[]{1.0f, 0.4f, 0.2f}, false,  // Red
-            Vector3D.obtain(320, 0, 0), Vector3D.ZERO,
-            "sun", false);
-        mars.setParentBody(sun);
-        bodies.put("mars", mars);
+        addCircularPlanet(sun, "mercury", 3.301e23, 2.44e6, 5.79e10,
+            new float[]{0.7f, 0.7f, 0.7f}, false);  // Gray
+        addCircularPlanet(sun, "venus", 4.867e24, 6.052e6, 1.082e11,
+            new float[]{1.0f, 0.8f, 0.4f}, false);  // Yellow-orange
+        addCircularPlanet(sun, "earth", 5.972e24, 6.371e6, 1.496e11,
+            new float[]{0.2f, 0.6f, 1.0f}, false);  // Blue
+        addCircularMoon((Planet) bodies.get("earth"), "moon", 7.342e22, 1.7374e6, 3.844e8,
+            new float[]{0.8f, 0.8f, 0.78f});        // Light gray
+        addCircularPlanet(sun, "mars", 6.39e23, 3.39e6, 2.279e11,
+            new float[]{1.0f, 0.4f, 0.2f}, false);  // Red
+        addCircularPlanet(sun, "jupiter", 1.898e27, 6.9911e7, 7.785e11,
+            new float[]{0.8f, 0.6f, 0.3f}, true);   // Orange-brown gas giant
+        addCircularPlanet(sun, "saturn", 5.683e26, 5.8232e7, 1.432e12,
+            new float[]{0.9f, 0.8f, 0.6f}, true);   // Pale yellow gas giant (will show rings)
+        rings.clear();
+        if (ringsEnabled) {
+            // Same rings as solar_system.json: C ring to the edge of the A ring
+            rings.add(ParticleRing.generate(bodies.get("saturn"), ringParticles > 0 ? ringParticles : 50_000,
+                7.45e7, 1.368e8, 1.0e4, Math.toRadians(26.7), new float[]{0.85f, 0.78f, 0.62f}, 1));
+        }
         
-        // Jupiter - large gas giant (10.0% of Sun's diameter)
-        Planet jupiter = new Planet("jupiter", 1.898e27, 10.0,
-            new float[]{0.8f, 0.6f, 0.3f}, false,  // Orange-brown
-            Vector3D.obtain(420, 0, 0), Vector3D.ZERO,
-            "sun", true);  // Gas giant
-        jupiter.setParentBody(sun);
-        bodies.put("jupiter", jupiter);
+        System.out.println("Created complete solar system lineup - Sun to Saturn");
+    }
+    
+    private void addCircularPlanet(Star sun, String id, double mass, double radius, double orbitRadius,
+                                   float[] color, boolean gasGiant) {
+        double orbitalSpeed = Math.sqrt(CelestialBody.G * sun.getMass() / orbitRadius);
+        Planet planet = new Planet(id, mass, radius, color, false,
+            Vector3D.obtain(orbitRadius, 0, 0), Vector3D.obtain(0, orbitalSpeed, 0),
+            sun.getId(), gasGiant);
+        planet.setParentBody(sun);
+        bodies.put(id, planet);
+    }
+    
+    private void addCircularMoon(Planet planet, String id, double mass, double radius, double orbitRadius,
+                                 float[] color) {
+        double orbitalSpeed = Math.sqrt(CelestialBody.G * (planet.getMass() + mass) / orbitRadius);
+        Planet moon = new Planet(id, mass, radius, color, false,
+            planet.getPosition().add(Vector3D.obtain(orbitRadius, 0, 0)),
+            planet.getVelocity().add(Vector3D.obtain(0, orbitalSpeed, 0)),
+            planet.getId(), false);
+        moon.setParentBody(planet);
+        bodies.put(id, moon);
+    }
+    
+    /**
+     * Replace the bodies with a protostar and a thin, dynamically cold disk of
+     * planetesimals on near-circular orbits between 0.5 and 1.5 AU.
+     *
+     * Radii are inflated 300x over rocky density so that accretion is visible within
+     * a few simulated years; masses (and therefore gravity) are unchanged.
+     */
+    public void loadAccretionDisk(int particles, long seed) {
+        loadAccretionDisk(particles, seed, false);
+    }
+
+    /**
+     * As above; with testParticles the planetesimals only feel the protostar
+     * (a collisionless debris disk), which allows far larger particle counts.
+     */
+    public void loadAccretionDisk(int particles, long seed, boolean testParticles) {
+        // SECURITY: Bounds checking on generated body count
+        int limit = testParticles ? MAX_GENERATED_TEST_PARTICLES : MAX_GENERATED_BODIES;
+        if (particles <= 0 || particles > limit) {
+            throw new IllegalArgumentException("Particle count must be in 1.." + limit);
+        }
+        final double au = 1.496e11;
+        final double density = 2000.0;   // kg/m^3, rocky
+        final double radiusInflation = 300.0;
+        Random random = new Random(seed);
+        bodies.clear();
+        bodySetVersion++;
+        orderedBodies = null;
+        rings.clear();
         
-        // Saturn - with rings (8.3% of Sun's diameter)
-        Planet saturn = new Planet("saturn", 5.683e26, 8.3,
-            new float[]{0.9f, 0.8f, 0.6f}, false,  // Pale yellow
-            Vector3D.obtain(520, 0, 0), Vector3D.ZERO,
-            "sun", true);  // Gas giant (will show rings)
-        saturn.setParentBody(sun);
-        bodies.put("saturn", saturn);
+        Star star = new Star("sun", 1.989e30, 6.96e8,
+            new float[]{1.0f, 0.9f, 0.2f}, true, Vector3D.ZERO, Vector3D.ZERO, 3.828e26);
+        bodies.put(star.getId(), star);
         
-        System.out.println("Created complete solar system lineup - Sun to Saturn");
+        for (int i = 0; i < particles; i++) {
+            // Uniform in area between the inner and outer edge
+            double inner = 0.5 * au;
+            double outer = 1.5 * au;
+            double r = Math.sqrt(inner * inner + random.nextDouble() * (outer * outer - inner * inner));
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double cos = StrictMath.cos(angle);
+            double sin = StrictMath.sin(angle);
+            double height = random.nextGaussian() * 0.003 * r;
+            
+            // Circular speed plus ~1% random velocity dispersion
+            double speed = Math.sqrt(CelestialBody.G * star.getMass() / r);
+            double dispersion = 0.01 * speed;
+            Vector3D position = Vector3D.obtain(r * cos, r * sin, height);
+            Vector3D velocity = Vector3D.obtain(
+                -speed * sin + random.nextGaussian() * dispersion,
+                speed * cos + random.nextGaussian() * dispersion,
+                random.nextGaussian() * dispersion * 0.5);
+            
+            double mass = StrictMath.pow(10, 21 + 2 * random.nextDouble()); // 1e21..1e23 kg
+            double radius = StrictMath.cbrt(3 * mass / (4 * Math.PI * density)) * radiusInflation;
+            float shade = 0.5f + 0.3f * random.nextFloat();
+            String id = String.format("p%06d", i);
+            Planet planetesimal = new Planet(id, mass, radius, new float[]{shade, shade * 0.85f, shade * 0.7f},
+                false, position, velocity, star.getId(), false);
+            planetesimal.setParentBody(star);
+            planetesimal.setTestParticle(testParticles);
+            bodies.put(id, planetesimal);
+        }
+        System.out.println("Created accretion disk with " + particles + (testParticles ? " test-particle" : "")
+            + " planetesimals (seed " + seed + ")");
+    }
+    
+    /**
+     * Replace the bodies with two equal Plummer-sphere galaxies falling toward
+     * each other on a parabolic orbit, 20 scale radii apart with an impact
+     * parameter of 2 scale radii. Each particle is a star of mass
+     * GALAXY_MASS / (particles / 2); positions and velocities follow the
+     * Aarseth, Henon and Wielen (1974) sampling of the Plummer distribution.
+     *
+     * The dynamical time is sqrt(a^3 / GM), about 3.4e14 s, so useful time
+     * steps are of order 1e12 s.
+     */
+    public void loadGalaxyMerger(int particles, long seed) {
+        // SECURITY: Bounds checking on generated body count
+        if (particles < 2 || particles > MAX_GENERATED_BODIES) {
+            throw new IllegalArgumentException("Particle count must be in 2.." + MAX_GENERATED_BODIES);
+        }
+        final double a = GALAXY_SCALE_RADIUS;
+        final double separation = 20 * a;
+        final double impact = 2 * a;
+        Random random = new Random(seed);
+        bodies.clear();
+        bodySetVersion++;
+        orderedBodies = null;
+        rings.clear();
+
+        // Parabolic relative speed at the initial separation
+        double approach = Math.sqrt(2 * CelestialBody.G * 2 * GALAXY_MASS / separation);
+        int perGalaxy = particles / 2;
+        for (int galaxy = 0; galaxy < 2; galaxy++) {
+            int count = galaxy == 0 ? perGalaxy : particles - perGalaxy;
+            double sign = galaxy == 0 ? -1 : 1;
+            Vector3D offset = Vector3D.obtain(sign * separation / 2, sign * impact / 2, 0);
+            Vector3D drift = Vector3D.obtain(-sign * approach / 2, 0, 0);
+            float[] color = galaxy == 0 ? new float[]{0.6f, 0.7f, 1.0f} : new float[]{1.0f, 0.8f, 0.5f};
+            double mass = GALAXY_MASS / count;
+            double escapeScale = Math.sqrt(2 * CelestialBody.G * GALAXY_MASS / a);
+
+            for (int i = 0; i < count; i++) {
+                double r;
+                do {
+                    r = a / Math.sqrt(StrictMath.pow(random.nextDouble(), -2.0 / 3.0) - 1);
+                } while (!(r < 20 * a)); // SAFETY: Drop the far tail (and the u = 0 singularity)
+
+                // Speed as a fraction q of the local escape speed, q^2 (1 - q^2)^3.5 by rejection
+                double q;
+                do {
+                    q = random.nextDouble();
+                } while (0.1 * random.nextDouble() >= q * q * StrictMath.pow(1 - q * q, 3.5));
+                double speed = q * escapeScale * StrictMath.pow(1 + r * r / (a * a), -0.25);
+
+                Vector3D position = offset.add(isotropic(random).scale(r));
+                Vector3D velocity = drift.add(isotropic(random).scale(speed));
+                String id = String.format("g%d-%06d", galaxy, i);
+                Star star = new Star(id, mass, 6.96e8, color.clone(), false, position, velocity, 0);
+                bodies.put(id, star);
+            }
+        }
+        System.out.println("Created galaxy merger with " + particles + " stars (seed " + seed + ")");
+    }
+
+    /**
+     * Cold, uniformly random particles filling the periodic box, total mass
+     * GALAXY_MASS. The Poisson noise of the initial positions grows into
+     * filaments and halos; with the default box the free-fall time is about
+     * 5e16 s, so useful steps are of order 1e15 s.
+     */
+    public void loadPeriodicBox(int particles, long seed, PeriodicBox box) {
+        // SECURITY: Bounds checking on generated body count
+        if (particles < 2 || particles > MAX_GENERATED_BODIES) {
+            throw new IllegalArgumentException("Particle count must be in 2.." + MAX_GENERATED_BODIES);
+        }
+        Random random = new Random(seed);
+        bodies.clear();
+        bodySetVersion++;
+        orderedBodies = null;
+        rings.clear();
+        double mass = GALAXY_MASS / particles;
+        float[] color = {0.8f, 0.85f, 1.0f};
+        for (int i = 0; i < particles; i++) {
+            Vector3D position = Vector3D.obtain(
+                box.wrap((random.nextDouble() - 0.5) * box.getSize()),
+                box.wrap((random.nextDouble() - 0.5) * box.getSize()),
+                box.wrap((random.nextDouble() - 0.5) * box.getSize()));
+            String id = String.format("p-%06d", i);
+            bodies.put(id, new Star(id, mass, 6.96e8, color.clone(), false, position, Vector3D.ZERO, 0));
+        }
+        System.out.printf("Created periodic box of %d particles, %.3g m across, %d^3 mesh (seed %d)%n",
+            particles, box.getSize(), box.getMeshSize(), seed);
+    }
+
+    private static Vector3D isotropic(Random random) {
+        double z = 2 * random.nextDouble() - 1;
+        double phi = 2 * Math.PI * random.nextDouble();
+        double planar = Math.sqrt(1 - z * z);
+        return Vector3D.obtain(planar * StrictMath.cos(phi), planar * StrictMath.sin(phi), z);
     }
     
     public void update(double deltaTime) {
-        if (paused) return;
+        applyPendingControls();
+        if (paused) {
+            refreshSpatialIndex();
+            updateCameraTarget();
+            return;
+        }
         
         // SECURITY: Bounds checking on time scale
-        double clampedTimeScale = Math.max(MIN_TIME_SCALE, 
-                                  Math.min(MAX_TIME_SCALE, timeScale));
+        double clampedTimeScale = Math.max(settings.getMinTimeScale(), 
+                                  Math.min(settings.getMaxTimeScale(), timeScale));
         double scaledDeltaTime = deltaTime * clampedTimeScale;
         
-        // Update physics (BarnesHutTree now handles small position differences properly)
-        List<CelestialBody> bodyList = new ArrayList<>(bodies.values());
-        PhysicsUtil.updateAllBodies(bodyList, scaledDeltaTime);
+        if (timestep != null) {
+            timestep.advance(scaledDeltaTime, this::stepPhysics);
+            metrics.recordSubsteps(timestep.getLastSubsteps(), timestep.getLastDroppedTime());
+        } else {
+            stepPhysics(scaledDeltaTime);
+        }
+        if (telemetryEnabled) {
+            publishTelemetry(new ArrayList<>(bodies.values())); // Once per frame, not per sub-step
+        }
+        refreshSpatialIndex();
+        if (pickIndex != null) {
+            pickIndex(); // Keep clicks down to the ray query
+        }
         
         // Update camera to follow interesting objects
         updateCameraTarget();
     }
     
+    private void stepPhysics(double scaledDeltaTime) {
+        // Update physics (BarnesHutTree now handles small position differences properly)
+        List<CelestialBody> bodyList = new ArrayList<>(deterministic ? orderedBodies() : bodies.values());
+        if (pendingBurn != null && simulatedTime + scaledDeltaTime > pendingBurnTime) {
+            fireBurn();
+        }
+        integrator.step(bodyList, scaledDeltaTime);
+        if (deterministic) {
+            orderedBodies = new ArrayList<>(bodyList); // Collisions only remove, so still in id order
+        }
+        if (bodyList.size() != bodies.size()) {
+            // Collisions absorbed or deleted bodies (identity-based set)
+            bodies.values().retainAll(new HashSet<>(bodyList));
+            bodySetVersion++;
+            rings.removeIf(ring -> !bodies.containsValue(ring.getParent()));
+        }
+        for (ParticleRing ring : rings) {
+            ring.advance(scaledDeltaTime);
+        }
+        stepCount++;
+        simulatedTime += scaledDeltaTime;
+        spatialIndexStale = true;
+        if (conservation != null) {
+            conservation.afterStep(stepCount, simulatedTime, bodyList,
+                integrator.getSoftening(), integrator.getSofteningLength());
+            if (conservation.takeStepReduction()) {
+                reduceStep();
+            }
+        }
+    }
+
+    private void reduceStep() {
+        if (timestep == null) {
+            timeScale = Math.max(settings.getMinTimeScale(), timeScale / 2);
+            System.out.printf("Conservation drift: time scale reduced to %.1f%n", timeScale);
+        } else if (timestep.reduceStep()) {
+            // The safe step caps the sub-steps, so a lower time scale would not shrink them
+            System.out.printf("Conservation drift: %.0f steps per orbit%n", timestep.getStepsPerOrbit());
+        } else {
+            System.out.println("Conservation drift: step already at its minimum");
+        }
+    }
+    
+    private List<CelestialBody> orderedBodies() {
+        if (orderedBodies == null || orderedBodies.size() != bodies.size()) {
+            orderedBodies = new ArrayList<>(bodies.values());
+            orderedBodies.sort(StateHash.BY_ID);
+        }
+        return orderedBodies;
+    }
+
+    private void fireBurn() {
+        Vector3D deltaV = pendingBurn.getDeltaV();
+        pendingBurn = null;
+        if (!bodies.containsValue(plannedCraft) || deltaV.length() == 0) {
+            return; // Absorbed in a collision meanwhile, or nothing to do
+        }
+        // Full thrust for as long as the burn needs: dv = F t / m
+        double burnTime = deltaV.length() * plannedCraft.getMass() / plannedCraft.getThrustPower();
+        Vector3D before = plannedCraft.getVelocity();
+        plannedCraft.applyThrust(deltaV, burnTime);
+        System.out.printf("%s burned %.1f of %.1f m/s (fuel left %.1f)%n", plannedCraft.getId(),
+            plannedCraft.getVelocity().subtract(before).length(), deltaV.length(), plannedCraft.getFuel());
+    }
+
+    private void publishTelemetry(List<CelestialBody> bodyList) {
+        telemetrySnapshot = TelemetrySnapshot.capture(stepCount, simulatedTime, paused, timeScale,
+            bodyList, telemetrySnapshot);
+    }
+    
+    private void applyPendingControls() {
+        Runnable control;
+        boolean applied = false;
+        while ((control = pendingControls.poll()) != null) {
+            control.run();
+            applied = true;
+        }
+        // Paused runs never step, so republish to expose the new pause/time-scale state
+        if (applied && telemetryEnabled) {
+            publishTelemetry(new ArrayList<>(bodies.values()));
+        }
+        spatialIndexStale |= applied;
+    }
+
+    // Throttled so that a steady stream of queries costs the physics thread at most
+    // 1 / SPATIAL_INDEX_THROTTLE of its time; with no queries the index is left alone
+    private void refreshSpatialIndex() {
+        if (!spatialIndexEnabled || !spatialIndexStale || !spatialIndexWanted) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (start - spatialIndexNextRefresh < 0) {
+            return;
+        }
+        SpatialIndex current = spatialIndex;
+        if (current == null || spatialIndexVersion != bodySetVersion || current.isDegraded()) {
+            spatialIndex = SpatialIndex.build(stepCount, new ArrayList<>(bodies.values()));
+            spatialIndexVersion = bodySetVersion;
+            spareSpatialIndex = null;
+        } else {
+            // Refit into the spare arrays, so queries on the published index are not held up
+            spatialIndex = current.refit(stepCount, spareSpatialIndex);
+            spareSpatialIndex = current;
+        }
+        spatialIndexStale = false;
+        spatialIndexWanted = false;
+        long end = System.nanoTime();
+        spatialIndexNextRefresh = end + SPATIAL_INDEX_THROTTLE * (end - start);
+    }
+    
+    /**
+     * Queue a control action from another thread (e.g. the telemetry server).
+     * It runs on the physics thread before the next step, so callers never race the physics.
+     */
+    public void submitControl(Runnable control) {
+        pendingControls.add(Objects.requireNonNull(control));
+    }
+    
+    /**
+     * Advance exactly one step of the given simulated seconds, even while paused.
+     * Must be called on the physics thread (use submitControl from elsewhere).
+     */
+    public void stepOnce(double simulatedSeconds) {
+        if (!isValidStep(simulatedSeconds)) {
+            throw new IllegalArgumentException("Step must be in (0, " + settings.getMaxTimeScale() + "] seconds");
+        }
+        stepPhysics(simulatedSeconds);
+    }
+    
+    /**
+     * Start publishing a TelemetrySnapshot after every frame.
+     */
+    public void enableTelemetry() {
+        submitControl(() -> {
+            telemetryEnabled = true;
+            publishTelemetry(new ArrayList<>(bodies.values()));
+        });
+    }
+    
+    public TelemetrySnapshot getTelemetrySnapshot() {
+        return telemetrySnapshot;
+    }
+
+    /**
+     * Start publishing a SpatialIndex of the bodies, for queries from any thread.
+     * It is refreshed between frames, only once a query has read the current one,
+     * and throttled to SPATIAL_INDEX_THROTTLE times the refresh's cost, so it
+     * may lag the physics by several frames.
+     */
+    public void enableSpatialIndex() {
+        submitControl(() -> {
+            spatialIndexEnabled = true;
+            spatialIndexStale = true;
+            spatialIndexWanted = true;
+        });
+    }
+
+    /**
+     * The latest published index, or null before enableSpatialIndex has taken effect.
+     * Calling this asks the physics thread for a fresher one.
+     */
+    public SpatialIndex getSpatialIndex() {
+        spatialIndexWanted = true;
+        return spatialIndex;
+    }
+    
+    /**
+     * The body under a cursor position (window pixels from the top left), or null.
+     * Tests the ray through the cursor against bodies as drawn, grown to at
+     * least PICK_TOLERANCE_PIXELS in radius, and returns the nearest hit.
+     */
+    public CelestialBody pickBody(double cursorX, double cursorY, int width, int height) {
+        // SECURITY: Ignore positions outside the viewport
+        if (width <= 0 || height <= 0 || !(cursorX >= 0 && cursorX <= width && cursorY >= 0 && cursorY <= height)) {
+            return null;
+        }
+        SpatialIndex index = pickIndex();
+        Vector3D origin = camera.getPosition();
+        Vector3D direction = camera.unproject(cursorX, cursorY, width, height);
+        int hit = index.raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z,
+            Double.POSITIVE_INFINITY, PICK_TOLERANCE_PIXELS * camera.pixelAngle(width, height), pickQuery);
+        return hit < 0 ? null : index.body(hit);
+    }
+
+    private SpatialIndex pickIndex() {
+        ScaleMapping mapping = sceneView.getScaleMapping();
+        if (pickIndex == null || pickIndex.getScaleMapping() != mapping || pickIndexVersion != bodySetVersion
+                || pickIndex.isDegraded()) {
+            pickIndex = SpatialIndex.build(stepCount, new ArrayList<>(bodies.values()), mapping);
+            pickIndexVersion = bodySetVersion;
+        } else if (pickIndex.getStep() != stepCount) {
+            pickIndex.refit(stepCount);
+        }
+        return pickIndex;
+    }
+
+    /**
+     * Make the camera travel with a body (null returns to the free camera).
+     * The camera turns to face it once; after that the user steers as usual.
+     */
+    public void follow(CelestialBody body) {
+        followed = body;
+        if (body == null) {
+            followedDisplay = null;
+            System.out.println("Camera: free");
+            return;
+        }
+        followedDisplay = sceneView.getScaleMapping().toDisplay(body.getPosition());
+        camera.lookAt(followedDisplay);
+        System.out.println("Camera: following " + body.getId());
+    }
+
+    public CelestialBody getFollowed() { return followed; }
+
+    // Carry the camera along with the followed body's display position
     private void updateCameraTarget() {
-        // Free camera mode - no automatic targeting needed
-        // Camera movement is now fully user controlled
+        if (followed == null) {
+            return;
+        }
+        if (bodies.get(followed.getId()) != followed) {
+            System.out.println("Camera: " + followed.getId() + " is gone, camera released");
+            followed = null;
+            followedDisplay = null;
+            return;
+        }
+        Vector3D display = sceneView.getScaleMapping().toDisplay(followed.getPosition());
+        camera.moveCamera(display.subtract(followedDisplay));
+        followedDisplay = display;
     }
     
     public void render(int width, int height) {
@@ -211,63 +781,46 @@ public class SimulationManager {
         // Enable depth testing for 3D
         org.lwjgl.opengl.GL11.glEnable(org.lwjgl.opengl.GL11.GL_DEPTH_TEST);
         
-        // Render all bodies with proper scaling
-        List<CelestialBody> renderBodies = bodies.values().stream()
-            .map(this::createRenderableBody)
-            .collect(Collectors.toList());
-        
-        // Debug: Print render info occasionally
-        if (System.currentTimeMillis() % 5000 < 100) { // Every 5 seconds
-            System.out.printf("Rendering %d bodies. Camera at: %.1f, %.1f, %.1f looking at: %.1f, %.1f, %.1f%n",
-                renderBodies.size(),
-                camera.getPosition().x, camera.getPosition().y, camera.getPosition().z,
-                camera.getTarget().x, camera.getTarget().y, camera.getTarget().z);
-            
-            // Print first few body positions
-            renderBodies.stream().limit(3).forEach(body -> {
-                Vector3D pos = body.getPosition();
-                System.out.printf("  %s at: %.1f, %.1f, %.1f (radius: %.1f)%n",
-                    body.getId(), pos.x, pos.y, pos.z, body.getRadius());
-            });
-        }
-            
-        renderer.render(renderBodies);
+        // Re-base everything on the camera for this frame; views compute lazily
+        List<BodyView> views = sceneView.beginFrame(camera, bodies.values());
+        renderer.render(views, sceneView.getOrigin());
+        renderer.renderRings(sceneView, rings);
     }
     
-    private CelestialBody createRenderableBody(CelestialBody original) {
-        // SECURITY: Create safe copies for rendering with proper scaling
-        Vector3D scaledPosition = original.getPosition(); // Direct position - no scaling needed
-        double scaledRadius = scaleRadiusForRendering(original.getRadius());
-        
-        // Create a display copy with scaled dimensions
-        if (original instanceof Star) {
-            Star star = (Star) original;
-            return new Star(star.getId(), star.getMass(), scaledRadius,
-                star.getColor(), star.isStatic(), scaledPosition,
-                original.getVelocity(), star.getLuminosity());
-        } else if (original instanceof Planet) {
-            Planet planet = (Planet) original;
-            return new Planet(planet.getId(), planet.getMass(), scaledRadius,
-                planet.getColor(), planet.isStatic(), scaledPosition,
-                original.getVelocity(), planet.getParentId(), planet.isGasGiant());
-        } else if (original instanceof Spacecraft) {
-            Spacecraft craft = (Spacecraft) original;
-            return new Spacecraft(craft.getId(), craft.getMass(), scaledRadius,
-                craft.getColor(), craft.isStatic(), scaledPosition,
-                original.getVelocity(), craft.getThrustPower(), craft.getFuel());
+    /**
+     * Render the current frame into a software rasterizer (no OpenGL context needed).
+     */
+    public void renderOffscreen(SoftwareRasterizer rasterizer) {
+        List<BodyView> views = sceneView.beginFrame(camera, bodies.values());
+        rasterizer.setGrid(settings.getGridSize(), settings.getGridSpacing());
+        rasterizer.render(camera, sceneView.getOrigin(), views);
+        double[] placement = new double[4];
+        for (ParticleRing ring : rings) {
+            if (sceneView.ringPlacement(ring, placement)) {
+                rasterizer.drawRing(ring, placement);
+            }
         }
-        
-        return original;
     }
     
-    private Vector3D scalePositionForRendering(Vector3D position) {
-        // No scaling needed - positions are already set for visibility
-        return position; // Keep original positions as they're already sized for rendering
+    /**
+     * Set how overlapping bodies are resolved; null disables collision handling.
+     */
+    public void setCollisionSystem(CollisionSystem collisionSystem) {
+        integrator.setCollisionSystem(collisionSystem);
+        if (collisionSystem != null) {
+            collisionSystem.setListener(event -> {
+                if (bodies.size() <= COLLISION_LOG_LIMIT) {
+                    System.out.printf("Collision at t=%.0fs: %s%n", simulatedTime, event);
+                }
+            });
+        }
     }
     
-    private double scaleRadiusForRendering(double radius) {
-        // No scaling needed - radii are already set for visibility
-        return radius; // Keep original radii as they're already sized for rendering
+    /**
+     * Swap how physical positions and radii are mapped to the screen (e.g. linear vs orrery).
+     */
+    public void setScaleMapping(ScaleMapping mapping) {
+        sceneView.setScaleMapping(mapping);
     }
     
     // Control methods
@@ -278,13 +831,35 @@ public class SimulationManager {
     
     public void adjustTimeScale(double factor) {
         double newScale = timeScale * factor;
-        if (newScale >= MIN_TIME_SCALE && newScale <= MAX_TIME_SCALE) {
+        if (isValidTimeScale(newScale)) {
             timeScale = newScale;
             System.out.printf("Time scale: %.1f (%.1f days/second)%n", 
                 timeScale, timeScale / 86400.0);
         }
     }
     
+    public void setTimeScale(double newScale) {
+        if (!isValidTimeScale(newScale)) {
+            throw new IllegalArgumentException("Time scale must be in [" + settings.getMinTimeScale() + ", "
+                + settings.getMaxTimeScale() + "]");
+        }
+        timeScale = newScale;
+    }
+    
+    // SECURITY: Reject out-of-range scales rather than silently clamping remote input
+    public boolean isValidTimeScale(double scale) {
+        return scale >= settings.getMinTimeScale() && scale <= settings.getMaxTimeScale();
+    }
+    
+    // SECURITY: Same upper bound as one second of wall time at maximum time scale
+    public boolean isValidStep(double simulatedSeconds) {
+        return simulatedSeconds > 0 && simulatedSeconds <= settings.getMaxTimeScale();
+    }
+    
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+    
     public void resetTimeScale() {
         timeScale = 86400.0; // 1 day per second
         System.out.println("Time scale reset to 1 day/second");
@@ -313,8 +888,52 @@ public class SimulationManager {
     }
     
     public Camera getCamera() { return camera; }
+    public SimulationSettings getSettings() { return settings; }
+    public SceneView getSceneView() { return sceneView; }
+    public SimulationMetrics getMetrics() { return metrics; }
+    public CollisionSystem getCollisionSystem() { return integrator.getCollisionSystem(); }
+    public NBodyIntegrator getIntegrator() { return integrator; }
     public double getTimeScale() { return timeScale; }
     public boolean isPaused() { return paused; }
+    public long getStepCount() { return stepCount; }
+    public double getSimulatedTime() { return simulatedTime; }
     
     public int getBodyCount() { return bodies.size(); }
+
+    /**
+     * Step bodies in id order rather than hash-map order, and have the integrator
+     * sum forces with compensation, so a run is reproducible bit for bit.
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+        this.orderedBodies = null;
+        integrator.setDeterministic(deterministic);
+    }
+
+    public boolean isDeterministic() { return deterministic; }
+
+    /**
+     * Replace the conservation monitor (null to stop monitoring); the old one is closed.
+     */
+    public void setConservationMonitor(ConservationMonitor monitor) {
+        if (conservation != null && conservation != monitor) {
+            conservation.close();
+        }
+        conservation = monitor;
+    }
+
+    public ConservationMonitor getConservationMonitor() { return conservation; }
+
+    /**
+     * Split each update's simulated interval into adaptive sub-steps (null for
+     * one step of wall time times the time scale).
+     */
+    public void setTimestepController(TimestepController controller) {
+        timestep = controller;
+        integrator.setTimestepController(controller);
+    }
+
+    public TimestepController getTimestepController() { return timestep; }
+
+    public List<ParticleRing> getRings() { return Collections.unmodifiableList(rings); }
 }
@@ -0,0 +1,194 @@
+package com.example.demo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead telemetry for the physics step and render loop.
+ *
+ * Hot-path methods only bump counters and histograms; nothing is formatted or
+ * allocated until a reader asks for a snapshot (HUD, exporter).
+ *
+ * SAFETY: Recording methods may be called from the physics thread while
+ * snapshot() runs on an exporter thread.
+ */
+public class SimulationMetrics {
+
+    private final Histogram treeBuildNanos = new Histogram();
+    private final Histogram forceWalkNanos = new Histogram();
+    private final Histogram interactionsPerBody = new Histogram();
+    private final Histogram frameNanos = new Histogram();
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder regularizedPairs = new LongAdder();
+    private final LongAdder treeRebuilds = new LongAdder();
+    private final LongAdder conservationAlerts = new LongAdder();
+    private final LongAdder substeps = new LongAdder();
+    private final DoubleAdder droppedSimSeconds = new DoubleAdder();
+
+    // Latest readings for the HUD; written by one thread, read by the render thread
+    private volatile long lastTreeBuildNanos;
+    private volatile long lastForceWalkNanos;
+    private volatile double smoothedFrameNanos;
+    // Latest relative drifts from the ConservationMonitor (NaN until sampled or when not measured)
+    private volatile double energyDrift = Double.NaN;
+    private volatile double momentumDrift = Double.NaN;
+    private volatile double angularMomentumDrift = Double.NaN;
+
+    // Runtime sampling state (only touched from snapshot())
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private volatile long physicsThreadId = -1;
+    private long lastSampleNanos = System.nanoTime();
+    private long lastGcCount;
+    private long lastGcMillis;
+    private long lastAllocatedBytes;
+
+    public void recordTreeBuild(long nanos) {
+        recordTreeBuild(nanos, true);
+    }
+
+    /**
+     * Record tree preparation time; rebuilt is false when the tree was only refitted.
+     */
+    public void recordTreeBuild(long nanos, boolean rebuilt) {
+        treeBuildNanos.record(nanos);
+        if (rebuilt) {
+            treeRebuilds.increment();
+        }
+        lastTreeBuildNanos = nanos;
+        if (physicsThreadId < 0) {
+            physicsThreadId = Thread.currentThread().getId();
+        }
+    }
+
+    public void recordForceWalk(long nanos, long interactions, int bodies) {
+        forceWalkNanos.record(nanos);
+        lastForceWalkNanos = nanos;
+        if (bodies > 0) {
+            interactionsPerBody.record(interactions / bodies);
+        }
+        steps.increment();
+    }
+
+    public void recordCollisions(int count) {
+        if (count > 0) {
+            collisions.add(count);
+        }
+    }
+
+    public void recordRegularizedPairs(int count) {
+        if (count > 0) {
+            regularizedPairs.add(count);
+        }
+    }
+
+    public void recordConservation(double energyDrift, double momentumDrift, double angularMomentumDrift) {
+        this.energyDrift = energyDrift;
+        this.momentumDrift = momentumDrift;
+        this.angularMomentumDrift = angularMomentumDrift;
+    }
+
+    public void recordConservationAlert() {
+        conservationAlerts.increment();
+    }
+
+    /**
+     * Record one adaptive update: sub-steps taken and simulated seconds that did not fit.
+     */
+    public void recordSubsteps(int count, double droppedSeconds) {
+        substeps.add(count);
+        if (droppedSeconds > 0) {
+            droppedSimSeconds.add(droppedSeconds);
+        }
+    }
+
+    public void recordFrame(long nanos) {
+        frameNanos.record(nanos);
+        frames.increment();
+        double previous = smoothedFrameNanos;
+        smoothedFrameNanos = previous == 0 ? nanos : previous * 0.9 + nanos * 0.1;
+    }
+
+    public double getFramesPerSecond() {
+        double frame = smoothedFrameNanos;
+        return frame > 0 ? 1e9 / frame : 0;
+    }
+
+    public double getLastTreeBuildMillis() { return lastTreeBuildNanos / 1e6; }
+    public double getLastForceWalkMillis() { return lastForceWalkNanos / 1e6; }
+
+    /**
+     * Collect all readings since the previous snapshot and start a new interval.
+     * Keys are stable so they can be used as CSV columns.
+     */
+    public synchronized Map<String, Double> snapshot() {
+        long now = System.nanoTime();
+        double intervalSeconds = Math.max(1e-9, (now - lastSampleNanos) / 1e9);
+
+        Map<String, Double> readings = new LinkedHashMap<>();
+        readings.put("timestamp_ms", (double) System.currentTimeMillis());
+        readings.put("steps", (double) steps.sumThenReset());
+        readings.put("fps", frames.sumThenReset() / intervalSeconds);
+        readings.put("collisions", (double) collisions.sumThenReset());
+        readings.put("regularized_pair_steps", (double) regularizedPairs.sumThenReset());
+        readings.put("tree_rebuilds", (double) treeRebuilds.sumThenReset());
+        readings.put("substeps", (double) substeps.sumThenReset());
+        readings.put("dropped_sim_s", droppedSimSeconds.sumThenReset());
+        readings.put("energy_drift", energyDrift);
+        readings.put("momentum_drift", momentumDrift);
+        readings.put("angular_momentum_drift", angularMomentumDrift);
+        readings.put("conservation_alerts", (double) conservationAlerts.sumThenReset());
+        putHistogram(readings, "frame_ms", frameNanos, 1e6);
+        putHistogram(readings, "tree_build_ms", treeBuildNanos, 1e6);
+        putHistogram(readings, "force_walk_ms", forceWalkNanos, 1e6);
+        putHistogram(readings, "interactions_per_body", interactionsPerBody, 1);
+
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        readings.put("gc_count", (double) (gcCount - lastGcCount));
+        readings.put("gc_ms", (double) (gcMillis - lastGcMillis));
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+
+        long allocated = allocatedBytes();
+        // First interval has no baseline; report -1 (unknown) like an unsupported JVM
+        boolean haveBaseline = allocated >= 0 && lastAllocatedBytes > 0;
+        readings.put("alloc_mb_per_s", haveBaseline ? (allocated - lastAllocatedBytes) / 1048576.0 / intervalSeconds : -1);
+        lastAllocatedBytes = Math.max(0, allocated);
+
+        lastSampleNanos = now;
+        return readings;
+    }
+
+    private static void putHistogram(Map<String, Double> readings, String name, Histogram histogram, double unit) {
+        readings.put(name + "_mean", histogram.getMean() / unit);
+        readings.put(name + "_p50", histogram.getPercentile(50) / unit);
+        readings.put(name + "_p99", histogram.getPercentile(99) / unit);
+        readings.put(name + "_max", histogram.getMax() / unit);
+        histogram.reset();
+    }
+
+    /**
+     * Bytes allocated by the physics thread, or -1 when the JVM cannot report it.
+     */
+    private long allocatedBytes() {
+        long threadId = physicsThreadId;
+        if (threadId < 0 || !(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        return hotspot.isThreadAllocatedMemorySupported() ? hotspot.getThreadAllocatedBytes(threadId) : -1;
+    }
+}
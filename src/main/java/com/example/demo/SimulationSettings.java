@@ -0,0 +1,298 @@
+package com.example.demo;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Typed launch settings for the physics, render and IO components.
+ *
+ * Bound from "simulation." keys (kebab case, e.g. simulation.physics.theta) in
+ * application.properties or application.yml on the classpath, then a profile
+ * (application-NAME.properties / .yml, chosen with --profile=NAME), then an
+ * external --config=FILE, each overriding the last. The shipped profiles are
+ * interactive, throughput and accuracy. Unknown keys are rejected, so a typo
+ * fails the launch instead of silently running with the default.
+ */
+public class SimulationSettings {
+
+    static final String PREFIX = "simulation.";
+    // SECURITY: Profile names become resource names, so no paths or dots
+    private static final String PROFILE_PATTERN = "[a-z0-9-]{1,32}";
+    private static final String[] EXTENSIONS = {".properties", ".yml", ".yaml"};
+
+    // SECURITY: Bounds on each setting
+    static final double MAX_TIME_SCALE_LIMIT = 1e18;
+    static final int MAX_VECTOR_POOL = 1 << 20;
+    static final double MAX_DEPTH_RATIO = 1e6;
+    static final double MAX_TELEMETRY_RATE = 1000;
+    static final int MAX_TELEMETRY_STREAMS = 1024;
+
+    private String profile = "default";
+    // Physics
+    private double theta = BarnesHutTree.DEFAULT_THETA;
+    private double minTimeScale = 0.1;
+    private double maxTimeScale = 1e6;
+    // Memory
+    private int vectorPoolSize = Vector3D.DEFAULT_POOL_SIZE;
+    // Render
+    private double nearPlane = Camera.DEFAULT_NEAR_PLANE;
+    private double farPlane = Camera.DEFAULT_FAR_PLANE;
+    private int gridSize = Renderer.DEFAULT_GRID_SIZE;
+    private double gridSpacing = Renderer.DEFAULT_GRID_SPACING;
+    // IO
+    private double telemetryMaxRate = 120;
+    private int telemetryMaxStreams = 32;
+    private long metricsInterval = 5000;
+
+    /**
+     * Settings for a launch: --profile=NAME and --config=FILE select the sources.
+     */
+    public static SimulationSettings load(String[] args) {
+        String profile = null;
+        Path external = null;
+        for (String arg : args) {
+            if (arg.startsWith("--profile=")) {
+                profile = arg.substring(arg.indexOf('=') + 1);
+            } else if (arg.startsWith("--config=")) {
+                external = Paths.get(arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        readResources("application", values);
+        if (profile != null) {
+            if (!profile.matches(PROFILE_PATTERN)) {
+                throw new IllegalArgumentException("Profile name must match " + PROFILE_PATTERN);
+            }
+            if (!readResources("application-" + profile, values)) {
+                throw new IllegalArgumentException("Unknown profile: " + profile);
+            }
+        }
+        if (external != null) {
+            try (InputStream in = Files.newInputStream(external)) {
+                read(external.getFileName().toString(), in, values);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read settings file " + external, e);
+            }
+        }
+        SimulationSettings settings = new SimulationSettings();
+        settings.bind(values);
+        if (profile != null) {
+            settings.profile = profile;
+        }
+        System.out.printf("Settings: profile %s (theta %.2f, time scale %.3g..%.3g, vector pool %d)%n",
+            settings.profile, settings.theta, settings.minTimeScale, settings.maxTimeScale, settings.vectorPoolSize);
+        return settings;
+    }
+
+    // Every classpath file with the base name and a known extension; false if none exists
+    private static boolean readResources(String baseName, Map<String, String> values) {
+        boolean found = false;
+        ClassLoader loader = SimulationSettings.class.getClassLoader();
+        for (String extension : EXTENSIONS) {
+            try (InputStream in = loader.getResourceAsStream(baseName + extension)) {
+                if (in != null) {
+                    read(baseName + extension, in, values);
+                    found = true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + baseName + extension, e);
+            }
+        }
+        return found;
+    }
+
+    private static void read(String name, InputStream in, Map<String, String> values) throws IOException {
+        if (name.endsWith(".properties")) {
+            Properties properties = new Properties();
+            properties.load(in);
+            for (String key : properties.stringPropertyNames()) {
+                values.put(key, properties.getProperty(key).trim());
+            }
+        } else if (name.endsWith(".yml") || name.endsWith(".yaml")) {
+            // SECURITY: Plain maps, lists and scalars only, never arbitrary types
+            Object document = new Yaml(new SafeConstructor(new LoaderOptions())).load(in);
+            flatten("", document, values);
+        } else {
+            throw new IllegalArgumentException("Settings file must be .properties, .yml or .yaml: " + name);
+        }
+    }
+
+    // Nested YAML maps to dotted keys, as in the properties format
+    private static void flatten(String prefix, Object node, Map<String, String> values) {
+        if (node instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                flatten(prefix.isEmpty() ? String.valueOf(entry.getKey()) : prefix + "." + entry.getKey(),
+                    entry.getValue(), values);
+            }
+        } else if (node instanceof List<?> list) {
+            for (int i = 0; i < list.size(); i++) {
+                flatten(prefix + "[" + i + "]", list.get(i), values);
+            }
+        } else if (node != null && !prefix.isEmpty()) {
+            values.put(prefix, String.valueOf(node));
+        }
+    }
+
+    /**
+     * Apply the simulation.* entries (other keys belong to Spring and are skipped).
+     */
+    void bind(Map<String, String> values) {
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(PREFIX)) {
+                continue;
+            }
+            String value = entry.getValue();
+            try {
+                switch (key.substring(PREFIX.length())) {
+                    case "physics.theta" -> setTheta(Double.parseDouble(value));
+                    case "physics.min-time-scale" -> setMinTimeScale(Double.parseDouble(value));
+                    case "physics.max-time-scale" -> setMaxTimeScale(Double.parseDouble(value));
+                    case "memory.vector-pool-size" -> setVectorPoolSize(Integer.parseInt(value));
+                    case "render.near-plane" -> setNearPlane(Double.parseDouble(value));
+                    case "render.far-plane" -> setFarPlane(Double.parseDouble(value));
+                    case "render.grid-size" -> setGridSize(Integer.parseInt(value));
+                    case "render.grid-spacing" -> setGridSpacing(Double.parseDouble(value));
+                    case "io.telemetry-max-rate" -> setTelemetryMaxRate(Double.parseDouble(value));
+                    case "io.telemetry-max-streams" -> setTelemetryMaxStreams(Integer.parseInt(value));
+                    case "io.metrics-interval" -> setMetricsInterval(Long.parseLong(value));
+                    default -> throw new IllegalArgumentException("Unknown setting");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Bad setting " + key + "=" + value + ": " + e.getMessage(), e);
+            }
+        }
+        validate();
+    }
+
+    /**
+     * Check the settings that constrain each other.
+     */
+    public void validate() {
+        if (!(minTimeScale < maxTimeScale)) {
+            throw new IllegalArgumentException("Minimum time scale must be below the maximum");
+        }
+        if (!(nearPlane < farPlane) || farPlane / nearPlane > MAX_DEPTH_RATIO) {
+            throw new IllegalArgumentException("Far plane must be beyond the near plane, at most "
+                + MAX_DEPTH_RATIO + " times as far");
+        }
+    }
+
+    public String getProfile() { return profile; }
+    public double getTheta() { return theta; }
+    public double getMinTimeScale() { return minTimeScale; }
+    public double getMaxTimeScale() { return maxTimeScale; }
+    public int getVectorPoolSize() { return vectorPoolSize; }
+    public double getNearPlane() { return nearPlane; }
+    public double getFarPlane() { return farPlane; }
+    public int getGridSize() { return gridSize; }
+    public double getGridSpacing() { return gridSpacing; }
+    public double getTelemetryMaxRate() { return telemetryMaxRate; }
+    public int getTelemetryMaxStreams() { return telemetryMaxStreams; }
+    public long getMetricsInterval() { return metricsInterval; }
+
+    /**
+     * Barnes-Hut opening angle: smaller is more accurate and slower.
+     */
+    public void setTheta(double theta) {
+        this.theta = BarnesHutTree.checkOpeningAngle(theta);
+    }
+
+    public void setMinTimeScale(double minTimeScale) {
+        if (!(minTimeScale > 0 && minTimeScale < MAX_TIME_SCALE_LIMIT)) {
+            throw new IllegalArgumentException("Minimum time scale must be in (0, " + MAX_TIME_SCALE_LIMIT + ")");
+        }
+        this.minTimeScale = minTimeScale;
+    }
+
+    /**
+     * Largest time scale, which also bounds single remote steps (one wall second's worth).
+     */
+    public void setMaxTimeScale(double maxTimeScale) {
+        if (!(maxTimeScale > 0 && maxTimeScale <= MAX_TIME_SCALE_LIMIT)) {
+            throw new IllegalArgumentException("Maximum time scale must be in (0, " + MAX_TIME_SCALE_LIMIT + "]");
+        }
+        this.maxTimeScale = maxTimeScale;
+    }
+
+    /**
+     * Apply the process-wide settings (the Vector3D pool size). Launchers call this
+     * once at start-up; managers never do, so several in one process cannot
+     * overwrite each other's.
+     */
+    public void applyToProcess() {
+        Vector3D.setPoolSize(vectorPoolSize);
+    }
+
+    public void setVectorPoolSize(int vectorPoolSize) {
+        if (vectorPoolSize < 0 || vectorPoolSize > MAX_VECTOR_POOL) {
+            throw new IllegalArgumentException("Vector pool size must be in 0.." + MAX_VECTOR_POOL);
+        }
+        this.vectorPoolSize = vectorPoolSize;
+    }
+
+    public void setNearPlane(double nearPlane) {
+        if (!(nearPlane > 0) || Double.isInfinite(nearPlane)) {
+            throw new IllegalArgumentException("Near plane must be finite and > 0");
+        }
+        this.nearPlane = nearPlane;
+    }
+
+    public void setFarPlane(double farPlane) {
+        if (!(farPlane > 0) || Double.isInfinite(farPlane)) {
+            throw new IllegalArgumentException("Far plane must be finite and > 0");
+        }
+        this.farPlane = farPlane;
+    }
+
+    public void setGridSize(int gridSize) {
+        if (gridSize < GridRenderer.MIN_GRID_SIZE || gridSize > GridRenderer.MAX_GRID_SIZE) {
+            throw new IllegalArgumentException("Grid size must be in "
+                + GridRenderer.MIN_GRID_SIZE + ".." + GridRenderer.MAX_GRID_SIZE);
+        }
+        this.gridSize = gridSize;
+    }
+
+    public void setGridSpacing(double gridSpacing) {
+        if (!(gridSpacing >= 1) || Double.isInfinite(gridSpacing)) {
+            throw new IllegalArgumentException("Grid spacing must be finite and >= 1");
+        }
+        this.gridSpacing = gridSpacing;
+    }
+
+    public void setTelemetryMaxRate(double telemetryMaxRate) {
+        if (!(telemetryMaxRate > 0 && telemetryMaxRate <= MAX_TELEMETRY_RATE)) {
+            throw new IllegalArgumentException("Telemetry rate must be in (0, " + MAX_TELEMETRY_RATE + "]");
+        }
+        this.telemetryMaxRate = telemetryMaxRate;
+    }
+
+    public void setTelemetryMaxStreams(int telemetryMaxStreams) {
+        if (telemetryMaxStreams < 1 || telemetryMaxStreams > MAX_TELEMETRY_STREAMS) {
+            throw new IllegalArgumentException("Telemetry streams must be in 1.." + MAX_TELEMETRY_STREAMS);
+        }
+        this.telemetryMaxStreams = telemetryMaxStreams;
+    }
+
+    /**
+     * Default metrics export interval in milliseconds (--metrics-interval overrides it).
+     */
+    public void setMetricsInterval(long metricsInterval) {
+        if (metricsInterval < MetricsExporter.MIN_INTERVAL) {
+            throw new IllegalArgumentException("Metrics interval must be >= " + MetricsExporter.MIN_INTERVAL + " ms");
+        }
+        this.metricsInterval = metricsInterval;
+    }
+}
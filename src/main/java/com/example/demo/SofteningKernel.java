@@ -0,0 +1,92 @@
+package com.example.demo;
+
+/**
+ * Gravitational softening: how the 1/r^2 force is modified at separations
+ * comparable to the softening length epsilon, so close encounters give a finite
+ * force instead of a blow-up (or the old hard cutoff to zero).
+ *
+ * Factors are returned per unit G*m1*m2, so the force on a from b is
+ * G * ma * mb * forceFactor(r, eps) * (b - a), and the pair potential is
+ * -G * ma * mb * potentialFactor(r, eps).
+ */
+public enum SofteningKernel {
+
+    /** Plain Newtonian gravity; only exact coincidence (r = 0) is guarded. */
+    NONE {
+        @Override
+        public double forceFactor(double r, double epsilon) {
+            return r > 0 ? 1.0 / (r * r * r) : 0;
+        }
+
+        @Override
+        public double potentialFactor(double r, double epsilon) {
+            return r > 0 ? 1.0 / r : 0;
+        }
+    },
+
+    /** Plummer sphere: 1 / (r^2 + eps^2)^(3/2). Softens at all radii. */
+    PLUMMER {
+        @Override
+        public double forceFactor(double r, double epsilon) {
+            double s2 = r * r + epsilon * epsilon;
+            return s2 > 0 ? 1.0 / (s2 * Math.sqrt(s2)) : 0;
+        }
+
+        @Override
+        public double potentialFactor(double r, double epsilon) {
+            double s2 = r * r + epsilon * epsilon;
+            return s2 > 0 ? 1.0 / Math.sqrt(s2) : 0;
+        }
+    },
+
+    /**
+     * Cubic spline (Monaghan and Lattanzio 1985) with compact support h = 2.8 eps,
+     * as in GADGET. Exactly Newtonian beyond h; same central potential as Plummer.
+     */
+    SPLINE {
+        @Override
+        public double forceFactor(double r, double epsilon) {
+            double h = SPLINE_SUPPORT * epsilon;
+            if (r >= h) {
+                return NONE.forceFactor(r, epsilon);
+            }
+            double u = r / h;
+            double hInv3 = 1.0 / (h * h * h);
+            if (u < 0.5) {
+                return hInv3 * (10.666666666667 + u * u * (32.0 * u - 38.4));
+            }
+            return hInv3 * (21.333333333333 - 48.0 * u + 38.4 * u * u
+                - 10.666666666667 * u * u * u - 0.066666666667 / (u * u * u));
+        }
+
+        @Override
+        public double potentialFactor(double r, double epsilon) {
+            double h = SPLINE_SUPPORT * epsilon;
+            if (r >= h) {
+                return NONE.potentialFactor(r, epsilon);
+            }
+            double u = r / h;
+            double w;
+            if (u < 0.5) {
+                w = -2.8 + u * u * (5.333333333333 + u * u * (6.4 * u - 9.6));
+            } else {
+                w = -3.2 + 0.066666666667 / u
+                    + u * u * (10.666666666667 + u * (-16.0 + u * (9.6 - 2.133333333333 * u)));
+            }
+            return -w / h;
+        }
+    };
+
+    // Spline support radius in units of the equivalent Plummer length
+    static final double SPLINE_SUPPORT = 2.8;
+
+    /**
+     * Force per unit G*m1*m2 per metre of separation vector (1/r^3 when unsoftened).
+     */
+    public abstract double forceFactor(double r, double epsilon);
+
+    /**
+     * Magnitude of the potential per unit G*m1*m2 (1/r when unsoftened).
+     */
+    public abstract double potentialFactor(double r, double epsilon);
+}
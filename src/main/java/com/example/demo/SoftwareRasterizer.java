@@ -0,0 +1,342 @@
+package com.example.demo;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pure-Java rasterizer for the solar system scene.
+ *
+ * Draws the same grid and bodies as {@link Renderer}, using the projection and
+ * camera-relative view matrices from {@link Camera} and the frame's
+ * {@link FloatingOrigin}, into an ARGB pixel buffer. Needs no OpenGL
+ * context, so it runs on headless Linux boxes without a GPU.
+ *
+ * SAFETY: Not thread-safe. One rasterizer per render thread.
+ */
+public class SoftwareRasterizer {
+
+    private static final int BACKGROUND = 0xFF00000D; // Matches glClearColor(0, 0, 0.05)
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final float[] depth;
+
+    // Combined projection * view for the current frame (column-major)
+    private final double[] viewProjection = new double[16];
+    private double[] view;
+    private double focalLength;
+    private double focalLengthX; // focalLength over the aspect ratio
+    private double nearPlane;
+    private double farPlane;
+    private int gridSize = Renderer.DEFAULT_GRID_SIZE;
+    private double gridSpacing = Renderer.DEFAULT_GRID_SPACING;
+
+    public SoftwareRasterizer(int width, int height) {
+        // SECURITY: Bounds checking prevents oversized buffers
+        if (width <= 0 || height <= 0 || width > 8192 || height > 8192) {
+            throw new IllegalArgumentException("Frame dimensions must be in 1..8192");
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+        this.depth = new float[width * height];
+    }
+
+    /**
+     * Reference grid half-width in lines and spacing in display units, as in Renderer.
+     */
+    public void setGrid(int gridSize, double gridSpacing) {
+        this.gridSize = gridSize;
+        this.gridSpacing = gridSpacing;
+    }
+
+    /**
+     * Rasterize one frame of the scene seen from the given camera.
+     */
+    public void render(Camera camera, FloatingOrigin origin, List<BodyView> views) {
+        double[] projection = camera.getProjectionMatrix(width, height);
+        this.view = camera.getCameraRelativeViewMatrix();
+        multiply(projection, view, viewProjection);
+        this.focalLength = projection[5];
+        this.focalLengthX = projection[0];
+        this.nearPlane = camera.getNearPlane();
+        this.farPlane = camera.getFarPlane();
+
+        Arrays.fill(pixels, BACKGROUND);
+        Arrays.fill(depth, Float.POSITIVE_INFINITY);
+
+        drawGrid(origin, gridSize, gridSpacing);
+
+        // Light comes from the first star, as with GL_LIGHT0 in StarRenderer
+        Vector3D light = Vector3D.ZERO;
+        for (BodyView view : views) {
+            if (view.getBody() instanceof Star) {
+                light = view.getRenderPosition();
+                break;
+            }
+        }
+
+        for (BodyView view : views) {
+            CelestialBody body = view.getBody();
+            boolean emissive = body instanceof Star;
+            if (emissive || body instanceof Planet || body instanceof Spacecraft) {
+                drawSphere(view.getRenderPosition(), view.getRenderRadius(), body.getColor(), emissive ? null : light);
+            }
+        }
+    }
+
+    /**
+     * Draw a particle ring into the current frame as depth-tested single
+     * pixels. Call after render(); placement is from SceneView.ringPlacement.
+     */
+    public void drawRing(ParticleRing ring, double[] placement) {
+        float[] offsets = ring.getOffsets();
+        float[] color = ring.getColor();
+        int rgb = 0xFF000000
+            | (toByte(Math.max(0.0f, Math.min(1.0f, color[0]))) << 16)
+            | (toByte(Math.max(0.0f, Math.min(1.0f, color[1]))) << 8)
+            | toByte(Math.max(0.0f, Math.min(1.0f, color[2])));
+        double[] m = viewProjection;
+        double scale = placement[3];
+        for (int i = 0; i < ring.getCount(); i++) {
+            int base = i * 3;
+            // Ecliptic (Z up) to display axes (Y up), as in RingRenderer
+            double x = placement[0] + offsets[base] * scale;
+            double y = placement[1] + offsets[base + 2] * scale;
+            double z = placement[2] - offsets[base + 1] * scale;
+            double w = m[3] * x + m[7] * y + m[11] * z + m[15];
+            if (w < nearPlane) {
+                continue;
+            }
+            double cx = m[0] * x + m[4] * y + m[8] * z + m[12];
+            double cy = m[1] * x + m[5] * y + m[9] * z + m[13];
+            int px = (int) ((cx / w + 1) * 0.5 * width);
+            int py = (int) ((1 - cy / w) * 0.5 * height);
+            if (px < 0 || py < 0 || px >= width || py >= height) continue;
+            int idx = py * width + px;
+            if (w < depth[idx]) {
+                pixels[idx] = rgb;
+            }
+        }
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /**
+     * Live ARGB buffer, row-major from the top-left. Copy before handing to another thread.
+     */
+    public int[] getPixels() { return pixels; }
+
+    private void drawGrid(FloatingOrigin origin, int gridSize, double spacing) {
+        double extent = gridSize * spacing;
+        int gridColor = blend(BACKGROUND, 0x4D4D4D, 0.5f);
+        for (int i = -gridSize; i <= gridSize; i++) {
+            double offset = i * spacing;
+            drawGridLine(origin, offset, -extent, offset, extent, gridColor);
+            drawGridLine(origin, -extent, offset, extent, offset, gridColor);
+        }
+        // Center axes: X in red, Z in blue
+        drawGridLine(origin, -extent, 0, extent, 0, blend(BACKGROUND, 0xFF3333, 0.8f));
+        drawGridLine(origin, 0, -extent, 0, extent, blend(BACKGROUND, 0x3333FF, 0.8f));
+    }
+
+    /**
+     * Draw a display-space line on the XZ plane, subdivided to follow depth compression.
+     */
+    private void drawGridLine(FloatingOrigin origin, double x0, double z0, double x1, double z1, int color) {
+        int segments = 16;
+        Vector3D previous = origin.fromDisplay(x0, 0, z0);
+        for (int s = 1; s <= segments; s++) {
+            double t = (double) s / segments;
+            Vector3D next = origin.fromDisplay(x0 + (x1 - x0) * t, 0, z0 + (z1 - z0) * t);
+            drawLine(previous, next, color);
+            previous = next;
+        }
+    }
+
+    /**
+     * Draw a camera-relative line segment, clipped against the near plane.
+     */
+    private void drawLine(Vector3D from, Vector3D to, int color) {
+        double[] a = toClip(from.x, from.y, from.z);
+        double[] b = toClip(to.x, to.y, to.z);
+        double minW = nearPlane;
+        if (a[3] < minW && b[3] < minW) {
+            return;
+        }
+        // Clip the segment where it crosses behind the camera
+        if (a[3] < minW || b[3] < minW) {
+            double t = (minW - a[3]) / (b[3] - a[3]);
+            double[] clipped = new double[4];
+            for (int k = 0; k < 4; k++) {
+                clipped[k] = a[k] + (b[k] - a[k]) * t;
+            }
+            if (a[3] < minW) a = clipped; else b = clipped;
+        }
+
+        double sx0 = (a[0] / a[3] + 1) * 0.5 * width;
+        double sy0 = (1 - a[1] / a[3]) * 0.5 * height;
+        double sx1 = (b[0] / b[3] + 1) * 0.5 * width;
+        double sy1 = (1 - b[1] / b[3]) * 0.5 * height;
+
+        // SECURITY: Cap step count so degenerate projections cannot stall the frame
+        int steps = (int) Math.min(4 * (width + height), Math.max(Math.abs(sx1 - sx0), Math.abs(sy1 - sy0)));
+        for (int s = 0; s <= steps; s++) {
+            double t = steps == 0 ? 0 : (double) s / steps;
+            int px = (int) (sx0 + (sx1 - sx0) * t);
+            int py = (int) (sy0 + (sy1 - sy0) * t);
+            if (px < 0 || py < 0 || px >= width || py >= height) continue;
+            float w = (float) (a[3] + (b[3] - a[3]) * t);
+            int idx = py * width + px;
+            if (w < depth[idx]) {
+                pixels[idx] = color;
+            }
+        }
+    }
+
+    /**
+     * Draw a shaded sphere as a screen-space disc with per-pixel depth.
+     * A null light means the sphere is emissive (stars).
+     */
+    private void drawSphere(Vector3D center, double radius, float[] color, Vector3D light) {
+        // View-space center; the camera looks down -Z
+        double vx = view[0] * center.x + view[4] * center.y + view[8] * center.z + view[12];
+        double vy = view[1] * center.x + view[5] * center.y + view[9] * center.z + view[13];
+        double vz = view[2] * center.x + view[6] * center.y + view[10] * center.z + view[14];
+        double distance = -vz;
+        // Only wholly in front of the near plane is culled; a sphere across it is clipped per pixel
+        if (distance + radius < nearPlane || distance > farPlane) {
+            return;
+        }
+
+        double[] clip = toClip(center.x, center.y, center.z);
+        double cx = (clip[0] / clip[3] + 1) * 0.5 * width;
+        double cy = (1 - clip[1] / clip[3]) * 0.5 * height;
+        double pixelRadius = Math.max(1.0, radius * focalLength / distance * 0.5 * height);
+
+        // Light direction in view space (toward the light)
+        double lx = 0, ly = 0, lz = 1;
+        if (light != null) {
+            double wx = view[0] * light.x + view[4] * light.y + view[8] * light.z + view[12];
+            double wy = view[1] * light.x + view[5] * light.y + view[9] * light.z + view[13];
+            double wz = view[2] * light.x + view[6] * light.y + view[10] * light.z + view[14];
+            lx = wx - vx;
+            ly = wy - vy;
+            lz = wz - vz;
+            double len = Math.sqrt(lx * lx + ly * ly + lz * lz);
+            if (len > 0) {
+                lx /= len; ly /= len; lz /= len;
+            }
+        }
+
+        // SECURITY: Bounds checking on color values
+        float r = Math.max(0.0f, Math.min(1.0f, color[0]));
+        float g = Math.max(0.0f, Math.min(1.0f, color[1]));
+        float b = Math.max(0.0f, Math.min(1.0f, color[2]));
+        boolean emissive = light == null;
+        if (distance - radius < nearPlane) {
+            drawClippedSphere(vx, vy, vz, radius, r, g, b, emissive, lx, ly, lz);
+            return;
+        }
+
+        int minX = Math.max(0, (int) Math.floor(cx - pixelRadius));
+        int maxX = Math.min(width - 1, (int) Math.ceil(cx + pixelRadius));
+        int minY = Math.max(0, (int) Math.floor(cy - pixelRadius));
+        int maxY = Math.min(height - 1, (int) Math.ceil(cy + pixelRadius));
+        double invRadius = 1.0 / pixelRadius;
+
+        for (int py = minY; py <= maxY; py++) {
+            double ny = (cy - (py + 0.5)) * invRadius;
+            for (int px = minX; px <= maxX; px++) {
+                double nx = ((px + 0.5) - cx) * invRadius;
+                double d2 = nx * nx + ny * ny;
+                if (d2 > 1.0) continue;
+                double nz = Math.sqrt(1.0 - d2);
+
+                float surfaceDepth = (float) (distance - radius * nz);
+                int idx = py * width + px;
+                if (surfaceDepth >= depth[idx]) continue;
+                depth[idx] = surfaceDepth;
+                pixels[idx] = shade(r, g, b, emissive, nx, ny, nz, lx, ly, lz);
+            }
+        }
+    }
+
+    // A sphere across the near plane: cast each pixel's ray at it and, as GL clipping
+    // does, drop the pixels whose first hit is nearer than the plane
+    private void drawClippedSphere(double vx, double vy, double vz, double radius, float r, float g, float b,
+                                   boolean emissive, double lx, double ly, double lz) {
+        double c2 = vx * vx + vy * vy + vz * vz - radius * radius;
+        for (int py = 0; py < height; py++) {
+            // View-space ray through the pixel, scaled to unit depth along -Z
+            double dy = (1 - 2 * (py + 0.5) / height) / focalLength;
+            for (int px = 0; px < width; px++) {
+                double dx = (2 * (px + 0.5) / width - 1) / focalLengthX;
+                double a = dx * dx + dy * dy + 1;
+                double half = dx * vx + dy * vy - vz;
+                double disc = half * half - a * c2;
+                if (disc < 0) continue;
+                double t = (half - Math.sqrt(disc)) / a; // Also the depth, since the ray has unit depth
+                if (t < nearPlane) continue;
+                int idx = py * width + px;
+                if (t >= depth[idx]) continue;
+                depth[idx] = (float) t;
+                double nx = (t * dx - vx) / radius;
+                double ny = (t * dy - vy) / radius;
+                double nz = (-t - vz) / radius;
+                pixels[idx] = shade(r, g, b, emissive, nx, ny, Math.max(0.0, nz), lx, ly, lz);
+            }
+        }
+    }
+
+    private static int shade(float r, float g, float b, boolean emissive, double nx, double ny, double nz,
+                             double lx, double ly, double lz) {
+        float intensity;
+        if (emissive) {
+            // Emissive with a soft limb darkening
+            intensity = (float) (0.6 + 0.4 * nz);
+        } else {
+            double lambert = Math.max(0.0, nx * lx + ny * ly + nz * lz);
+            intensity = (float) (0.3 + 0.7 * lambert); // Ambient matches PlanetRenderer
+        }
+        return 0xFF000000
+            | (toByte(r * intensity) << 16)
+            | (toByte(g * intensity) << 8)
+            | toByte(b * intensity);
+    }
+
+    private double[] toClip(double x, double y, double z) {
+        double[] m = viewProjection;
+        return new double[] {
+            m[0] * x + m[4] * y + m[8] * z + m[12],
+            m[1] * x + m[5] * y + m[9] * z + m[13],
+            m[2] * x + m[6] * y + m[10] * z + m[14],
+            m[3] * x + m[7] * y + m[11] * z + m[15]
+        };
+    }
+
+    private static void multiply(double[] a, double[] b, double[] out) {
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 4; row++) {
+                double sum = 0;
+                for (int k = 0; k < 4; k++) {
+                    sum += a[k * 4 + row] * b[col * 4 + k];
+                }
+                out[col * 4 + row] = sum;
+            }
+        }
+    }
+
+    private static int blend(int background, int rgb, float alpha) {
+        int r = (int) (((rgb >> 16) & 0xFF) * alpha + ((background >> 16) & 0xFF) * (1 - alpha));
+        int g = (int) (((rgb >> 8) & 0xFF) * alpha + ((background >> 8) & 0xFF) * (1 - alpha));
+        int b = (int) ((rgb & 0xFF) * alpha + (background & 0xFF) * (1 - alpha));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int toByte(float channel) {
+        return Math.max(0, Math.min(255, (int) (channel * 255.0f)));
+    }
+}
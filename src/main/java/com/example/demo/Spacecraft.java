@@ -13,9 +13,18 @@ public class Spacecraft extends CelestialBody {
         setStatic(isStatic);
         this.thrustPower = thrustPower;
         this.fuel = fuel;
+        // A spacecraft's pull on planets is far below the integration error
+        this.testParticle = true;
         CelestialBody.validateCelestialBody(this.mass, this.radius);
     }
 
+    @Override
+    public Spacecraft copy() {
+        Spacecraft copy = new Spacecraft(id, mass, radius, color.clone(), isStatic, position, velocity, thrustPower, fuel);
+        copy.testParticle = testParticle;
+        return copy;
+    }
+
     public double getThrustPower() {
         return thrustPower;
     }
@@ -28,12 +37,25 @@ public class Spacecraft extends CelestialBody {
         this.fuel = fuel;
     }
 
+    /**
+     * Fire the engine along dir for deltaTime seconds: thrustPower newtons,
+     * so the velocity changes by thrustPower * deltaTime / mass. The burn is
+     * cut short when the fuel runs out.
+     */
     public void applyThrust(Vector3D dir, double deltaTime) {
-        if (fuel <= 0) {
+        if (fuel <= 0 || !(deltaTime > 0)) {
             return;
         }
-        Vector3D thrust = dir.normalize().scale(thrustPower * deltaTime);
-        applyForce(thrust, deltaTime);
-        fuel -= thrust.length() * FUEL_EFFICIENCY;
+        double burnTime = Math.min(deltaTime, fuel / (thrustPower * FUEL_EFFICIENCY));
+        Vector3D thrust = dir.normalize().scale(thrustPower);
+        applyForce(thrust, burnTime);
+        fuel = Math.max(0, fuel - thrustPower * burnTime * FUEL_EFFICIENCY);
+    }
+
+    /**
+     * Velocity change the remaining fuel can still buy.
+     */
+    public double getAvailableDeltaV() {
+        return fuel / FUEL_EFFICIENCY / mass;
     }
-}
\ No newline at end of file
+}
@@ -12,16 +12,17 @@ public class SpacecraftRenderer implements BodyRenderer {
     }
 
     @Override
-    public void draw(CelestialBody body) {
+    public void draw(BodyView view) {
+        CelestialBody body = view.getBody();
         if (!(body instanceof Spacecraft)) {
             System.err.println("SpacecraftRenderer received a non-Spacecraft body.");
             return;
         }
         
         Spacecraft spacecraft = (Spacecraft) body;
-        Vector3D pos = spacecraft.getPosition();
+        Vector3D pos = view.getRenderPosition();
         float[] color = spacecraft.getColor();
-        double size = Math.max(1000, spacecraft.getRadius()); // Minimum size for visibility
+        double size = view.getRenderRadius();
         
         // SECURITY: Bounds checking on color values
         float r = Math.max(0.0f, Math.min(1.0f, color[0]));
@@ -61,7 +62,7 @@ public class SpacecraftRenderer implements BodyRenderer {
         GL11.glPopMatrix();
         
         // Draw outline for visibility at any distance
-        drawOutline(spacecraft.getPosition(), spacecraft.getRadius());
+        drawOutline(pos, size);
     }
     
     private void drawSpacecraft(double size) {
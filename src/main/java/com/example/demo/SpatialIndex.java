@@ -0,0 +1,538 @@
+package com.example.demo;
+
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Kd-tree over a snapshot of body positions and radii, for
+ * k-nearest, radius and ray queries (picking, labels, analysis).
+ *
+ * Built on the physics thread from the step's body list (SimulationManager
+ * publishes one like a TelemetrySnapshot), it copies everything it needs into
+ * flat arrays, so any number of threads may query it while the physics moves
+ * on. Node i has children 2i + 1 and 2i + 2 and splits its index range at the
+ * median of its widest axis, so the tree needs no child pointers and large
+ * subtrees are built in parallel on the common fork-join pool.
+ *
+ * An index can also be built in display space through a ScaleMapping (for
+ * picking what is drawn), and refitted to the bodies' new positions: the same
+ * tree with fresh bounds, O(N) instead of a rebuild, until isDegraded().
+ * Refits reuse the arrays, either in place or in a spare index from an
+ * earlier refit (double buffering). A query that overlaps a refit of its
+ * index (a sequence lock, odd while writing) retries, so it never returns a
+ * half-written tree.
+ *
+ * Queries write into a caller-owned SpatialQuery (one per thread) and
+ * allocate nothing once its buffers have grown to the largest result.
+ */
+public final class SpatialIndex {
+
+    // Bodies per leaf
+    private static final int LEAF_SIZE = 8;
+    private static final int PARALLEL_RANGE = 65_536;
+    // Refit until the leaves have spread to this multiple of their size when built
+    private static final double MAX_LEAF_GROWTH = 2.0;
+
+    private long step;
+    private final ScaleMapping mapping; // Null for SI positions and physical radii
+    private final int count;
+    private final CelestialBody[] bodies;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final double[] radius;
+    // Per node: tight bounds of the centres {minX, minY, minZ, maxX, maxY, maxZ} and largest radius below
+    private final double[] bounds;
+    private final double[] maxRadius;
+    private final int leafLevel; // Nodes at this depth are leaves
+    private final double builtSpread; // Summed leaf extents when the tree was partitioned
+    private double leafSpread;
+    private volatile int sequence; // Odd while a refit is writing the arrays
+
+    private SpatialIndex(long step, List<CelestialBody> source, ScaleMapping mapping) {
+        this.step = step;
+        this.mapping = mapping;
+        int n = 0;
+        CelestialBody[] kept = new CelestialBody[source.size()];
+        for (CelestialBody body : source) {
+            // SAFETY: Non-finite positions would poison every bound above them
+            if (body != null && Double.isFinite(body.position.x) && Double.isFinite(body.position.y)
+                    && Double.isFinite(body.position.z)) {
+                kept[n++] = body;
+            }
+        }
+        this.count = n;
+        this.bodies = kept;
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        radius = new double[n];
+        load(0, n);
+        int levels = 0;
+        while ((long) LEAF_SIZE << levels < n) {
+            levels++;
+        }
+        leafLevel = levels;
+        int nodes = (1 << (levels + 1)) - 1;
+        bounds = new double[nodes * 6];
+        maxRadius = new double[nodes];
+        if (n > 0) {
+            ForkJoinPool.commonPool().invoke(new Build(0, 0, n, 0, true));
+        }
+        leafSpread = sumLeafExtents();
+        builtSpread = leafSpread;
+    }
+
+    // Same tree and entry order as the previous index, arrays to be filled by a refit
+    private SpatialIndex(SpatialIndex previous) {
+        this.step = previous.step;
+        this.mapping = previous.mapping;
+        this.count = previous.count;
+        this.bodies = previous.bodies; // Never reordered once built
+        this.leafLevel = previous.leafLevel;
+        x = new double[count];
+        y = new double[count];
+        z = new double[count];
+        radius = new double[count];
+        bounds = new double[previous.bounds.length];
+        maxRadius = new double[previous.maxRadius.length];
+        leafSpread = previous.leafSpread;
+        builtSpread = previous.builtSpread;
+    }
+
+    private void load(int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            CelestialBody body = bodies[i];
+            Vector3D p = mapping == null ? body.position : mapping.toDisplay(body.position);
+            x[i] = p.x;
+            y[i] = p.y;
+            z[i] = p.z;
+            radius[i] = mapping == null ? body.radius : mapping.displayRadius(body);
+        }
+    }
+
+    /**
+     * Snapshot the given bodies (null and non-finite entries are skipped).
+     * Call on the thread that moves them.
+     */
+    public static SpatialIndex build(long step, List<CelestialBody> bodies) {
+        return new SpatialIndex(step, bodies, null);
+    }
+
+    /**
+     * Snapshot in display space: positions and radii as the mapping draws them.
+     */
+    public static SpatialIndex build(long step, List<CelestialBody> bodies, ScaleMapping mapping) {
+        return new SpatialIndex(step, bodies, Objects.requireNonNull(mapping));
+    }
+
+    /**
+     * Reload the bodies' current positions into this index, keeping the tree's
+     * partition and arrays. Only valid while the body set is unchanged; call on
+     * the thread that moves them. Concurrent queries on this index wait it out.
+     */
+    public void refit(long step) {
+        int start = sequence;
+        sequence = start + 1;
+        VarHandle.storeStoreFence(); // The odd sequence is visible before any array write
+        this.step = step;
+        if (count > 0) {
+            ForkJoinPool.commonPool().invoke(new Build(0, 0, count, 0, false));
+        }
+        leafSpread = sumLeafExtents();
+        sequence = start + 2;
+    }
+
+    /**
+     * This tree at the bodies' current positions, written into spare when it is
+     * an earlier refit of the same build (so readers of this index are left
+     * alone), otherwise into new arrays. Returns the refitted index.
+     */
+    public SpatialIndex refit(long step, SpatialIndex spare) {
+        SpatialIndex next = spare != null && spare != this && spare.bodies == bodies ? spare : new SpatialIndex(this);
+        next.refit(step);
+        return next;
+    }
+
+    /**
+     * True once refits have loosened the leaves enough that a rebuild pays off.
+     */
+    public boolean isDegraded() {
+        return leafSpread > MAX_LEAF_GROWTH * builtSpread;
+    }
+
+    public long getStep() { return step; }
+    public ScaleMapping getScaleMapping() { return mapping; }
+    public int size() { return count; }
+
+    /**
+     * The live body behind entry i; its current state may have moved on since the snapshot.
+     * Unlike the queries, the entry accessors below do not wait out a concurrent refit.
+     */
+    public CelestialBody body(int i) { return bodies[i]; }
+    public double x(int i) { return x[i]; }
+    public double y(int i) { return y[i]; }
+    public double z(int i) { return z[i]; }
+    public double radius(int i) { return radius[i]; }
+
+    private final class Build extends RecursiveAction {
+        private final int node;
+        private final int lo;
+        private final int hi;
+        private final int depth;
+        private final boolean partition; // False when refitting bounds only
+
+        Build(int node, int lo, int hi, int depth, boolean partition) {
+            this.node = node;
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+            this.partition = partition;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth == leafLevel) {
+                if (!partition) {
+                    load(lo, hi); // Refits read positions here, in parallel
+                }
+                summarizeLeaf(node, lo, hi);
+                return;
+            }
+            int mid = rangeStart(2 * node + 2, depth + 1);
+            if (partition) {
+                select(lo, hi, mid, widestAxis(lo, hi));
+            }
+            Build left = new Build(2 * node + 1, lo, mid, depth + 1, partition);
+            Build right = new Build(2 * node + 2, mid, hi, depth + 1, partition);
+            if (hi - lo >= PARALLEL_RANGE) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+            summarizeInternal(node);
+        }
+    }
+
+    private int widestAxis(int lo, int hi) {
+        double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+        for (int i = lo; i < hi; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return dx >= dy && dx >= dz ? 0 : dy >= dz ? 1 : 2;
+    }
+
+    // Quickselect: entries below k have coordinate <= entry k's, entries above >= it
+    private void select(int lo, int hi, int k, int axis) {
+        double[] c = axis == 0 ? x : axis == 1 ? y : z;
+        int left = lo;
+        int right = hi - 1;
+        while (left < right) {
+            double pivot = c[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (c[i] < pivot) {
+                    i++;
+                }
+                while (c[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double t = x[i]; x[i] = x[j]; x[j] = t;
+        t = y[i]; y[i] = y[j]; y[j] = t;
+        t = z[i]; z[i] = z[j]; z[j] = t;
+        t = radius[i]; radius[i] = radius[j]; radius[j] = t;
+        CelestialBody b = bodies[i]; bodies[i] = bodies[j]; bodies[j] = b;
+    }
+
+    private void summarizeLeaf(int node, int lo, int hi) {
+        int b = node * 6;
+        bounds[b] = bounds[b + 1] = bounds[b + 2] = Double.POSITIVE_INFINITY;
+        bounds[b + 3] = bounds[b + 4] = bounds[b + 5] = Double.NEGATIVE_INFINITY;
+        double r = 0;
+        for (int i = lo; i < hi; i++) {
+            bounds[b] = Math.min(bounds[b], x[i]);
+            bounds[b + 1] = Math.min(bounds[b + 1], y[i]);
+            bounds[b + 2] = Math.min(bounds[b + 2], z[i]);
+            bounds[b + 3] = Math.max(bounds[b + 3], x[i]);
+            bounds[b + 4] = Math.max(bounds[b + 4], y[i]);
+            bounds[b + 5] = Math.max(bounds[b + 5], z[i]);
+            r = Math.max(r, radius[i]);
+        }
+        maxRadius[node] = r;
+    }
+
+    private double sumLeafExtents() {
+        double sum = 0;
+        int first = (1 << leafLevel) - 1;
+        for (int node = first; node < maxRadius.length && count > 0; node++) {
+            int b = node * 6;
+            sum += bounds[b + 3] - bounds[b] + bounds[b + 4] - bounds[b + 1] + bounds[b + 5] - bounds[b + 2];
+        }
+        return sum;
+    }
+
+    private void summarizeInternal(int node) {
+        int b = node * 6;
+        int l = (2 * node + 1) * 6;
+        int r = (2 * node + 2) * 6;
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[b + axis] = Math.min(bounds[l + axis], bounds[r + axis]);
+            bounds[b + 3 + axis] = Math.max(bounds[l + 3 + axis], bounds[r + 3 + axis]);
+        }
+        maxRadius[node] = Math.max(maxRadius[2 * node + 1], maxRadius[2 * node + 2]);
+    }
+
+    // Index range [lo, hi) of a node, from its position in the implicit tree
+    private int rangeStart(int node, int depth) {
+        int first = (1 << depth) - 1;
+        return (int) ((long) count * (node - first) >> depth);
+    }
+
+    private double boxDistanceSquared(int node, double px, double py, double pz) {
+        int b = node * 6;
+        double dx = Math.max(0, Math.max(bounds[b] - px, px - bounds[b + 3]));
+        double dy = Math.max(0, Math.max(bounds[b + 1] - py, py - bounds[b + 4]));
+        double dz = Math.max(0, Math.max(bounds[b + 2] - pz, pz - bounds[b + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Sequence lock: the value to validate against, once no refit is writing
+    private int beginRead() {
+        int seen;
+        while (((seen = sequence) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return seen;
+    }
+
+    private boolean endRead(int seen) {
+        VarHandle.acquireFence(); // The array reads happen before the recheck
+        return sequence == seen;
+    }
+
+    /**
+     * The k entries whose centres are nearest the point, nearest first.
+     * Returns the number found (fewer than k only if the index is smaller).
+     */
+    public int nearest(double px, double py, double pz, int k, SpatialQuery out) {
+        int seen;
+        int found;
+        do {
+            seen = beginRead();
+            found = searchNearest(px, py, pz, k, out);
+        } while (!endRead(seen));
+        return found;
+    }
+
+    private int searchNearest(double px, double py, double pz, int k, SpatialQuery out) {
+        out.reset(k);
+        if (count == 0 || k <= 0) {
+            return 0;
+        }
+        int top = out.push(0, 0, 0);
+        while (top > 0) {
+            top--;
+            int node = out.stackNode[top];
+            int depth = out.stackDepth[top];
+            if (out.count == k && boxDistanceSquared(node, px, py, pz) >= out.worst()) {
+                continue;
+            }
+            if (depth == leafLevel) {
+                int hi = rangeStart(node + 1, depth);
+                for (int i = rangeStart(node, depth); i < hi; i++) {
+                    double dx = x[i] - px, dy = y[i] - py, dz = z[i] - pz;
+                    out.offer(i, dx * dx + dy * dy + dz * dz, k);
+                }
+                continue;
+            }
+            int left = 2 * node + 1;
+            int right = left + 1;
+            // Nearer child last, so it is popped first and tightens the bound early
+            boolean leftNearer = boxDistanceSquared(left, px, py, pz) <= boxDistanceSquared(right, px, py, pz);
+            top = out.push(top, leftNearer ? right : left, depth + 1);
+            top = out.push(top, leftNearer ? left : right, depth + 1);
+        }
+        out.sortHeap();
+        return out.count;
+    }
+
+    /**
+     * All entries whose centres lie within the radius of the point, in no particular order.
+     */
+    public int within(double px, double py, double pz, double searchRadius, SpatialQuery out) {
+        int seen;
+        int found;
+        do {
+            seen = beginRead();
+            found = searchWithin(px, py, pz, searchRadius, out);
+        } while (!endRead(seen));
+        return found;
+    }
+
+    private int searchWithin(double px, double py, double pz, double searchRadius, SpatialQuery out) {
+        out.reset(0);
+        if (count == 0 || !(searchRadius >= 0)) {
+            return 0;
+        }
+        double r2 = searchRadius * searchRadius;
+        int top = out.push(0, 0, 0);
+        while (top > 0) {
+            top--;
+            int node = out.stackNode[top];
+            int depth = out.stackDepth[top];
+            if (boxDistanceSquared(node, px, py, pz) > r2) {
+                continue;
+            }
+            if (depth == leafLevel) {
+                int hi = rangeStart(node + 1, depth);
+                for (int i = rangeStart(node, depth); i < hi; i++) {
+                    double dx = x[i] - px, dy = y[i] - py, dz = z[i] - pz;
+                    double d2 = dx * dx + dy * dy + dz * dz;
+                    if (d2 <= r2) {
+                        out.add(i, d2);
+                    }
+                }
+                continue;
+            }
+            top = out.push(top, 2 * node + 1, depth + 1);
+            top = out.push(top, 2 * node + 2, depth + 1);
+        }
+        out.finishDistances();
+        return out.count;
+    }
+
+    /**
+     * First body sphere hit by the ray from the origin along the direction
+     * (any length), within maxDistance. Each sphere is grown to at least
+     * angularTolerance times its distance from the origin, so bodies far too
+     * small to see can still be hit within a fixed angle (e.g. a few pixels).
+     * Returns the entry index, or -1; the hit distance along the ray is in
+     * out.distance(0).
+     */
+    public int raycast(double ox, double oy, double oz, double dx, double dy, double dz,
+                       double maxDistance, double angularTolerance, SpatialQuery out) {
+        int seen;
+        int hit;
+        do {
+            seen = beginRead();
+            hit = searchRay(ox, oy, oz, dx, dy, dz, maxDistance, angularTolerance, out);
+        } while (!endRead(seen));
+        return hit;
+    }
+
+    private int searchRay(double ox, double oy, double oz, double dx, double dy, double dz,
+                          double maxDistance, double angularTolerance, SpatialQuery out) {
+        out.reset(0);
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (count == 0 || !(length > 0) || !(maxDistance > 0) || !(angularTolerance >= 0)) {
+            return -1;
+        }
+        dx /= length;
+        dy /= length;
+        dz /= length;
+        int best = -1;
+        double bestT = maxDistance;
+        int top = out.push(0, 0, 0);
+        while (top > 0) {
+            top--;
+            int node = out.stackNode[top];
+            int depth = out.stackDepth[top];
+            if (!rayMayHit(node, ox, oy, oz, dx, dy, dz, bestT, angularTolerance, out.span)) {
+                continue;
+            }
+            if (depth == leafLevel) {
+                int hi = rangeStart(node + 1, depth);
+                for (int i = rangeStart(node, depth); i < hi; i++) {
+                    double t = sphereHit(i, ox, oy, oz, dx, dy, dz, angularTolerance);
+                    if (t >= 0 && t < bestT) {
+                        bestT = t;
+                        best = i;
+                    }
+                }
+                continue;
+            }
+            // Roughly front to back, so an early hit prunes the rest
+            int left = 2 * node + 1;
+            int right = left + 1;
+            boolean leftNearer = boxDistanceSquared(left, ox, oy, oz) <= boxDistanceSquared(right, ox, oy, oz);
+            top = out.push(top, leftNearer ? right : left, depth + 1);
+            top = out.push(top, leftNearer ? left : right, depth + 1);
+        }
+        if (best >= 0) {
+            out.add(best, bestT);
+        }
+        return best;
+    }
+
+    // Slab test against the node bounds grown by every sphere they could hold within reach
+    private boolean rayMayHit(int node, double ox, double oy, double oz, double dx, double dy, double dz,
+                              double reach, double angularTolerance, double[] span) {
+        int b = node * 6;
+        // Spheres grow with distance, so bound the growth by the node's farthest corner
+        double fx = Math.max(Math.abs(ox - bounds[b]), Math.abs(ox - bounds[b + 3]));
+        double fy = Math.max(Math.abs(oy - bounds[b + 1]), Math.abs(oy - bounds[b + 4]));
+        double fz = Math.max(Math.abs(oz - bounds[b + 2]), Math.abs(oz - bounds[b + 5]));
+        double farthest = Math.sqrt(fx * fx + fy * fy + fz * fz);
+        double grow = Math.max(maxRadius[node], angularTolerance * farthest);
+        span[0] = 0;
+        span[1] = reach + grow;
+        return clipSlab(span, ox, dx, bounds[b] - grow, bounds[b + 3] + grow)
+            && clipSlab(span, oy, dy, bounds[b + 1] - grow, bounds[b + 4] + grow)
+            && clipSlab(span, oz, dz, bounds[b + 2] - grow, bounds[b + 5] + grow);
+    }
+
+    // Narrow span {tNear, tFar} to the part of the ray between min and max on one axis
+    private static boolean clipSlab(double[] span, double o, double d, double min, double max) {
+        if (d == 0) {
+            return o >= min && o <= max;
+        }
+        double t1 = (min - o) / d;
+        double t2 = (max - o) / d;
+        span[0] = Math.max(span[0], Math.min(t1, t2));
+        span[1] = Math.min(span[1], Math.max(t1, t2));
+        return span[0] <= span[1];
+    }
+
+    // Distance along the (unit) ray to the body's grown sphere, or -1 for a miss
+    private double sphereHit(int i, double ox, double oy, double oz, double dx, double dy, double dz,
+                             double angularTolerance) {
+        double cx = x[i] - ox, cy = y[i] - oy, cz = z[i] - oz;
+        double along = cx * dx + cy * dy + cz * dz;
+        if (along < 0) {
+            return -1; // Behind the origin
+        }
+        double perp2 = cx * cx + cy * cy + cz * cz - along * along;
+        double r = Math.max(radius[i], angularTolerance * along);
+        if (perp2 > r * r) {
+            return -1;
+        }
+        return Math.max(0, along - Math.sqrt(r * r - perp2));
+    }
+}
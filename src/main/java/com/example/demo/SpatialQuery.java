@@ -0,0 +1,129 @@
+package com.example.demo;
+
+import java.util.Arrays;
+
+/**
+ * Reusable result and scratch buffers for SpatialIndex queries. Keep one per
+ * querying thread (it is not thread-safe itself); buffers only grow, so
+ * repeated queries allocate nothing once warmed up.
+ *
+ * Results are entry indices into the index that answered the query, with
+ * their distances: from the query point for nearest and within, along the
+ * ray for raycast.
+ */
+public final class SpatialQuery {
+
+    int count;
+    private int[] indices = new int[16];
+    private double[] distances = new double[16]; // Squared while a query runs
+    // Traversal stack of (node, depth)
+    int[] stackNode = new int[64];
+    int[] stackDepth = new int[64];
+    final double[] span = new double[2];
+
+    public int count() { return count; }
+
+    public int index(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Result " + i + " of " + count);
+        }
+        return indices[i];
+    }
+
+    public double distance(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Result " + i + " of " + count);
+        }
+        return distances[i];
+    }
+
+    void reset(int capacity) {
+        count = 0;
+        if (indices.length < capacity) {
+            indices = new int[capacity];
+            distances = new double[capacity];
+        }
+    }
+
+    int push(int top, int node, int depth) {
+        if (top == stackNode.length) {
+            stackNode = Arrays.copyOf(stackNode, top * 2);
+            stackDepth = Arrays.copyOf(stackDepth, top * 2);
+        }
+        stackNode[top] = node;
+        stackDepth[top] = depth;
+        return top + 1;
+    }
+
+    void add(int index, double distanceSquared) {
+        if (count == indices.length) {
+            indices = Arrays.copyOf(indices, count * 2);
+            distances = Arrays.copyOf(distances, count * 2);
+        }
+        indices[count] = index;
+        distances[count++] = distanceSquared;
+    }
+
+    // Largest squared distance kept by a k-nearest query (the max-heap root)
+    double worst() {
+        return distances[0];
+    }
+
+    // Keep the k nearest seen so far in a max-heap on squared distance
+    void offer(int index, double distanceSquared, int k) {
+        if (count < k) {
+            int i = count++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distanceSquared) {
+                    break;
+                }
+                indices[i] = indices[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            indices[i] = index;
+            distances[i] = distanceSquared;
+        } else if (distanceSquared < distances[0]) {
+            siftDown(0, count, index, distanceSquared);
+        }
+    }
+
+    private void siftDown(int i, int size, int index, double distanceSquared) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if (distances[child] <= distanceSquared) {
+                break;
+            }
+            indices[i] = indices[child];
+            distances[i] = distances[child];
+            i = child;
+        }
+        indices[i] = index;
+        distances[i] = distanceSquared;
+    }
+
+    // Heap sort the k-nearest heap into ascending order and take square roots
+    void sortHeap() {
+        for (int end = count - 1; end > 0; end--) {
+            int index = indices[end];
+            double d2 = distances[end];
+            indices[end] = indices[0];
+            distances[end] = distances[0];
+            siftDown(0, end, index, d2);
+        }
+        finishDistances();
+    }
+
+    void finishDistances() {
+        for (int i = 0; i < count; i++) {
+            distances[i] = Math.sqrt(distances[i]);
+        }
+    }
+}
@@ -12,6 +12,13 @@ public class Star extends CelestialBody {
         this.luminosity = luminosity;
     }
 
+    @Override
+    public Star copy() {
+        Star copy = new Star(id, mass, radius, color.clone(), isStatic, position, velocity, luminosity);
+        copy.testParticle = testParticle;
+        return copy;
+    }
+
     public double getLuminosity() {
         return luminosity;
     }
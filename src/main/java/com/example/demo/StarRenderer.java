@@ -32,16 +32,17 @@ public class StarRenderer implements BodyRenderer {
     }
 
     @Override
-    public void draw(CelestialBody body) {
+    public void draw(BodyView view) {
+        CelestialBody body = view.getBody();
         if (!(body instanceof Star)) {
             System.err.println("StarRenderer received a non-Star body.");
             return;
         }
         
         Star star = (Star) body;
-        Vector3D pos = star.getPosition();
+        Vector3D pos = view.getRenderPosition();
         float[] color = star.getColor();
-        double radius = star.getRadius();
+        double radius = view.getRenderRadius();
         
         // SECURITY: Bounds checking on color values
         float r = Math.max(0.0f, Math.min(1.0f, color[0]));
@@ -68,12 +69,6 @@ public class StarRenderer implements BodyRenderer {
         // Draw sphere using quad approximation
         drawSphere(radius, 16, 16);
         
-        // Debug: Print when actually drawing
-        if (System.currentTimeMillis() % 10000 < 100) {
-            System.out.printf("Drawing Star %s at (%.1f, %.1f, %.1f) with radius %.1f%n",
-                star.getId(), pos.x, pos.y, pos.z, radius);
-        }
-        
         // Reset material properties
         float[] noEmission = {0.0f, 0.0f, 0.0f, 1.0f};
         GL11.glMaterialfv(GL11.GL_FRONT, GL11.GL_EMISSION, noEmission);
@@ -82,7 +77,7 @@ public class StarRenderer implements BodyRenderer {
         GL11.glPopMatrix();
         
         // Draw outline for visibility at any distance
-        drawOutline(star.getPosition(), star.getRadius());
+        drawOutline(pos, radius);
     }
     
     private void drawSphere(double radius, int slices, int stacks) {
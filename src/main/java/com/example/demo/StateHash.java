@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 64-bit FNV-1a fingerprint of the exact simulation state: every body's id,
+ * mass, radius, position and velocity bits, in id order. Two runs agree on the
+ * hash only if they agree to the last bit, so a recorded ("golden") hash
+ * catches any change in results, including from optimizations meant to be
+ * exact.
+ */
+public final class StateHash {
+
+    static final Comparator<CelestialBody> BY_ID = Comparator.comparing(CelestialBody::getId);
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private StateHash() {
+    }
+
+    /**
+     * Hash of the bodies as 16 hex digits. The collection's order does not matter.
+     */
+    public static String of(Collection<CelestialBody> bodies) {
+        List<CelestialBody> ordered = new ArrayList<>(bodies);
+        ordered.sort(BY_ID);
+        long hash = mix(OFFSET_BASIS, ordered.size());
+        for (CelestialBody body : ordered) {
+            String id = body.getId();
+            for (int i = 0; i < id.length(); i++) {
+                hash = mix(hash, id.charAt(i));
+            }
+            hash = mix(hash, Double.doubleToLongBits(body.getMass()));
+            hash = mix(hash, Double.doubleToLongBits(body.getRadius()));
+            hash = mix(hash, Double.doubleToLongBits(body.getPosition().x));
+            hash = mix(hash, Double.doubleToLongBits(body.getPosition().y));
+            hash = mix(hash, Double.doubleToLongBits(body.getPosition().z));
+            hash = mix(hash, Double.doubleToLongBits(body.getVelocity().x));
+            hash = mix(hash, Double.doubleToLongBits(body.getVelocity().y));
+            hash = mix(hash, Double.doubleToLongBits(body.getVelocity().z));
+        }
+        return String.format("%016x", hash);
+    }
+
+    /**
+     * Fold the 8 bytes of value into an FNV-1a hash, low byte first.
+     */
+    static long mix(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash ^= (value >>> shift) & 0xFF;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+}
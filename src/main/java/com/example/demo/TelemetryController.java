@@ -0,0 +1,221 @@
+package com.example.demo;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP telemetry and control endpoints for a running simulation.
+ *
+ * Streams read the latest published TelemetrySnapshot at each client's own rate,
+ * so a slow client just skips snapshots (latest-wins) instead of queueing them.
+ * Control calls are queued onto the physics thread via SimulationManager.submitControl,
+ * and spatial queries run on the request thread against the latest SpatialIndex.
+ *
+ * Stream format (big-endian), one record per message:
+ *   catalog: byte 1, int count, count x UTF id             (sent first and when bodies change)
+ *   state:   byte 2, long step, double time, int count,
+ *            count x (int index, float x, y, z, vx, vy, vz) (SI units, float precision)
+ */
+@RestController
+@RequestMapping("/api/simulation")
+public class TelemetryController {
+
+    static final byte CATALOG_RECORD = 1;
+    static final byte STATE_RECORD = 2;
+
+    private static final int MAX_NEAREST = 1000;
+
+    private final SimulationManager simulation;
+    // SECURITY: Bound concurrent streams (io.telemetry-max-streams) so dashboards cannot exhaust server threads
+    private final Semaphore streamSlots;
+    private final double maxRate;
+    private final ThreadLocal<SpatialQuery> queries = ThreadLocal.withInitial(SpatialQuery::new);
+
+    public TelemetryController(SimulationManager simulation) {
+        this.simulation = simulation;
+        this.streamSlots = new Semaphore(simulation.getSettings().getTelemetryMaxStreams());
+        this.maxRate = simulation.getSettings().getTelemetryMaxRate();
+    }
+
+    @GetMapping("/state")
+    public Map<String, Object> state() {
+        TelemetrySnapshot snapshot = simulation.getTelemetrySnapshot();
+        Map<String, Object> state = new LinkedHashMap<>();
+        if (snapshot == null) {
+            return state;
+        }
+        state.put("step", snapshot.getStep());
+        state.put("simulatedTime", snapshot.getSimulatedTime());
+        state.put("paused", snapshot.isPaused());
+        state.put("timeScale", snapshot.getTimeScale());
+        state.put("bodyCount", snapshot.getBodyCount());
+        return state;
+    }
+
+    /**
+     * The k bodies nearest a point (metres), nearest first, as of the latest index.
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<List<Map<String, Object>>> nearest(@RequestParam double x, @RequestParam double y,
+                                                            @RequestParam double z,
+                                                            @RequestParam(defaultValue = "10") int k) {
+        // SECURITY: Bound the result size and reject non-finite query points
+        if (k < 1 || k > MAX_NEAREST || !Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(z)) {
+            return ResponseEntity.badRequest().build();
+        }
+        SpatialIndex index = simulation.getSpatialIndex();
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (index == null) {
+            return ResponseEntity.ok(result);
+        }
+        SpatialQuery query = queries.get();
+        int found = index.nearest(x, y, z, k, query);
+        for (int i = 0; i < found; i++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", index.body(query.index(i)).getId());
+            entry.put("distance", query.distance(i));
+            result.add(entry);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Binary body-state stream.
+     *
+     * @param rate      maximum frames per second for this client
+     * @param stride    send every stride-th body (downsampling for large N)
+     * @param maxBodies cap on bodies per frame after striding (0 = no cap)
+     * @param maxFrames stop after this many state frames (0 = until the client disconnects)
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(defaultValue = "10") double rate,
+            @RequestParam(defaultValue = "1") int stride,
+            @RequestParam(defaultValue = "0") int maxBodies,
+            @RequestParam(defaultValue = "0") long maxFrames) {
+        // SECURITY: Input validation on client-controlled rates and sizes
+        if (!(rate > 0 && rate <= maxRate) || stride < 1 || maxBodies < 0 || maxFrames < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!streamSlots.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        long intervalNanos = (long) (1e9 / rate);
+        StreamingResponseBody body = output -> {
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+                String[] sentIds = null;
+                long lastStep = -1;
+                long sentFrames = 0;
+                long nextFrame = System.nanoTime();
+
+                while (maxFrames == 0 || sentFrames < maxFrames) {
+                    TelemetrySnapshot snapshot = simulation.getTelemetrySnapshot();
+                    if (snapshot != null && snapshot.getStep() != lastStep) {
+                        if (snapshot.getIds() != sentIds) {
+                            writeCatalog(out, snapshot);
+                            sentIds = snapshot.getIds();
+                        }
+                        writeState(out, snapshot, stride, maxBodies);
+                        // Blocks while the client's socket is full: natural per-client backpressure
+                        out.flush();
+                        lastStep = snapshot.getStep();
+                        sentFrames++;
+                    }
+
+                    nextFrame += intervalNanos;
+                    long wait = nextFrame - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    } else {
+                        nextFrame = System.nanoTime(); // Fell behind; don't burst to catch up
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                }
+            } finally {
+                streamSlots.release();
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(body);
+    }
+
+    @PostMapping("/pause")
+    public ResponseEntity<Void> pause() {
+        simulation.submitControl(() -> simulation.setPaused(true));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    }
+
+    @PostMapping("/resume")
+    public ResponseEntity<Void> resume() {
+        simulation.submitControl(() -> simulation.setPaused(false));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    }
+
+    @PostMapping("/time-scale")
+    public ResponseEntity<Void> timeScale(@RequestParam double value) {
+        if (!simulation.isValidTimeScale(value)) {
+            return ResponseEntity.badRequest().build();
+        }
+        simulation.submitControl(() -> simulation.setTimeScale(value));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    }
+
+    /**
+     * Advance one step of the given simulated seconds; intended for use while paused.
+     */
+    @PostMapping("/step")
+    public ResponseEntity<Void> step(@RequestParam(defaultValue = "86400") double seconds) {
+        if (!simulation.isValidStep(seconds)) {
+            return ResponseEntity.badRequest().build();
+        }
+        simulation.submitControl(() -> simulation.stepOnce(seconds));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    }
+
+    private static void writeCatalog(DataOutputStream out, TelemetrySnapshot snapshot) throws IOException {
+        out.writeByte(CATALOG_RECORD);
+        out.writeInt(snapshot.getBodyCount());
+        for (int i = 0; i < snapshot.getBodyCount(); i++) {
+            out.writeUTF(snapshot.getId(i));
+        }
+    }
+
+    private static void writeState(DataOutputStream out, TelemetrySnapshot snapshot, int stride, int maxBodies)
+            throws IOException {
+        int available = (snapshot.getBodyCount() + stride - 1) / stride;
+        int count = maxBodies > 0 ? Math.min(maxBodies, available) : available;
+
+        out.writeByte(STATE_RECORD);
+        out.writeLong(snapshot.getStep());
+        out.writeDouble(snapshot.getSimulatedTime());
+        out.writeInt(count);
+        for (int n = 0, index = 0; n < count; n++, index += stride) {
+            out.writeInt(index);
+            for (int component = 0; component < 6; component++) {
+                out.writeFloat((float) snapshot.getState(index, component));
+            }
+        }
+    }
+}
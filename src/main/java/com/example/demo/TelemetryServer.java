@@ -0,0 +1,62 @@
+package com.example.demo;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Embedded Spring Boot web server exposing a running SimulationManager.
+ *
+ * Started with --telemetry; listens on server.port from application.properties,
+ * on loopback unless --telemetry-host=ADDRESS asks for another interface.
+ * Only TelemetryController is registered; the simulation instance is injected
+ * as a singleton so the web layer shares the live run instead of creating one.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@Import(TelemetryController.class)
+public class TelemetryServer {
+
+    public static boolean isRequested(String[] args) {
+        for (String arg : args) {
+            if ("--telemetry".equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static ConfigurableApplicationContext start(SimulationManager simulation, String[] args) {
+        simulation.enableTelemetry();
+        simulation.enableSpatialIndex();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TelemetryServer.class)
+            .initializers(ctx -> ctx.getBeanFactory().registerSingleton("simulationManager", simulation))
+            // Devtools restarts would re-run main() and open a second window
+            .properties("spring.devtools.restart.enabled=false")
+            .run(args);
+        System.out.println("Telemetry server started on " + context.getEnvironment().getProperty("server.address")
+            + " (GET /api/simulation/stream, POST /api/simulation/pause)");
+        return context;
+    }
+
+    /**
+     * MVC async executor, which runs each stream for its whole life: one thread per
+     * stream slot (io.telemetry-max-streams). The default pool has 8 threads and an
+     * unbounded queue, so with no async timeout any stream past the 8th would hang.
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(SimulationManager simulationManager) {
+        int streams = simulationManager.getSettings().getTelemetryMaxStreams();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streams);
+        executor.setMaxPoolSize(streams);
+        executor.setThreadNamePrefix("telemetry-stream-");
+        executor.setDaemon(true);
+        return executor;
+    }
+}
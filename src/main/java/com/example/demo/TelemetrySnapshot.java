@@ -0,0 +1,70 @@
+package com.example.demo;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable copy of body state published by the physics thread after each step.
+ *
+ * Readers (telemetry streams, dashboards) only ever see complete snapshots and
+ * never touch live CelestialBody objects, so they cannot stall or race the physics.
+ */
+public final class TelemetrySnapshot {
+
+    private final long step;
+    private final double simulatedTime;
+    private final boolean paused;
+    private final double timeScale;
+    private final String[] ids;
+    private final double[] state; // x, y, z, vx, vy, vz per body
+
+    private TelemetrySnapshot(long step, double simulatedTime, boolean paused, double timeScale,
+                              String[] ids, double[] state) {
+        this.step = step;
+        this.simulatedTime = simulatedTime;
+        this.paused = paused;
+        this.timeScale = timeScale;
+        this.ids = ids;
+        this.state = state;
+    }
+
+    /**
+     * Copy the given bodies. The id table of the previous snapshot is reused when
+     * unchanged, so readers can detect catalog changes by reference.
+     */
+    static TelemetrySnapshot capture(long step, double simulatedTime, boolean paused, double timeScale,
+                                     List<CelestialBody> bodies, TelemetrySnapshot previous) {
+        String[] ids = new String[bodies.size()];
+        double[] state = new double[bodies.size() * 6];
+        for (int i = 0; i < bodies.size(); i++) {
+            CelestialBody body = bodies.get(i);
+            ids[i] = body.getId();
+            Vector3D p = body.getPosition();
+            Vector3D v = body.getVelocity();
+            state[i * 6] = p.x;
+            state[i * 6 + 1] = p.y;
+            state[i * 6 + 2] = p.z;
+            state[i * 6 + 3] = v.x;
+            state[i * 6 + 4] = v.y;
+            state[i * 6 + 5] = v.z;
+        }
+        if (previous != null && Arrays.equals(previous.ids, ids)) {
+            ids = previous.ids;
+        }
+        return new TelemetrySnapshot(step, simulatedTime, paused, timeScale, ids, state);
+    }
+
+    public long getStep() { return step; }
+    public double getSimulatedTime() { return simulatedTime; }
+    public boolean isPaused() { return paused; }
+    public double getTimeScale() { return timeScale; }
+    public int getBodyCount() { return ids.length; }
+
+    /**
+     * Body ids in snapshot order. Shared between snapshots; callers must not modify it.
+     */
+    String[] getIds() { return ids; }
+
+    public String getId(int index) { return ids[index]; }
+    public double getState(int index, int component) { return state[index * 6 + component]; }
+}
@@ -0,0 +1,189 @@
+package com.example.demo;
+
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Adaptive global step size.
+ *
+ * After every step the integrator reports the forces it applied. From the
+ * change in each body's acceleration since the previous step the controller
+ * estimates the jerk, and |a| / |jerk| (1 / angular frequency on a circular
+ * orbit) as the body's shortest orbital timescale. The safe step is that
+ * timescale divided into the requested number of steps per orbit, minimised
+ * over all plainly integrated bodies. Moons in a sub-cycled group, regularized
+ * pairs, driven and static bodies and test particles are excluded, since they
+ * do not take the plain step.
+ *
+ * The simulation splits each frame's simulated interval into equal sub-steps
+ * no longer than the safe step, up to a sub-step cap and a wall-clock budget;
+ * simulated time that does not fit is dropped, so a frame hitch slows the
+ * simulation down instead of becoming one huge step.
+ *
+ * SAFETY: Not thread-safe. Use from the physics thread only.
+ */
+public class TimestepController {
+
+    // The safe step may at most double from one step to the next
+    private static final double MAX_GROWTH = 2.0;
+    // Steps used while there is no acceleration history yet, as a fraction of the request
+    private static final int PROBE_DIVISOR = 64;
+    // SECURITY: Bounds on per-frame work
+    static final int MAX_SUBSTEPS_LIMIT = 100_000;
+    static final double MAX_STEPS_PER_ORBIT = 1e6;
+
+    private double stepsPerOrbit;
+    private final int maxSubsteps;
+    private final long budgetNanos;
+
+    // Previous step's accelerations, index-aligned with the body list the integrator stepped
+    private CelestialBody[] previousBodies = new CelestialBody[0];
+    private double[] previousAcceleration = new double[0];
+    private double previousDeltaTime;
+    private double safeStep = Double.POSITIVE_INFINITY;
+
+    private int lastSubsteps;
+    private double lastDropped;
+
+    public TimestepController(double stepsPerOrbit, int maxSubsteps, long budgetMillis) {
+        // SECURITY: Input validation on accuracy and work bounds
+        if (!(stepsPerOrbit >= 1) || Double.isInfinite(stepsPerOrbit)) {
+            throw new IllegalArgumentException("Steps per orbit must be finite and >= 1");
+        }
+        if (maxSubsteps < 1 || maxSubsteps > MAX_SUBSTEPS_LIMIT) {
+            throw new IllegalArgumentException("Max sub-steps must be in 1.." + MAX_SUBSTEPS_LIMIT);
+        }
+        if (budgetMillis < 0) {
+            throw new IllegalArgumentException("Sub-step budget must be >= 0 ms (0 = unlimited)");
+        }
+        this.stepsPerOrbit = stepsPerOrbit;
+        this.maxSubsteps = maxSubsteps;
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    /**
+     * Build a controller from --adaptive [--steps-per-orbit=N] [--max-substeps=N]
+     * [--substep-budget-ms=MS], or return null when --adaptive is absent.
+     */
+    public static TimestepController fromArgs(String[] args) {
+        boolean adaptive = false;
+        double stepsPerOrbit = 500;
+        int maxSubsteps = 64;
+        long budgetMillis = 12;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if ("--adaptive".equals(arg)) {
+                adaptive = true;
+            } else if (arg.startsWith("--steps-per-orbit=")) {
+                stepsPerOrbit = Double.parseDouble(value);
+            } else if (arg.startsWith("--max-substeps=")) {
+                maxSubsteps = Integer.parseInt(value);
+            } else if (arg.startsWith("--substep-budget-ms=")) {
+                budgetMillis = Long.parseLong(value);
+            }
+        }
+        return adaptive ? new TimestepController(stepsPerOrbit, maxSubsteps, budgetMillis) : null;
+    }
+
+    /**
+     * Record the forces of the step just taken (null entries did not take the
+     * plain step) and update the safe step.
+     */
+    void observe(List<CelestialBody> bodies, Vector3D[] forces, double deltaTime) {
+        int n = forces.length;
+        boolean aligned = previousBodies.length == n;
+        double shortest = Double.POSITIVE_INFINITY;
+        if (!aligned) {
+            previousBodies = new CelestialBody[n];
+            previousAcceleration = new double[n * 3];
+        }
+        for (int i = 0; i < n; i++) {
+            CelestialBody body = bodies.get(i);
+            if (forces[i] == null) {
+                previousBodies[i] = null;
+                continue;
+            }
+            double ax = forces[i].x / body.mass;
+            double ay = forces[i].y / body.mass;
+            double az = forces[i].z / body.mass;
+            int base = i * 3;
+            if (aligned && previousBodies[i] == body && previousDeltaTime > 0) {
+                double jx = ax - previousAcceleration[base];
+                double jy = ay - previousAcceleration[base + 1];
+                double jz = az - previousAcceleration[base + 2];
+                double change = Math.sqrt(jx * jx + jy * jy + jz * jz);
+                if (change > 0) {
+                    // |a| / |da/dt|: the two forces were evaluated one previous step apart
+                    shortest = Math.min(shortest, Math.sqrt(ax * ax + ay * ay + az * az) * previousDeltaTime / change);
+                }
+            }
+            previousBodies[i] = body;
+            previousAcceleration[base] = ax;
+            previousAcceleration[base + 1] = ay;
+            previousAcceleration[base + 2] = az;
+        }
+        previousDeltaTime = deltaTime;
+        if (Double.isInfinite(shortest)) {
+            return; // No history yet (or nothing accelerating); keep the previous estimate
+        }
+        double estimate = 2 * Math.PI * shortest / stepsPerOrbit;
+        safeStep = Double.isInfinite(safeStep) ? estimate : Math.min(estimate, safeStep * MAX_GROWTH);
+    }
+
+    /**
+     * Advance the simulation by the requested interval in equal sub-steps no
+     * longer than the safe step. Returns the simulated time actually covered.
+     */
+    double advance(double requested, DoubleConsumer step) {
+        long start = System.nanoTime();
+        double remaining = requested;
+        int substeps = 0;
+        // Stop at a relative remainder that is only rounding error
+        while (remaining > requested * 1e-12 && substeps < maxSubsteps) {
+            double limit = Double.isInfinite(safeStep) ? requested / PROBE_DIVISOR : safeStep;
+            double pieces = Math.ceil(remaining / limit);
+            double h = pieces <= 1 ? remaining : remaining / pieces;
+            step.accept(h);
+            remaining -= h;
+            substeps++;
+            if (budgetNanos > 0 && System.nanoTime() - start > budgetNanos) {
+                break;
+            }
+        }
+        lastSubsteps = substeps;
+        lastDropped = Math.max(0, remaining);
+        return requested - lastDropped;
+    }
+
+    /**
+     * Halve the step for the rest of the run by doubling the steps per orbit,
+     * e.g. when conservation drifts. False once MAX_STEPS_PER_ORBIT is reached.
+     */
+    public boolean reduceStep() {
+        if (stepsPerOrbit * 2 > MAX_STEPS_PER_ORBIT) {
+            return false;
+        }
+        stepsPerOrbit *= 2;
+        safeStep /= 2;
+        return true;
+    }
+
+    /**
+     * Forget the acceleration history, e.g. after the scenario was replaced.
+     */
+    public void reset() {
+        previousBodies = new CelestialBody[0];
+        previousAcceleration = new double[0];
+        previousDeltaTime = 0;
+        safeStep = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Current safe step in simulated seconds (infinite until two steps were observed).
+     */
+    public double getSafeStep() { return safeStep; }
+    public int getLastSubsteps() { return lastSubsteps; }
+    public double getLastDroppedTime() { return lastDropped; }
+    public double getStepsPerOrbit() { return stepsPerOrbit; }
+    public int getMaxSubsteps() { return maxSubsteps; }
+}
@@ -0,0 +1,493 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches for a single-burn transfer from a spacecraft's current state to a
+ * target body, against a precomputed (or frozen) Ephemeris of the massive bodies.
+ *
+ * Candidates are (departure time, delta-v vector) pairs. The first round samples
+ * the departure window and a box around the prograde direction; later rounds
+ * resample around the best candidates so far (cross-entropy search).
+ * The spacecraft is a test particle: it feels the ephemeris bodies but moves
+ * none of them, so candidates are independent.
+ *
+ * Candidates are propagated in batches of BATCH_SIZE in lockstep (leapfrog,
+ * fixed step), so each ephemeris evaluation serves the whole batch, and batches
+ * run on a fixed thread pool. A candidate is aborted early when
+ * - its departure burn alone costs more than the best plan that reaches the target,
+ * - it hits a body, or
+ * - it is receding from the target at several times its closest approach so far.
+ *
+ * The planner is reusable; plan() may not be called concurrently.
+ */
+public class TrajectoryPlanner implements AutoCloseable {
+
+    static final int BATCH_SIZE = 64;
+    // Cost of missing the target, in m/s per arrival radius beyond the arrival radius
+    private static final double MISS_PENALTY = 1e4;
+    // Stop following a candidate once it is this many times further than its closest approach
+    private static final double RECEDE_FACTOR = 3.0;
+    // Fraction of all evaluated candidates that seeds the next round
+    private static final double ELITE_FRACTION = 0.02;
+
+    private final int threads;
+    private final ExecutorService pool;
+
+    private double flightTime = 300 * 86400.0;
+    private double departureWindow = 60 * 86400.0;
+    private double maxDeltaV = 6000;
+    private int candidatesPerRound = 2000;
+    private int rounds = 4;
+    private double timeStep = 3600;
+    private double arrivalRadius;   // 0: target's sphere of influence
+    private long seed = 1;
+
+    public TrajectoryPlanner(int threads) {
+        // SECURITY: Bound worker count
+        if (threads <= 0 || threads > 1024) {
+            throw new IllegalArgumentException("Threads must be in 1..1024");
+        }
+        this.threads = threads;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "planner-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Apply --plan-days=D (maximum flight time), --plan-window-days=D,
+     * --plan-max-dv=M/S, --plan-candidates=N (per round), --plan-rounds=R,
+     * --plan-step=S and --plan-arrival-radius=M.
+     */
+    public void applyArgs(String[] args) {
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--plan-days=")) {
+                setFlightTime(Double.parseDouble(value) * 86400);
+            } else if (arg.startsWith("--plan-window-days=")) {
+                setDepartureWindow(Double.parseDouble(value) * 86400);
+            } else if (arg.startsWith("--plan-max-dv=")) {
+                setMaxDeltaV(Double.parseDouble(value));
+            } else if (arg.startsWith("--plan-candidates=")) {
+                setCandidates(Integer.parseInt(value), rounds);
+            } else if (arg.startsWith("--plan-rounds=")) {
+                setCandidates(candidatesPerRound, Integer.parseInt(value));
+            } else if (arg.startsWith("--plan-step=")) {
+                setTimeStep(Double.parseDouble(value));
+            } else if (arg.startsWith("--plan-arrival-radius=")) {
+                setArrivalRadius(Double.parseDouble(value));
+            }
+        }
+    }
+
+    public BurnPlan plan(Ephemeris ephemeris, Spacecraft craft, String targetId) throws InterruptedException {
+        Vector3D p = craft.getPosition();
+        Vector3D v = craft.getVelocity();
+        return plan(ephemeris, new double[]{p.x, p.y, p.z, v.x, v.y, v.z}, targetId);
+    }
+
+    /**
+     * Best plan from the state {x, y, z, vx, vy, vz} at the ephemeris epoch to the target.
+     * The ephemeris must span the departure window plus the flight time.
+     */
+    public BurnPlan plan(Ephemeris ephemeris, double[] start, String targetId) throws InterruptedException {
+        int target = ephemeris.indexOf(targetId);
+        if (target < 0) {
+            throw new IllegalArgumentException("Target not in ephemeris: " + targetId);
+        }
+        if (departureWindow + flightTime > ephemeris.getEndTime() - ephemeris.getStartTime()) {
+            throw new IllegalArgumentException("Ephemeris span shorter than departure window plus flight time");
+        }
+        double radius = arrivalRadius > 0 ? arrivalRadius : sphereOfInfluence(ephemeris, target);
+        Random random = new Random(seed);
+        double[] frame = localFrame(ephemeris, start);
+
+        List<double[]> evaluated = new ArrayList<>();   // {burnTime, dvx, dvy, dvz, cost, miss, arrival, arrivalDv}
+        AtomicLong bestReachedCost = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+        AtomicLong aborted = new AtomicLong();
+
+        for (int round = 0; round < rounds; round++) {
+            double[][] candidates = round == 0
+                ? sampleInitial(random, frame)
+                : sampleAround(random, elites(evaluated));
+            List<Future<double[][]>> batches = new ArrayList<>();
+            for (int from = 0; from < candidates.length; from += BATCH_SIZE) {
+                double[][] batch = Arrays.copyOfRange(candidates, from, Math.min(candidates.length, from + BATCH_SIZE));
+                Callable<double[][]> task = () -> propagate(ephemeris, batch, start, target, radius, bestReachedCost, aborted);
+                batches.add(pool.submit(task));
+            }
+            for (Future<double[][]> batch : batches) {
+                try {
+                    evaluated.addAll(Arrays.asList(batch.get()));
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Candidate propagation failed", e.getCause());
+                }
+            }
+        }
+
+        double[] best = null;
+        for (double[] candidate : evaluated) {
+            if (best == null || candidate[4] < best[4]) {
+                best = candidate;
+            }
+        }
+        return new BurnPlan(ephemeris.getId(target), best[0], Vector3D.obtain(best[1], best[2], best[3]),
+            best[6], best[5], best[7], best[5] <= radius, evaluated.size(), aborted.get());
+    }
+
+    /**
+     * Propagate one batch in lockstep; returns one result row per candidate.
+     */
+    private double[][] propagate(Ephemeris ephemeris, double[][] batch, double[] start, int target, double radius,
+                                 AtomicLong bestReachedCost, AtomicLong aborted) {
+        int count = batch.length;
+        int bodies = ephemeris.getBodyCount();
+        double h = timeStep;
+        double[] x = new double[count], y = new double[count], z = new double[count];
+        double[] vx = new double[count], vy = new double[count], vz = new double[count];
+        double[] ax = new double[count], ay = new double[count], az = new double[count];
+        long[] burnStep = new long[count];
+        long[] endStep = new long[count];
+        boolean[] active = new boolean[count];
+        boolean[] failed = new boolean[count]; // Pruned before departure or crashed
+        double[][] result = new double[count][];
+        double[] bodyPositions = new double[bodies * 3];
+        double[] targetState = new double[6];
+
+        // Closest approach so far: distance, time and spacecraft velocity
+        double[] minDistance = new double[count];
+        double[] minTime = new double[count];
+        double[] minVx = new double[count], minVy = new double[count], minVz = new double[count];
+
+        long lastStep = 0;
+        double bestReached = Double.longBitsToDouble(bestReachedCost.get());
+        for (int i = 0; i < count; i++) {
+            double[] c = batch[i];
+            result[i] = new double[]{c[0], c[1], c[2], c[3], Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 0, 0};
+            double departureDv = Math.sqrt(c[1] * c[1] + c[2] * c[2] + c[3] * c[3]);
+            if (departureDv >= bestReached) {
+                aborted.incrementAndGet(); // The burn alone already costs more than a known transfer
+                failed[i] = true;
+                continue;
+            }
+            x[i] = start[0]; y[i] = start[1]; z[i] = start[2];
+            vx[i] = start[3]; vy[i] = start[4]; vz[i] = start[5];
+            burnStep[i] = Math.round(c[0] / h);
+            endStep[i] = burnStep[i] + (long) Math.ceil(flightTime / h);
+            lastStep = Math.max(lastStep, endStep[i]);
+            minDistance[i] = Double.POSITIVE_INFINITY;
+            active[i] = true;
+        }
+
+        loadPositions(ephemeris, 0, bodyPositions);
+        accelerate(ephemeris, x, y, z, ax, ay, az, active, failed, bodyPositions, aborted);
+        for (long step = 0; step < lastStep && anyActive(active); step++) {
+            double t = (step + 1) * h;
+            for (int i = 0; i < count; i++) {
+                if (!active[i]) continue;
+                if (step == burnStep[i]) {
+                    vx[i] += batch[i][1];
+                    vy[i] += batch[i][2];
+                    vz[i] += batch[i][3];
+                }
+                vx[i] += ax[i] * h * 0.5;
+                vy[i] += ay[i] * h * 0.5;
+                vz[i] += az[i] * h * 0.5;
+                x[i] += vx[i] * h;
+                y[i] += vy[i] * h;
+                z[i] += vz[i] * h;
+            }
+            loadPositions(ephemeris, t, bodyPositions);
+            accelerate(ephemeris, x, y, z, ax, ay, az, active, failed, bodyPositions, aborted);
+
+            int tb = target * 3;
+            for (int i = 0; i < count; i++) {
+                if (!active[i]) {
+                    continue;
+                }
+                vx[i] += ax[i] * h * 0.5;
+                vy[i] += ay[i] * h * 0.5;
+                vz[i] += az[i] * h * 0.5;
+                if (step < burnStep[i]) {
+                    continue; // Still coasting before departure
+                }
+                double dx = x[i] - bodyPositions[tb];
+                double dy = y[i] - bodyPositions[tb + 1];
+                double dz = z[i] - bodyPositions[tb + 2];
+                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                if (distance < minDistance[i]) {
+                    minDistance[i] = distance;
+                    minTime[i] = t;
+                    minVx[i] = vx[i];
+                    minVy[i] = vy[i];
+                    minVz[i] = vz[i];
+                }
+                boolean receding = distance > RECEDE_FACTOR * Math.max(minDistance[i], radius);
+                if (receding || step + 1 >= endStep[i]) {
+                    active[i] = false;
+                    if (receding && minDistance[i] > radius) {
+                        aborted.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            double[] row = result[i];
+            if (failed[i] || !Double.isFinite(minDistance[i])) {
+                continue;
+            }
+            ephemeris.state(target, minTime[i], targetState, 0);
+            double rvx = minVx[i] - targetState[3];
+            double rvy = minVy[i] - targetState[4];
+            double rvz = minVz[i] - targetState[5];
+            double arrivalDv = Math.sqrt(rvx * rvx + rvy * rvy + rvz * rvz);
+            double departureDv = Math.sqrt(row[1] * row[1] + row[2] * row[2] + row[3] * row[3]);
+            double miss = minDistance[i];
+            double cost = departureDv + arrivalDv + (miss > radius ? MISS_PENALTY * (miss - radius) / radius : 0);
+            row[4] = cost;
+            row[5] = miss;
+            row[6] = minTime[i];
+            row[7] = arrivalDv;
+            if (miss <= radius) {
+                lowerBest(bestReachedCost, cost);
+            }
+        }
+        return result;
+    }
+
+    private static void loadPositions(Ephemeris ephemeris, double time, double[] out) {
+        for (int body = 0; body < ephemeris.getBodyCount(); body++) {
+            ephemeris.position(body, time, out, body * 3);
+        }
+    }
+
+    // Gravity of every ephemeris body; candidates that hit a body are deactivated
+    private static void accelerate(Ephemeris ephemeris, double[] x, double[] y, double[] z, double[] ax, double[] ay, double[] az,
+                            boolean[] active, boolean[] failed, double[] bodyPositions, AtomicLong aborted) {
+        int bodies = ephemeris.getBodyCount();
+        for (int i = 0; i < x.length; i++) {
+            if (!active[i]) continue;
+            double sx = 0, sy = 0, sz = 0;
+            for (int b = 0; b < bodies; b++) {
+                double dx = bodyPositions[b * 3] - x[i];
+                double dy = bodyPositions[b * 3 + 1] - y[i];
+                double dz = bodyPositions[b * 3 + 2] - z[i];
+                double r2 = dx * dx + dy * dy + dz * dz;
+                double bodyRadius = ephemeris.getRadius(b);
+                if (r2 < bodyRadius * bodyRadius) {
+                    active[i] = false;
+                    failed[i] = true;
+                    aborted.incrementAndGet();
+                    break;
+                }
+                double factor = CelestialBody.G * ephemeris.getMass(b) / (r2 * Math.sqrt(r2));
+                sx += dx * factor;
+                sy += dy * factor;
+                sz += dz * factor;
+            }
+            ax[i] = sx;
+            ay[i] = sy;
+            az[i] = sz;
+        }
+    }
+
+    private static boolean anyActive(boolean[] active) {
+        for (boolean a : active) {
+            if (a) return true;
+        }
+        return false;
+    }
+
+    private static void lowerBest(AtomicLong best, double cost) {
+        long current;
+        do {
+            current = best.get();
+            if (Double.longBitsToDouble(current) <= cost) {
+                return;
+            }
+        } while (!best.compareAndSet(current, Double.doubleToLongBits(cost)));
+    }
+
+    // Prograde, normal and radial unit vectors of the start state, relative to the heaviest body
+    private static double[] localFrame(Ephemeris ephemeris, double[] start) {
+        double[] central = new double[6];
+        ephemeris.state(heaviest(ephemeris), 0, central, 0);
+        double rx = start[0] - central[0], ry = start[1] - central[1], rz = start[2] - central[2];
+        double vx = start[3] - central[3], vy = start[4] - central[4], vz = start[5] - central[5];
+        double[] t = normalize(vx, vy, vz);
+        double[] n = normalize(ry * vz - rz * vy, rz * vx - rx * vz, rx * vy - ry * vx);
+        double[] r = normalize(t[1] * n[2] - t[2] * n[1], t[2] * n[0] - t[0] * n[2], t[0] * n[1] - t[1] * n[0]);
+        return new double[]{t[0], t[1], t[2], n[0], n[1], n[2], r[0], r[1], r[2]};
+    }
+
+    private double[][] sampleInitial(Random random, double[] frame) {
+        double[][] candidates = new double[candidatesPerRound][];
+        for (int k = 0; k < candidates.length; k++) {
+            // Mostly along or against the orbit: that is where transfers are
+            double along = (2 * random.nextDouble() - 1) * maxDeltaV;
+            double normal = (2 * random.nextDouble() - 1) * maxDeltaV / 3;
+            double radial = (2 * random.nextDouble() - 1) * maxDeltaV / 3;
+            double[] c = {
+                random.nextDouble() * departureWindow,
+                along * frame[0] + normal * frame[3] + radial * frame[6],
+                along * frame[1] + normal * frame[4] + radial * frame[7],
+                along * frame[2] + normal * frame[5] + radial * frame[8]
+            };
+            candidates[k] = clamp(c);
+        }
+        return candidates;
+    }
+
+    private List<double[]> elites(List<double[]> evaluated) {
+        List<double[]> sorted = new ArrayList<>(evaluated);
+        sorted.sort((a, b) -> Double.compare(a[4], b[4]));
+        int keep = Math.max(4, (int) (sorted.size() * ELITE_FRACTION));
+        return sorted.subList(0, Math.min(keep, sorted.size()));
+    }
+
+    private double[][] sampleAround(Random random, List<double[]> elites) {
+        double[] mean = new double[4];
+        double[] sd = new double[4];
+        for (double[] e : elites) {
+            for (int k = 0; k < 4; k++) mean[k] += e[k] / elites.size();
+        }
+        for (double[] e : elites) {
+            for (int k = 0; k < 4; k++) sd[k] += (e[k] - mean[k]) * (e[k] - mean[k]) / elites.size();
+        }
+        // SAFETY: Keep some spread so the search cannot collapse onto one point
+        double minTimeSd = Math.max(timeStep, departureWindow * 1e-3);
+        double minDvSd = maxDeltaV * 1e-3;
+        for (int k = 0; k < 4; k++) {
+            sd[k] = Math.max(Math.sqrt(sd[k]), k == 0 ? minTimeSd : minDvSd);
+        }
+        double[][] candidates = new double[candidatesPerRound][];
+        for (int n = 0; n < candidates.length; n++) {
+            double[] c = new double[4];
+            for (int k = 0; k < 4; k++) {
+                c[k] = mean[k] + random.nextGaussian() * sd[k];
+            }
+            candidates[n] = clamp(c);
+        }
+        return candidates;
+    }
+
+    private double[] clamp(double[] c) {
+        c[0] = Math.max(0, Math.min(departureWindow, c[0]));
+        double dv = Math.sqrt(c[1] * c[1] + c[2] * c[2] + c[3] * c[3]);
+        if (dv > maxDeltaV) {
+            double scale = maxDeltaV / dv;
+            c[1] *= scale;
+            c[2] *= scale;
+            c[3] *= scale;
+        }
+        return c;
+    }
+
+    private static int heaviest(Ephemeris ephemeris) {
+        int heaviest = 0;
+        for (int body = 1; body < ephemeris.getBodyCount(); body++) {
+            if (ephemeris.getMass(body) > ephemeris.getMass(heaviest)) {
+                heaviest = body;
+            }
+        }
+        return heaviest;
+    }
+
+    // Laplace sphere of influence around the heaviest body: a (m / M)^(2/5)
+    private static double sphereOfInfluence(Ephemeris ephemeris, int target) {
+        int central = heaviest(ephemeris);
+        if (central == target) {
+            return ephemeris.getRadius(target) * 10;
+        }
+        double[] a = new double[3];
+        double[] b = new double[3];
+        ephemeris.position(central, 0, a, 0);
+        ephemeris.position(target, 0, b, 0);
+        double distance = Math.sqrt((a[0] - b[0]) * (a[0] - b[0]) + (a[1] - b[1]) * (a[1] - b[1])
+            + (a[2] - b[2]) * (a[2] - b[2]));
+        return distance * StrictMath.pow(ephemeris.getMass(target) / ephemeris.getMass(central), 0.4);
+    }
+
+    private static double[] normalize(double x, double y, double z) {
+        double length = Math.sqrt(x * x + y * y + z * z);
+        return length > 0 ? new double[]{x / length, y / length, z / length} : new double[]{1, 0, 0};
+    }
+
+    public void setFlightTime(double seconds) {
+        if (!(seconds > 0) || Double.isInfinite(seconds)) {
+            throw new IllegalArgumentException("Flight time must be positive and finite");
+        }
+        this.flightTime = seconds;
+    }
+
+    public void setDepartureWindow(double seconds) {
+        if (!(seconds >= 0) || Double.isInfinite(seconds)) {
+            throw new IllegalArgumentException("Departure window must be >= 0 and finite");
+        }
+        this.departureWindow = seconds;
+    }
+
+    public void setMaxDeltaV(double metresPerSecond) {
+        if (!(metresPerSecond > 0) || Double.isInfinite(metresPerSecond)) {
+            throw new IllegalArgumentException("Maximum delta-v must be positive and finite");
+        }
+        this.maxDeltaV = metresPerSecond;
+    }
+
+    public void setCandidates(int perRound, int rounds) {
+        // SECURITY: Bound total work per plan
+        if (perRound < 1 || rounds < 1 || (long) perRound * rounds > 10_000_000L) {
+            throw new IllegalArgumentException("Candidates and rounds must be positive (at most 1e7 in total)");
+        }
+        this.candidatesPerRound = perRound;
+        this.rounds = rounds;
+    }
+
+    public void setTimeStep(double seconds) {
+        if (!(seconds > 0) || Double.isInfinite(seconds)) {
+            throw new IllegalArgumentException("Time step must be positive and finite");
+        }
+        this.timeStep = seconds;
+    }
+
+    /**
+     * Closest approach that counts as reaching the target; 0 uses its sphere of influence.
+     */
+    public void setArrivalRadius(double metres) {
+        if (!(metres >= 0) || Double.isInfinite(metres)) {
+            throw new IllegalArgumentException("Arrival radius must be >= 0 and finite");
+        }
+        this.arrivalRadius = metres;
+    }
+
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public double getFlightTime() { return flightTime; }
+    public double getDepartureWindow() { return departureWindow; }
+    public int getThreads() { return threads; }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
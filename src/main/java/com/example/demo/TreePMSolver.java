@@ -0,0 +1,42 @@
+package com.example.demo;
+
+/**
+ * TreePM gravity: the long-range part of a ForceSplit from a ParticleMesh plus
+ * the short-range part from a BarnesHutTree walk that stops at the split's
+ * cutoff. Each walk only opens cells within a few mesh cells of the body, so
+ * the cost per body stays flat as the system grows, while close encounters
+ * keep the tree's resolution.
+ *
+ * SAFETY: Wraps the mesh and tree as they are; call update() after each solve,
+ * then calculateNetForce() may be called from many threads.
+ */
+public class TreePMSolver extends SpatialPartitioningTree {
+
+    private final BarnesHutTree tree;
+    private final ParticleMesh mesh;
+
+    public TreePMSolver(BarnesHutTree tree, ParticleMesh mesh) {
+        // SAFETY: A full-force mesh would count the short range twice
+        if (!mesh.isLongRangeOnly()) {
+            throw new IllegalArgumentException("TreePM needs a long-range-only mesh");
+        }
+        this.tree = tree;
+        this.mesh = mesh;
+        update();
+    }
+
+    /**
+     * Match the tree's short-range walk to the mesh's latest solve.
+     */
+    public void update() {
+        tree.setShortRange(mesh.getForceSplit(), mesh.getPeriodicBox());
+    }
+
+    @Override
+    public Vector3D calculateNetForce(CelestialBody body) {
+        return tree.calculateNetForce(body).add(mesh.calculateNetForce(body));
+    }
+
+    public BarnesHutTree getTree() { return tree; }
+    public ParticleMesh getMesh() { return mesh; }
+}
@@ -1,6 +1,7 @@
 package com.example.demo;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Vector3D with object pooling for performance.
@@ -19,8 +20,11 @@ public class Vector3D {
     public static final Vector3D ZERO = new Vector3D(0, 0, 0);
 
     // --- Object Pool Implementation ---
-    private static final int POOL_SIZE = 1024; // Tune as needed for workload
-    private static final ArrayBlockingQueue<PooledVector3D> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+    static final int DEFAULT_POOL_SIZE = 1024; // Tune per workload with setPoolSize
+    private static volatile int poolSize = DEFAULT_POOL_SIZE;
+    // Lock-free: once drained, poll() is a plain read, so parallel simulations don't serialize here
+    private static final ConcurrentLinkedQueue<PooledVector3D> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
 
     // Private constructor for pooled instances
     private Vector3D(double x, double y, double z) {
@@ -36,6 +40,7 @@ public class Vector3D {
             // Pool exhausted, create new (not pooled)
             return new Vector3D(x, y, z);
         }
+        pooled.decrementAndGet();
         v.set(x, y, z);
         return v;
     }
@@ -47,7 +52,12 @@ public class Vector3D {
             PooledVector3D v = (PooledVector3D) this;
             // SECURITY: Zero out values to avoid data leakage (not strictly needed for non-sensitive data)
             v.set(0, 0, 0);
-            pool.offer(v);
+            // SAFETY: Bounded; surplus instances are left to the GC
+            if (pooled.incrementAndGet() <= poolSize) {
+                pool.offer(v);
+            } else {
+                pooled.decrementAndGet();
+            }
         }
     }
 
@@ -78,11 +88,30 @@ public class Vector3D {
 
     // Pre-populate the pool
     static {
-        for (int i = 0; i < POOL_SIZE; i++) {
+        for (int i = 0; i < DEFAULT_POOL_SIZE; i++) {
             pool.offer(new PooledVector3D());
         }
+        pooled.set(DEFAULT_POOL_SIZE);
     }
 
+    /**
+     * Resize the process-wide pool, topping it up to the new size; a smaller
+     * pool sheds its surplus as vectors are obtained and not taken back.
+     */
+    public static void setPoolSize(int size) {
+        // SECURITY: Bound the memory held by idle pooled vectors
+        if (size < 0 || size > SimulationSettings.MAX_VECTOR_POOL) {
+            throw new IllegalArgumentException("Pool size must be in 0.." + SimulationSettings.MAX_VECTOR_POOL);
+        }
+        poolSize = size;
+        while (pooled.get() < size) {
+            pooled.incrementAndGet();
+            pool.offer(new PooledVector3D());
+        }
+    }
+
+    public static int getPoolSize() { return poolSize; }
+
     // --- Vector Operations using pooling ---
 
     public Vector3D add(Vector3D other) {